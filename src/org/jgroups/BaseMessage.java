@@ -3,6 +3,7 @@ package org.jgroups;
 
 
 import org.jgroups.conf.ClassConfigurator;
+import org.jgroups.util.Bits;
 import org.jgroups.util.Headers;
 import org.jgroups.util.Util;
 
@@ -27,6 +28,7 @@ public abstract class BaseMessage implements Message {
 
     static final byte           DEST_SET         =  1;
     static final byte           SRC_SET          =  1 << 1;
+    static final byte           COMPACT_HDRS     =  1 << 2; // header count, ids and magic ids are compressed
 
 
     public BaseMessage() {
@@ -50,6 +52,8 @@ public abstract class BaseMessage implements Message {
     public int                   getNumHeaders()           {return Headers.size(this.headers);}
     public Map<Short,Header>     getHeaders()              {return Headers.getHeaders(this.headers);}
     public String                printHeaders()            {return Headers.printHeaders(this.headers);}
+    /** Returns the header array (may contain nulls) without copying; <em>must not be modified</em> */
+    public Header[]              headers()                 {return headers;}
 
 
     /**
@@ -226,13 +230,15 @@ public abstract class BaseMessage implements Message {
         if(sender != null)
             retval+=Util.size(sender);
 
-        retval+=Global.SHORT_SIZE;  // number of headers
-        retval+=Headers.marshalledSize(this.headers);
+        boolean compact=isFlagSet(TransientFlag.COMPACT_HEADERS);
+        retval+=compact? Bits.compressedSize((short)Headers.size(this.headers)) : Global.SHORT_SIZE; // number of headers
+        retval+=Headers.marshalledSize(this.headers, compact);
         return retval;
     }
 
     public void writeTo(DataOutput out) throws IOException {
         byte leading=0;
+        boolean compact=isFlagSet(TransientFlag.COMPACT_HEADERS);
 
         if(dest != null)
             leading=Util.setFlag(leading, DEST_SET);
@@ -240,6 +246,9 @@ public abstract class BaseMessage implements Message {
         if(sender != null)
             leading=Util.setFlag(leading, SRC_SET);
 
+        if(compact)
+            leading=Util.setFlag(leading, COMPACT_HDRS);
+
         // write the leading byte first
         out.write(leading);
 
@@ -255,7 +264,7 @@ public abstract class BaseMessage implements Message {
             Util.writeAddress(sender, out);
 
         // write the headers
-        writeHeaders(this.headers, out, (short[])null);
+        writeHeaders(this.headers, out, compact, (short[])null);
 
         // finally write the payload
         writePayload(out);
@@ -263,12 +272,16 @@ public abstract class BaseMessage implements Message {
 
     public void writeToNoAddrs(Address src, DataOutput out, short... excluded_headers) throws IOException {
         byte leading=0;
+        boolean compact=isFlagSet(TransientFlag.COMPACT_HEADERS);
 
         boolean write_src_addr=src == null || sender != null && !sender.equals(src);
 
         if(write_src_addr)
             leading=Util.setFlag(leading, SRC_SET);
 
+        if(compact)
+            leading=Util.setFlag(leading, COMPACT_HDRS);
+
         // write the leading byte first
         out.write(leading);
 
@@ -280,7 +293,7 @@ public abstract class BaseMessage implements Message {
             Util.writeAddress(sender, out);
 
         // write the headers
-        writeHeaders(this.headers, out, excluded_headers);
+        writeHeaders(this.headers, out, compact, excluded_headers);
 
         // finally write the payload
         writePayload(out);
@@ -303,12 +316,13 @@ public abstract class BaseMessage implements Message {
             sender=Util.readAddress(in);
 
         // 5. headers
-        int len=in.readShort();
+        boolean compact=Util.isFlagSet(leading, COMPACT_HDRS);
+        int len=compact? Bits.readShortCompressed(in) : in.readShort();
         if(this.headers == null || len > this.headers.length)
             this.headers=createHeaders(len);
         for(int i=0; i < len; i++) {
-            short id=in.readShort();
-            Header hdr=readHeader(in).setProtId(id);
+            short id=compact? Bits.readShortCompressed(in) : in.readShort();
+            Header hdr=readHeader(in, compact).setProtId(id);
             this.headers[i]=hdr;
         }
         readPayload(in);
@@ -320,9 +334,10 @@ public abstract class BaseMessage implements Message {
         return copy;
     }
 
-    protected static void writeHeaders(Header[] hdrs, DataOutput out, short ... excluded_headers) throws IOException {
+    protected static void writeHeaders(Header[] hdrs, DataOutput out, boolean compact,
+                                       short ... excluded_headers) throws IOException {
         int size=Headers.size(hdrs, excluded_headers);
-        out.writeShort(size);
+        writeShort((short)size, out, compact);
         if(size > 0) {
             for(Header hdr : hdrs) {
                 if(hdr == null)
@@ -330,25 +345,32 @@ public abstract class BaseMessage implements Message {
                 short id=hdr.getProtId();
                 if(Util.containsId(id, excluded_headers))
                     continue;
-                out.writeShort(id);
-                writeHeader(hdr, out);
+                writeShort(id, out, compact);
+                writeHeader(hdr, out, compact);
             }
         }
     }
 
-    protected static void writeHeader(Header hdr, DataOutput out) throws IOException {
+    protected static void writeHeader(Header hdr, DataOutput out, boolean compact) throws IOException {
         short magic_number=hdr.getMagicId();
-        out.writeShort(magic_number);
+        writeShort(magic_number, out, compact);
         hdr.writeTo(out);
     }
 
-    protected static Header readHeader(DataInput in) throws IOException, ClassNotFoundException {
-        short magic_number=in.readShort();
+    protected static Header readHeader(DataInput in, boolean compact) throws IOException, ClassNotFoundException {
+        short magic_number=compact? Bits.readShortCompressed(in) : in.readShort();
         Header hdr=ClassConfigurator.create(magic_number);
         hdr.readFrom(in);
         return hdr;
     }
 
+    protected static void writeShort(short s, DataOutput out, boolean compact) throws IOException {
+        if(compact)
+            Bits.writeShortCompressed(s, out);
+        else
+            out.writeShort(s);
+    }
+
     protected static Header[] createHeaders(int size) {
         return size > 0? new Header[size] : new Header[3];
     }
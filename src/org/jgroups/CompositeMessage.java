@@ -3,10 +3,11 @@ package org.jgroups;
 
 
 import org.jgroups.util.ByteArray;
+import org.jgroups.util.ByteArrayDataInputStream;
+import org.jgroups.util.ByteArrayDataOutputStream;
+import org.jgroups.util.Util;
 
-import java.io.DataInput;
-import java.io.DataOutput;
-import java.io.IOException;
+import java.io.*;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -91,6 +92,25 @@ public class CompositeMessage extends BaseMessage implements Iterable<Message> {
         return (T)msgs[index];
     }
 
+    /**
+     * Returns a stream over the payloads of all messages, in order. Payloads of messages with an array are not
+     * copied; other payloads are serialized when the stream reaches them
+     */
+    public InputStream getInputStream() {
+        return new SequenceInputStream(Util.enumerate(msgs == null? new Message[0] : msgs, 0, index, m -> {
+            if(m.hasArray())
+                return new ByteArrayDataInputStream(m.getArray(), m.getOffset(), m.getLength());
+            ByteArrayDataOutputStream out=new ByteArrayDataOutputStream(m.getLength() + 16);
+            try {
+                m.writePayload(out);
+            }
+            catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new ByteArrayDataInputStream(out.buffer(), 0, out.position());
+        }));
+    }
+
 
     /** Create a copy of this {@link CompositeMessage}. */
     public CompositeMessage copy(boolean copy_payload, boolean copy_headers) {
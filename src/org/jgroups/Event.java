@@ -65,6 +65,8 @@ public class Event {
     public static final int SET_SECRET_KEY                     = 112; // arg = Tuple<SecretKey,byte[]> // PK+version
     public static final int UNLOCK_FORCE                       = 113; // arg = lock name
     public static final int INSTALL_MERGE_VIEW                 = 114; // arg = MergeView
+    public static final int OPEN_STREAM                        = 115; // arg = Address (null: all) --> OutputStream
+    public static final int STREAM_RECEIVED                    = 116; // arg = Tuple<Address,InputStream> (sender,stream)
 
     public static final int USER_DEFINED                       = 1000; // arg = <user def., e.g. evt type + data>
 
@@ -153,6 +155,8 @@ public class Event {
             case SET_SECRET_KEY:         return "SET_SECRET_KEY";
             case UNLOCK_FORCE:           return "UNLOCK_FORCE";
             case INSTALL_MERGE_VIEW:     return "INSTALL_MERGE_VIEW";
+            case OPEN_STREAM:            return "OPEN_STREAM";
+            case STREAM_RECEIVED:        return "STREAM_RECEIVED";
 
             case USER_DEFINED:           return "USER_DEFINED";
             default:                     return "UNDEFINED(" + t + ")";
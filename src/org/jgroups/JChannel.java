@@ -493,6 +493,23 @@ public class JChannel implements Closeable {
         return send(new BytesMessage(dst, buf, offset, length));
     }
 
+    /**
+     * Opens a stream to a destination. Data written to the stream is sent in chunks, so that large payloads don't
+     * need to be materialized in a single message. Closing the stream sends the remaining data and marks the end of
+     * the stream. The receiver(s) consume the data via {@link Receiver#receive(Address, InputStream)}.<p/>
+     * Requires the STREAM protocol.
+     * @param dst the destination address. If null, the data will be sent to all cluster members
+     * @return the output stream
+     * @exception IllegalStateException thrown if the channel is disconnected or closed, or STREAM is not present
+     */
+    public OutputStream openStream(Address dst) throws Exception {
+        checkClosedOrNotConnected();
+        Object retval=down(new Event(Event.OPEN_STREAM, dst));
+        if(!(retval instanceof OutputStream))
+            throw new IllegalStateException("STREAM protocol not found in the stack");
+        return (OutputStream)retval;
+    }
+
 
     /**
      * Retrieves the full state from the target member.
@@ -706,6 +723,21 @@ public class JChannel implements Closeable {
                 }
                 break;
 
+            case Event.STREAM_RECEIVED:
+                if(up_handler != null)
+                    return up_handler.up(evt);
+                Tuple<Address,InputStream> stream=evt.getArg();
+                if(receiver != null) {
+                    try {
+                        receiver.receive(stream.getVal1(), stream.getVal2());
+                    }
+                    catch(Throwable t) {
+                        throw new RuntimeException(String.format("%s: failed consuming stream from %s",
+                                                                 local_addr, stream.getVal1()), t);
+                    }
+                }
+                return null;
+
             case Event.GET_LOCAL_ADDRESS:
                 return local_addr;
 
@@ -732,8 +764,13 @@ public class JChannel implements Closeable {
         if(up_handler != null)
             return up_handler.up(msg);
 
-        if(receiver != null)
-            receiver.receive(msg);
+        try {
+            if(receiver != null)
+                receiver.receive(msg);
+        }
+        finally {
+            release(msg);
+        }
         return null;
     }
 
@@ -761,9 +798,17 @@ public class JChannel implements Closeable {
                 log.error(Util.getMessage("ReceiverFailure"), t);
             }
         }
+        for(Message msg: batch)
+            release(msg);
         return this;
     }
 
+    /** Returns a {@link PooledBytesMessage} to its pool after delivery, unless the receiver retained it */
+    protected static void release(Message msg) {
+        if(msg instanceof PooledBytesMessage)
+            ((PooledBytesMessage)msg).decr();
+    }
+
 
 
     @ManagedOperation
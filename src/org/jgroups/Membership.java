@@ -16,7 +16,10 @@ import java.util.*;
  */
 public class Membership {
     /* holds all addresses */
-    protected final List<Address> members=new LinkedList<>();
+    protected final List<Address> members=new ArrayList<>();
+
+    /* the same addresses as members, for O(1) lookups. Guarded by members */
+    protected final Set<Address>  set=new HashSet<>();
 
     
    /**
@@ -65,9 +68,8 @@ public class Membership {
         if(new_member == null)
             return this;
         synchronized(members) {
-            if(!members.contains(new_member)) {
+            if(set.add(new_member))
                 members.add(new_member);
-            }
         }
         return this;
     }
@@ -100,7 +102,8 @@ public class Membership {
     public Membership remove(Address old_member) {
         if(old_member != null) {
             synchronized(members) {
-                members.remove(old_member);
+                if(set.remove(old_member))
+                    members.remove(old_member);
             }
         }
         return this;
@@ -115,7 +118,11 @@ public class Membership {
     public Membership remove(Collection<Address> v) {
         if(v != null) {
             synchronized(members) {
-                members.removeAll(v);
+                boolean removed=false;
+                for(Address mbr: v)
+                    removed|=set.remove(mbr);
+                if(removed)
+                    members.removeIf(mbr -> !set.contains(mbr));
             }
         }
         return this;
@@ -131,7 +138,8 @@ public class Membership {
     public Membership retainAll(Collection<Address> v) {
         if(v != null) {
             synchronized(members) {
-                members.retainAll(v);
+                if(set.retainAll(v instanceof Set? v : new HashSet<>(v)))
+                    members.removeIf(mbr -> !set.contains(mbr));
             }
         }
         return this;
@@ -144,6 +152,7 @@ public class Membership {
     public Membership clear() {
         synchronized(members) {
             members.clear();
+            set.clear();
         }
         return this;
     }
@@ -202,7 +211,7 @@ public class Membership {
     public boolean contains(Address member) {
         if(member == null) return false;
         synchronized(members) {
-            return members.contains(member);
+            return set.contains(member);
         }
     }
 
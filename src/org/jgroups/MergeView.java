@@ -191,12 +191,7 @@ public class MergeView extends View {
     }
 
     protected int get(Address member) {
-        if(member == null)
-            return -1;
-        for(int i=0; i < members.length; i++)
-            if(member.equals(members[i]))
-                return i;
-        return -1;
+        return indexOf(member);
     }
 
     protected Address get(int index) {
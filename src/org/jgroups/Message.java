@@ -220,7 +220,8 @@ public interface Message extends SizeStreamable, Constructable<Message> {
     // =========================== Transient flags ==============================
     enum TransientFlag {
         OOB_DELIVERED( (short)(1)),
-        DONT_LOOPBACK( (short)(1 << 1));   // don't loop back up if this flag is set and it is a multicast message
+        DONT_LOOPBACK( (short)(1 << 1)),   // don't loop back up if this flag is set and it is a multicast message
+        COMPACT_HEADERS((short)(1 << 2));  // marshal headers in compact form (set by the transport, TP.compact_headers)
 
         final short value;
         TransientFlag(short flag) {value=flag;}
@@ -0,0 +1,75 @@
+package org.jgroups;
+
+import java.util.Arrays;
+
+/**
+ * A {@link BytesMessage} created by a {@link PooledMessageFactory}. The message is returned to the factory's pool when
+ * its refcount drops to 0, and is then reused for a different message.<p/>
+ * A received message has a refcount of 1, which is dropped by {@link JChannel} after the message has been delivered
+ * to the {@link Receiver}. A receiver (or protocol) which keeps a reference to the message after delivery (e.g. to
+ * process it in a different thread) needs to call {@link #incr()}, and {@link #decr()} when done.<p/>
+ * Only the message and its headers array are reused; the payload (and copies of the message) are not.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public class PooledBytesMessage extends BytesMessage implements Refcountable<Message> {
+    protected final PooledMessageFactory     factory;
+    protected int                            refcount;
+    protected PooledMessageFactory.Tracker   tracker; // only set when leak detection is enabled
+
+    public PooledBytesMessage(PooledMessageFactory factory) {
+        this.factory=factory;
+    }
+
+    public synchronized int getRefcount() {
+        return refcount;
+    }
+
+    @Override public synchronized PooledBytesMessage incr() {
+        refcount++;
+        if(tracker != null)
+            tracker.touch();
+        return this;
+    }
+
+    @Override public PooledBytesMessage decr() {
+        synchronized(this) {
+            int tmp=--refcount;
+            if(tmp > 0)
+                return this;
+            if(tmp < 0) {
+                refcount=0;
+                factory.releasedTwice(this);
+                return this;
+            }
+        }
+        factory.release(this);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (refcnt=%d)", super.toString(), getRefcount());
+    }
+
+    /** Called by the factory when the message is handed out */
+    protected synchronized PooledBytesMessage acquired(PooledMessageFactory.Tracker t) {
+        refcount=1;
+        tracker=t;
+        return this;
+    }
+
+    /** Called by the factory before the message is returned to the pool: clears all fields */
+    protected PooledBytesMessage clear() {
+        dest=sender=null;
+        flags=0;
+        transient_flags=0;
+        Header[] hdrs=headers;
+        if(hdrs != null)
+            Arrays.fill(hdrs, null);
+        array=null;
+        offset=length=0;
+        tracker=null;
+        return this;
+    }
+}
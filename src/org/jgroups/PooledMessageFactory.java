@@ -0,0 +1,160 @@
+package org.jgroups;
+
+import org.jgroups.logging.Log;
+import org.jgroups.logging.LogFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link MessageFactory} which creates {@link BytesMessage}s from a pool of {@link PooledBytesMessage}s. A message is
+ * returned to the pool when its refcount drops to 0, which happens after {@link JChannel} has delivered it to the
+ * {@link Receiver} (unless the receiver retained the message with {@link PooledBytesMessage#incr()}). Other message
+ * types are created as in {@link DefaultMessageFactory}.<p/>
+ * Use this factory only if the application doesn't access a message after {@link Receiver#receive(Message)} or
+ * {@link Receiver#receive(org.jgroups.util.MessageBatch)} returns (or retains it with incr()/decr()). Messages passed
+ * to an {@link org.jgroups.UpHandler}, or consumed by protocols, are not returned to the pool (but simply garbage
+ * collected).<p/>
+ * The factory can be set with {@link org.jgroups.protocols.TP#setMessageFactory(MessageFactory)}, or with
+ * {@code msg_factory_class="org.jgroups.PooledMessageFactory"} in the transport; the pool capacity and leak detection
+ * are then configured with system properties {@link #CAPACITY} and {@link #LEAK_DETECTION}.<p/>
+ * Leak detection (for debugging) tracks every message handed out by the factory and reports messages which were
+ * retained with {@link PooledBytesMessage#incr()}, but garbage collected without having been returned to the pool,
+ * with the stack trace of the last incr(). Messages which were never retained are not leaks: they were consumed by
+ * protocols before reaching the channel (e.g. duplicates dropped by NAKACK2 or UNICAST3, or fragments consumed by
+ * FRAG2), and are only counted. Messages which are released more than once are also reported.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public class PooledMessageFactory extends DefaultMessageFactory {
+    public static final String                    CAPACITY="jgroups.msg_pool.capacity";
+    public static final String                    LEAK_DETECTION="jgroups.msg_pool.leak_detection";
+    protected static final Log                    log=LogFactory.getLog(PooledMessageFactory.class);
+
+    protected final BlockingQueue<PooledBytesMessage> pool;
+    protected final int                           capacity;
+    protected final boolean                       leak_detection;
+    protected final Set<Tracker>                  trackers=ConcurrentHashMap.newKeySet();
+    protected final ReferenceQueue<PooledBytesMessage> collected=new ReferenceQueue<>();
+    protected final LongAdder                     num_created=new LongAdder(), num_reused=new LongAdder(),
+                                                  num_released=new LongAdder(), num_leaks=new LongAdder(),
+                                                  num_consumed=new LongAdder();
+
+    public PooledMessageFactory() {
+        this(Integer.getInteger(CAPACITY, 1024), Boolean.getBoolean(LEAK_DETECTION));
+    }
+
+    /**
+     * Creates a factory
+     * @param capacity The max number of messages in the pool. Released messages are dropped when the pool is full
+     * @param leak_detection Whether to enable leak detection. This is costly and should only be used for debugging
+     */
+    public PooledMessageFactory(int capacity, boolean leak_detection) {
+        if(capacity <= 0)
+            throw new IllegalArgumentException(String.format("capacity (%d) must be > 0", capacity));
+        this.capacity=capacity;
+        this.leak_detection=leak_detection;
+        pool=new ArrayBlockingQueue<>(capacity);
+    }
+
+    public int     getCapacity()     {return capacity;}
+    public int     getPoolSize()     {return pool.size();}
+    public boolean leakDetection()   {return leak_detection;}
+    public long    getNumCreated()   {return num_created.sum();}
+    public long    getNumReused()    {return num_reused.sum();}
+    public long    getNumReleased()  {return num_released.sum();}
+    /** The number of messages that were garbage collected without having been released (only with leak detection) */
+    public long    getNumLeaks()     {return num_leaks.sum();}
+    /** The number of messages that were consumed by protocols and garbage collected (only with leak detection) */
+    public long    getNumConsumed()  {return num_consumed.sum();}
+    /** The number of messages handed out and not yet released or garbage collected (only with leak detection) */
+    public int     getNumInUse()     {return trackers.size();}
+
+    public <T extends Message> T create(short type) {
+        return type == Message.BYTES_MSG? (T)acquire() : super.create(type);
+    }
+
+    /**
+     * Reports messages which have been retained, but garbage collected without having been released. Called whenever
+     * a message is handed out when leak detection is enabled
+     * @return The number of leaked messages found by this call
+     */
+    public int checkLeaks() {
+        int num=0;
+        for(Reference<? extends PooledBytesMessage> ref; (ref=collected.poll()) != null;) {
+            Tracker t=(Tracker)ref;
+            if(!trackers.remove(t))
+                continue;
+            Throwable last_retained=t.last_retained;
+            if(last_retained == null) { // never retained: consumed by a protocol
+                num_consumed.increment();
+                continue;
+            }
+            num++;
+            num_leaks.increment();
+            log.warn("a pooled message was garbage collected without having been released", last_retained);
+        }
+        return num;
+    }
+
+    public String toString() {
+        return String.format("pool: %d/%d, created=%d reused=%d released=%d%s", pool.size(), capacity,
+                             getNumCreated(), getNumReused(), getNumReleased(),
+                             leak_detection? String.format(" in-use=%d leaks=%d consumed=%d", getNumInUse(),
+                                                           getNumLeaks(), getNumConsumed()) : "");
+    }
+
+    protected PooledBytesMessage acquire() {
+        PooledBytesMessage msg=pool.poll();
+        if(msg == null) {
+            msg=new PooledBytesMessage(this);
+            num_created.increment();
+        }
+        else
+            num_reused.increment();
+        Tracker t=null;
+        if(leak_detection) {
+            checkLeaks();
+            trackers.add(t=new Tracker(msg));
+        }
+        return msg.acquired(t);
+    }
+
+    /** Called by a message when its refcount drops to 0 */
+    protected void release(PooledBytesMessage msg) {
+        Tracker t=msg.tracker;
+        if(t != null) {
+            trackers.remove(t);
+            t.clear(); // a cleared reference is not enqueued
+        }
+        msg.clear();
+        num_released.increment();
+        pool.offer(msg); // the message is dropped if the pool is full
+    }
+
+    /** Called by a message when its refcount drops below 0 */
+    protected void releasedTwice(PooledBytesMessage msg) {
+        if(leak_detection)
+            log.warn(String.format("%s was released more than once", msg), new Throwable());
+    }
+
+
+    /** Tracks a message handed out by the factory; enqueued when the message is garbage collected */
+    protected class Tracker extends WeakReference<PooledBytesMessage> {
+        protected volatile Throwable last_retained; // the stack trace of the last incr()
+
+        protected Tracker(PooledBytesMessage msg) {
+            super(msg, collected);
+        }
+
+        protected void touch() {
+            last_retained=new Throwable("last retained at");
+        }
+    }
+}
@@ -93,4 +93,18 @@ public interface Receiver {
     default void setState(InputStream input) throws Exception {
         throw new UnsupportedOperationException("setState() needs to be overridden by applications");
     }
+
+    /**
+     * Called when a stream (see {@link JChannel#openStream(Address)}) is received. The callback is invoked on a
+     * separate thread when the first chunk has been received; the application should read the stream until the end
+     * (read() returns -1), consuming chunks as they arrive. The stream is closed when this method returns.
+     * <p/>
+     * Requires the STREAM protocol.
+     * @param sender The sender of the stream
+     * @param input The InputStream. Throws an {@link java.io.EOFException} when the sender left before closing the stream
+     * @throws Exception If the consumption of the stream failed
+     */
+    default void receive(Address sender, InputStream input) throws Exception {
+        throw new UnsupportedOperationException("receive(Address,InputStream) needs to be overridden by applications");
+    }
 }
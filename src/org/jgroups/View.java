@@ -41,8 +41,18 @@ public class View implements Comparable<View>, SizeStreamable, Iterable<Address>
     */
     protected Address[] members;
 
+    /**
+     * Index from member to rank (position in members + 1, 0 denotes an empty slot), created lazily on the first lookup
+     * in views with at least {@link #INDEX_THRESHOLD} members. Open addressing with linear probing; immutable once
+     * created, as views are immutable
+     */
+    protected volatile int[] index;
+
     protected static final boolean suppress_view_size=Boolean.getBoolean(Global.SUPPRESS_VIEW_SIZE);
 
+    /** Views with fewer members are searched linearly, which is faster than hashing for small arrays */
+    protected static final int     INDEX_THRESHOLD=16;
+
 
     /**
      * Creates an empty view, should not be used, only used by (de-)serialization
@@ -140,12 +150,33 @@ public class View implements Comparable<View>, SizeStreamable, Iterable<Address>
      * @return true if this view contains the member, false if it doesn't
      */
     public boolean containsMember(Address mbr) {
+        return indexOf(mbr) >= 0;
+    }
+
+    /**
+     * Returns the position of a member in this view (0 is the coordinator), or -1 if the member is not in this view.
+     * Large views use a hash index, so this is O(1)
+     */
+    public int indexOf(Address mbr) {
         if(mbr == null || members == null)
-            return false;
-        for(Address member: members)
-            if(Objects.equals(member, mbr))
-                return true;
-        return false;
+            return -1;
+        if(members.length < INDEX_THRESHOLD) {
+            for(int i=0; i < members.length; i++)
+                if(mbr.equals(members[i]))
+                    return i;
+            return -1;
+        }
+        int[] idx=index;
+        if(idx == null)
+            index=idx=createIndex(members);
+        int mask=idx.length - 1;
+        for(int i=hash(mbr) & mask;; i=(i + 1) & mask) {
+            int rank=idx[i];
+            if(rank == 0)
+                return -1;
+            if(mbr.equals(members[rank-1]))
+                return rank-1;
+        }
     }
 
     /** Returns true if all mbrs are elements of this view, false otherwise */
@@ -209,6 +240,7 @@ public class View implements Comparable<View>, SizeStreamable, Iterable<Address>
         view_id=new ViewId();
         view_id.readFrom(in);
         members=Util.readAddresses(in);
+        index=null;
     }
 
     @Override
@@ -224,16 +256,20 @@ public class View implements Comparable<View>, SizeStreamable, Iterable<Address>
     public static List<Address> leftMembers(View one, View two) {
         if(one == null || two == null)
             return null;
-        List<Address> retval=new ArrayList<>(one.getMembers());
-        retval.removeAll(two.getMembers());
+        List<Address> retval=new ArrayList<>();
+        for(Address mbr: one)
+            if(!two.containsMember(mbr))
+                retval.add(mbr);
         return retval;
     }
 
     public static List<Address> newMembers(View old, View new_view) {
         if(old == null || new_view == null)
             return null;
-        List<Address> retval=new ArrayList<>(new_view.getMembers());
-        retval.removeAll(old.getMembers());
+        List<Address> retval=new ArrayList<>();
+        for(Address mbr: new_view)
+            if(!old.containsMember(mbr))
+                retval.add(mbr);
         return retval;
     }
 
@@ -332,5 +368,22 @@ public class View implements Comparable<View>, SizeStreamable, Iterable<Address>
         return new ArrayIterator<>(this.members);
     }
 
+    protected static int[] createIndex(Address[] mbrs) {
+        int[] idx=new int[Util.getNextHigherPowerOfTwo(mbrs.length * 2)];
+        int mask=idx.length - 1;
+        for(int i=0; i < mbrs.length; i++) {
+            int pos=hash(mbrs[i]) & mask;
+            while(idx[pos] != 0)
+                pos=(pos + 1) & mask;
+            idx[pos]=i+1;
+        }
+        return idx;
+    }
+
+    protected static int hash(Address mbr) {
+        int h=mbr.hashCode();
+        return h ^ (h >>> 16);
+    }
+
 
 }
@@ -3,12 +3,17 @@ package org.jgroups.blocks.cs;
 import org.jgroups.Address;
 import org.jgroups.annotations.ManagedAttribute;
 import org.jgroups.annotations.ManagedOperation;
+import org.jgroups.conf.AttributeType;
 import org.jgroups.util.SocketFactory;
 import org.jgroups.util.ThreadFactory;
+import org.jgroups.util.Util;
 
+import java.io.Closeable;
 import java.nio.channels.*;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -32,6 +37,27 @@ public abstract class NioBaseServer extends BaseServer {
 
     protected long              reader_idle_time=20000;
 
+    @ManagedAttribute(description="Number of selector threads handling reads and writes of connections. 0 uses the " +
+      "acceptor thread for all connections. Cannot be changed at runtime")
+    protected int               num_selectors;
+
+    @ManagedAttribute(description="Max number of bytes that can be pending in a connection's send buffer before a " +
+      "sender blocks (backpressure). 0 disables blocking: writes exceeding the send buffer are dropped",
+      writable=true,type=AttributeType.BYTES)
+    protected int               max_pending_write_bytes;
+
+    @ManagedAttribute(description="Max time (ms) a sender blocks waiting for a pending write to drain. After this, the " +
+      "write is dropped if there is no space in the send buffer",writable=true,type=AttributeType.TIME)
+    protected long              write_timeout=2000;
+
+    @ManagedAttribute(description="When true, the buffer of a received message is reused for the next message. When " +
+      "false, every message is read into a new buffer which is owned by the receiver, e.g. to forward it to " +
+      "multiple connections without copying it")
+    protected boolean           reuse_recv_buffers=true;
+
+    protected SelectorLoop[]    selector_loops;  // handle reads and writes if num_selectors > 0
+    protected final AtomicInteger next_loop=new AtomicInteger();
+
 
 
     protected NioBaseServer(ThreadFactory f, SocketFactory sf, int recv_buf_size) {
@@ -48,6 +74,14 @@ public abstract class NioBaseServer extends BaseServer {
     public boolean        copyOnPartialWrite()          {return copy_on_partial_write;}
     public long           readerIdleTime()              {return reader_idle_time;}
     public NioBaseServer  readerIdleTime(long t)        {reader_idle_time=t; return this;}
+    public int            numSelectors()                {return num_selectors;}
+    public NioBaseServer  numSelectors(int n)           {num_selectors=n; return this;}
+    public int            maxPendingWriteBytes()        {return max_pending_write_bytes;}
+    public NioBaseServer  maxPendingWriteBytes(int b)   {max_pending_write_bytes=b; return this;}
+    public long           writeTimeout()                {return write_timeout;}
+    public NioBaseServer  writeTimeout(long t)          {write_timeout=t; return this;}
+    public boolean        reuseRecvBuffers()            {return reuse_recv_buffers;}
+    public NioBaseServer  reuseRecvBuffers(boolean b)   {reuse_recv_buffers=b; return this;}
 
     public NioBaseServer  copyOnPartialWrite(boolean b) {
         this.copy_on_partial_write=b;
@@ -60,6 +94,34 @@ public abstract class NioBaseServer extends BaseServer {
         return this;
     }
 
+    @ManagedAttribute(description="Number of selects() of all selector threads")
+    public int numSelectorLoopSelects() {
+        int retval=0;
+        if(selector_loops != null)
+            for(SelectorLoop l: selector_loops)
+                retval+=l.num_selects;
+        return retval;
+    }
+
+    @Override
+    public void start() throws Exception {
+        if(num_selectors > 0 && selector_loops == null) {
+            selector_loops=new SelectorLoop[num_selectors];
+            for(int i=0; i < selector_loops.length; i++)
+                selector_loops[i]=new SelectorLoop(i).start();
+        }
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        SelectorLoop[] tmp=selector_loops;
+        selector_loops=null;
+        if(tmp != null)
+            Util.close(tmp);
+    }
+
     public synchronized int numPartialWrites() {
         int retval=0;
         for(Connection c: conns.values()) {
@@ -88,6 +150,9 @@ public abstract class NioBaseServer extends BaseServer {
 
 
     protected SelectionKey register(SelectableChannel ch, int interest_ops, NioConnection conn) throws Exception {
+        SelectorLoop[] loops=selector_loops;
+        if(loops != null && loops.length > 0) // round-robin over the selector threads
+            return loops[Math.abs(next_loop.getAndIncrement() % loops.length)].register(ch, interest_ops, conn);
         reg_lock.lock();
         try {
             registration=true;
@@ -116,11 +181,14 @@ public abstract class NioBaseServer extends BaseServer {
 
     protected class Acceptor implements Runnable {
 
+        protected Selector selector()  {return selector;}
+        protected boolean  isRunning() {return running.get();}
+
         public void run() {
             Iterator<SelectionKey> it=null;
-            while(running.get() && doSelect()) {
+            while(isRunning() && doSelect()) {
                 try {
-                    it=selector.selectedKeys().iterator();
+                    it=selector().selectedKeys().iterator();
                 }
                 catch(Throwable ex) {
                     continue;
@@ -155,19 +223,21 @@ public abstract class NioBaseServer extends BaseServer {
                     }
                 }
             }
-            acceptorDone();
+            done();
         }
 
+        protected void done() {acceptorDone();}
+
 
         protected boolean doSelect() {
             try {
-                int num=selector.select();
-                num_selects++;
+                int num=selector().select();
+                incrSelects();
                 checkforPendingRegistrations();
                 if(num == 0) return true;
             }
             catch(ClosedSelectorException closed_ex) {
-                log.trace("selector was closed; acceptor terminating");
+                log.trace("selector was closed; %s terminating", getClass().getSimpleName());
                 return false;
             }
             catch(Throwable t) {
@@ -176,6 +246,8 @@ public abstract class NioBaseServer extends BaseServer {
             return true;
         }
 
+        protected void incrSelects() {num_selects++;}
+
 
 
         protected void checkforPendingRegistrations() {
@@ -191,4 +263,73 @@ public abstract class NioBaseServer extends BaseServer {
         }
     }
 
+
+    /**
+     * A selector with its own thread, handling the reads and writes (and connects) of a subset of the connections.
+     * Channels are assigned to selector loops round-robin by {@link #register(SelectableChannel, int, NioConnection)}.
+     * The acceptor then only accepts new connections.
+     */
+    protected class SelectorLoop extends Acceptor implements Closeable {
+        protected final Selector   sel;
+        protected final Lock       lock=new ReentrantLock(); // for registrations
+        protected volatile boolean registration_pending;
+        protected volatile boolean stopped;
+        protected final Thread     thread;
+        protected int              num_selects;
+
+        protected SelectorLoop(int index) throws Exception {
+            sel=Selector.open();
+            thread=factory.newThread(this, String.format("%s.SelectorLoop-%d [%s]",
+                                                         NioBaseServer.this.getClass().getSimpleName(), index, local_addr));
+            thread.setDaemon(true);
+        }
+
+        @Override protected Selector selector()  {return sel;}
+        @Override protected boolean  isRunning() {return !stopped && running.get();}
+
+        protected SelectorLoop start() {thread.start(); return this;}
+
+        protected SelectionKey register(SelectableChannel ch, int interest_ops, NioConnection conn) throws Exception {
+            lock.lock();
+            try {
+                registration_pending=true;
+                sel.wakeup(); // registration blocks until select() returns
+                SelectionKey key=ch.register(sel, interest_ops, conn);
+                if(conn != null)
+                    conn.key(key); // set before the selector thread can see a ready key
+                return key;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override protected void incrSelects() {num_selects++;}
+
+        @Override
+        protected void checkforPendingRegistrations() {
+            if(registration_pending) {
+                lock.lock();
+                try {
+                    registration_pending=false;
+                }
+                finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        @Override protected void done() {Util.close(sel);}
+
+        public void close() {
+            stopped=true;
+            sel.wakeup(); // the thread terminates when running is false and closes the selector
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(1));
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
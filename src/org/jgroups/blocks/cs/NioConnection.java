@@ -23,6 +23,7 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BooleanSupplier;
@@ -42,6 +43,7 @@ public class NioConnection extends Connection {
     protected boolean             copy_on_partial_write=true;
     protected int                 partial_writes; // number of partial writes (write which did not write all bytes)
     protected final Lock          send_lock=new ReentrantLock(); // serialize send()
+    protected final Condition     write_drained=send_lock.newCondition(); // signalled when pending writes were written
 
     // creates an array of 2: length buffer (for reading the length of the following data buffer) and data buffer
     // protected Buffers             recv_buf=new Buffers(2).add(ByteBuffer.allocate(Global.INT_SIZE), null);
@@ -199,6 +201,8 @@ public class NioConnection extends Connection {
                     send_buf.copy(); // copy data on partial write as subsequent writes might corrupt data (https://issues.jboss.org/browse/JGRP-1991)
                 partial_writes++;
             }
+            if(server.maxPendingWriteBytes() > 0)
+                write_drained.signalAll();
         }
         finally {
             send_lock.unlock();
@@ -215,6 +219,8 @@ public class NioConnection extends Connection {
     protected void send(ByteBuffer buf, boolean send_length) throws Exception {
         send_lock.lock();
         try {
+            if(server.maxPendingWriteBytes() > 0)
+                waitForPendingWrites(buf.remaining(), send_length? 2 : 1);
             // makeLengthBuffer() reuses the same pre-allocated buffer and copies it only if the write didn't complete
             if(send_length)
                 send_buf.add(makeLengthBuffer(buf), buf);
@@ -235,6 +241,21 @@ public class NioConnection extends Connection {
         }
     }
 
+    /**
+     * Blocks the sender until the bytes pending in the send buffer have been written by the selector thread, so that
+     * a slow peer pushes back on the senders instead of causing writes to be dropped. Returns after
+     * {@link NioBaseServer#writeTimeout()} ms at the latest. Needs to be called with send_lock held.
+     */
+    protected void waitForPendingWrites(int size, int num_bufs) throws InterruptedException {
+        long wait_time=TimeUnit.NANOSECONDS.convert(server.writeTimeout(), TimeUnit.MILLISECONDS);
+        while(isOpen() && send_buf.remaining() > 0 && write_interest_set
+          && (send_buf.remaining() + size > server.maxPendingWriteBytes() || send_buf.capacity() - send_buf.size() < num_bufs)) {
+            if(wait_time <= 0)
+                break;
+            wait_time=write_drained.awaitNanos(wait_time);
+        }
+    }
+
     protected boolean _receive(boolean update) throws Exception {
         ByteBuffer msg;
         Receiver   receiver=server.receiver();
@@ -247,6 +268,8 @@ public class NioConnection extends Connection {
 
         if((msg=recv_buf.readLengthAndData(channel)) == null)
             return false;
+        if(!server.reuseRecvBuffers())
+            recv_buf.remove(1); // msg is owned by the receiver; the next message is read into a new buffer
         if(receiver != null)
             receiver.receive(peer_addr, msg);
         if(update)
@@ -267,6 +290,7 @@ public class NioConnection extends Connection {
         }
         finally {
             connected=false;
+            write_drained.signalAll(); // wakes up senders blocked in waitForPendingWrites()
             send_lock.unlock();
         }
     }
@@ -8,9 +8,12 @@ import java.net.InetAddress;
 import java.nio.channels.*;
 
 /**
- * Server for sending and receiving messages via NIO channels. Uses only a single thread to accept, connect, write and
- * read connections. Read messages are passed to a receiver, which typically uses a thread pool to process messages.<p/>
- * Note that writes can get dropped, e.g. in the case where we have a previous write pending and a new write is received.
+ * Server for sending and receiving messages via NIO channels. By default, uses only a single thread to accept, connect,
+ * write and read connections. If {@link #numSelectors(int)} is greater than 0, the reads and writes of connections are
+ * spread over that number of selector threads, and the acceptor thread only accepts new connections.
+ * Read messages are passed to a receiver, which typically uses a thread pool to process messages.<p/>
+ * Note that writes can get dropped, e.g. in the case where we have a previous write pending and a new write is received
+ * (unless {@link #maxPendingWriteBytes(int)} is set, in which case the sender blocks until the pending write drains).
  * This is typically not an issue as JGroups retransmits messages, but might become one when using NioServer standalone,
  * ie. outside of JGroups.
  * @author Bela Ban
@@ -70,9 +73,13 @@ public class NioServer extends NioBaseServer {
         NioConnection conn=null;
         if(client_channel == null) return; // can happen if no connection is available to accept
         try {
-            conn=new NioConnection(client_channel, NioServer.this);
-            SelectionKey client_key=client_channel.register(selector, SelectionKey.OP_READ, conn);
-            conn.key(client_key); // we need to set the selection key of the client channel *not* the server channel
+            conn=new NioConnection(client_channel, NioServer.this).copyOnPartialWrite(copy_on_partial_write);
+            if(selector_loops != null) // reads and writes are handled by one of the selector threads
+                register(client_channel, SelectionKey.OP_READ, conn);
+            else {
+                SelectionKey client_key=client_channel.register(selector, SelectionKey.OP_READ, conn);
+                conn.key(client_key); // we need to set the selection key of the client channel *not* the server channel
+            }
             Address peer_addr=conn.peerAddress();
             if(use_peer_connections)
                 return;
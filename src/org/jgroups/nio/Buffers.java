@@ -207,15 +207,23 @@ public class Buffers implements Iterable<ByteBuffer> {
 
     /** Copies the data that has not yet been written and moves last_copied. Typically done after an unsuccessful
      * write, if copying is required. This is typically needed if the output buffer is reused. Note that
-     * direct buffers will be converted to heap-based buffers */
+     * direct buffers will be converted to heap-based buffers. Read-only buffers are not copied: their contents are
+     * expected not to change, e.g. when the same message is sent to multiple connections */
     public Buffers copy() {
         for(int i=Math.max(position, next_to_copy); i < limit; i++) {
-            this.bufs[i]=copyBuffer(this.bufs[i]);
+            ByteBuffer buf=this.bufs[i];
+            if(buf != null && !buf.isReadOnly())
+                this.bufs[i]=copyBuffer(buf);
             next_to_copy=(short)(i+1);
         }
         return this;
     }
 
+    /** Returns the max number of buffers */
+    public int capacity() {
+        return bufs.length;
+    }
+
     /** Returns the number of elements that have not yet been read or written */
     public int size() {
         return limit - position;
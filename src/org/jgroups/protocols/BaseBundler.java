@@ -106,7 +106,7 @@ public abstract class BaseBundler implements Bundler {
     protected void sendSingleMessage(final Message msg) {
         Address dest=msg.getDest();
         try {
-            Util.writeMessage(msg, output, dest == null);
+            Util.writeMessage(msg, output, dest == null, transport.getAddressEncoder());
             transport.doSend(output.buffer(), 0, output.position(), dest);
             if(transport.statsEnabled())
                 transport.getMessageStats().incrNumSingleMsgsSent(1);
@@ -121,7 +121,8 @@ public abstract class BaseBundler implements Bundler {
 
     protected void sendMessageList(final Address dest, final Address src, final List<Message> list) {
         try {
-            Util.writeMessageList(dest, src, transport.cluster_name.chars(), list, output, dest == null, transport.getId());
+            Util.writeMessageList(dest, src, transport.cluster_name.chars(), list, output, dest == null, transport.getId(),
+                                  transport.getAddressEncoder());
             transport.doSend(output.buffer(), 0, output.position(), dest);
         }
         catch(Throwable e) {
@@ -3,29 +3,31 @@ package org.jgroups.protocols;
 import org.jgroups.*;
 import org.jgroups.annotations.MBean;
 import org.jgroups.annotations.ManagedAttribute;
+import org.jgroups.annotations.ManagedOperation;
 import org.jgroups.annotations.Property;
 import org.jgroups.conf.AttributeType;
 import org.jgroups.stack.Protocol;
-import org.jgroups.util.ByteArray;
-import org.jgroups.util.FastArray;
-import org.jgroups.util.MessageBatch;
-import org.jgroups.util.Util;
-
-import java.io.DataInput;
-import java.io.DataOutput;
-import java.io.IOException;
+import org.jgroups.util.*;
+
+import java.io.*;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
-import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 
 /**
  * Compresses the payload of a message. Goal is to reduce the number of messages
  * sent across the wire. Should ideally be layered somewhere above a
- * fragmentation protocol (e.g. FRAG).
+ * fragmentation protocol (e.g. FRAG).<p/>
+ * The codec is pluggable (deflate, LZ4 or a {@link Compressor} implementation), and a dictionary can be used to
+ * improve compression of small messages. When compress_frames is true, entire frames are compressed in the transport
+ * (see {@link FrameCompressor}) instead of individual messages.<p/>
+ * In adaptive mode, the compression ratio is sampled per message signature (type and headers), and
+ * compression is skipped for signatures whose payloads don't compress (e.g. already compressed data). When the
+ * bundler's queue backs up, a faster compression level is used.
  * 
  * @author Bela Ban
  */
@@ -44,11 +46,42 @@ public class COMPRESS extends Protocol {
     
     @Property(description="Number of inflaters/deflaters for concurrent processing. Default is 2 ")
     protected int pool_size=2;
-    
-    protected BlockingQueue<Deflater> deflater_pool;
-    protected BlockingQueue<Inflater> inflater_pool;
-    protected MessageFactory          msg_factory;
-    protected final LongAdder         num_compressions=new LongAdder(), num_decompressions=new LongAdder();
+
+    @Property(description="The compression codec: \"deflate\" (default), \"lz4\" (faster, but lower ratio) or the " +
+      "fully qualified classname of a Compressor implementation")
+    protected String codec="deflate";
+
+    @Property(description="File or classpath resource containing a dictionary (e.g. trained from typical messages). " +
+      "All members must use the same dictionary")
+    protected String dictionary;
+
+    @Property(description="Compresses entire frames (single messages or message bundles) in the transport rather " +
+      "than individual messages. All members must use the same setting",writable=false)
+    protected boolean compress_frames;
+
+    @Property(description="Samples the compression ratio per message signature and skips compression of " +
+      "signatures whose payloads don't compress")
+    protected boolean adaptive;
+
+    @Property(description="Adaptive mode: compression is skipped for a message signature when the average ratio " +
+      "(compressed size / original size) is above this value")
+    protected double max_ratio=0.9;
+
+    @Property(description="Adaptive mode: every Nth message of a skipped signature is compressed to re-sample its ratio")
+    protected int sample_interval=100;
+
+    @Property(description="Adaptive mode: when the bundler has more queued messages than this, deflate uses the " +
+      "fastest level (1) instead of compression_level. 0 disables this")
+    protected int fast_level_queue_size=1000;
+
+    protected BlockingQueue<Compressor> compressor_pool;
+    protected BlockingQueue<Compressor> fast_compressor_pool; // deflate with BEST_SPEED, only used in adaptive mode
+    protected BlockingQueue<Compressor> uncompressor_pool;
+    protected byte[]                    dict;
+    protected MessageFactory            msg_factory;
+    protected final LongAdder           num_compressions=new LongAdder(), num_decompressions=new LongAdder();
+    protected final LongAdder           num_skipped=new LongAdder(), num_fast_compressions=new LongAdder();
+    protected final SignatureTable      signatures=new SignatureTable();
 
 
 
@@ -56,8 +89,22 @@ public class COMPRESS extends Protocol {
     public COMPRESS() {      
     }
 
-    public int      getMinSize()      {return min_size;}
-    public COMPRESS setMinSize(int s) {this.min_size=s; return this;}
+    public int      getMinSize()                {return min_size;}
+    public COMPRESS setMinSize(int s)           {this.min_size=s; return this;}
+    public String   getCodec()                  {return codec;}
+    public COMPRESS setCodec(String c)          {this.codec=c; return this;}
+    public String   getDictionary()             {return dictionary;}
+    public COMPRESS setDictionary(String d)     {this.dictionary=d; return this;}
+    public boolean  compressFrames()            {return compress_frames;}
+    public COMPRESS compressFrames(boolean b)   {this.compress_frames=b; return this;}
+    public boolean  isAdaptive()                {return adaptive;}
+    public COMPRESS setAdaptive(boolean b)      {this.adaptive=b; return this;}
+    public double   getMaxRatio()               {return max_ratio;}
+    public COMPRESS setMaxRatio(double r)       {this.max_ratio=r; return this;}
+    public int      getSampleInterval()         {return sample_interval;}
+    public COMPRESS setSampleInterval(int i)    {this.sample_interval=i; return this;}
+    public int      getFastLevelQueueSize()     {return fast_level_queue_size;}
+    public COMPRESS setFastLevelQueueSize(int s) {this.fast_level_queue_size=s; return this;}
 
     @ManagedAttribute(description="Number of compressions",type=AttributeType.SCALAR)
     public long getNumCompressions() {return num_compressions.sum();}
@@ -65,25 +112,100 @@ public class COMPRESS extends Protocol {
     @ManagedAttribute(description="Number of un-compressions",type=AttributeType.SCALAR)
     public long getNumUncompressions() {return num_decompressions.sum();}
 
+    @ManagedAttribute(description="Number of messages not compressed because their signature doesn't compress well " +
+      "(adaptive mode)",type=AttributeType.SCALAR)
+    public long getNumSkipped() {return num_skipped.sum();}
+
+    @ManagedAttribute(description="Number of compressions using the fastest level because the bundler queue " +
+      "backed up (adaptive mode)",type=AttributeType.SCALAR)
+    public long getNumFastCompressions() {return num_fast_compressions.sum();}
+
+    @ManagedOperation(description="Prints the average compression ratio per message signature (adaptive mode)")
+    public String printSignatures() {
+        StringBuilder sb=new StringBuilder();
+        signatures.forEach(st -> sb.append(String.format("%08x: %s\n", st.signature, st)));
+        return sb.toString();
+    }
+
     public void resetStats() {
         super.resetStats();
-        num_compressions.reset(); num_decompressions.reset();
+        num_compressions.reset(); num_decompressions.reset(); num_skipped.reset(); num_fast_compressions.reset();
+        signatures.clear();
     }
 
     public void init() throws Exception {
-        deflater_pool=new ArrayBlockingQueue<>(pool_size);
-        for(int i=0; i < pool_size; i++)
-            deflater_pool.add(new Deflater(compression_level));
-        inflater_pool=new ArrayBlockingQueue<>(pool_size);
-        for(int i=0; i < pool_size; i++)
-            inflater_pool.add(new Inflater());
-        msg_factory=getTransport().getMessageFactory();
+        if(dictionary != null)
+            dict=readDictionary(dictionary);
+        createCompressor(); // fails fast if the codec is invalid
+        TP tp=getTransport();
+        msg_factory=tp.getMessageFactory();
+        if(compress_frames) {
+            tp.setFrameCompressor(new FrameCompressor(this::createCompressorUnchecked, pool_size, min_size));
+            return;
+        }
+        compressor_pool=new ArrayBlockingQueue<>(pool_size);
+        uncompressor_pool=new ArrayBlockingQueue<>(pool_size);
+        for(int i=0; i < pool_size; i++) {
+            compressor_pool.add(createCompressor());
+            uncompressor_pool.add(createCompressor());
+        }
+        if(adaptive && "deflate".equals(codec) && fast_level_queue_size > 0 && compression_level > Deflater.BEST_SPEED) {
+            fast_compressor_pool=new ArrayBlockingQueue<>(pool_size);
+            for(int i=0; i < pool_size; i++)
+                fast_compressor_pool.add(new DeflateCompressor(Deflater.BEST_SPEED).dictionary(dict));
+        }
     }
 
     public void destroy() {
-        deflater_pool.forEach(Deflater::end);
-        inflater_pool.forEach(Inflater::end);
-    }   
+        TP tp=getTransport();
+        FrameCompressor fc=tp != null? tp.getFrameCompressor() : null;
+        if(compress_frames && fc != null) {
+            tp.setFrameCompressor(null);
+            fc.destroy();
+        }
+        if(compressor_pool != null)
+            compressor_pool.forEach(Compressor::close);
+        if(uncompressor_pool != null)
+            uncompressor_pool.forEach(Compressor::close);
+        if(fast_compressor_pool != null)
+            fast_compressor_pool.forEach(Compressor::close);
+    }
+
+    /** Creates a new compressor for the configured codec, compression level and dictionary */
+    protected Compressor createCompressor() throws Exception {
+        Compressor c;
+        switch(codec) {
+            case "deflate":
+                c=new DeflateCompressor(compression_level);
+                break;
+            case "lz4":
+                c=new LZ4Compressor();
+                break;
+            default:
+                Class<?> cl=Util.loadClass(codec, getClass());
+                c=(Compressor)cl.getDeclaredConstructor().newInstance();
+                break;
+        }
+        return dict != null? c.dictionary(dict) : c;
+    }
+
+    protected Compressor createCompressorUnchecked() {
+        try {
+            return createCompressor();
+        }
+        catch(Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    protected byte[] readDictionary(String name) throws IOException {
+        File f=new File(name);
+        try(InputStream in=f.exists()? new FileInputStream(f) : Util.getResourceAsStream(name, getClass())) {
+            if(in == null)
+                throw new FileNotFoundException(String.format("dictionary %s not found", name));
+            return Util.readFileContents(in);
+        }
+    }
 
 
     /**
@@ -93,24 +215,32 @@ public class COMPRESS extends Protocol {
      * are used)
      */
     public Object down(Message msg) {
+        if(compress_frames)
+            return down_prot.down(msg);
         int length=msg.getLength(); // takes offset/length (if set) into account
         if(length >= min_size) {
+            CompressionStats st=adaptive? signatures.get(signature(msg)) : null;
+            if(st != null && st.skip(max_ratio, sample_interval)) {
+                num_skipped.increment();
+                return down_prot.down(msg);
+            }
             boolean serialize=!msg.hasArray();
             ByteArray tmp=null;
             byte[] payload=serialize? (tmp=messageToByteArray(msg)).getArray() : msg.getArray();
             int offset=serialize? tmp.getOffset() : msg.getOffset();
             length=serialize? tmp.getLength() : msg.getLength();
             byte[] compressed_payload=new byte[length];
-            Deflater deflater=null;
+            Compressor compressor=null;
+            BlockingQueue<Compressor> pool=st != null && backlogged()? fast_compressor_pool : compressor_pool;
             try {
-                deflater=deflater_pool.take();
-                deflater.reset();
-                deflater.setInput(payload, offset, length);
-                deflater.finish();
-                deflater.deflate(compressed_payload);
-                int compressed_size=deflater.getTotalOut();
-
-                if(compressed_size < length ) { // JGRP-1000
+                compressor=pool.take();
+                int compressed_size=compressor.compress(payload, offset, length, compressed_payload, 0);
+                if(st != null)
+                    st.add(compressed_size >= 0? compressed_size / (double)length : 1.0);
+                if(pool == fast_compressor_pool)
+                    num_fast_compressions.increment();
+
+                if(compressed_size >= 0 && compressed_size < length ) { // JGRP-1000
                     Message copy=null;
                     if(serialize)
                         copy=new BytesMessage(msg.getDest());
@@ -125,17 +255,20 @@ public class COMPRESS extends Protocol {
                 }
                 else {
                     if(log.isTraceEnabled())
-                        log.trace("skipping compression since the compressed message (%d) is not " +
-                                    "smaller than the original (%d)", compressed_size, length);
+                        log.trace("skipping compression since the compressed message is not " +
+                                    "smaller than the original (%d)", length);
                 }
             }
             catch(InterruptedException e) {
                 Thread.currentThread().interrupt(); // set interrupt flag again
                 throw new RuntimeException(e);
             }
+            catch(Exception e) {
+                log.error(Util.getMessage("CompressionFailure"), e);
+            }
             finally {
-                if(deflater != null)
-                    deflater_pool.offer(deflater);
+                if(compressor != null)
+                    pool.offer(compressor);
             }
         }
         return down_prot.down(msg);
@@ -145,7 +278,7 @@ public class COMPRESS extends Protocol {
      * If there is no header, we pass the message up. Otherwise we uncompress the payload to its original size.
      */
     public Object up(Message msg) {
-        CompressHeader hdr=msg.getHeader(this.id);
+        CompressHeader hdr=compress_frames? null : msg.getHeader(this.id);
         if(hdr != null) {
             Message uncompressed_msg=uncompress(msg, hdr.original_size, hdr.needsDeserialization());
             if(uncompressed_msg != null) {
@@ -159,6 +292,10 @@ public class COMPRESS extends Protocol {
     }
 
     public void up(MessageBatch batch) {
+        if(compress_frames) {
+            up_prot.up(batch);
+            return;
+        }
         FastArray<Message>.FastIterator it=(FastArray<Message>.FastIterator)batch.iterator();
         while(it.hasNext()) {
             Message msg=it.next();
@@ -183,35 +320,66 @@ public class COMPRESS extends Protocol {
         byte[] compressed_payload=msg.getArray();
         if(compressed_payload != null && compressed_payload.length > 0) {
             byte[] uncompressed_payload=new byte[original_size];
-            Inflater inflater=null;
+            Compressor uncompressor=null;
             try {
-                inflater=inflater_pool.take();
-                inflater.reset();
-                inflater.setInput(compressed_payload, msg.getOffset(), msg.getLength());
+                uncompressor=uncompressor_pool.take();
                 try {
-                    inflater.inflate(uncompressed_payload);
-                    // we need to copy: https://jira.jboss.org/jira/browse/JGRP-867
-                    if(needs_deserialization) {
-                        return messageFromByteArray(uncompressed_payload, msg_factory);
-                    }
-                    else
-                        return msg.copy(false, true).setArray(uncompressed_payload, 0, uncompressed_payload.length);
+                    uncompressor.uncompress(compressed_payload, msg.getOffset(), msg.getLength(),
+                                            uncompressed_payload, 0, original_size);
                 }
-                catch(DataFormatException e) {
+                catch(Exception e) {
                     log.error(Util.getMessage("CompressionFailure"), e);
+                    return null;
+                }
+                // we need to copy: https://jira.jboss.org/jira/browse/JGRP-867
+                if(needs_deserialization) {
+                    return messageFromByteArray(uncompressed_payload, msg_factory);
                 }
+                else
+                    return msg.copy(false, true).setArray(uncompressed_payload, 0, uncompressed_payload.length);
             }
             catch(InterruptedException e) {
                 Thread.currentThread().interrupt(); // set the interrupt bit again, so caller can handle it
             }
             finally {
-                if(inflater != null)
-                    inflater_pool.offer(inflater);
+                if(uncompressor != null)
+                    uncompressor_pool.offer(uncompressor);
             }
         }
         return null;
     }
 
+    /**
+     * The signature of a message is computed from its type and the IDs of its headers. The IDs are combined
+     * independently of their order, as the header array of a {@link BaseMessage} is iterated without creating a map
+     */
+    protected static int signature(Message msg) {
+        int ids=0;
+        if(msg instanceof BaseMessage) {
+            for(Header hdr: ((BaseMessage)msg).headers())
+                if(hdr != null)
+                    ids+=mix(hdr.getProtId());
+        }
+        else if(msg.getNumHeaders() > 0) {
+            for(short hdr_id: msg.getHeaders().keySet())
+                ids+=mix(hdr_id);
+        }
+        return 31 * msg.getType() + ids;
+    }
+
+    protected static int mix(short id) {
+        int h=id * 0x9E3779B9; // spreads the IDs, so that different sets of IDs rarely have the same sum
+        return h ^ (h >>> 16);
+    }
+
+    /** Returns true if the bundler's queue has backed up and the fast compressors should be used */
+    protected boolean backlogged() {
+        if(fast_compressor_pool == null)
+            return false;
+        Bundler bundler=getTransport().getBundler();
+        return bundler != null && bundler.getQueueSize() > fast_level_queue_size;
+    }
+
     protected static ByteArray messageToByteArray(Message msg) {
         try {
             return Util.messageToBuffer(msg);
@@ -231,6 +399,96 @@ public class COMPRESS extends Protocol {
     }
 
 
+    /**
+     * Exponentially weighted moving average of the compression ratio of a message signature. Updates are not atomic;
+     * lost updates are acceptable as the ratio is only used as an estimate
+     */
+    protected static class CompressionStats {
+        protected static final double WEIGHT=0.1;
+        protected final int           signature;
+        protected volatile double     ratio=-1;
+        protected final AtomicInteger skipped=new AtomicInteger();
+
+        protected CompressionStats(int signature) {
+            this.signature=signature;
+        }
+
+        protected void add(double r) {
+            ratio=ratio < 0? r : ratio + WEIGHT * (r - ratio);
+        }
+
+        /** Returns true if the average ratio is above max_ratio, except for every sample_interval-th message */
+        protected boolean skip(double max_ratio, int sample_interval) {
+            return ratio > max_ratio && skipped.incrementAndGet() % Math.max(sample_interval, 1) != 0;
+        }
+
+        public String toString() {
+            return String.format("ratio=%.2f, skipped=%d", ratio, skipped.get());
+        }
+    }
+
+    /**
+     * Open-addressing hash table of {@link CompressionStats}, keyed by signature, so that lookups don't box the
+     * signature. Lookups are lock-free; additions (rare, as the number of signatures is small) are synchronized.
+     * The load factor is kept at or below 0.5, so that probing always finds an empty slot
+     */
+    protected static class SignatureTable {
+        protected static final int            INITIAL_CAPACITY=16; // must be a power of 2
+        protected volatile CompressionStats[] table=new CompressionStats[INITIAL_CAPACITY];
+        protected int                         size; // guarded by this
+
+        /** Returns the stats for the given signature, creating them if absent */
+        protected CompressionStats get(int signature) {
+            CompressionStats st=find(table, signature);
+            return st != null? st : add(signature);
+        }
+
+        protected synchronized CompressionStats add(int signature) {
+            CompressionStats[] tmp=table;
+            CompressionStats st=find(tmp, signature);
+            if(st != null)
+                return st;
+            if((size+1) * 2 > tmp.length) {
+                CompressionStats[] new_table=new CompressionStats[tmp.length * 2];
+                for(CompressionStats s: tmp)
+                    if(s != null)
+                        insert(new_table, s);
+                tmp=new_table;
+            }
+            insert(tmp, st=new CompressionStats(signature));
+            size++;
+            table=tmp;
+            return st;
+        }
+
+        protected synchronized void clear() {
+            table=new CompressionStats[INITIAL_CAPACITY];
+            size=0;
+        }
+
+        protected void forEach(Consumer<CompressionStats> c) {
+            for(CompressionStats st: table)
+                if(st != null)
+                    c.accept(st);
+        }
+
+        protected static CompressionStats find(CompressionStats[] t, int signature) {
+            int mask=t.length-1;
+            for(int i=signature & mask;; i=(i+1) & mask) {
+                CompressionStats st=t[i];
+                if(st == null || st.signature == signature)
+                    return st;
+            }
+        }
+
+        protected static void insert(CompressionStats[] t, CompressionStats st) {
+            int mask=t.length-1, i=st.signature & mask;
+            while(t[i] != null)
+                i=(i+1) & mask;
+            t[i]=st;
+        }
+    }
+
     public static class CompressHeader extends Header {
         protected int     original_size;
         protected boolean needs_deserialization;
@@ -84,11 +84,27 @@ public abstract class Discovery extends Protocol {
       "(https://issues.jboss.org/browse/JGRP-2317)")
     protected int                        num_discovery_runs=1;
 
+    @Property(description="If true, only the coordinator replies to initial discovery requests. It sends a single " +
+      "message with a snapshot of the addresses, logical names and physical addresses of all members of the view, " +
+      "instead of every member sending its own response. This reduces discovery traffic when many members join " +
+      "at the same time")
+    protected boolean                    coord_sends_snapshot;
+
+    @Property(description="Time (ms) for which the snapshot sent by the coordinator is reused for other joiners. " +
+      "A new view always creates a new snapshot",type=AttributeType.TIME)
+    protected long                       snapshot_expiry_time=2000;
+
     /* ---------------------------------------------   JMX      ------------------------------------------------------ */
 
     @ManagedAttribute(description="Total number of discovery requests sent ")
     protected int                        num_discovery_requests;
 
+    @ManagedAttribute(description="Number of snapshots sent in response to discovery requests")
+    protected int                        num_snapshots_sent;
+
+    @ManagedAttribute(description="Number of snapshots created (the others were served from the cache)")
+    protected int                        num_snapshots_created;
+
     /* --------------------------------------------- Fields ------------------------------------------------------ */
 
     protected volatile boolean           is_server;
@@ -107,6 +123,7 @@ public abstract class Discovery extends Protocol {
     @ManagedAttribute(description="True if sending a message can block at the transport level")
     protected boolean                    sends_can_block=true;
     protected Consumer<PingData>         discovery_rsp_callback; // called when a discovery response is received
+    protected volatile Snapshot          snapshot; // cached by the coord when coord_sends_snapshot is true
     protected static final byte[]        WHITESPACE=" \t".getBytes();
 
 
@@ -158,6 +175,12 @@ public abstract class Discovery extends Protocol {
     public boolean                 useDiskCache()                     {return use_disk_cache;}
     public <T extends Discovery> T useDiskCache(boolean flag)         {use_disk_cache=flag; return (T)this;}
     public <T extends Discovery> T discoveryRspExpiryTime(long t)     {this.discovery_rsp_expiry_time=t; return (T)this;}
+    public boolean                 coordSendsSnapshot()               {return coord_sends_snapshot;}
+    public <T extends Discovery> T coordSendsSnapshot(boolean flag)   {coord_sends_snapshot=flag; return (T)this;}
+    public long                    snapshotExpiryTime()               {return snapshot_expiry_time;}
+    public int                     numSnapshotsSent()                 {return num_snapshots_sent;}
+    public int                     numSnapshotsCreated()              {return num_snapshots_created;}
+    public <T extends Discovery> T snapshotExpiryTime(long t)         {snapshot_expiry_time=t; return (T)this;}
 
 
 
@@ -188,7 +211,7 @@ public abstract class Discovery extends Protocol {
 
     public void resetStats() {
         super.resetStats();
-        num_discovery_requests=0;
+        num_discovery_requests=num_snapshots_sent=num_snapshots_created=0;
     }
 
 
@@ -315,6 +338,10 @@ public abstract class Discovery extends Protocol {
     }
 
     protected Object handle(PingHeader hdr, Message msg) {
+        if(hdr.type == PingHeader.GET_MBRS_RSP_SNAPSHOT) {
+            handleSnapshot(msg);
+            return null;
+        }
         PingData data=readPingData(msg.getArray(), msg.getOffset(), msg.getLength());
         Address logical_addr=data != null? data.getAddress() : msg.getSrc();
 
@@ -354,6 +381,13 @@ public abstract class Discovery extends Protocol {
                     return null;
                 }
 
+                // Only the coord replies, with the information of all members
+                if(coord_sends_snapshot && hdr.initialDiscovery() && is_server && view != null) {
+                    if(is_coord)
+                        sendSnapshot(msg.getSrc());
+                    return null;
+                }
+
                 // Only send a response if hdr.mbrs is not empty and contains myself. Otherwise always send my info
                 Collection<? extends Address> mbrs=data != null? data.mbrs() : null;
                 boolean drop_because_of_rank=max_rank_to_reply > 0 && hdr.initialDiscovery() && Util.getRank(view, local_addr) > max_rank_to_reply;
@@ -422,6 +456,7 @@ public abstract class Discovery extends Protocol {
             case Event.VIEW_CHANGE:
                 View old_view=view;
                 view=evt.getArg();
+                snapshot=null;
                 current_coord=view.getCoord();
                 is_coord=Objects.equals(current_coord, local_addr);
                 Object retval=down_prot.down(evt);
@@ -652,6 +687,63 @@ public abstract class Discovery extends Protocol {
         down_prot.down(rsp_msg);
     }
 
+    /**
+     * Sends the information about all members of the current view to a joiner in a single message. The serialized
+     * snapshot is reused for all joiners within snapshot_expiry_time ms, as long as the view doesn't change
+     */
+    protected void sendSnapshot(Address dest) {
+        ByteArray buf=getSnapshot();
+        if(buf == null)
+            return;
+        Message rsp=new BytesMessage(dest, buf).setFlag(Message.Flag.OOB, Message.Flag.DONT_BUNDLE)
+          .putHeader(this.id, new PingHeader(PingHeader.GET_MBRS_RSP_SNAPSHOT));
+        log.trace("%s: received GET_MBRS_REQ from %s, sending snapshot (%d bytes)", local_addr, dest, buf.getLength());
+        num_snapshots_sent++;
+        down_prot.down(rsp);
+    }
+
+    protected ByteArray getSnapshot() {
+        View v=view;
+        Snapshot s=snapshot;
+        if(v == null)
+            return null;
+        if(s != null && s.view_id.equals(v.getViewId())
+          && TimeUnit.MILLISECONDS.convert(System.nanoTime() - s.timestamp, TimeUnit.NANOSECONDS) < snapshot_expiry_time)
+            return s.buf;
+        try {
+            ByteArrayDataOutputStream out=new ByteArrayDataOutputStream(v.size() * 64);
+            out.writeInt(v.size());
+            for(Address mbr: v) {
+                PhysicalAddress phys_addr=(PhysicalAddress)down(new Event(Event.GET_PHYSICAL_ADDRESS, mbr));
+                new PingData(mbr, true, NameCache.get(mbr), phys_addr).coord(isCoord(mbr)).writeTo(out);
+            }
+            snapshot=s=new Snapshot(v.getViewId(), out.getBuffer());
+            num_snapshots_created++;
+            return s.buf;
+        }
+        catch(Exception ex) {
+            log.error("%s: failed creating snapshot: %s", local_addr, ex);
+            return null;
+        }
+    }
+
+    protected void handleSnapshot(Message msg) {
+        Discovery d=findTopmostDiscoveryProtocol();
+        try {
+            ByteArrayDataInputStream in=new ByteArrayDataInputStream(msg.getArray(), msg.getOffset(), msg.getLength());
+            int size=in.readInt();
+            log.trace("%s: received GET_MBRS_RSP_SNAPSHOT with %d members from %s", local_addr, size, msg.getSrc());
+            for(int i=0; i < size; i++) {
+                PingData data=new PingData();
+                data.readFrom(in);
+                d.handleDiscoveryResponse(data, msg.getSrc());
+            }
+        }
+        catch(Exception ex) {
+            log.error("%s: failed reading snapshot from %s: %s", local_addr, msg.getSrc(), ex);
+        }
+    }
+
     protected static String addressAsString(Address address) {
         if(address == null)
             return "";
@@ -718,4 +810,15 @@ public abstract class Discovery extends Protocol {
         }
     }
 
+
+    protected static class Snapshot {
+        protected final ViewId    view_id;
+        protected final ByteArray buf;  // the serialized information of all members of the view
+        protected final long      timestamp=System.nanoTime();
+
+        protected Snapshot(ViewId view_id, ByteArray buf) {
+            this.view_id=view_id;
+            this.buf=buf;
+        }
+    }
 }
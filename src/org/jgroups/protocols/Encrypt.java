@@ -4,10 +4,12 @@ import org.jgroups.*;
 import org.jgroups.annotations.ManagedAttribute;
 import org.jgroups.annotations.ManagedOperation;
 import org.jgroups.annotations.Property;
+import org.jgroups.conf.AttributeType;
 import org.jgroups.stack.Protocol;
 import org.jgroups.util.*;
 
 import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import java.security.Key;
 import java.security.KeyStore;
@@ -17,6 +19,10 @@ import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +31,8 @@ import java.util.stream.Collectors;
  */
 public abstract class Encrypt<E extends KeyStore.Entry> extends Protocol {
     protected static final String DEFAULT_SYM_ALGO="AES";
+    protected static final int    GCM_IV_LENGTH=12;   // bytes, recommended by NIST SP 800-38D
+    protected static final int    GCM_TAG_LENGTH=128; // bits
 
 
     /* -----------------------------------------    Properties     -------------------------------------------------- */
@@ -53,6 +61,16 @@ public abstract class Encrypt<E extends KeyStore.Entry> extends Protocol {
     @Property(description="Max number of keys in key_map")
     protected int                           key_map_max_size=20;
 
+    @Property(description="Message batches with at least this many messages are decrypted in parallel, using up to " +
+      "cipher_pool_size ciphers. 0 disables parallel decryption")
+    protected int                           parallel_decrypt_threshold;
+
+    protected final LongAdder               num_parallel_batches=new LongAdder();
+
+    // true if sym_algorithm is an AEAD transformation (e.g. AES/GCM/NoPadding): every message carries its own
+    // authentication tag, and a tampered message fails decryption
+    protected boolean                       sym_aead;
+
     protected volatile View                 view;
 
     // Cipher pools used for encryption and decryption. Size is cipher_pool_size
@@ -97,6 +115,11 @@ public abstract class Encrypt<E extends KeyStore.Entry> extends Protocol {
     /** Allows callers to replace secure_random with impl of their choice, e.g. for performance reasons. */
     public <T extends Encrypt<E>> T secureRandom(SecureRandom sr)   {this.secure_random = sr; return (T)this;}
     public <T extends Encrypt<E>> T msgFactory(MessageFactory f)    {this.msg_factory=f; return (T)this;}
+    public int                      parallelDecryptThreshold()      {return parallel_decrypt_threshold;}
+    public <T extends Encrypt<E>> T parallelDecryptThreshold(int t) {this.parallel_decrypt_threshold=t; return (T)this;}
+    @ManagedAttribute(description="Number of message batches that were decrypted in parallel",type=AttributeType.SCALAR)
+    public long                     numParallelBatches()            {return num_parallel_batches.sum();}
+    public boolean                  isAEAD()                        {return sym_aead;}
     @ManagedAttribute public String version()                       {return Util.byteArrayToHexString(sym_version);}
 
 
@@ -114,6 +137,11 @@ public abstract class Encrypt<E extends KeyStore.Entry> extends Protocol {
             cipher_pool_size=tmp;
         }
         key_map=new BoundedHashMap<>(key_map_max_size);
+        sym_aead=isAEAD(sym_algorithm);
+        if(sym_aead && sym_iv_length == 0) {
+            log.debug("%s: setting sym_iv_length to %d, as %s requires an IV", local_addr, GCM_IV_LENGTH, sym_algorithm);
+            sym_iv_length=GCM_IV_LENGTH;
+        }
         initSymCiphers(sym_algorithm, secret_key);
         TP transport=getTransport();
         if(transport != null)
@@ -172,6 +200,11 @@ public abstract class Encrypt<E extends KeyStore.Entry> extends Protocol {
         return null;
     }
 
+    public void resetStats() {
+        super.resetStats();
+        num_parallel_batches.reset();
+    }
+
     public void up(MessageBatch batch) {
         if(secret_key == null) {
             log.trace("%s: discarded %s batch from %s as secret key is null",
@@ -181,6 +214,11 @@ public abstract class Encrypt<E extends KeyStore.Entry> extends Protocol {
         BlockingQueue<Cipher> cipherQueue=decoding_ciphers;
         if(cipherQueue == null)
             return;
+        if(parallel_decrypt_threshold > 0 && cipher_pool_size > 1 && batch.size() >= parallel_decrypt_threshold) {
+            if(decryptInParallel(batch, cipherQueue) && !batch.isEmpty())
+                up_prot.up(batch);
+            return;
+        }
         Cipher cipher=null;
         try {
             cipher=cipherQueue.take();
@@ -223,6 +261,94 @@ public abstract class Encrypt<E extends KeyStore.Entry> extends Protocol {
     }
 
 
+    /**
+     * Decrypts the messages of a batch in parallel: the batch is split into up to cipher_pool_size ranges, and each
+     * range is decrypted with its own cipher from the pool. The ranges are processed by tasks submitted to the
+     * transport's thread pool and by the calling thread, which decrypts ranges until none are left, so it never waits
+     * for a task that hasn't started yet. Messages that cannot be decrypted are removed from the batch.
+     * @return True if the batch should be passed up, false if it needs to be dropped
+     */
+    protected boolean decryptInParallel(MessageBatch batch, BlockingQueue<Cipher> cipherQueue) {
+        Message[] msgs=new Message[batch.size()];
+        int num=0;
+        FastArray<Message>.FastIterator it=(FastArray<Message>.FastIterator)batch.iterator();
+        while(it.hasNext()) {
+            Message msg=it.next();
+            if(msg.getHeader(id) == null) {
+                log.error("%s: received message without encrypt header from %s; dropping it", local_addr, batch.sender());
+                it.remove();
+                continue;
+            }
+            msgs[num++]=msg;
+        }
+        final int size=num, num_ranges=Math.min(cipher_pool_size, size);
+        if(size == 0)
+            return false;
+        final int range=(size + num_ranges - 1) / num_ranges;
+        final Message[] decrypted=new Message[size];
+        final AtomicInteger next_range=new AtomicInteger();
+        final AtomicBoolean failed=new AtomicBoolean();
+        final CountDownLatch done=new CountDownLatch(num_ranges);
+        Runnable task=() -> {
+            for(int i; (i=next_range.getAndIncrement()) < num_ranges; done.countDown()) {
+                if(!decryptRange(cipherQueue, msgs, decrypted, i * range, Math.min(size, (i+1) * range)))
+                    failed.set(true);
+            }
+        };
+        ThreadPool pool=getTransport().getThreadPool();
+        for(int i=1; i < num_ranges; i++)
+            pool.execute(task); // if rejected, the range is decrypted by the calling thread
+        task.run();
+        try {
+            done.await(); // only waits for ranges which are being decrypted by other threads
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.set(true);
+        }
+        if(failed.get()) {
+            log.error("%s: failed processing batch; discarding batch", local_addr);
+            return false; // the messages will get retransmitted (see comment in up(MessageBatch))
+        }
+        num_parallel_batches.increment();
+        it=(FastArray<Message>.FastIterator)batch.iterator();
+        for(int i=0; it.hasNext(); i++) {
+            it.next();
+            if(decrypted[i] != null)
+                it.replace(decrypted[i]);
+            else
+                it.remove();
+        }
+        return true;
+    }
+
+    /** Decrypts msgs[from .. to-1] into decrypted[from .. to-1], using a cipher from the pool */
+    protected boolean decryptRange(BlockingQueue<Cipher> cipherQueue, Message[] msgs, Message[] decrypted, int from, int to) {
+        Cipher cipher=null;
+        try {
+            cipher=cipherQueue.take();
+            for(int i=from; i < to; i++) {
+                Message msg=msgs[i];
+                try {
+                    decrypted[i]=decrypt(cipher, msg.copy(true, true)); // need to copy for possible xmits
+                }
+                catch(Exception e) {
+                    log.error("%s: failed decrypting message from %s (offset=%d, length=%d, buf.length=%d): %s, headers are %s",
+                              local_addr, msg.getSrc(), msg.getOffset(), msg.getLength(), msg.getArray().length, e, msg.printHeaders());
+                }
+            }
+            return true;
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally {
+            if(cipher != null)
+                cipherQueue.offer(cipher);
+        }
+    }
+
     /** Initialises the ciphers for both encryption and decryption using the generated or supplied secret key */
     protected void initSymCiphers(String algorithm, Key secret) throws Exception {
         if(secret == null)
@@ -257,6 +383,20 @@ public abstract class Encrypt<E extends KeyStore.Entry> extends Protocol {
             cipher.init(mode, secret_key);
     }
 
+    /** Initializes a cipher for the symmetric algorithm; AEAD transformations need a {@link GCMParameterSpec} */
+    protected void initSymCipher(Cipher cipher, int mode, Key secret_key, byte[] iv) throws Exception {
+        if(sym_aead && iv != null)
+            cipher.init(mode, secret_key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+        else
+            initCipher(cipher, mode, secret_key, iv);
+    }
+
+    /** Returns true if the transformation (e.g. "AES/GCM/NoPadding") uses an AEAD mode */
+    protected static boolean isAEAD(String algorithm) {
+        String mode=getModeAndPadding(algorithm);
+        return mode != null && mode.toUpperCase().startsWith("GCM");
+    }
+
     protected byte[] makeIv() {
         if(sym_iv_length > 0) {
             byte[] iv=new byte[sym_iv_length];
@@ -311,14 +451,14 @@ public abstract class Encrypt<E extends KeyStore.Entry> extends Protocol {
     }
 
     protected Message _decrypt(final Cipher cipher, Key key, Message msg, EncryptHeader hdr) throws Exception {
-        if(!msg.hasPayload())
+        if(!msg.hasPayload() || msg.getLength() == 0) // empty payloads are not encrypted, see encrypt()
             return msg;
 
         byte[] decrypted_msg;
         if(cipher == null)
             decrypted_msg=code(msg.getArray(), msg.getOffset(), msg.getLength(), hdr.iv(), true);
         else {
-            initCipher(cipher, Cipher.DECRYPT_MODE, key, hdr.iv());
+            initSymCipher(cipher, Cipher.DECRYPT_MODE, key, hdr.iv());
             decrypted_msg=cipher.doFinal(msg.getArray(), msg.getOffset(), msg.getLength());
         }
         if(hdr.needsDeserialization())
@@ -351,7 +491,7 @@ public abstract class Encrypt<E extends KeyStore.Entry> extends Protocol {
         BlockingQueue<Cipher> queue=decode? decoding_ciphers : encoding_ciphers;
         Cipher cipher=queue.take();
         try {
-            initCipher(cipher, decode ? Cipher.DECRYPT_MODE : Cipher.ENCRYPT_MODE, secret_key, iv);
+            initSymCipher(cipher, decode ? Cipher.DECRYPT_MODE : Cipher.ENCRYPT_MODE, secret_key, iv);
             return cipher.doFinal(buf, offset, length);
         }
         finally {
@@ -1,12 +1,12 @@
 package org.jgroups.protocols;
 
-import org.jgroups.Address;
+import org.jgroups.*;
 import org.jgroups.annotations.ManagedAttribute;
 import org.jgroups.annotations.ManagedOperation;
-import org.jgroups.util.Util;
+import org.jgroups.annotations.Property;
+import org.jgroups.util.*;
 
-import java.util.Iterator;
-import java.util.Map;
+import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicIntegerArray;
 
@@ -16,6 +16,10 @@ import java.util.concurrent.atomic.AtomicIntegerArray;
  * all set to 1. On each interval, the TimeoutChecker task advances the index and sets the bit at the index to 0.<br/>
  * When all bits are 0, a member will be suspected.<br/>
  * On reception of a message or heartbeat from P, P's bitmap at index is set to 1.<br/>
+ * If num_monitors is > 0, the members are arranged in a ring (by their rank in the view) and every member sends its
+ * heartbeats only to its num_monitors successors, and monitors only its num_monitors predecessors. Suspicions are
+ * sent to the coordinator, piggybacked on a heartbeat; the coordinator then emits the SUSPECT event (which is usually
+ * verified by VERIFY_SUSPECT). This reduces heartbeat traffic and state from O(N) to O(num_monitors) per member.<br/>
  * JIRA: https://issues.redhat.com/browse/JGRP-2451
  *
  * @author  Dan Berindei
@@ -30,6 +34,27 @@ public class FD_ALL3 extends FailureDetection {
     @ManagedAttribute(description="The number of bits for each member (timeout / interval)")
     protected int                       num_bits;
 
+    @Property(description="If > 0, every member sends heartbeats to its num_monitors successors in the view and " +
+      "monitors only its num_monitors predecessors. 0 multicasts heartbeats and monitors all members")
+    protected int                       num_monitors;
+
+    @ManagedAttribute(description="Number of suspicions sent to the coordinator (num_monitors > 0)")
+    protected int                       num_suspicions_sent;
+
+    // the members whose heartbeats we monitor (predecessors) and the members we send heartbeats to (successors)
+    protected volatile Set<Address>     monitored=Collections.emptySet();
+    protected volatile List<Address>    monitors=Collections.emptyList();
+
+    public int     getNumMonitors()       {return num_monitors;}
+    public FD_ALL3 setNumMonitors(int n)  {this.num_monitors=n; return this;}
+    public int     numSuspicionsSent()    {return num_suspicions_sent;}
+
+    @ManagedAttribute(description="The members whose heartbeats are monitored")
+    public String getMonitored() {return monitored.toString();}
+
+    @ManagedAttribute(description="The members to which heartbeats are sent (num_monitors > 0)")
+    public String getMonitors() {return monitors.toString();}
+
 
     protected Map<Address,?> getTimestamps()                {return timestamps;}
     protected long           getTimeoutCheckInterval()      {return interval;}
@@ -65,6 +90,27 @@ public class FD_ALL3 extends FailureDetection {
         return this;
     }
 
+    public void resetStats() {
+        super.resetStats();
+        num_suspicions_sent=0;
+    }
+
+    public Object up(Message msg) {
+        if(num_monitors > 0 && msg.getHeader(this.id) != null && msg.getLength() > 0)
+            handleSuspicions(msg);
+        return super.up(msg);
+    }
+
+    public void up(MessageBatch batch) {
+        if(num_monitors > 0) {
+            for(Message msg: batch) {
+                if(msg.getHeader(this.id) != null && msg.getLength() > 0)
+                    handleSuspicions(msg);
+            }
+        }
+        super.up(batch);
+    }
+
     @Override protected void update(Address sender, boolean log_msg, boolean skip_if_exists) {
         if(sender != null && !sender.equals(local_addr)) {
             Bitmap bm=timestamps.get(sender);
@@ -72,13 +118,101 @@ public class FD_ALL3 extends FailureDetection {
                 if(!skip_if_exists)
                     bm.set();
             }
-            else
+            else if(num_monitors <= 0 || monitored.contains(sender))
                 timestamps.putIfAbsent(sender, new Bitmap(num_bits));
         }
         if(log_msg && log.isTraceEnabled())
             log.trace("%s: received heartbeat from %s", local_addr, sender);
     }
 
+    @Override protected void retainKeys(List<Address> mbrs) {
+        super.retainKeys(mbrs);
+        if(num_monitors > 0)
+            timestamps.keySet().retainAll(monitored);
+    }
+
+    @Override protected void handleViewChange(View v) {
+        computeRing(v.getMembers());
+        super.handleViewChange(v);
+    }
+
+    @Override protected Runnable createHeartbeatSender() {
+        return new RingHeartbeatSender(this);
+    }
+
+    @Override protected void suspect(List<Address> suspects) {
+        super.suspect(suspects);
+        if(num_monitors <= 0 || suspects == null || suspects.isEmpty())
+            return;
+        Address coord=eligibleCoord();
+        if(coord != null && !coord.equals(local_addr))
+            sendSuspicions(coord, suspects);
+    }
+
+    /** Computes the predecessors to be monitored and the successors to send heartbeats to */
+    protected void computeRing(List<Address> mbrs) {
+        if(num_monitors <= 0 || local_addr == null) {
+            monitored=Collections.emptySet();
+            monitors=Collections.emptyList();
+            return;
+        }
+        int size=mbrs.size(), index=mbrs.indexOf(local_addr), k=Math.min(num_monitors, size-1);
+        if(index < 0 || k <= 0) {
+            monitored=Collections.emptySet();
+            monitors=Collections.emptyList();
+            return;
+        }
+        Set<Address> preds=new HashSet<>(k);
+        List<Address> succs=new ArrayList<>(k);
+        for(int i=1; i <= k; i++) {
+            succs.add(mbrs.get((index + i) % size));
+            preds.add(mbrs.get((index - i + size) % size));
+        }
+        monitored=preds;
+        monitors=succs;
+    }
+
+    /** Returns the first member which is not suspected */
+    protected synchronized Address eligibleCoord() {
+        for(Address mbr: members)
+            if(!suspected_mbrs.contains(mbr))
+                return mbr;
+        return null;
+    }
+
+    /** Sends the suspected members to the coordinator, piggybacked on a heartbeat */
+    protected void sendSuspicions(Address coord, List<Address> suspects) {
+        try {
+            ByteArrayDataOutputStream out=new ByteArrayDataOutputStream((int)Util.size(suspects));
+            Util.writeAddresses(suspects, out);
+            Message msg=new BytesMessage(coord, out.getBuffer()).putHeader(id, new HeartbeatHeader());
+            log.debug("%s: sending suspicions %s to %s", local_addr, suspects, coord);
+            down_prot.down(msg);
+            num_suspicions_sent++;
+        }
+        catch(Exception ex) {
+            log.error("%s: failed sending suspicions to %s: %s", local_addr, coord, ex);
+        }
+    }
+
+    protected void handleSuspicions(Message msg) {
+        try {
+            ByteArrayDataInputStream in=new ByteArrayDataInputStream(msg.getArray(), msg.getOffset(), msg.getLength());
+            List<Address> suspects=Util.readAddresses(in, ArrayList::new);
+            if(suspects == null || suspects.isEmpty())
+                return;
+            suspects.remove(local_addr);
+            synchronized(this) {
+                suspects.retainAll(members);
+            }
+            log.debug("%s: received suspicions %s from %s", local_addr, suspects, msg.getSrc());
+            super.suspect(suspects); // don't forward, or else we might create a loop
+        }
+        catch(Exception ex) {
+            log.error("%s: failed reading suspicions from %s: %s", local_addr, msg.getSrc(), ex);
+        }
+    }
+
     protected int computeBits() {
         return timeout % interval == 0? (int)(timeout / interval) : (int)((timeout / interval)+1);
     }
@@ -157,4 +291,27 @@ public class FD_ALL3 extends FailureDetection {
             return String.format("%s (index=%d)", bits, index);
         }
     }
+
+    /** Multicasts a heartbeat, or sends it to the num_monitors successors if num_monitors > 0 */
+    protected class RingHeartbeatSender extends HeartbeatSender {
+
+        protected RingHeartbeatSender(FailureDetection enclosing) {
+            super(enclosing);
+        }
+
+        public void run() {
+            if(num_monitors <= 0) {
+                super.run();
+                return;
+            }
+            if(mcast_sent.compareAndSet(true, false))
+                return; // a multicast also reaches our successors: suppress sending of heartbeat
+            for(Address mbr: monitors) {
+                Message heartbeat=new EmptyMessage(mbr).putHeader(id, new HeartbeatHeader());
+                down_prot.down(heartbeat);
+                num_heartbeats_sent++;
+            }
+            log.trace("%s: sent heartbeat to %s", local_addr, monitors);
+        }
+    }
 }
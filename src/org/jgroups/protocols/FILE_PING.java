@@ -14,11 +14,9 @@ import org.jgroups.util.TimeScheduler;
 import org.jgroups.util.Util;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -64,17 +62,33 @@ public class FILE_PING extends Discovery {
       "joins, but not on leaves. Enabling this will increase traffic to the backend store.")
     protected boolean update_store_on_view_change=true;
 
+    @Property(description="If true, writeAll() only writes to the backend store if the membership information " +
+      "changed since the last write. Forced writes (e.g. by the InfoWriter or on discovery) always write")
+    protected boolean write_only_on_change=true;
+
+    @Property(description="Time (ms) for which the contents read from the backend store are cached and reused by " +
+      "subsequent discovery runs. 0 disables the cache",type=AttributeType.TIME)
+    protected long    read_cache_ttl;
+
     @ManagedAttribute(description="Number of writes to the file system or cloud store")
     protected int     writes;
 
     @ManagedAttribute(description="Number of reads from the file system or cloud store")
     protected int     reads;
 
+    @ManagedAttribute(description="Number of writes skipped because the membership information didn't change")
+    protected int     skipped_writes;
+
+    @ManagedAttribute(description="Number of discovery runs served from the read cache")
+    protected int     read_cache_hits;
+
 
     /* --------------------------------------------- Fields ------------------------------------------------------ */
     protected File                        root_dir=null;
     protected static final FilenameFilter filter=(dir, name1) -> name1.endsWith(SUFFIX);
     protected Future<?>                   info_writer;
+    protected volatile List<PingData>     last_written; // the information written last by writeAll()
+    protected volatile ReadCache          read_cache;
 
     public boolean   isDynamic()                          {return true;}
     public String    getLocation()                        {return location;}
@@ -100,6 +114,17 @@ public class FILE_PING extends Discovery {
     public boolean   updateStoreOnViewChange() {return update_store_on_view_change;}
     public FILE_PING updateStoreOnViewChange(boolean u) {this.update_store_on_view_change=u; return this;}
 
+    public boolean   writeOnlyOnChange() {return write_only_on_change;}
+    public FILE_PING writeOnlyOnChange(boolean w) {this.write_only_on_change=w; return this;}
+
+    public long      readCacheTtl() {return read_cache_ttl;}
+    public FILE_PING readCacheTtl(long t) {this.read_cache_ttl=t; return this;}
+
+    public int       getWrites() {return writes;}
+    public int       getReads() {return reads;}
+    public int       getSkippedWrites() {return skipped_writes;}
+    public int       getReadCacheHits() {return read_cache_hits;}
+
 
 
 
@@ -107,7 +132,13 @@ public class FILE_PING extends Discovery {
     public synchronized boolean isInfoWriterRunning() {return info_writer != null && !info_writer.isDone();}
 
     @ManagedOperation(description="Causes the member to write its own information into the DB, replacing an existing entry")
-    public void writeInfo() {if(is_coord) writeAll();}
+    public void writeInfo() {if(is_coord) writeAll(null, true);}
+
+    @ManagedOperation(description="Clears the read cache and forces the next writeAll() to write to the store")
+    public void clearCaches() {
+        last_written=null;
+        read_cache=null;
+    }
 
     public void init() throws Exception {
         super.init();
@@ -121,11 +152,12 @@ public class FILE_PING extends Discovery {
         super.stop();
         stopInfoWriter();
         remove(cluster_name, local_addr);
+        clearCaches();
     }
 
     public void resetStats() {
         super.resetStats();
-        reads=writes=0;
+        reads=writes=skipped_writes=read_cache_hits=0;
     }
 
     public Object down(Event evt) {
@@ -135,6 +167,7 @@ public class FILE_PING extends Discovery {
                 boolean previous_coord=is_coord;
                 Object retval=super.down(evt);
                 View new_view=evt.getArg();
+                read_cache=null;
                 handleView(new_view, old_view, previous_coord != is_coord);
                 return retval;
         }
@@ -143,7 +176,7 @@ public class FILE_PING extends Discovery {
 
     public void findMembers(final List<Address> members, final boolean initial_discovery, Responses responses) {
         try {
-            readAll(members, cluster_name, responses);
+            readAllCached(members, cluster_name, responses);
             if(responses.isEmpty()) {
                 PhysicalAddress physical_addr=(PhysicalAddress)down(new Event(Event.GET_PHYSICAL_ADDRESS,local_addr));
                 PingData coord_data=new PingData(local_addr, true, NameCache.get(local_addr), physical_addr).coord(is_coord);
@@ -170,7 +203,7 @@ public class FILE_PING extends Discovery {
             if(write_data_on_find && (remove_all_data_on_view_change || remove_old_coords_on_view_change)
               && !initial_discovery && is_coord && (data == null || !data.isCoord()) && !isInfoWriterRunning()) {
                 // a coordinator in a separate partition may have deleted this coordinator's file
-                writeAll();
+                writeAll(null, true);
             }
         }
         finally {
@@ -202,12 +235,16 @@ public class FILE_PING extends Discovery {
     // remove all files which are not from the current members
     protected void handleView(View new_view, View old_view, boolean coord_changed) {
         if(is_coord) {
-            if(remove_all_data_on_view_change)
+            if(remove_all_data_on_view_change) {
                 removeAll(cluster_name);
+                last_written=null; // our own data was removed, too
+            }
             else if(remove_old_coords_on_view_change) {
                 Address old_coord=old_view != null? old_view.getCreator() : null;
-                if(old_coord != null)
+                if(old_coord != null) {
                     remove(cluster_name, old_coord);
+                    last_written=null;
+                }
             }
             Address[] left=View.diff(old_view, new_view)[1];
             if(coord_changed || update_store_on_view_change || left.length > 0) {
@@ -216,8 +253,10 @@ public class FILE_PING extends Discovery {
                     startInfoWriter();
             }
         }
-        else if(coord_changed) // I'm no longer the coordinator
+        else if(coord_changed) { // I'm no longer the coordinator
             remove(cluster_name, local_addr);
+            last_written=null;
+        }
     }
 
     protected void remove(String clustername, Address addr) {
@@ -280,6 +319,34 @@ public class FILE_PING extends Discovery {
         }
     }
 
+    /**
+     * Reads the contents of the backend store via {@link #readAll(List, String, Responses)}, or serves them from the
+     * read cache if read_cache_ttl is set and the cached contents have not yet expired
+     */
+    protected void readAllCached(List<Address> members, String clustername, Responses responses) {
+        if(read_cache_ttl <= 0) {
+            readAll(members, clustername, responses);
+            return;
+        }
+        ReadCache cache=read_cache;
+        if(cache != null && cache.isValid(clustername, read_cache_ttl))
+            read_cache_hits++;
+        else {
+            Responses tmp=new Responses(false);
+            readAll(null, clustername, tmp);
+            List<PingData> list=new ArrayList<>(tmp.size());
+            for(PingData data: tmp)
+                list.add(data);
+            cache=new ReadCache(clustername, list);
+            if(!list.isEmpty()) // an empty store is not cached, so that a joiner's data becomes visible right away
+                read_cache=cache;
+        }
+        for(PingData data: cache.list) {
+            if(members == null || members.contains(data.getAddress()))
+                responses.addResponse(data, true);
+        }
+    }
+
     // Format: [name] [UUID] [address:port] [coord (T or F)]. See doc/design/CloudBasedDiscovery.txt for details
     protected List<PingData> read(File file) throws Exception {
         return read(new FileInputStream(file));
@@ -297,10 +364,18 @@ public class FILE_PING extends Discovery {
 
     /** Write information about all of the member to file (only if I'm the coord) */
     protected void writeAll() {
-        writeAll(null);
+        writeAll(null, true);
     }
 
     protected void writeAll(Address[] excluded_mbrs) {
+        writeAll(excluded_mbrs, false);
+    }
+
+    /**
+     * Writes the information about all members to the backend store. Unless force is true, the write is skipped when
+     * write_only_on_change is true and the information is the same as the one written last
+     */
+    protected void writeAll(Address[] excluded_mbrs, boolean force) {
         Map<Address,PhysicalAddress> cache_contents=
           (Map<Address,PhysicalAddress>)down_prot.down(new Event(Event.GET_LOGICAL_PHYSICAL_MAPPINGS, true));
 
@@ -317,7 +392,14 @@ public class FILE_PING extends Discovery {
             PingData data=new PingData(addr, true, NameCache.get(addr), phys_addr).coord(addr.equals(local_addr));
             list.add(data);
         }
+        if(!force && write_only_on_change && sameData(list, last_written)) {
+            skipped_writes++;
+            log.trace("%s: membership information is unchanged; skipping write to backend store", local_addr);
+            return;
+        }
         write(list, cluster_name);
+        last_written=list;
+        read_cache=null;
         log.trace("%s: wrote to backend store: %s", local_addr, list.stream().map(PingData::getAddress).collect(Collectors.toList()));
     }
 
@@ -350,6 +432,23 @@ public class FILE_PING extends Discovery {
 
 
 
+    /** Returns true if both lists contain the same members with the same logical names, physical addresses and coord flags */
+    protected static boolean sameData(List<PingData> l1, List<PingData> l2) {
+        if(l1 == null || l2 == null || l1.size() != l2.size())
+            return false;
+        Map<Address,PingData> map=new HashMap<>(l2.size());
+        for(PingData data: l2)
+            map.put(data.getAddress(), data);
+        for(PingData data: l1) {
+            PingData other=map.get(data.getAddress());
+            if(other == null || data.isCoord() != other.isCoord()
+              || !Objects.equals(data.getLogicalName(), other.getLogicalName())
+              || !Objects.equals(data.getPhysicalAddr(), other.getPhysicalAddr()))
+                return false;
+        }
+        return true;
+    }
+
     protected boolean deleteFile(File file) {
         boolean result = true;
 
@@ -400,5 +499,20 @@ public class FILE_PING extends Discovery {
         }
     }
 
+    /** The contents of the backend store, read at a given time */
+    protected static class ReadCache {
+        protected final String         cluster;
+        protected final List<PingData> list;
+        protected final long           timestamp=System.nanoTime();
 
+        protected ReadCache(String cluster, List<PingData> list) {
+            this.cluster=cluster;
+            this.list=list;
+        }
+
+        protected boolean isValid(String clustername, long ttl) {
+            return Objects.equals(cluster, clustername)
+              && TimeUnit.MILLISECONDS.convert(System.nanoTime() - timestamp, TimeUnit.NANOSECONDS) < ttl;
+        }
+    }
 }
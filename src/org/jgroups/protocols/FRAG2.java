@@ -299,6 +299,9 @@ public class FRAG2 extends Fragmentation {
         for(Message fragment: fragments)
             combined_length+=fragment.getLength();
 
+        if(scatter(fragments[0], combined_length)) // no copying into a combined buffer
+            return needs_deserialization? Util.readMessage(stream(fragments), msg_factory) : scatter(fragments);
+
         byte[] combined_buffer=new byte[combined_length];
         Message retval=fragments[0].copy(false, true); // doesn't copy the payload, but copies the headers
 
@@ -24,6 +24,9 @@ import java.util.function.Predicate;
  * message at its offset and length. When all fragments have been received, the full message is passed up.<br/>
  * Only the first fragment carries the headers and dest and src addresses. When received, its src/dest addresses and
  * the headers will be set in the full message.<br/>
+ * If scatter_threshold is set, messages of at least that size are not copied into a full-size buffer; instead the
+ * received fragments are kept and passed up as a {@link CompositeMessage} referencing them. As only the first
+ * fragment carries the headers, fragments are kept until it has been received and the decision can be made.<br/>
  * For details see https://issues.jboss.org/browse/JGRP-2154
  * <br/>
  * Requirement: lossless delivery (e.g. NAKACK2 or UNICAST3). No requirement on ordering. Works for both unicast and
@@ -293,6 +296,7 @@ public class FRAG3 extends Fragmentation {
         // the message to be passed up; fragments write their payloads into the buffer at the correct offsets
         protected Message               msg;
         protected byte[]                buffer;
+        protected Message[]             fragments; // used instead of buffer if the message is reassembled by scattering
         protected final int             num_frags; // number of expected fragments
         protected final FixedSizeBitSet received;
         protected final boolean         needs_deserialization;
@@ -312,9 +316,6 @@ public class FRAG3 extends Fragmentation {
         public Message set(Message frag_msg, Frag3Header hdr) {
             lock.lock();
             try {
-                if(buffer == null)
-                    buffer=new byte[hdr.original_length];
-
                 if(hdr.frag_id == 0 && !needs_deserialization) {
                     // the first fragment creates the message, copy the headers but not the buffer
                     msg=frag_msg.copy(false, true);
@@ -322,9 +323,17 @@ public class FRAG3 extends Fragmentation {
 
                 if(received.set(hdr.frag_id)) {
                     // if not yet added: copy the fragment's buffer into msg.buffer at the correct offset
-                    int frag_length=frag_msg.getLength();
-                    int offset=hdr.offset;
-                    System.arraycopy(frag_msg.getArray(), frag_msg.getOffset(), buffer, offset, frag_length);
+                    if(buffer != null)
+                        copy(frag_msg, hdr);
+                    else {
+                        // only the first fragment has the headers of the protocols above, so the fragments are kept
+                        // until it has been received and we can decide whether or not to scatter the message
+                        if(fragments == null)
+                            fragments=new Message[num_frags];
+                        fragments[hdr.frag_id]=frag_msg; // fragments are ordered by offset
+                        if(hdr.frag_id == 0 && !scatter(frag_msg, hdr.original_length))
+                            copyFragments(hdr.original_length);
+                    }
                     if(isComplete())
                         return assembleMessage();
                 }
@@ -339,6 +348,19 @@ public class FRAG3 extends Fragmentation {
             }
         }
 
+        /** Copies the fragments received so far into a full-size buffer; subsequent fragments are copied directly */
+        protected void copyFragments(int length) {
+            buffer=new byte[length];
+            for(Message frag: fragments)
+                if(frag != null)
+                    copy(frag, frag.getHeader(id));
+            fragments=null;
+        }
+
+        protected void copy(Message frag, Frag3Header hdr) {
+            System.arraycopy(frag.getArray(), frag.getOffset(), buffer, hdr.offset, frag.getLength());
+        }
+
         /** Returns true if this fragmentation is complete, ie all fragments have been received for this buffer */
         protected boolean isComplete() {
             return received.cardinality() == num_frags;
@@ -349,6 +371,8 @@ public class FRAG3 extends Fragmentation {
          * @return the complete message in one buffer
          */
         protected Message assembleMessage() throws Exception {
+            if(fragments != null)
+                return needs_deserialization? Util.readMessage(stream(fragments), msg_factory) : scatter(fragments);
             return needs_deserialization? Util.messageFromBuffer(buffer, 0, buffer.length, msg_factory)
               : msg.setArray(buffer, 0, buffer.length);
         }
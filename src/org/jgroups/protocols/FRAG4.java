@@ -4,14 +4,10 @@ import org.jgroups.Address;
 import org.jgroups.BytesMessage;
 import org.jgroups.FragmentedMessage;
 import org.jgroups.Message;
-import org.jgroups.util.ByteArrayDataInputStream;
 import org.jgroups.util.Range;
 import org.jgroups.util.Util;
 
 import java.io.DataInput;
-import java.io.DataInputStream;
-import java.io.InputStream;
-import java.io.SequenceInputStream;
 import java.util.List;
 import java.util.Objects;
 
@@ -32,6 +28,9 @@ import java.util.Objects;
  * the original message's byte array, plus and offset and length. Otherwise, we use a number of {@link FragmentedMessage}
  * instances, with a reference to the original message and also an offset and length. These serialize messages at the
  * last possible moment, just before being sent by the transport.
+ * <br/>
+ * If scatter_threshold is set, large messages are reassembled into a {@link org.jgroups.CompositeMessage} referencing
+ * the received fragments, rather than being copied into a single byte array.
  * 
  * @author  Bela Ban
  * @version 5.0
@@ -75,11 +74,7 @@ public class FRAG4 extends FRAG2 {
         if(fragments[0] instanceof FragmentedMessage) {
             if(Objects.equals(local_addr, fragments[0].getSrc()))
                 return ((FragmentedMessage)fragments[0]).getOriginalMessage();
-            InputStream seq=new SequenceInputStream(Util.enumerate(fragments, 0, fragments.length,
-                                                                   m -> new ByteArrayDataInputStream(m.getArray(),
-                                                                                                     m.getOffset(),
-                                                                                                     m.getLength())));
-            DataInput in=new DataInputStream(seq);
+            DataInput in=stream(fragments);
             Message retval=msg_factory.create(hdr.getOriginalType());
             retval.readFrom(in);
             return retval;
@@ -89,6 +84,9 @@ public class FRAG4 extends FRAG2 {
         for(Message fragment: fragments)
             combined_length+=fragment.getLength();
 
+        if(scatter(fragments[0], combined_length)) // no copying into a combined buffer
+            return scatter(fragments);
+
         byte[] combined_buffer=new byte[combined_length];
         Message retval=fragments[0].copy(false, true); // doesn't copy the payload, but copies the headers
 
@@ -76,6 +76,7 @@ public abstract class FailureDetection extends Protocol {
     public int                            getSuspectEventsSent()         {return num_suspect_events;}
     protected void                        retainKeys(List<Address> mbrs) {getTimestamps().keySet().retainAll(mbrs);}
     protected Runnable                    createTimeoutChecker()         {return new TimeoutChecker();}
+    protected Runnable                    createHeartbeatSender()        {return new HeartbeatSender(this);}
 
     @ManagedAttribute(description="The members of the cluster")
     public String getMembers() {return Util.printListWithDelimiter(members, ",");}
@@ -264,7 +265,7 @@ public abstract class FailureDetection extends Protocol {
         lock.lock();
         try {
             if(!isHeartbeatSenderRunning()) {
-                heartbeat_sender=timer.scheduleWithFixedDelay(new HeartbeatSender(this), 0, interval, TimeUnit.MILLISECONDS,
+                heartbeat_sender=timer.scheduleWithFixedDelay(createHeartbeatSender(), 0, interval, TimeUnit.MILLISECONDS,
                                                               getTransport() instanceof TCP);
             }
         }
@@ -1,11 +1,22 @@
 package org.jgroups.protocols;
 
+import org.jgroups.BaseMessage;
+import org.jgroups.BytesMessage;
+import org.jgroups.CompositeMessage;
+import org.jgroups.Header;
+import org.jgroups.Message;
 import org.jgroups.annotations.MBean;
 import org.jgroups.annotations.ManagedAttribute;
 import org.jgroups.annotations.Property;
 import org.jgroups.conf.AttributeType;
 import org.jgroups.stack.Protocol;
+import org.jgroups.util.ByteArrayDataInputStream;
+import org.jgroups.util.Util;
 
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
 import java.util.concurrent.atomic.LongAdder;
 
 /**
@@ -20,12 +31,25 @@ public class Fragmentation extends Protocol {
       type=AttributeType.BYTES)
     protected int                 frag_size=60000;
 
+    @Property(description="Messages of at least this size are reassembled into a CompositeMessage referencing the " +
+      "received fragments, instead of being copied into a single (possibly huge) byte array. 0 disables this. " +
+      "Only messages without headers of protocols above this one (or of a RequestCorrelator) are reassembled " +
+      "like this, as those may access the payload with getArray(), which a CompositeMessage doesn't support",
+      type=AttributeType.BYTES)
+    protected int                 scatter_threshold;
+
+    /** The (sorted) IDs of the protocols below this one */
+    protected short[]             ids_below={};
+
     protected LongAdder num_frags_sent=new LongAdder();
     protected LongAdder num_frags_received=new LongAdder();
+    protected LongAdder num_scattered=new LongAdder();
 
 
-    public int                         getFragSize()      {return frag_size;}
-    public <T extends Fragmentation> T setFragSize(int f) {this.frag_size=f; return (T)this;}
+    public int                         getFragSize()              {return frag_size;}
+    public <T extends Fragmentation> T setFragSize(int f)         {this.frag_size=f; return (T)this;}
+    public int                         getScatterThreshold()      {return scatter_threshold;}
+    public <T extends Fragmentation> T setScatterThreshold(int t) {this.scatter_threshold=t; return (T)this;}
 
     @ManagedAttribute(description="Number of sent fragments",type=AttributeType.SCALAR)
     public long                        getNumberOfSentFragments()     {return num_frags_sent.sum();}
@@ -33,9 +57,72 @@ public class Fragmentation extends Protocol {
     @ManagedAttribute(description="Number of received fragments",type=AttributeType.SCALAR)
     public long                        getNumberOfReceivedFragments() {return num_frags_received.sum();}
 
+    @ManagedAttribute(description="Number of messages reassembled into a CompositeMessage (without copying)",
+      type=AttributeType.SCALAR)
+    public long                        getNumberOfScatteredMessages() {return num_scattered.sum();}
+
     public void resetStats() {
         super.resetStats();
         num_frags_sent.reset();
         num_frags_received.reset();
+        num_scattered.reset();
+    }
+
+    public void start() throws Exception {
+        super.start();
+        short[] tmp=new short[0];
+        for(Protocol p=down_prot; p != null; p=p.getDownProtocol()) {
+            tmp=Arrays.copyOf(tmp, tmp.length+1);
+            tmp[tmp.length-1]=p.getId();
+        }
+        Arrays.sort(tmp);
+        ids_below=tmp;
+    }
+
+    /**
+     * Returns true if a message of the given size should be reassembled into a {@link CompositeMessage}. This is
+     * only the case if frag (the <em>first</em> fragment of the message, which is the only one carrying the headers of
+     * the protocols above) has no headers other than the ones of this protocol and the protocols below it, which have
+     * already processed the message; the receivers of the other headers may call {@link Message#getArray()}, which a
+     * CompositeMessage doesn't support
+     */
+    protected boolean scatter(Message frag, long size) {
+        if(scatter_threshold <= 0 || size < scatter_threshold || !(frag instanceof BaseMessage))
+            return false;
+        for(Header hdr: ((BaseMessage)frag).headers()) {
+            if(hdr != null && hdr.getProtId() != id && Arrays.binarySearch(ids_below, hdr.getProtId()) < 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Creates a message whose payload consists of the payloads of the given fragments, without copying them.
+     * Destination, sender, flags and headers (except the fragmentation header) are copied from the first fragment.
+     * The message is collapsed, so it is sent as a {@link org.jgroups.BytesMessage} if it is forwarded.
+     */
+    protected Message scatter(Message[] fragments) {
+        Message first=fragments[0];
+        CompositeMessage retval=new CompositeMessage(first.getDest()).collapse(true);
+        retval.setSrc(first.getSrc());
+        retval.setFlag(first.getFlags(false), false).setFlag(first.getFlags(true), true);
+        for(Header hdr: ((BaseMessage)first).headers()) {
+            if(hdr != null && hdr.getProtId() != this.id)
+                retval.putHeader(hdr.getProtId(), hdr);
+        }
+        for(int i=0; i < fragments.length; i++) {
+            Message frag=fragments[i];
+            retval.add(new BytesMessage(first.getDest(), frag.getArray(), frag.getOffset(), frag.getLength()));
+            fragments[i]=null;
+        }
+        num_scattered.increment();
+        return retval;
+    }
+
+    /** Returns a stream over the payloads of the given fragments, without copying them */
+    protected static DataInput stream(Message[] fragments) {
+        return new DataInputStream(new SequenceInputStream(
+          Util.enumerate(fragments, 0, fragments.length,
+                         m -> new ByteArrayDataInputStream(m.getArray(), m.getOffset(), m.getLength()))));
     }
 }
@@ -0,0 +1,177 @@
+package org.jgroups.protocols;
+
+import org.jgroups.Address;
+import org.jgroups.Message;
+import org.jgroups.Version;
+import org.jgroups.View;
+import org.jgroups.util.Bits;
+import org.jgroups.util.TimeService;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes the destination and sender addresses of a frame (a single message or a list of messages, as created by a
+ * bundler) as their ranks in the current view. For small messages, addresses make up a large part of a frame.
+ * The ranks are written when a bundler marshals the frame (see {@link org.jgroups.util.Util#writeMessage}), so
+ * encoding doesn't require parsing or copying the frame. Frames with addresses that are not members of the current
+ * view are written with full addresses. Frames are encoded before they are compressed ({@link FrameCompressor}) and
+ * encrypted ({@link FrameCipher}).<p/>
+ * Multicast frames are never encoded: they are also received by members which don't have the sender's view, e.g.
+ * members of a different partition, which would drop them. This would for example prevent MERGE3's INFO messages from
+ * reaching other partitions, and therefore the partitions from merging.<p/>
+ * The format of an encoded frame is:
+ * <pre>
+ * | version (short) | flags (byte, {@link TP#COMPACT_ADDRS}) | view-id (compressed long) | view hash (int) |
+ * | dest rank+1 (compressed int) | src rank+1 (compressed int) | rest of the frame |
+ * </pre>
+ * A value of 0 denotes a null address. For a single message, the rest of the frame is the message without its
+ * destination and sender; for a list, it is the part of the list following destination and sender.<p/>
+ * A receiver resolves the ranks against its current view, or one of its previous views. When no view matches, the
+ * frame is dropped (a reliable protocol will retransmit it). To make this rare, a sender uses full addresses for
+ * grace ms after installing a new view.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public class FrameAddressEncoder {
+    protected static final byte DEST_SET=1, SRC_SET=1 << 1; // same as in BaseMessage
+    protected final int         num_views;
+    protected final long        grace; // in ns
+    protected volatile View[]   views=new View[0]; // the most recent view first
+    protected volatile long     installed; // time (ns) at which views[0] was installed
+    protected final LongAdder   num_encoded=new LongAdder(), num_decoded=new LongAdder(), num_dropped=new LongAdder();
+    protected TimeService       time_service; // if set, used for the (coarse) grace check instead of System.nanoTime()
+
+    /**
+     * Creates an encoder
+     * @param num_views The number of views (current and previous) against which received frames are decoded
+     * @param grace The time (ms) after installing a new view, during which frames are not encoded
+     */
+    public FrameAddressEncoder(int num_views, long grace) {
+        if(num_views < 1)
+            throw new IllegalArgumentException("num_views must be > 0");
+        this.num_views=num_views;
+        this.grace=TimeUnit.MILLISECONDS.toNanos(grace);
+    }
+
+    public long getNumEncoded() {return num_encoded.sum();}
+    public long getNumDecoded() {return num_decoded.sum();}
+    public long getNumDropped() {return num_dropped.sum();}
+
+    public FrameAddressEncoder timeService(TimeService ts) {this.time_service=ts; return this;}
+
+    public void viewChange(View view) {
+        View[] tmp=views;
+        if(view == null || (tmp.length > 0 && tmp[0].getViewId().equals(view.getViewId())))
+            return;
+        int len=Math.min(tmp.length + 1, num_views);
+        View[] new_views=new View[len];
+        new_views[0]=view;
+        System.arraycopy(tmp, 0, new_views, 1, len - 1);
+        views=new_views;
+        installed=System.nanoTime();
+    }
+
+    /**
+     * Marshals a single message with the ranks of its destination and sender instead of their addresses
+     * @return True if the message was written, false if it cannot be encoded (nothing was written)
+     */
+    public boolean writeMessage(Message msg, DataOutput out, boolean multicast) throws IOException {
+        short type=msg.getType();
+        Address src=msg.getSrc();
+        // writeToNoAddrs() is the inverse of readFrom() (minus dest and src) only for the built-in types
+        if(multicast || src == null || type < Message.BYTES_MSG || type > Message.EARLYBATCH_MSG)
+            return false;
+        View view=view();
+        if(view == null)
+            return false;
+        int dest_rank=rank(view, msg.getDest()), src_rank=rank(view, src);
+        if(dest_rank < -1 || src_rank < 0)
+            return false;
+        writeHeader(view, 0, dest_rank, src_rank, out);
+        out.writeShort(type);
+        msg.writeToNoAddrs(src, out);
+        num_encoded.increment();
+        return true;
+    }
+
+    /**
+     * Writes the header of a message list with the ranks of destination and sender instead of their addresses
+     * @return True if the header was written, false if it cannot be encoded (nothing was written)
+     */
+    public boolean writeMessageListHeader(Address dest, Address src, byte[] cluster_name, int num_msgs,
+                                          DataOutput out, boolean multicast) throws IOException {
+        if(multicast)
+            return false;
+        View view=view();
+        if(view == null)
+            return false;
+        int dest_rank=rank(view, dest), src_rank=rank(view, src);
+        if(dest_rank < -1 || src_rank < -1)
+            return false;
+        writeHeader(view, TP.LIST, dest_rank, src_rank, out);
+        out.writeShort(cluster_name != null? cluster_name.length : -1);
+        if(cluster_name != null)
+            out.write(cluster_name);
+        out.writeInt(num_msgs);
+        num_encoded.increment();
+        return true;
+    }
+
+    /**
+     * Reads the view-id, view hash and ranks of an encoded frame (following the flags)
+     * @return An array of destination and sender, or null if no view matches the view-id and hash
+     */
+    public Address[] decode(DataInput in) throws IOException {
+        long id=Bits.readLongCompressed(in);
+        int hash=in.readInt();
+        int dest_rank=Bits.readIntCompressed(in) - 1, src_rank=Bits.readIntCompressed(in) - 1;
+        for(View view: views) {
+            if(view.getViewId().getId() == id && view.getViewId().hashCode() == hash) {
+                Address[] mbrs=view.getMembersRaw();
+                if(dest_rank >= mbrs.length || src_rank >= mbrs.length)
+                    break;
+                num_decoded.increment();
+                return new Address[]{dest_rank < 0? null : mbrs[dest_rank], src_rank < 0? null : mbrs[src_rank]};
+            }
+        }
+        num_dropped.increment();
+        return null;
+    }
+
+    public String toString() {
+        return String.format("encoded=%d, decoded=%d, dropped=%d", getNumEncoded(), getNumDecoded(), getNumDropped());
+    }
+
+    // a cached timestamp lags behind System.nanoTime(), so the grace period can only get longer, never shorter
+    protected long now() {
+        TimeService ts=time_service;
+        return ts != null? ts.timestamp() : System.nanoTime();
+    }
+
+    /** Returns the view against which addresses are encoded, or null during the grace period after a view change */
+    protected View view() {
+        View[] tmp=views;
+        return tmp.length == 0 || now() - installed < grace? null : tmp[0];
+    }
+
+    protected static void writeHeader(View view, int flags, int dest_rank, int src_rank, DataOutput out) throws IOException {
+        out.writeShort(Version.version);
+        out.writeByte(flags | TP.COMPACT_ADDRS);
+        Bits.writeLongCompressed(view.getViewId().getId(), out);
+        out.writeInt(view.getViewId().hashCode());
+        Bits.writeIntCompressed(dest_rank + 1, out);
+        Bits.writeIntCompressed(src_rank + 1, out);
+    }
+
+    /** Returns -1 for a null address, the rank of addr in view, or -2 if addr is not a member */
+    protected static int rank(View view, Address addr) {
+        if(addr == null)
+            return -1;
+        int index=view.indexOf(addr);
+        return index < 0? -2 : index;
+    }
+}
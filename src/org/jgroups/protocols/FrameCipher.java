@@ -0,0 +1,104 @@
+package org.jgroups.protocols;
+
+import org.jgroups.Global;
+import org.jgroups.Version;
+import org.jgroups.util.Bits;
+import org.jgroups.util.ByteArray;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Encrypts and decrypts entire frames (a single message or a list of messages, as created by a bundler) in the
+ * transport, using AES/GCM. Every frame is a single AEAD record, so cipher initialization and the authentication tag
+ * are paid once per frame rather than once per message.<p/>
+ * The format of an encrypted frame is:
+ * <pre>
+ * | version (short) | flags (byte, {@link TP#ENCRYPTED}) | length (int) | IV (12 bytes) | ciphertext + tag |
+ * </pre>
+ * length is the number of bytes of the IV, ciphertext and tag. Version and flags are authenticated (AAD), and the
+ * plaintext is the original frame, including its own version and flags.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public class FrameCipher {
+    public static final String    ALGORITHM="AES/GCM/NoPadding";
+    protected static final int    IV_LENGTH=12, TAG_LENGTH=128; // IV in bytes, tag in bits
+    public static final int       OVERHEAD=Global.SHORT_SIZE + Global.BYTE_SIZE + Global.INT_SIZE + IV_LENGTH + TAG_LENGTH/8;
+
+    protected final Key                   key;
+    protected final SecureRandom          random;
+    protected final BlockingQueue<Cipher> encoding_ciphers, decoding_ciphers;
+
+    public FrameCipher(Key key, int pool_size, String provider, SecureRandom random) throws Exception {
+        this.key=key;
+        this.random=random != null? random : new SecureRandom();
+        encoding_ciphers=new ArrayBlockingQueue<>(pool_size);
+        decoding_ciphers=new ArrayBlockingQueue<>(pool_size);
+        for(int i=0; i < pool_size; i++) {
+            encoding_ciphers.offer(createCipher(provider));
+            decoding_ciphers.offer(createCipher(provider));
+        }
+    }
+
+    /** Encrypts the frame in buf[offset .. offset+length-1] and returns the encrypted frame */
+    public ByteArray encrypt(byte[] buf, int offset, int length) throws Exception {
+        byte[] iv=new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        byte[] frame=new byte[OVERHEAD + length];
+        Bits.writeShort(Version.version, frame, 0);
+        frame[Global.SHORT_SIZE]=TP.ENCRYPTED;
+        int pos=Global.SHORT_SIZE + Global.BYTE_SIZE;
+        Bits.writeInt(IV_LENGTH + length + TAG_LENGTH/8, frame, pos);
+        pos+=Global.INT_SIZE;
+        System.arraycopy(iv, 0, frame, pos, IV_LENGTH);
+        pos+=IV_LENGTH;
+        Cipher cipher=encoding_ciphers.take();
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+            cipher.updateAAD(frame, 0, Global.SHORT_SIZE + Global.BYTE_SIZE);
+            int len=cipher.doFinal(buf, offset, length, frame, pos);
+            return new ByteArray(frame, 0, pos + len);
+        }
+        finally {
+            encoding_ciphers.offer(cipher);
+        }
+    }
+
+    /**
+     * Decrypts an encrypted frame
+     * @param version The version read from the frame
+     * @param flags The flags read from the frame
+     * @param buf The buffer holding IV, ciphertext and tag (the record following the length field)
+     * @return The decrypted (original) frame
+     */
+    public byte[] decrypt(short version, byte flags, byte[] buf, int offset, int length) throws Exception {
+        if(length < IV_LENGTH + TAG_LENGTH/8)
+            throw new IllegalArgumentException(String.format("encrypted frame is too short (%d bytes)", length));
+        byte[] aad=new byte[Global.SHORT_SIZE + Global.BYTE_SIZE];
+        Bits.writeShort(version, aad, 0);
+        aad[Global.SHORT_SIZE]=flags;
+        Cipher cipher=decoding_ciphers.take();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, buf, offset, IV_LENGTH));
+            cipher.updateAAD(aad);
+            return cipher.doFinal(buf, offset + IV_LENGTH, length - IV_LENGTH);
+        }
+        finally {
+            decoding_ciphers.offer(cipher);
+        }
+    }
+
+    public String toString() {
+        return String.format("%s (%s)", ALGORITHM, key.getAlgorithm());
+    }
+
+    protected static Cipher createCipher(String provider) throws Exception {
+        return provider != null && !provider.trim().isEmpty()?
+          Cipher.getInstance(ALGORITHM, provider) : Cipher.getInstance(ALGORITHM);
+    }
+}
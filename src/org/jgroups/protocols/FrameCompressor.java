@@ -0,0 +1,97 @@
+package org.jgroups.protocols;
+
+import org.jgroups.Global;
+import org.jgroups.Version;
+import org.jgroups.util.Bits;
+import org.jgroups.util.ByteArray;
+import org.jgroups.util.Compressor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Compresses and uncompresses entire frames (a single message or a list of messages, as created by a bundler) in the
+ * transport. Compressing a bundle of similar messages yields much better ratios than compressing each message
+ * separately. Frames are compressed before they are encrypted (if {@link FrameCipher} is used).<p/>
+ * The format of a compressed frame is:
+ * <pre>
+ * | version (short) | flags (byte, {@link TP#COMPRESSED}) | original length (int) | length (int) | compressed data |
+ * </pre>
+ * The compressed data is the original frame, including its own version and flags.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public class FrameCompressor {
+    public static final int                   OVERHEAD=Global.SHORT_SIZE + Global.BYTE_SIZE + Global.INT_SIZE*2;
+    protected final int                       min_size;
+    protected final BlockingQueue<Compressor> compressors, uncompressors;
+    protected final LongAdder                 num_compressions=new LongAdder(), num_uncompressions=new LongAdder();
+
+    public FrameCompressor(Supplier<Compressor> creator, int pool_size, int min_size) {
+        this.min_size=min_size;
+        compressors=new ArrayBlockingQueue<>(pool_size);
+        uncompressors=new ArrayBlockingQueue<>(pool_size);
+        for(int i=0; i < pool_size; i++) {
+            compressors.offer(creator.get());
+            uncompressors.offer(creator.get());
+        }
+    }
+
+    public int  getMinSize()           {return min_size;}
+    public long getNumCompressions()   {return num_compressions.sum();}
+    public long getNumUncompressions() {return num_uncompressions.sum();}
+
+    /**
+     * Compresses the frame in buf[offset .. offset+length-1]
+     * @return The compressed frame, or null if the frame is smaller than min_size or compression didn't reduce its size
+     */
+    public ByteArray compress(byte[] buf, int offset, int length) throws Exception {
+        if(length < min_size)
+            return null;
+        byte[] frame=new byte[length]; // only frames smaller than the original are sent
+        Compressor c=compressors.take();
+        int size;
+        try {
+            size=c.compress(buf, offset, length, frame, OVERHEAD);
+        }
+        finally {
+            compressors.offer(c);
+        }
+        if(size < 0)
+            return null;
+        Bits.writeShort(Version.version, frame, 0);
+        frame[Global.SHORT_SIZE]=TP.COMPRESSED;
+        Bits.writeInt(length, frame, Global.SHORT_SIZE + Global.BYTE_SIZE);
+        Bits.writeInt(size, frame, Global.SHORT_SIZE + Global.BYTE_SIZE + Global.INT_SIZE);
+        num_compressions.increment();
+        return new ByteArray(frame, 0, OVERHEAD + size);
+    }
+
+    /** Uncompresses length bytes of compressed data (following the length field) into the original frame */
+    public byte[] uncompress(byte[] buf, int offset, int length, int original_length) throws Exception {
+        if(original_length < TP.MSG_OVERHEAD)
+            throw new IllegalArgumentException(String.format("invalid original frame length (%d)", original_length));
+        byte[] frame=new byte[original_length];
+        Compressor c=uncompressors.take();
+        try {
+            c.uncompress(buf, offset, length, frame, 0, original_length);
+            num_uncompressions.increment();
+            return frame;
+        }
+        finally {
+            uncompressors.offer(c);
+        }
+    }
+
+    public void destroy() {
+        compressors.forEach(Compressor::close);
+        uncompressors.forEach(Compressor::close);
+    }
+
+    public String toString() {
+        Compressor c=compressors.peek();
+        return String.format("%s (min_size=%d)", c, min_size);
+    }
+}
@@ -83,6 +83,11 @@ public class JDBC_PING extends FILE_PING {
         "properties must be empty.")
     protected String datasource_jndi_name;
 
+    @Property(description="If true, all entries are written in a single transaction, using JDBC batch updates to " +
+      "delete the existing rows and insert the new ones. Falls back to single updates if the driver doesn't support " +
+      "batch updates")
+    protected boolean batch_writes=true;
+
     /* --------------------------------------------- Fields ------------------------------------------------------ */
 
     protected DataSource dataSource;
@@ -96,6 +101,9 @@ public class JDBC_PING extends FILE_PING {
         this.dataSource = dataSource; return this;
     }
 
+    public boolean   batchWrites()          {return batch_writes;}
+    public JDBC_PING batchWrites(boolean b) {this.batch_writes=b; return this;}
+
     @Override
     public void init() throws Exception {
         super.init();
@@ -113,10 +121,71 @@ public class JDBC_PING extends FILE_PING {
 
 
     protected void write(List<PingData> list, String clustername) {
+        if(batch_writes && list.size() > 1) {
+            writeToDB(list, clustername);
+            return;
+        }
         for(PingData data: list)
             writeToDB(data, clustername, true);
     }
 
+    /** Replaces the rows of all entries in one transaction, using batch updates */
+    protected synchronized void writeToDB(List<PingData> list, String clustername) {
+        final Connection connection=getConnection();
+        if(connection == null) {
+            log.error(Util.getMessage("FailedToStorePingDataInDatabase"));
+            return;
+        }
+        boolean autocommit=true;
+        try {
+            if(!connection.getMetaData().supportsBatchUpdates()) {
+                for(PingData data: list) {
+                    String addr=addressAsString(data.getAddress());
+                    delete(connection, clustername, addr);
+                    insert(connection, data, clustername, addr);
+                }
+                return;
+            }
+            autocommit=connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try(PreparedStatement del=connection.prepareStatement(delete_single_sql);
+                PreparedStatement ins=connection.prepareStatement(insert_single_sql)) {
+                for(PingData data: list) {
+                    String addr=addressAsString(data.getAddress());
+                    del.setString(1, addr);
+                    del.setString(2, clustername);
+                    del.addBatch();
+                    ins.setString(1, addr);
+                    ins.setString(2, clustername);
+                    ins.setBytes(3, serializeWithoutView(data));
+                    ins.addBatch();
+                }
+                del.executeBatch();
+                ins.executeBatch();
+                connection.commit();
+                writes+=list.size(); // counted per row, as in insert()
+                log.debug("%s: wrote %d entries for cluster %s to database", local_addr, list.size(), clustername);
+            }
+            catch(SQLException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        }
+        catch(SQLException e) {
+            log.error(Util.getMessage("ErrorUpdatingJDBCPINGTable"), e);
+        }
+        finally {
+            try {
+                if(autocommit)
+                    connection.setAutoCommit(true);
+            }
+            catch(SQLException e) {
+                log.error(Util.getMessage("ErrorUpdatingJDBCPINGTable"), e);
+            }
+            closeConnection(connection);
+        }
+    }
+
 
     // It's possible that multiple threads in the same cluster node invoke this concurrently;
     // Since delete and insert operations are not atomic
@@ -318,6 +387,7 @@ public class JDBC_PING extends FILE_PING {
             if(log.isTraceEnabled())
                 log.trace("%s: SQL for insertion: %s", local_addr, ps);
             ps.executeUpdate();
+            writes++;
             log.debug("Inserted %s for cluster %s into database", address, clustername);
         }
     }
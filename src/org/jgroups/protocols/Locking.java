@@ -947,6 +947,9 @@ abstract public class Locking extends Protocol {
         protected volatile boolean      is_trylock;
         protected long                  timeout;
         protected final ClientCondition condition;
+        // guards the state; a j.u.c. lock (rather than a monitor) doesn't pin the carrier of a waiting virtual thread
+        protected final Lock            mutex=new ReentrantLock();
+        protected final Condition       state_changed=mutex.newCondition();
 
         // unique for locks for the same name:owner, can wrap around (that's ok)
         protected final int             lock_id=current_lock_id.getAndIncrement();
@@ -992,8 +995,14 @@ abstract public class Locking extends Protocol {
             return acquireTryLock(TimeUnit.MILLISECONDS.convert(time, unit), true);
         }
 
-        public synchronized void unlock() {
-            _unlock(false);
+        public void unlock() {
+            mutex.lock();
+            try {
+                _unlock(false);
+            }
+            finally {
+                mutex.unlock();
+            }
         }
 
         public Condition newCondition() {
@@ -1005,22 +1014,34 @@ abstract public class Locking extends Protocol {
             return String.format("%s (id=%d, locked=%b, owner=%s)", name, lock_id, acquired, owner != null? owner : "n/a");
         }
 
-        protected synchronized void lockGranted(int lock_id) {
-            if(this.lock_id != lock_id) {
-                log.error(Util.getMessage("DiscardedLOCKGRANTEDResponseWithLockId") + lock_id + ", my lock-id=" + this.lock_id);
-                return;
+        protected void lockGranted(int lock_id) {
+            mutex.lock();
+            try {
+                if(this.lock_id != lock_id) {
+                    log.error(Util.getMessage("DiscardedLOCKGRANTEDResponseWithLockId") + lock_id + ", my lock-id=" + this.lock_id);
+                    return;
+                }
+                acquired=true;
+                state_changed.signalAll();
+            }
+            finally {
+                mutex.unlock();
             }
-            acquired=true;
-            this.notifyAll();
         }
 
-        protected synchronized void lockDenied(int lock_id) {
-            if(this.lock_id != lock_id) {
-                log.error(Util.getMessage("DiscardedLOCKDENIEDResponseWithLockId") + lock_id + ", my lock_id=" + this.lock_id);
-                return;
+        protected void lockDenied(int lock_id) {
+            mutex.lock();
+            try {
+                if(this.lock_id != lock_id) {
+                    log.error(Util.getMessage("DiscardedLOCKDENIEDResponseWithLockId") + lock_id + ", my lock_id=" + this.lock_id);
+                    return;
+                }
+                denied=true;
+                state_changed.signalAll();
+            }
+            finally {
+                mutex.unlock();
             }
-            denied=true;
-            this.notifyAll();
         }
 
         protected void handleLockGrantedResponse(int lock_id) {
@@ -1035,77 +1056,105 @@ abstract public class Locking extends Protocol {
             _unlockOK();
         }
 
-        protected synchronized void acquire(boolean throwInterrupt) throws InterruptedException {
-            if(acquired)
-                return;
-            if(throwInterrupt && Thread.interrupted())
-                throw new InterruptedException();
-            owner=getOwner();
-            sendGrantLockRequest(name, lock_id, owner, 0, false);
-            boolean interrupted=false;
-            while(!acquired) {
-                try {
-                    this.wait();
-                }
-                catch(InterruptedException e) {
-                    if(throwInterrupt && !acquired) {
-                        _unlock(true);
-                        throw e;
+        protected void acquire(boolean throwInterrupt) throws InterruptedException {
+            mutex.lock();
+            try {
+                if(acquired)
+                    return;
+                if(throwInterrupt && Thread.interrupted())
+                    throw new InterruptedException();
+                owner=getOwner();
+                sendGrantLockRequest(name, lock_id, owner, 0, false);
+                boolean interrupted=false;
+                while(!acquired) {
+                    try {
+                        state_changed.await();
+                    }
+                    catch(InterruptedException e) {
+                        if(throwInterrupt && !acquired) {
+                            _unlock(true);
+                            throw e;
+                        }
+                        // If we don't throw exceptions then we just set the interrupt flag and let it loop around
+                        interrupted=true;
                     }
-                    // If we don't throw exceptions then we just set the interrupt flag and let it loop around
-                    interrupted=true;
                 }
+                if(interrupted)
+                    Thread.currentThread().interrupt();
+            }
+            finally {
+                mutex.unlock();
             }
-            if(interrupted)
-                Thread.currentThread().interrupt();
         }
 
-        protected synchronized void _unlock(boolean force) {
-            if(!acquired && !denied && !force)
-                return;
-            this.timeout=0;
-            this.is_trylock=false;
-            if(!denied) {
-                if(!force)
-                    client_lock_table.addToPendingReleaseRequests(this);
-                sendReleaseLockRequest(name, lock_id, owner); // lock will be released on RELEASE_LOCK_OK response
-                if(force && client_lock_table.removeClientLock(name,owner))
-                    notifyLockDeleted(name);
-
-                if(!force) {
-                    //unlock will return only when get RELEASE_LOCK_OK or timeLeft after some seconds
-                    long time_left=10000;
-                    while(acquired || denied) {
-                        long start=System.currentTimeMillis();
-                        try {
-                            wait(time_left);
-                        }
-                        catch(InterruptedException ie) {
-                            break;
-                        }
-                        long duration=System.currentTimeMillis() - start;
-                        if(duration > 0)
-                            time_left-=duration;
-                        if(time_left <= 0) {
-                            log.warn("%s: timeout waiting for RELEASE_LOCK_OK response for lock %s", local_addr, this);
-                            break;
+        protected void _unlock(boolean force) {
+            mutex.lock();
+            try {
+                if(!acquired && !denied && !force)
+                    return;
+                this.timeout=0;
+                this.is_trylock=false;
+                if(!denied) {
+                    if(!force)
+                        client_lock_table.addToPendingReleaseRequests(this);
+                    sendReleaseLockRequest(name, lock_id, owner); // lock will be released on RELEASE_LOCK_OK response
+                    if(force && client_lock_table.removeClientLock(name,owner))
+                        notifyLockDeleted(name);
+
+                    if(!force) {
+                        //unlock will return only when get RELEASE_LOCK_OK or timeLeft after some seconds
+                        long time_left=10000;
+                        while(acquired || denied) {
+                            long start=System.currentTimeMillis();
+                            try {
+                                state_changed.await(time_left, TimeUnit.MILLISECONDS);
+                            }
+                            catch(InterruptedException ie) {
+                                break;
+                            }
+                            long duration=System.currentTimeMillis() - start;
+                            if(duration > 0)
+                                time_left-=duration;
+                            if(time_left <= 0) {
+                                log.warn("%s: timeout waiting for RELEASE_LOCK_OK response for lock %s", local_addr, this);
+                                break;
+                            }
                         }
                     }
                 }
+                else
+                    _unlockOK();
+            }
+            finally {
+                mutex.unlock();
+            }
+        }
+
+        protected void _unlockOK() {
+            mutex.lock();
+            try {
+                acquired=denied=false;
+                state_changed.signalAll();
+                if(client_lock_table.removeClientLock(name,owner))
+                    notifyLockDeleted(name);
+                owner=null;
+            }
+            finally {
+                mutex.unlock();
             }
-            else
-                _unlockOK();
         }
 
-    protected synchronized void _unlockOK() {
-        acquired=denied=false;
-            notifyAll();
-            if(client_lock_table.removeClientLock(name,owner))
-                notifyLockDeleted(name);
-            owner=null;
+        protected boolean acquireTryLock(long timeout, boolean use_timeout) throws InterruptedException {
+            mutex.lock();
+            try {
+                return _acquireTryLock(timeout, use_timeout);
+            }
+            finally {
+                mutex.unlock();
+            }
         }
 
-        protected synchronized boolean acquireTryLock(long timeout, boolean use_timeout) throws InterruptedException {
+        protected boolean _acquireTryLock(long timeout, boolean use_timeout) throws InterruptedException {
             if(denied)
                 return false;
             if(!acquired) {
@@ -1129,7 +1178,7 @@ abstract public class Locking extends Protocol {
                                 long wait_ms=TimeUnit.MILLISECONDS.convert(wait_time, TimeUnit.NANOSECONDS);
                                 if(wait_ms <= 0)
                                     break;
-                                this.wait(wait_ms);
+                                state_changed.await(wait_ms, TimeUnit.MILLISECONDS);
                             }
                             catch(InterruptedException e) {
                                 interrupted=true;
@@ -1143,7 +1192,7 @@ abstract public class Locking extends Protocol {
                     }
                     else {
                         try {
-                            this.wait();
+                            state_changed.await();
                         }
                         catch(InterruptedException e) {
                             interrupted = true;
@@ -33,7 +33,10 @@ import java.util.stream.Collectors;
  * The others do nothing.<p/>
  * The advantage compared to MERGE2 is that there are no merge collisions caused by multiple merges going on.
  * Also, the INFO traffic is spread out over max_interval, and every member sends its physical address with INFO, so
- * we don't need to fetch the physical address first.
+ * we don't need to fetch the physical address first.<p/>
+ * In scalable mode, only coordinators collect INFO messages and check for inconsistent views, and participants send
+ * INFO messages less frequently (every participant_info_ratio intervals). This reduces the background INFO traffic
+ * and the state kept by every member in large clusters.
  *
  * @author Bela Ban, Nov 2011
  * @since 3.1
@@ -53,6 +56,14 @@ public class MERGE3 extends Protocol {
     @Property(description="The max number of merge participants to be involved in a merge. 0 sets this to unlimited.")
     protected int                           max_participants_in_merge=100;
 
+    @Property(description="Scalable merge detection for large clusters: only coordinators collect INFO messages and " +
+      "check for inconsistent views, and participants send an INFO message only every participant_info_ratio " +
+      "intervals (coordinators send one every interval)")
+    protected boolean                       scalable;
+
+    @Property(description="In scalable mode, a participant sends an INFO message only every N-th interval")
+    protected int                           participant_info_ratio=8;
+
     /* ---------------------------------------------- JMX -------------------------------------------------------- */
     @Property(description="Interval (in ms) after which we check for view inconsistencies",type=AttributeType.TIME)
     protected long                          check_interval;
@@ -92,6 +103,9 @@ public class MERGE3 extends Protocol {
     @ManagedAttribute(description="Number of times a MERGE event was sent up the stack")
     protected int                           num_merge_events;
 
+    @ManagedAttribute(description="Number of INFO messages sent")
+    protected int                           num_info_sent;
+
 
 
     public int getNumMergeEvents() {return num_merge_events;}
@@ -124,7 +138,7 @@ public class MERGE3 extends Protocol {
 
     @ManagedOperation(description="Send INFO")
     public void sendInfo() {
-        new InfoSender().run();
+        new InfoSender().send();
     }
 
     @ManagedOperation(description="Check views for inconsistencies")
@@ -144,6 +158,8 @@ public class MERGE3 extends Protocol {
         }
         if(max_interval <= 0)
             throw new Exception("max_interval must be > 0");
+        if(participant_info_ratio < 1)
+            throw new IllegalArgumentException("participant_info_ratio must be > 0");
         transport_supports_multicasting=getTransport().supportsMulticasting();
     }
 
@@ -188,6 +204,17 @@ public class MERGE3 extends Protocol {
     public MERGE3  setCheckInterval(long ci)        {this.check_interval=ci; return this;}
     public int     getMaxParticipantsInMerge()      {return max_participants_in_merge;}
     public MERGE3  setMaxParticipantsInMerge(int m) {this.max_participants_in_merge=m; return this;}
+    public boolean isScalable()                     {return scalable;}
+    public MERGE3  setScalable(boolean s)           {this.scalable=s; return this;}
+    public int     getParticipantInfoRatio()        {return participant_info_ratio;}
+    public MERGE3  setParticipantInfoRatio(int r)   {this.participant_info_ratio=r; return this;}
+    public int     getNumInfoSent()                 {return num_info_sent;}
+
+    @Override
+    public void resetStats() {
+        super.resetStats();
+        num_merge_events=num_info_sent=0;
+    }
 
     public boolean isCoord() {return is_coord;}
 
@@ -253,9 +280,6 @@ public class MERGE3 extends Protocol {
                 if(ergonomics && max_participants_in_merge > 0)
                     max_participants_in_merge=Math.max(100, view.size() / 3);
 
-                startInfoSender();
-                startViewConsistencyChecker();
-
                 Address coord=view.getCoord();
                 if(Objects.equals(coord, local_addr))
                     is_coord=true;
@@ -263,6 +287,12 @@ public class MERGE3 extends Protocol {
                     is_coord=false;
                     clearViews();
                 }
+
+                startInfoSender();
+                if(!scalable || is_coord)
+                    startViewConsistencyChecker();
+                else
+                    stopViewConsistencyChecker(); // a coordinator which became a participant
                 return ret;
         }
         return down_prot.down(evt);
@@ -356,6 +386,8 @@ public class MERGE3 extends Protocol {
             NameCache.add(sender, logical_name);
         if(physical_addr != null)
             down(new Event(Event.ADD_PHYSICAL_ADDRESS, new Tuple<>(sender, physical_addr)));
+        if(scalable && !is_coord && !Objects.equals(sender, local_addr))
+            return; // only coordinators check for inconsistent views
         synchronized(views) {
             ViewId existing=views.get(sender);
             if(existing == null || existing.compareTo(view_id) < 0)
@@ -409,12 +441,21 @@ public class MERGE3 extends Protocol {
     }
 
     protected class InfoSender implements TimeScheduler.Task {
+        protected int count;
+
         public void run() {
+            // a participant whose view diverges from its coordinator's is still detected, albeit more slowly
+            if(scalable && !is_coord && ++count % participant_info_ratio != 0)
+                return;
+            send();
+        }
+
+        protected void send() {
             if(view == null) {
                 log.warn("%s: view is null, cannot send INFO message", local_addr);
                 return;
             }
-
+            num_info_sent++;
             MergeHeader hdr=createInfo();
             if(transport_supports_multicasting) {
                 Message msg=new EmptyMessage().putHeader(getId(), hdr).setFlag(Message.TransientFlag.DONT_LOOPBACK);
@@ -42,7 +42,7 @@ public class NoBundler implements Bundler {
     protected void sendSingleMessage(final Message msg, final ByteArrayDataOutputStream output) throws Exception {
         Address dest=msg.getDest();
         output.position(0);
-        Util.writeMessage(msg, output, dest == null);
+        Util.writeMessage(msg, output, dest == null, transport.getAddressEncoder());
         transport.doSend(output.buffer(), 0, output.position(), dest);
         if(transport.statsEnabled())
             transport.getMessageStats().incrNumSingleMsgsSent(1);
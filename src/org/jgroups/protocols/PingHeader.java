@@ -18,6 +18,7 @@ import java.util.function.Supplier;
 public class PingHeader extends Header {
     public static final byte GET_MBRS_REQ=1;
     public static final byte GET_MBRS_RSP=2;
+    public static final byte GET_MBRS_RSP_SNAPSHOT=3; // the information about all members of a view in 1 message
 
     protected byte    type;
     protected String  cluster_name;
@@ -52,6 +53,7 @@ public class PingHeader extends Header {
         switch(t) {
             case GET_MBRS_REQ: return "GET_MBRS_REQ";
             case GET_MBRS_RSP: return "GET_MBRS_RSP";
+            case GET_MBRS_RSP_SNAPSHOT: return "GET_MBRS_RSP_SNAPSHOT";
             default:           return "<unkown type (" + t + ")>";
         }
     }
@@ -9,6 +9,7 @@ import org.jgroups.stack.Protocol;
 import org.jgroups.util.AckCollector;
 import org.jgroups.util.MessageBatch;
 import org.jgroups.util.TimeScheduler;
+import org.jgroups.util.TimeService;
 import org.jgroups.util.Util;
 
 import java.io.DataInput;
@@ -51,6 +52,8 @@ public class RSVP extends Protocol {
 
     protected TimeScheduler                    timer;
 
+    protected TimeService                      time_service; // for the creation time of entries
+
     protected volatile List<Address>           members=new ArrayList<>();
 
     /** Used to store IDs and their acks */
@@ -79,6 +82,7 @@ public class RSVP extends Protocol {
     public void init() throws Exception {
         super.init();
         timer=getTransport().getTimer();
+        time_service=getTransport().getTimeService();
         if(timeout > 0 && resend_interval > 0 && resend_interval >= timeout) {
             log.warn(Util.getMessage("RSVP_Misconfig"), resend_interval, timeout);
             resend_interval=timeout / 3;
@@ -119,7 +123,7 @@ public class RSVP extends Protocol {
         msg.putHeader(id, hdr);
         boolean block=msg.isFlagSet(Message.Flag.RSVP);
 
-        Entry entry=target != null? new Entry(target) : new Entry(members); // volatile read of members
+        Entry entry=target != null? new Entry(target, now()) : new Entry(members, now()); // volatile read of members
         Object retval=null;
         try {
             ids.put(next_id, entry);
@@ -285,6 +289,10 @@ public class RSVP extends Protocol {
         }
     }
 
+    protected long now() {
+        return time_service != null? time_service.timestamp() : System.nanoTime();
+    }
+
     protected synchronized short getNextId() {
         return current_id++;
     }
@@ -312,17 +320,17 @@ public class RSVP extends Protocol {
         protected final long         timestamp; // creation time (ns)
 
         /** Unicast entry */
-        protected Entry(Address member) {
+        protected Entry(Address member, long timestamp) {
             this.target=member;
             this.ack_collector=new AckCollector(member);
-            this.timestamp=System.nanoTime();
+            this.timestamp=timestamp;
         }
 
         /** Multicast entry */
-        protected Entry(Collection<Address> members) {
+        protected Entry(Collection<Address> members, long timestamp) {
             this.target=null;
             this.ack_collector=new AckCollector(members);
-            this.timestamp=System.nanoTime();
+            this.timestamp=timestamp;
         }
 
         protected void    ack(Address member)                         {ack_collector.ack(member);}
@@ -343,7 +351,7 @@ public class RSVP extends Protocol {
             for(Map.Entry<Short,Entry> entry: ids.entrySet()) {
                 Short rsvp_id=entry.getKey();
                 Entry val=entry.getValue();
-                long age=TimeUnit.MILLISECONDS.convert(System.nanoTime() - val.timestamp, TimeUnit.NANOSECONDS);
+                long age=TimeUnit.MILLISECONDS.convert(now() - val.timestamp, TimeUnit.NANOSECONDS);
                 if(age >= timeout || val.ack_collector.size() == 0) {
                     if(age >= timeout)
                         log.warn(Util.getMessage("RSVP_Timeout"), entry);
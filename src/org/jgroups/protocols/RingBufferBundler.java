@@ -108,7 +108,8 @@ public class RingBufferBundler extends BaseBundler {
             Address dest=msg.getDest();
             try {
                 output.position(0);
-                Util.writeMessageListHeader(dest, msg.getSrc(), cluster_name, 1, output, dest == null);
+                Util.writeMessageListHeader(dest, msg.getSrc(), cluster_name, 1, output, dest == null,
+                                            transport.getAddressEncoder());
 
                 // remember the position at which the number of messages (an int) was written, so we can later set the
                 // correct value (when we know the correct number of messages)
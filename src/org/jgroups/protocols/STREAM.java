@@ -0,0 +1,340 @@
+package org.jgroups.protocols;
+
+import org.jgroups.*;
+import org.jgroups.annotations.MBean;
+import org.jgroups.annotations.ManagedAttribute;
+import org.jgroups.annotations.Property;
+import org.jgroups.conf.AttributeType;
+import org.jgroups.stack.Protocol;
+import org.jgroups.util.*;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Streams large payloads to a member (or all members) without materializing them in a single message. The sender
+ * writes to an {@link OutputStream} obtained from {@link JChannel#openStream(Address)}; every chunk_size bytes are
+ * sent as a regular message, so that flow control (UFC/MFC) blocks the writer when receivers fall behind.<p/>
+ * On the receiver, the chunks of a stream are written into a bounded input stream (buffer_size bytes), which is
+ * passed to {@link Receiver#receive(Address, InputStream)} on a separate thread as soon as the first chunk has been
+ * received. When the buffer is full, delivery of further messages from the same sender blocks until the application
+ * has consumed some data. Therefore the application should consume the stream promptly.<p/>
+ * Chunks are delivered in order as they are sent as regular (not OOB) messages. If the sender leaves or crashes
+ * before closing the stream, reading from the input stream throws an {@link EOFException}.<p/>
+ * STREAM should be placed above the fragmentation and flow control protocols.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@MBean(description="Streams large payloads in chunks")
+public class STREAM extends Protocol {
+
+    @Property(description="Size (in bytes) of the chunks sent by the output stream",type=AttributeType.BYTES)
+    protected int chunk_size=32000;
+
+    @Property(description="Capacity (in bytes) of the input stream of a received stream. Delivery of messages from " +
+      "the sender blocks when the buffer is full",type=AttributeType.BYTES)
+    protected int buffer_size=1 << 20;
+
+    protected final AtomicLong current_id=new AtomicLong(1);
+
+    protected final Predicate<Message> HAS_HEADER=msg -> msg.getHeader(id) != null;
+
+    // received streams: sender -> stream-id -> input stream
+    protected final ConcurrentMap<Address,Map<Long,StreamInputStream>> streams=new ConcurrentHashMap<>();
+
+    protected final LongAdder num_streams_sent=new LongAdder(), num_streams_received=new LongAdder();
+    protected final LongAdder num_bytes_sent=new LongAdder(), num_bytes_received=new LongAdder();
+
+
+    public int    getChunkSize()            {return chunk_size;}
+    public STREAM setChunkSize(int c)       {this.chunk_size=c; return this;}
+    public int    getBufferSize()           {return buffer_size;}
+    public STREAM setBufferSize(int b)      {this.buffer_size=b; return this;}
+
+    @ManagedAttribute(description="Number of streams sent",type=AttributeType.SCALAR)
+    public long getNumStreamsSent()         {return num_streams_sent.sum();}
+
+    @ManagedAttribute(description="Number of streams received",type=AttributeType.SCALAR)
+    public long getNumStreamsReceived()     {return num_streams_received.sum();}
+
+    @ManagedAttribute(description="Number of bytes sent in streams",type=AttributeType.BYTES)
+    public long getNumBytesSent()           {return num_bytes_sent.sum();}
+
+    @ManagedAttribute(description="Number of bytes received in streams",type=AttributeType.BYTES)
+    public long getNumBytesReceived()       {return num_bytes_received.sum();}
+
+    @ManagedAttribute(description="Number of streams currently being received")
+    public int getNumOpenStreams() {
+        return streams.values().stream().mapToInt(Map::size).sum();
+    }
+
+    public void resetStats() {
+        super.resetStats();
+        num_streams_sent.reset(); num_streams_received.reset(); num_bytes_sent.reset(); num_bytes_received.reset();
+    }
+
+    public void init() throws Exception {
+        super.init();
+        if(chunk_size <= 0 || buffer_size <= 0)
+            throw new IllegalArgumentException(String.format("chunk_size (%d) and buffer_size (%d) must be positive",
+                                                             chunk_size, buffer_size));
+    }
+
+    public void stop() {
+        super.stop();
+        streams.values().forEach(m -> m.values().forEach(StreamInputStream::abort));
+        streams.clear();
+    }
+
+    public Object down(Event evt) {
+        switch(evt.getType()) {
+            case Event.OPEN_STREAM:
+                return openStream(evt.getArg());
+            case Event.VIEW_CHANGE:
+                handleView(evt.getArg());
+                break;
+        }
+        return down_prot.down(evt);
+    }
+
+    public Object up(Event evt) {
+        if(evt.getType() == Event.VIEW_CHANGE)
+            handleView(evt.getArg());
+        return up_prot.up(evt);
+    }
+
+    public Object up(Message msg) {
+        StreamHeader hdr=msg.getHeader(id);
+        if(hdr == null)
+            return up_prot.up(msg);
+        handle(msg, hdr);
+        return null;
+    }
+
+    public void up(MessageBatch batch) {
+        FastArray<Message>.FastIterator it=(FastArray<Message>.FastIterator)batch.iteratorWithFilter(HAS_HEADER);
+        while(it.hasNext()) {
+            Message msg=it.next();
+            it.remove();
+            handle(msg, msg.getHeader(id));
+        }
+        if(!batch.isEmpty())
+            up_prot.up(batch);
+    }
+
+    /** Returns an output stream sending chunks to dest (null sends to all members) */
+    public OutputStream openStream(Address dest) {
+        num_streams_sent.increment();
+        return new StreamOutputStream(dest, current_id.getAndIncrement());
+    }
+
+    protected void handle(Message msg, StreamHeader hdr) {
+        Address sender=msg.getSrc();
+        switch(hdr.type) {
+            case StreamHeader.DATA:
+                StreamInputStream in=getOrCreateStream(sender, hdr.stream_id);
+                try {
+                    in.write(msg.getArray(), msg.getOffset(), msg.getLength()); // blocks when the buffer is full
+                    num_bytes_received.add(msg.getLength());
+                }
+                catch(IOException e) {
+                    log.error("%s: failed writing chunk of stream %d from %s: %s", local_addr, hdr.stream_id, sender, e);
+                }
+                break;
+            case StreamHeader.EOF:
+                Map<Long,StreamInputStream> map=streams.get(sender);
+                StreamInputStream s=map != null? map.remove(hdr.stream_id) : null;
+                if(s != null)
+                    Util.close(s);
+                else // empty stream
+                    Util.close(deliver(sender, hdr.stream_id, new StreamInputStream(1)));
+                break;
+        }
+    }
+
+    protected StreamInputStream getOrCreateStream(Address sender, long stream_id) {
+        Map<Long,StreamInputStream> map=streams.computeIfAbsent(sender, k -> new ConcurrentHashMap<>());
+        StreamInputStream in=map.get(stream_id);
+        if(in == null) {
+            StreamInputStream tmp=map.putIfAbsent(stream_id, in=new StreamInputStream(buffer_size));
+            if(tmp != null)
+                return tmp;
+            deliver(sender, stream_id, in);
+        }
+        return in;
+    }
+
+    /** Passes the input stream to the application on a separate thread */
+    protected StreamInputStream deliver(Address sender, long stream_id, StreamInputStream in) {
+        num_streams_received.increment();
+        Thread t=getThreadFactory().newThread(() -> {
+            try {
+                up_prot.up(new Event(Event.STREAM_RECEIVED, new Tuple<>(sender, in)));
+            }
+            catch(Throwable ex) {
+                log.error("%s: failed delivering stream %d from %s: %s", local_addr, stream_id, sender, ex);
+            }
+            finally {
+                // unblocks the writer if the application didn't consume the entire stream; remaining chunks are
+                // discarded. The stream is removed when EOF is received
+                Util.close(in);
+            }
+        }, "stream-" + sender + "-" + stream_id);
+        t.start();
+        return in;
+    }
+
+    protected void handleView(View view) {
+        List<Address> mbrs=view.getMembers();
+        for(Map.Entry<Address,Map<Long,StreamInputStream>> e: streams.entrySet()) {
+            if(!mbrs.contains(e.getKey())) {
+                Collection<StreamInputStream> list=e.getValue().values();
+                if(!list.isEmpty())
+                    log.debug("%s: aborting %d stream(s) from %s as it left", local_addr, list.size(), e.getKey());
+                list.forEach(StreamInputStream::abort);
+                streams.remove(e.getKey());
+            }
+        }
+    }
+
+
+    /** Splits the written data into chunks of chunk_size bytes and sends each chunk as a message */
+    protected class StreamOutputStream extends OutputStream {
+        protected final Address dest;
+        protected final long    stream_id;
+        protected final byte[]  buf=new byte[chunk_size];
+        protected int           pos;
+        protected boolean       closed;
+
+        protected StreamOutputStream(Address dest, long stream_id) {
+            this.dest=dest;
+            this.stream_id=stream_id;
+        }
+
+        public void write(int b) throws IOException {
+            checkClosed();
+            if(pos == buf.length)
+                flush();
+            buf[pos++]=(byte)b;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkClosed();
+            while(len > 0) {
+                if(pos == buf.length)
+                    flush();
+                int n=Math.min(len, buf.length - pos);
+                System.arraycopy(b, off, buf, pos, n);
+                pos+=n; off+=n; len-=n;
+            }
+        }
+
+        /** Sends the buffered data as a chunk. The buffer is copied as messages are kept for retransmission */
+        public void flush() throws IOException {
+            checkClosed();
+            if(pos == 0)
+                return;
+            send(StreamHeader.DATA, Arrays.copyOf(buf, pos));
+            num_bytes_sent.add(pos);
+            pos=0;
+        }
+
+        public void close() throws IOException {
+            if(closed)
+                return;
+            flush();
+            closed=true;
+            send(StreamHeader.EOF, null);
+        }
+
+        protected void send(byte type, byte[] data) throws IOException {
+            Message msg=new BytesMessage(dest, data).putHeader(id, new StreamHeader(type, stream_id));
+            if(dest == null)
+                msg.setFlag(Message.TransientFlag.DONT_LOOPBACK);
+            if(Thread.interrupted())
+                throw new InterruptedIOException(String.format("stream %d to %s was interrupted", stream_id, dest));
+            try {
+                down_prot.down(msg);
+            }
+            catch(Exception ex) {
+                throw new IOException(String.format("failed sending chunk of stream %d to %s", stream_id, dest), ex);
+            }
+        }
+
+        protected void checkClosed() throws IOException {
+            if(closed)
+                throw new IOException(String.format("stream %d to %s is closed", stream_id, dest));
+        }
+    }
+
+
+    /** Bounded input stream which throws an {@link EOFException} when aborted and all data has been read */
+    protected static class StreamInputStream extends BlockingInputStream {
+        protected volatile boolean aborted;
+
+        protected StreamInputStream(int capacity) {
+            super(capacity);
+        }
+
+        protected void abort() {
+            aborted=true;
+            Util.close(this);
+        }
+
+        public int read() throws IOException {
+            int retval=super.read();
+            if(retval == -1 && aborted)
+                throw new EOFException("stream was aborted as the sender left");
+            return retval;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int retval=super.read(b, off, len);
+            if(retval == -1 && aborted)
+                throw new EOFException("stream was aborted as the sender left");
+            return retval;
+        }
+    }
+
+
+    public static class StreamHeader extends Header {
+        protected static final byte DATA=1, EOF=2;
+        protected byte type;
+        protected long stream_id;
+
+        public StreamHeader() {
+        }
+
+        public StreamHeader(byte type, long stream_id) {
+            this.type=type;
+            this.stream_id=stream_id;
+        }
+
+        public short                      getMagicId()     {return 97;}
+        public Supplier<? extends Header> create()         {return StreamHeader::new;}
+        public int                        serializedSize() {return Global.BYTE_SIZE + Bits.size(stream_id);}
+
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeByte(type);
+            Bits.writeLongCompressed(stream_id, out);
+        }
+
+        public void readFrom(DataInput in) throws IOException {
+            type=in.readByte();
+            stream_id=Bits.readLongCompressed(in);
+        }
+
+        public String toString() {
+            return String.format("%s [id=%d]", type == DATA? "DATA" : type == EOF? "EOF" : "n/a", stream_id);
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package org.jgroups.protocols;
 
+import org.jgroups.Message;
 import org.jgroups.annotations.MBean;
 import org.jgroups.annotations.Property;
+import org.jgroups.util.MessageBatch;
 
 import javax.crypto.SecretKey;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.security.Key;
 import java.security.KeyStore;
 
 /**
@@ -19,6 +22,11 @@ import java.security.KeyStore;
  * This protocol is typically placed under {@link org.jgroups.protocols.pbcast.NAKACK2}, so that most important
  * headers are encrypted as well, to prevent replay attacks.<p>
  *
+ * If encrypt_frames is true, the transport encrypts and decrypts entire frames (a single message or a bundled list
+ * of messages) with AES/GCM using the shared secret key (see {@link FrameCipher}), and this protocol passes messages
+ * through unchanged. This also encrypts and authenticates all headers, including those of protocols below
+ * SYM_ENCRYPT.<p>
+ *
  * A possible configuration looks like this:<br><br>
  * {@code <SYM_ENCRYPT key_store_name="defaultStore.keystore" store_password="changeit" alias="myKey"/>}
  * <br>
@@ -54,6 +62,10 @@ public class SYM_ENCRYPT extends Encrypt<KeyStore.SecretKeyEntry> {
     @Property(name="alias", description="Alias used for recovering the key. Change the default",exposeAsManagedAttribute=false)
     protected String   alias="mykey"; // JDK default
 
+    @Property(description="If true, the transport encrypts entire frames (with AES/GCM) instead of this protocol " +
+      "encrypting every message. All members must use the same setting",writable=false)
+    protected boolean  encrypt_frames;
+
 
     public String      keystoreName()                      {return this.keystore_name;}
     public SYM_ENCRYPT keystoreName(String n)              {this.keystore_name=n; return this;}
@@ -61,6 +73,8 @@ public class SYM_ENCRYPT extends Encrypt<KeyStore.SecretKeyEntry> {
     public SYM_ENCRYPT alias(String a)                     {this.alias=a; return this;}
     public String      storePassword()                     {return store_password;}
     public SYM_ENCRYPT storePassword(String pwd)           {this.store_password=pwd; return this;}
+    public boolean     encryptFrames()                     {return encrypt_frames;}
+    public SYM_ENCRYPT encryptFrames(boolean b)            {this.encrypt_frames=b; return this;}
 
     @Override
     public SYM_ENCRYPT setKeyStoreEntry(KeyStore.SecretKeyEntry entry) {
@@ -79,6 +93,14 @@ public class SYM_ENCRYPT extends Encrypt<KeyStore.SecretKeyEntry> {
             this.sym_algorithm = key_algorithm;
         }
         this.secret_key = key;
+        if(encrypt_frames && key_map != null) { // key change after init()
+            try {
+                setFrameCipher(key);
+            }
+            catch(Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
         return this;
     }
 
@@ -88,6 +110,43 @@ public class SYM_ENCRYPT extends Encrypt<KeyStore.SecretKeyEntry> {
             readSecretKeyFromKeystore();
         }
         super.init();
+        if(encrypt_frames)
+            setFrameCipher(secret_key);
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        TP transport=getTransport();
+        if(encrypt_frames && transport != null)
+            transport.setFrameCipher(null);
+    }
+
+    @Override
+    public Object down(Message msg) {
+        return encrypt_frames? down_prot.down(msg) : super.down(msg);
+    }
+
+    @Override
+    public Object up(Message msg) {
+        return encrypt_frames? up_prot.up(msg) : super.up(msg);
+    }
+
+    @Override
+    public void up(MessageBatch batch) {
+        if(encrypt_frames)
+            up_prot.up(batch);
+        else
+            super.up(batch);
+    }
+
+    protected void setFrameCipher(Key key) throws Exception {
+        TP transport=getTransport();
+        if(transport == null || key == null)
+            return;
+        transport.setFrameCipher(new FrameCipher(key, cipher_pool_size, provider, secure_random));
+        log.debug("%s: encrypting frames in %s with %s", local_addr, transport.getClass().getSimpleName(),
+                  transport.getFrameCipher());
     }
 
     /**
@@ -22,11 +22,11 @@ import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 
 /**
@@ -56,6 +56,9 @@ import java.util.concurrent.locks.ReentrantLock;
 public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHandler {
     public static final    byte    LIST=1; // we have a list of messages rather than a single message when set
     public static final    byte    MULTICAST=2; // message is a multicast (versus a unicast) message when set
+    public static final    byte    ENCRYPTED=4; // the frame is encrypted (see FrameCipher) when set
+    public static final    byte    COMPRESSED=8; // the frame is compressed (see FrameCompressor) when set
+    public static final    byte    COMPACT_ADDRS=16; // dest and src are view ranks (see FrameAddressEncoder) when set
     public static final    int     MSG_OVERHEAD=Global.SHORT_SIZE + Global.BYTE_SIZE; // version + flags
     protected static final long    MIN_WAIT_BETWEEN_DISCOVERIES=TimeUnit.NANOSECONDS.convert(10, TimeUnit.SECONDS);  // ns
 
@@ -98,7 +101,7 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
               description="Comma delimited list of interfaces (IP addresses or interface names) to receive multicasts on")
     protected List<NetworkInterface> receive_interfaces;
 
-    @Property(description="Max number of elements in the logical address cache before eviction starts")
+    @Property(description="Max number of non-members in the logical address cache before eviction starts")
     protected int logical_addr_cache_max_size=2000;
 
     @Property(description="Time (in ms) after which entries in the logical address cache marked as removable " +
@@ -106,7 +109,9 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
     protected long logical_addr_cache_expiration=360000;
 
     @Property(description="Interval (in ms) at which the reaper task scans logical_addr_cache and removes entries " +
-      "marked as removable. 0 disables reaping.",type=AttributeType.TIME)
+      "marked as removable. 0 disables reaping.",type=AttributeType.TIME,
+      deprecatedMessage="ignored: expired entries are removed on view changes and when the cache is full")
+    @Deprecated
     protected long logical_addr_cache_reaper_interval=60000;
 
     /** The port to which the transport binds. 0 means to bind to any (ephemeral) port. See also {@link #port_range} */
@@ -126,13 +131,17 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
       "might get removed without warning")
     protected boolean loopback_separate_thread=true;
 
-    @Property(description="The fully qualified name of a class implementing MessageProcessingPolicy")
+    @Property(description="The fully qualified name of a class implementing MessageProcessingPolicy, or " +
+      "\"submit\" (SubmitToThreadPool), \"max\" (MaxOneThreadPerSender) or \"steal\" (WorkStealingPolicy)")
     protected String  message_processing_policy;
 
     @Property(description="The fully qualified name of a class implementing LocalTransport")
     protected String  local_transport_class;
 
-    @Property(description="If true, create virtual threads (Loom, if available), otherwise create native threads")
+    @Property(description="If true, create virtual threads (Loom, if available), otherwise create native threads. " +
+      "With virtual threads, the thread pool creates a new virtual thread for every task (max_threads is ignored): " +
+      "every OOB message or batch is delivered on its own virtual thread, and (with MaxOneThreadPerSender) regular " +
+      "messages from the same sender are delivered in order by one virtual thread")
     protected boolean use_virtual_threads;
 
     @Property(description="Thread naming pattern for threads in this channel. Valid values are \"pcl\": " +
@@ -142,10 +151,25 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
     protected String thread_naming_pattern="cl";
 
 
-    @Property(description="Interval (in ms) at which the time service updates its timestamp. 0 disables the time service",
-      type=AttributeType.TIME)
+    @Property(description="Interval (in time_service_unit) at which the time service updates its timestamp. " +
+      "0 disables the time service")
     protected long time_service_interval=500;
 
+    @Property(description="The unit of time_service_interval, e.g. MILLISECONDS or MICROSECONDS (for intervals of " +
+      "less than 1 ms, if the timer supports this resolution)")
+    protected String time_service_unit=TimeUnit.MILLISECONDS.name();
+
+    @Property(description="The timer implementation: \"queue\" (TimeScheduler3, tasks ordered in a DelayQueue) or " +
+      "\"wheel\" (TimingWheelScheduler, a hierarchical timing wheel with O(1) insertion and cancellation)")
+    protected String timer_type="queue";
+
+    @Property(description="The time covered by a bucket of the finest timing wheel. Tasks are executed no later than " +
+      "one tick after their execution time. Ignored unless timer_type is \"wheel\"",type=AttributeType.TIME)
+    protected long timer_tick=1;
+
+    @Property(description="The number of buckets of a timing wheel. Ignored unless timer_type is \"wheel\"")
+    protected int  timer_wheel_size=512;
+
 
     /** Whether or not warnings about messages from different groups are logged - private flag, not for common use */
     @Property(description="whether or not warnings about messages from different groups are logged")
@@ -174,6 +198,29 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
 
     protected MessageFactory msg_factory=new DefaultMessageFactory();
 
+    // encrypts and decrypts entire frames if set (e.g. by SYM_ENCRYPT with encrypt_frames=true)
+    protected volatile FrameCipher frame_cipher;
+
+    // compresses and uncompresses entire frames if set (e.g. by COMPRESS with compress_frames=true)
+    protected volatile FrameCompressor frame_compressor;
+
+    @Property(description="If true, the destination and sender addresses of a frame are sent as their ranks in the " +
+      "current view (plus the view-id), rather than in full. Frames with non-members are sent with full addresses. " +
+      "Frames referring to a view the receiver has not (yet) installed are dropped, and need to be retransmitted")
+    protected boolean compact_addresses;
+
+    @Property(description="Time (in ms) after installing a new view during which full addresses are sent, so that " +
+      "all members can install the view before it is referenced by compact_addresses",type=AttributeType.TIME)
+    protected long compact_addresses_grace=2000;
+
+    @Property(description="If true, the number of headers and the protocol IDs and magic numbers of headers of sent " +
+      "messages are written as variable-length values (usually 1 byte instead of 2). Members running versions " +
+      "older than 5.2.3 cannot read these messages, so this must only be enabled when all members run 5.2.3 or higher")
+    protected boolean compact_headers;
+
+    // replaces dest and src addresses of frames with view ranks if set (compact_addresses=true)
+    protected volatile FrameAddressEncoder address_encoder;
+
     @Property(description="The type of bundler used (\"ring-buffer\", \"transfer-queue\" (default), \"sender-sends\" or " +
       "\"no-bundler\") or the fully qualified classname of a Bundler implementation")
     protected String bundler_type="transfer-queue";
@@ -185,6 +232,40 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
 
     public MessageFactory   getMessageFactory()                 {return msg_factory;}
     public <T extends TP> T setMessageFactory(MessageFactory m) {msg_factory=m; return (T)this;}
+    public FrameCipher      getFrameCipher()                    {return frame_cipher;}
+    public <T extends TP> T setFrameCipher(FrameCipher c)       {frame_cipher=c; return (T)this;}
+    public FrameCompressor  getFrameCompressor()                {return frame_compressor;}
+    public <T extends TP> T setFrameCompressor(FrameCompressor c) {frame_compressor=c; return (T)this;}
+
+    @ManagedAttribute(description="Whether entire frames are encrypted")
+    public boolean isFrameEncryption() {return frame_cipher != null;}
+
+    @ManagedAttribute(description="Whether entire frames are compressed")
+    public boolean isFrameCompression() {return frame_compressor != null;}
+
+    public boolean          compactAddresses()                  {return compact_addresses;}
+    public <T extends TP> T compactAddresses(boolean b) {
+        compact_addresses=b;
+        if(!b)
+            address_encoder=null;
+        else if(address_encoder == null) {
+            FrameAddressEncoder encoder=new FrameAddressEncoder(4, compact_addresses_grace).timeService(time_service);
+            encoder.viewChange(view);
+            address_encoder=encoder;
+        }
+        return (T)this;
+    }
+    public long             getCompactAddressesGrace()          {return compact_addresses_grace;}
+    public <T extends TP> T setCompactAddressesGrace(long g)    {compact_addresses_grace=g; return (T)this;}
+    public FrameAddressEncoder getAddressEncoder()              {return address_encoder;}
+    public boolean          compactHeaders()                    {return compact_headers;}
+    public <T extends TP> T compactHeaders(boolean b)           {compact_headers=b; return (T)this;}
+
+    @ManagedAttribute(description="Number of frames sent with compact addresses (view ranks)")
+    public long getNumCompactFramesSent() {return address_encoder != null? address_encoder.getNumEncoded() : 0;}
+
+    @ManagedAttribute(description="Number of frames with compact addresses dropped because no view matched")
+    public long getNumCompactFramesDropped() {return address_encoder != null? address_encoder.getNumDropped() : 0;}
 
     public InetAddress getBindAddr() {return bind_addr;}
     public <T extends TP> T setBindAddr(InetAddress b) {this.bind_addr=b; return (T)this;}
@@ -221,6 +302,15 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
 
     public long getTimeServiceInterval() {return time_service_interval;}
     public <T extends TP> T setTimeServiceInterval(long t) {this.time_service_interval=t; return (T)this;}
+    public <T extends TP> T setTimeServiceInterval(long t, TimeUnit unit) {
+        this.time_service_interval=t;
+        this.time_service_unit=unit.name();
+        return (T)this;
+    }
+    public String getTimeServiceUnit() {return time_service_unit;}
+
+    public String           timerType()                  {return timer_type;}
+    public <T extends TP> T timerType(String t)          {timer_type=t; return (T)this;}
 
     public boolean logDiscardMsgs() {return log_discard_msgs;}
     public <T extends TP> T logDiscardMsgs(boolean l) {this.log_discard_msgs=l; return (T)this;}
@@ -249,9 +339,10 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
         return msg_factory != null? msg_factory.getClass().getName() : "n/a";
     }
 
-    @ManagedAttribute(description="Is the logical_addr_cache reaper task running")
+    /** @deprecated The reaper task has been removed; always returns false */
+    @Deprecated
     public boolean isLogicalAddressCacheReaperRunning() {
-        return logical_addr_cache_reaper != null && !logical_addr_cache_reaper.isDone();
+        return false;
     }
 
     @ManagedAttribute(description="Returns the average batch size of received batches")
@@ -270,13 +361,17 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
     }
 
 
+    public MessageProcessingPolicy getMessageProcessingPolicy() {return msg_processing_policy;}
+
     @ManagedOperation(description="Changes the message processing policy. The fully qualified name of a class " +
       "implementing MessageProcessingPolicy needs to be given")
     public void setMessageProcessingPolicy(String policy) {
         if(policy == null)
             return;
+        MessageProcessingPolicy old_policy=msg_processing_policy;
         msg_processing_policy=policy.startsWith("submit")? new SubmitToThreadPool() :
-          policy.startsWith("max")? new MaxOneThreadPerSender() : null;
+          policy.startsWith("max")? new MaxOneThreadPerSender() :
+          policy.startsWith("steal")? new WorkStealingPolicy() : null;
         try {
             if(msg_processing_policy == null) {
                 Class<MessageProcessingPolicy> clazz=(Class<MessageProcessingPolicy>)Util.loadClass(policy, getClass());
@@ -284,6 +379,8 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
                 message_processing_policy=policy;
             }
             msg_processing_policy.init(this);
+            if(old_policy != null && old_policy != msg_processing_policy)
+                old_policy.destroy();
         }
         catch(Exception e) {
             log.error("failed setting message_processing_policy", e);
@@ -364,7 +461,7 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
 
     /** The members of this group (updated when a member joins or leaves). With a shared transport,
      * members contains _all_ members from all channels sitting on the shared transport */
-    protected final Set<Address> members=new CopyOnWriteArraySet<>();
+    protected final Set<Address> members=ConcurrentHashMap.newKeySet();
 
 
     //http://jira.jboss.org/jira/browse/JGRP-849
@@ -408,29 +505,23 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
     /**
      * Cache which maintains mappings between logical and physical addresses. When sending a message to a logical
      * address,  we look up the physical address from logical_addr_cache and send the message to the physical address<br/>
-     * The keys are logical addresses, the values physical addresses
+     * The keys are logical addresses, the values physical addresses. Members are looked up by rank
      */
-    protected LazyRemovalCache<Address,PhysicalAddress> logical_addr_cache;
+    protected AddressRegistry<PhysicalAddress> logical_addr_cache;
 
     // last time (in ns) we sent a discovery request
     protected long last_discovery_request;
 
-    protected Future<?> logical_addr_cache_reaper;
-
     protected final AverageMinMax avg_batch_size=new AverageMinMax();
 
-    protected static final LazyRemovalCache.Printable<Address,LazyRemovalCache.Entry<PhysicalAddress>> print_function=
-      (logical_addr, entry) -> {
-          StringBuilder sb=new StringBuilder();
-          String tmp_logical_name=NameCache.get(logical_addr);
-          if(tmp_logical_name != null)
-              sb.append(tmp_logical_name).append(": ");
-          if(logical_addr instanceof UUID)
-              sb.append(((UUID)logical_addr).toStringLong()).append(": ");
-          sb.append(entry.toString(val -> val instanceof PhysicalAddress? val.printIpAddress() : val.toString()));
-          sb.append("\n");
-          return sb.toString();
-      };
+    protected static final Function<Address,String> print_function=logical_addr -> {
+        StringJoiner sj=new StringJoiner(": ");
+        String tmp_logical_name=NameCache.get(logical_addr);
+        if(tmp_logical_name != null)
+            sj.add(tmp_logical_name);
+        sj.add(logical_addr instanceof UUID? ((UUID)logical_addr).toStringLong() : String.valueOf(logical_addr));
+        return sj.toString();
+    };
 
     /** Cache keeping track of WHO_HAS requests for physical addresses (given a logical address) and expiring
      * them after who_has_cache_timeout ms */
@@ -454,7 +545,25 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
 
     public boolean isMulticastCapable() {return supportsMulticasting();}
 
-    public LazyRemovalCache<Address,PhysicalAddress> getLogicalAddressCache() {return logical_addr_cache;}
+    public AddressRegistry<PhysicalAddress> getAddressRegistry() {return logical_addr_cache;}
+
+    /**
+     * Returns a copy of the logical address cache; entries marked as removable in the cache are also marked as
+     * removable in the copy
+     * @deprecated Changes to the returned cache are not reflected in the transport; use {@link #getAddressRegistry()}
+     */
+    @Deprecated
+    public LazyRemovalCache<Address,PhysicalAddress> getLogicalAddressCache() {
+        LazyRemovalCache<Address,PhysicalAddress> cache=new LazyRemovalCache<>(logical_addr_cache_max_size,
+                                                                               logical_addr_cache_expiration);
+        AddressRegistry<PhysicalAddress> reg=logical_addr_cache;
+        if(reg == null)
+            return cache;
+        Map<Address,PhysicalAddress> all=reg.contents(false), non_removed=reg.contents(true);
+        cache.addAll(all);
+        all.keySet().stream().filter(k -> !non_removed.containsKey(k)).forEach(cache::remove);
+        return cache;
+    }
 
     public String toString() {
         return local_addr != null? getName() + "(local address: " + local_addr + ')' : getName();
@@ -647,7 +756,7 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
 
     @ManagedOperation(description="Dumps the contents of the logical address cache")
     public String printLogicalAddressCache() {
-        return logical_addr_cache.printCache(print_function);
+        return logical_addr_cache.printCache(print_function, PhysicalAddress::printIpAddress);
     }
 
     @ManagedOperation(description="Prints the contents of the who-has cache")
@@ -719,12 +828,18 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
 
         // ========================================== Timer ==============================
         if(timer == null) {
-            timer=new TimeScheduler3(thread_pool, thread_factory, false); // don't start the timer thread yet (JGRP-2332)
+            if("wheel".equals(timer_type))
+                timer=new TimingWheelScheduler(thread_pool, thread_factory, timer_tick, timer_wheel_size, false);
+            else if("queue".equals(timer_type))
+                timer=new TimeScheduler3(thread_pool, thread_factory, false); // don't start the timer thread yet (JGRP-2332)
+            else
+                throw new IllegalArgumentException(String.format("timer_type %s is invalid; valid values are " +
+                                                                   "\"queue\" and \"wheel\"", timer_type));
             timer.setNonBlockingTaskHandling(timer_handle_non_blocking_tasks);
         }
 
         if(time_service_interval > 0)
-            time_service=new TimeService(timer, time_service_interval);
+            time_service=new TimeService(timer, time_service_interval, TimeUnit.valueOf(time_service_unit.toUpperCase()));
 
         Map<String, Object> m=new HashMap<>(2);
         if(bind_addr != null)
@@ -736,18 +851,7 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
         if(!m.isEmpty())
             up(new Event(Event.CONFIG, m));
 
-        logical_addr_cache=new LazyRemovalCache<>(logical_addr_cache_max_size, logical_addr_cache_expiration);
-        if(logical_addr_cache_reaper_interval > 0 && (logical_addr_cache_reaper == null || logical_addr_cache_reaper.isDone())) {
-            logical_addr_cache_reaper=timer.scheduleWithFixedDelay(new Runnable() {
-                public void run() {
-                    evictLogicalAddressCache();
-                }
-
-                public String toString() {
-                    return TP.this.getClass().getSimpleName() + ": LogicalAddressCacheReaper (interval=" + logical_addr_cache_reaper_interval + " ms)";
-                }
-            }, logical_addr_cache_reaper_interval, logical_addr_cache_reaper_interval, TimeUnit.MILLISECONDS, false);
-        }
+        logical_addr_cache=new AddressRegistry<>(logical_addr_cache_max_size, logical_addr_cache_expiration);
 
         if(message_processing_policy != null)
             setMessageProcessingPolicy(message_processing_policy);
@@ -761,6 +865,10 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
 
         bundler=createBundler(bundler_type);
         bundler.init(this);
+        if(compact_addresses && compact_addresses_grace <= 0)
+            throw new IllegalArgumentException("compact_addresses_grace must be > 0");
+        if(compact_addresses && address_encoder == null)
+            address_encoder=new FrameAddressEncoder(4, compact_addresses_grace).timeService(time_service);
     }
 
 
@@ -772,6 +880,7 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
         fetchLocalAddresses();
         startDiagnostics();
         bundler.start();
+        msg_processing_policy.start();
         // local_addr is null when shared transport
         setInAllThreadFactories(cluster_name != null? cluster_name.toString() : null, local_addr, thread_naming_pattern);
     }
@@ -791,10 +900,6 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
         super.destroy();
         if(local_transport != null)
             local_transport.destroy();
-        if(logical_addr_cache_reaper != null) {
-            logical_addr_cache_reaper.cancel(false);
-            logical_addr_cache_reaper=null;
-        }
         if(thread_pool != null)
             thread_pool.destroy();
     }
@@ -914,7 +1019,7 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
                     members.addAll(v.getMembers());
 
                     // fix for https://jira.jboss.org/jira/browse/JGRP-918
-                    logical_addr_cache.retainAll(members);
+                    logical_addr_cache.viewChange(v.getMembers());
                     fetchLocalAddresses();
 
                     List<Address> left_mbrs=Util.leftMembers(old_members,members);
@@ -929,11 +1034,12 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
                 who_has_cache.removeExpiredElements();
                 if(bundler != null)
                     bundler.viewChange(evt.getArg());
-                if(msg_processing_policy instanceof MaxOneThreadPerSender)
-                    ((MaxOneThreadPerSender)msg_processing_policy).viewChange(view.getMembers());
+                msg_processing_policy.viewChange(view.getMembers());
 
                 if(local_transport != null)
                     local_transport.viewChange(this.view);
+                if(address_encoder != null && evt.getType() == Event.VIEW_CHANGE)
+                    address_encoder.viewChange(evt.getArg());
                 break;
 
             case Event.CONNECT:
@@ -1009,6 +1115,8 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
             msg.putHeader(this.id, header); // added patch by Roland Kurmann (March 20 2003)
 
         setSourceAddress(msg); // very important !! listToBuffer() will fail with a null src address !!
+        if(compact_headers)
+            msg.setFlag(Message.TransientFlag.COMPACT_HEADERS);
 
         Address dest=msg.getDest(), sender=msg.getSrc();
         if(is_trace)
@@ -1218,12 +1326,17 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
         byte flags=data[offset];
         offset+=Global.BYTE_SIZE;
 
-        boolean is_message_list=(flags & LIST) == LIST, multicast=(flags & MULTICAST) == MULTICAST;
-        ByteArrayDataInputStream in=new ByteArrayDataInputStream(data, offset, length);
-        if(is_message_list) // used if message bundling is enabled
-            handleMessageBatch(in, multicast, msg_factory);
-        else
-            handleSingleMessage(in, multicast);
+        if(frame_cipher != null || (flags & ENCRYPTED) == ENCRYPTED) {
+            int len=length - MSG_OVERHEAD - Global.INT_SIZE;
+            if(len >= 0)
+                receiveEncrypted(sender, version, flags, data, offset + Global.INT_SIZE, len);
+            return;
+        }
+        if((flags & COMPRESSED) == COMPRESSED) {
+            receiveCompressed(sender, data, offset, length - MSG_OVERHEAD);
+            return;
+        }
+        handleFrame(flags, new ByteArrayDataInputStream(data, offset, length));
     }
 
     public void receive(Address sender, DataInput in) throws Exception {
@@ -1238,13 +1351,119 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
             return;
         byte flags=in.readByte();
 
+        if(frame_cipher != null || (flags & ENCRYPTED) == ENCRYPTED) {
+            if((flags & ENCRYPTED) != ENCRYPTED) {
+                // we cannot skip the rest of the frame: close the connection
+                throw new IllegalStateException(String.format("%s: received unencrypted frame from %s", local_addr, sender));
+            }
+            int len=in.readInt();
+            byte[] buf=new byte[len];
+            in.readFully(buf);
+            receiveEncrypted(sender, version, flags, buf, 0, len);
+            return;
+        }
+        if((flags & COMPRESSED) == COMPRESSED) {
+            int original_len=in.readInt(), len=in.readInt();
+            byte[] buf=new byte[Global.INT_SIZE*2 + len];
+            Bits.writeInt(original_len, buf, 0);
+            Bits.writeInt(len, buf, Global.INT_SIZE);
+            in.readFully(buf, Global.INT_SIZE*2, len);
+            receiveCompressed(sender, buf, 0, buf.length);
+            return;
+        }
+        handleFrame(flags, in);
+    }
+
+    protected void handleFrame(byte flags, DataInput in) {
         boolean is_message_list=(flags & LIST) == LIST, multicast=(flags & MULTICAST) == MULTICAST;
+        if((flags & COMPACT_ADDRS) == COMPACT_ADDRS) {
+            handleCompactFrame(is_message_list, multicast, in);
+            return;
+        }
         if(is_message_list) // used if message bundling is enabled
             handleMessageBatch(in, multicast, msg_factory);
         else
             handleSingleMessage(in, multicast);
     }
 
+    /** Handles a frame whose dest and src addresses have been replaced with their ranks in the sender's view */
+    protected void handleCompactFrame(boolean is_message_list, boolean multicast, DataInput in) {
+        FrameAddressEncoder encoder=address_encoder;
+        if(encoder == null) {
+            log.trace("%s: dropped frame with compact addresses as compact_addresses is false", local_addr);
+            return;
+        }
+        Address[] addrs;
+        try {
+            addrs=encoder.decode(in);
+        }
+        catch(Throwable t) {
+            log.error(String.format(Util.getMessage("IncomingMsgFailure"), local_addr), t);
+            return;
+        }
+        if(addrs == null) {
+            log.trace("%s: dropped frame with compact addresses: view not found", local_addr);
+            return;
+        }
+        if(is_message_list)
+            handleMessageBatch(in, addrs[0], addrs[1], multicast, msg_factory);
+        else
+            handleSingleMessage(in, addrs[0], addrs[1], multicast);
+    }
+
+    /** Decrypts an encrypted frame and handles the original (decrypted) frame */
+    protected void receiveEncrypted(Address sender, short version, byte flags, byte[] buf, int offset, int length) {
+        FrameCipher cipher=frame_cipher;
+        if(cipher == null || (flags & ENCRYPTED) != ENCRYPTED) {
+            log.trace("%s: dropped %s frame from %s as %s", local_addr, cipher == null? "encrypted" : "unencrypted",
+                      sender, cipher == null? "frame encryption is disabled" : "frame encryption is enabled");
+            return;
+        }
+        try {
+            byte[] frame=cipher.decrypt(version, flags, buf, offset, length);
+            if(frame.length < MSG_OVERHEAD || !versionMatch(Bits.readShort(frame, 0), sender))
+                return;
+            byte frame_flags=frame[Global.SHORT_SIZE];
+            if((frame_flags & ENCRYPTED) != 0)
+                return;
+            if((frame_flags & COMPRESSED) == COMPRESSED)
+                receiveCompressed(sender, frame, MSG_OVERHEAD, frame.length - MSG_OVERHEAD);
+            else
+                handleFrame(frame_flags, new ByteArrayDataInputStream(frame, MSG_OVERHEAD, frame.length - MSG_OVERHEAD));
+        }
+        catch(Throwable t) {
+            log.warn("%s: failed decrypting frame from %s: %s", local_addr, sender, t);
+        }
+    }
+
+    /**
+     * Uncompresses a compressed frame and handles the original frame
+     * @param buf The buffer holding original length, length and compressed data (the part following the flags)
+     */
+    protected void receiveCompressed(Address sender, byte[] buf, int offset, int length) {
+        FrameCompressor compressor=frame_compressor;
+        if(compressor == null) {
+            log.trace("%s: dropped compressed frame from %s as frame compression is disabled", local_addr, sender);
+            return;
+        }
+        try {
+            if(length < Global.INT_SIZE*2)
+                return;
+            int original_len=Bits.readInt(buf, offset), len=Bits.readInt(buf, offset + Global.INT_SIZE);
+            if(len > length - Global.INT_SIZE*2)
+                return;
+            byte[] frame=compressor.uncompress(buf, offset + Global.INT_SIZE*2, len, original_len);
+            if(!versionMatch(Bits.readShort(frame, 0), sender))
+                return;
+            byte frame_flags=frame[Global.SHORT_SIZE];
+            if((frame_flags & (ENCRYPTED | COMPRESSED)) == 0)
+                handleFrame(frame_flags, new ByteArrayDataInputStream(frame, MSG_OVERHEAD, frame.length - MSG_OVERHEAD));
+        }
+        catch(Throwable t) {
+            log.warn("%s: failed uncompressing frame from %s: %s", local_addr, sender, t);
+        }
+    }
+
 
     protected void handleMessageBatch(DataInput in, boolean multicast, MessageFactory factory) {
         try {
@@ -1259,12 +1478,34 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
         }
     }
 
+    protected void handleMessageBatch(DataInput in, Address dest, Address src, boolean multicast, MessageFactory factory) {
+        try {
+            final MessageBatch[] batches=Util.readMessageBatch(in, dest, src, multicast, factory);
+            final MessageBatch regular=batches[0], oob=batches[1];
+
+            processBatch(oob,    true);
+            processBatch(regular,false);
+        }
+        catch(Throwable t) {
+            log.error(String.format(Util.getMessage("IncomingMsgFailure"), local_addr), t);
+        }
+    }
+
 
     protected void handleSingleMessage(DataInput in, boolean multicast) {
+        handleSingleMessage(in, null, null, multicast);
+    }
+
+    /** Reads a single message; dest and src (if non-null) are set in the message (used with compact addresses) */
+    protected void handleSingleMessage(DataInput in, Address dest, Address src, boolean multicast) {
         try {
             short type=in.readShort();
             Message msg=msg_factory.create(type); // don't create headers, readFrom() will do this
             msg.readFrom(in);
+            if(dest != null)
+                msg.setDest(dest);
+            if(src != null)
+                msg.setSrc(src);
 
             if(!multicast && unicastDestMismatch(msg.getDest()))
                 return;
@@ -1309,6 +1550,22 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
 
 
     public void doSend(byte[] buf, int offset, int length, Address dest) throws Exception {
+        FrameCompressor compressor=frame_compressor;
+        if(compressor != null) {
+            ByteArray compressed=compressor.compress(buf, offset, length);
+            if(compressed != null) {
+                buf=compressed.getArray();
+                offset=compressed.getOffset();
+                length=compressed.getLength();
+            }
+        }
+        FrameCipher cipher=frame_cipher;
+        if(cipher != null) {
+            ByteArray encrypted=cipher.encrypt(buf, offset, length);
+            buf=encrypted.getArray();
+            offset=encrypted.getOffset();
+            length=encrypted.getLength();
+        }
         if(stats) {
             msg_stats.incrNumMsgsSent(1);
             msg_stats.incrNumBytesSent(length);
@@ -1416,7 +1673,7 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
             }
         }
         if(do_send) {
-            missing.removeAll(logical_addr_cache.keySet());
+            missing.removeIf(logical_addr_cache::containsKey);
             if(!missing.isEmpty()) {  // FIND_MBRS either returns immediately or is processed in a separate thread
                 Responses rsps=fetchResponsesFromDiscoveryProtocol(missing);
                 rsps.done();
@@ -1517,7 +1774,7 @@ public abstract class TP extends Protocol implements DiagnosticsHandler.ProbeHan
     /** Clears the cache. <em>Do not use, this is only for unit testing !</em> */
     @ManagedOperation(description="Clears the logical address cache; only used for testing")
     public void clearLogicalAddressCache() {
-        logical_addr_cache.clear(true);
+        logical_addr_cache.clear();
         fetchLocalAddresses();
     }
 
@@ -277,7 +277,7 @@ public class TransferQueueBundler2 implements Bundler, Runnable {
             short transport_id=transport.getId();
             if(count == 0) { // write the headers - only once
                 Util.writeMessageListHeader(msg.dest(), transport.getAddress(), transport.getClusterNameAscii().chars(),
-                                            1, out, msg.getDest() == null);
+                                            1, out, msg.getDest() == null, transport.getAddressEncoder());
                 length_index=out.position() - Global.INT_SIZE;
             }
             out.writeShort(msg.getType());
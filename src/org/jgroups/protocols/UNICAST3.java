@@ -23,6 +23,7 @@ import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Stream;
 
 import static org.jgroups.Message.TransientFlag.DONT_LOOPBACK;
@@ -125,7 +126,7 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
     protected final ReentrantLock          recv_table_lock=new ReentrantLock();
 
     /** Used by the retransmit task to keep the last retransmitted seqno per sender (https://issues.jboss.org/browse/JGRP-1539) */
-    protected final Map<Address,Long>      xmit_task_map=new HashMap<>();
+    protected final ObjectLongMap<Address> xmit_task_map=new ObjectLongMap<>();
 
     /** RetransmitTask running every xmit_interval ms */
     protected Future<?>                    xmit_task;
@@ -163,6 +164,11 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
 
     protected static final BiConsumer<MessageBatch,Message> BATCH_ACCUMULATOR=MessageBatch::add;
 
+    protected final ToLongFunction<Message> SEQNO_GETTER=m -> {
+        UnicastHeader3 hdr=m != null? m.getHeader(id) : null;
+        return hdr == null || hdr.type != UnicastHeader3.DATA? -1 : hdr.seqno;
+    };
+
     protected static final Table.Visitor<Message> DECR=(seqno, msg, row, col) -> {
         if(msg instanceof Refcountable)
             ((Refcountable<Message>)msg).decr();
@@ -480,49 +486,55 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
             return;
         }
 
-        int size=batch.size();
-        Map<Short,List<LongTuple<Message>>> msgs=new LinkedHashMap<>();
         ReceiverEntry entry=recv_table.get(sender);
+        // DATA messages are moved to a pooled batch, and the seqnos are read from their headers when adding them to the table
+        MessageBatch msgs=BatchPool.acquire(local_addr, sender, batch.clusterName(), false, batch.mode(), batch.size());
+        try {
+            for(Iterator<Message> it=batch.iterator(); it.hasNext();) {
+                Message msg=it.next();
+                UnicastHeader3 hdr;
+                if(msg == null || msg.isFlagSet(Message.Flag.NO_RELIABILITY) || (hdr=msg.getHeader(id)) == null)
+                    continue;
+                it.remove(); // remove the message from the batch, so it won't be passed up the stack
 
-        for(Iterator<Message> it=batch.iterator(); it.hasNext();) {
-            Message msg=it.next();
-            UnicastHeader3 hdr;
-            if(msg == null || msg.isFlagSet(Message.Flag.NO_RELIABILITY) || (hdr=msg.getHeader(id)) == null)
-                continue;
-            it.remove(); // remove the message from the batch, so it won't be passed up the stack
-
-            if(hdr.type != UnicastHeader3.DATA) {
-                handleUpEvent(msg.getSrc(), msg, hdr);
-                continue;
-            }
+                if(hdr.type != UnicastHeader3.DATA) {
+                    handleUpEvent(msg.getSrc(), msg, hdr);
+                    continue;
+                }
 
-            List<LongTuple<Message>> list=msgs.computeIfAbsent(hdr.conn_id, k -> new ArrayList<>(size));
-            list.add(new LongTuple<>(hdr.seqno(), msg));
+                msgs.add(msg);
 
-            if(hdr.first)
-                entry=getReceiverEntry(sender, hdr.seqno(), hdr.first, hdr.connId());
-            else if(entry == null) {
-                msg_cache.cache(sender, msg);
-                log.trace("%s: cached %s#%d", local_addr, sender, hdr.seqno());
+                if(hdr.first)
+                    entry=getReceiverEntry(sender, hdr.seqno(), hdr.first, hdr.connId());
+                else if(entry == null) {
+                    msg_cache.cache(sender, msg);
+                    log.trace("%s: cached %s#%d", local_addr, sender, hdr.seqno());
+                }
             }
-        }
 
-        if(!msgs.isEmpty()) {
-            if(entry == null)
-                sendRequestForFirstSeqno(sender);
-            else {
-                if(!msg_cache.isEmpty()) { // quick and dirty check
-                    List<Message> queued_msgs=msg_cache.drain(sender);
-                    if(queued_msgs != null)
-                        addQueuedMessages(sender, entry, queued_msgs);
-                }
-                if(msgs.keySet().retainAll(Collections.singletonList(entry.connId()))) // remove all conn-ids that don't match
+            if(!msgs.isEmpty()) {
+                if(entry == null)
                     sendRequestForFirstSeqno(sender);
-                List<LongTuple<Message>> list=msgs.get(entry.connId());
-                if(list != null && !list.isEmpty())
-                    handleBatchReceived(entry, sender, list, batch.mode() == MessageBatch.Mode.OOB);
+                else {
+                    if(!msg_cache.isEmpty()) { // quick and dirty check
+                        List<Message> queued_msgs=msg_cache.drain(sender);
+                        if(queued_msgs != null)
+                            addQueuedMessages(sender, entry, queued_msgs);
+                    }
+                    int size=msgs.size();
+                    short conn_id=entry.connId();
+                    // remove all messages whose conn-id doesn't match
+                    msgs.removeIf(m -> ((UnicastHeader3)m.getHeader(id)).conn_id != conn_id, true);
+                    if(msgs.size() < size)
+                        sendRequestForFirstSeqno(sender);
+                    if(!msgs.isEmpty())
+                        handleBatchReceived(entry, sender, msgs, batch.mode() == MessageBatch.Mode.OOB);
+                }
             }
         }
+        finally {
+            BatchPool.release(msgs);
+        }
 
         if(!batch.isEmpty())
             up_prot.up(batch);
@@ -530,47 +542,51 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
 
 
     protected void handleBatchFromSelf(MessageBatch batch, Entry entry) {
-        List<LongTuple<Message>> list=new ArrayList<>(batch.size());
-
-        for(Iterator<Message> it=batch.iterator(); it.hasNext();) {
-            Message msg=it.next();
-            UnicastHeader3 hdr;
-            if(msg == null || msg.isFlagSet(Message.Flag.NO_RELIABILITY) || (hdr=msg.getHeader(id)) == null)
-                continue;
-            it.remove(); // remove the message from the batch, so it won't be passed up the stack
+        MessageBatch msgs=BatchPool.acquire(local_addr, batch.sender(), batch.clusterName(), batch.multicast(),
+                                            batch.mode(), batch.size());
+        try {
+            for(Iterator<Message> it=batch.iterator(); it.hasNext();) {
+                Message msg=it.next();
+                UnicastHeader3 hdr;
+                if(msg == null || msg.isFlagSet(Message.Flag.NO_RELIABILITY) || (hdr=msg.getHeader(id)) == null)
+                    continue;
+                it.remove(); // remove the message from the batch, so it won't be passed up the stack
 
-            if(hdr.type != UnicastHeader3.DATA) {
-                handleUpEvent(msg.getSrc(), msg, hdr);
-                continue;
-            }
+                if(hdr.type != UnicastHeader3.DATA) {
+                    handleUpEvent(msg.getSrc(), msg, hdr);
+                    continue;
+                }
 
-            if(entry.conn_id != hdr.conn_id) {
-                it.remove();
-                continue;
+                if(entry.conn_id != hdr.conn_id)
+                    continue;
+                msgs.add(msg);
             }
-            list.add(new LongTuple<>(hdr.seqno(), msg));
-        }
-
-        if(!list.isEmpty()) {
-            if(is_trace)
-                log.trace("%s <-- %s: DATA(%s)", local_addr, batch.sender(), printMessageList(list));
 
-            int len=list.size();
-            Table<Message> win=entry.msgs;
-            update(entry, len);
-
-            // OOB msg is passed up. When removed, we discard it. Affects ordering: http://jira.jboss.com/jira/browse/JGRP-379
-            if(batch.mode() == MessageBatch.Mode.OOB) {
-                MessageBatch oob_batch=new MessageBatch(local_addr, batch.sender(), batch.clusterName(), batch.multicast(), MessageBatch.Mode.OOB, len);
-                for(LongTuple<Message> tuple: list) {
-                    long    seq=tuple.getVal1();
-                    Message msg=win.get(seq); // we *have* to get the message, because loopback means we didn't add it to win !
-                    if(msg != null && msg.isFlagSet(Message.Flag.OOB) && msg.setFlagIfAbsent(Message.TransientFlag.OOB_DELIVERED))
-                        oob_batch.add(msg);
+            if(!msgs.isEmpty()) {
+                if(is_trace)
+                    log.trace("%s <-- %s: DATA(%s)", local_addr, batch.sender(), printMessageList(msgs));
+
+                int len=msgs.size();
+                Table<Message> win=entry.msgs;
+                update(entry, len);
+
+                // OOB msg is passed up. When removed, we discard it. Affects ordering: http://jira.jboss.com/jira/browse/JGRP-379
+                if(batch.mode() == MessageBatch.Mode.OOB) {
+                    for(FastArray<Message>.FastIterator it=(FastArray<Message>.FastIterator)msgs.iterator(); it.hasNext();) {
+                        long    seq=SEQNO_GETTER.applyAsLong(it.next());
+                        Message msg=win.get(seq); // we *have* to get the message, because loopback means we didn't add it to win !
+                        if(msg != null && msg.isFlagSet(Message.Flag.OOB) && msg.setFlagIfAbsent(Message.TransientFlag.OOB_DELIVERED))
+                            it.replace(msg);
+                        else
+                            it.remove();
+                    }
+                    deliverBatch(msgs);
                 }
-                deliverBatch(oob_batch);
+                removeAndDeliver(win, batch.sender());
             }
-            removeAndDeliver(win, batch.sender());
+        }
+        finally {
+            BatchPool.release(msgs);
         }
         if(!batch.isEmpty())
             up_prot.up(batch);
@@ -605,7 +621,7 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
                             e.state(State.OPEN);
                     }
                 }
-                xmit_task_map.keySet().retainAll(new_members);
+                xmit_task_map.retainAll(new_members);
                 last_sync_sent.removeExpiredElements();
                 break;
         }
@@ -831,7 +847,7 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
     }
 
 
-    protected void handleBatchReceived(final ReceiverEntry entry, Address sender, List<LongTuple<Message>> msgs, boolean oob) {
+    protected void handleBatchReceived(final ReceiverEntry entry, Address sender, MessageBatch msgs, boolean oob) {
         if(is_trace)
             log.trace("%s <-- %s: DATA(%s)", local_addr, sender, printMessageList(msgs));
 
@@ -839,7 +855,7 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
         Table<Message> win=entry.msgs;
 
         // adds all messages to the table, removing messages from 'msgs' which could not be added (already present)
-        boolean added=win.add(msgs, oob, oob? DUMMY_OOB_MSG : null);
+        boolean added=win.addBatch(msgs, SEQNO_GETTER, false, oob? DUMMY_OOB_MSG : null);
 
         update(entry, batch_size);
         if(batch_size >= ack_threshold)
@@ -848,13 +864,9 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
             entry.sendAck();
 
         // OOB msg is passed up. When removed, we discard it. Affects ordering: http://jira.jboss.com/jira/browse/JGRP-379
-        if(added && oob) {
-            MessageBatch oob_batch=new MessageBatch(local_addr, sender, null, false, MessageBatch.Mode.OOB, msgs.size());
-            for(LongTuple<Message> tuple: msgs)
-                oob_batch.add(tuple.getVal2());
+        if(added && oob)
+            deliverBatch(msgs); // msgs only contains the messages that were added
 
-            deliverBatch(oob_batch);
-        }
         removeAndDeliver(win, sender);
     }
 
@@ -873,33 +885,37 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
         if(adders.getAndIncrement() != 0)
             return;
 
-        final MessageBatch batch=new MessageBatch(win.getNumDeliverable())
-          .dest(local_addr).sender(sender).multicast(false);
+        final MessageBatch batch=BatchPool.acquire(local_addr, sender, null, false, MessageBatch.Mode.REG,
+                                                   win.getNumDeliverable());
         Supplier<MessageBatch> batch_creator=() -> batch;
-        do {
-            try {
-                batch.reset(); // sets index to 0: important as batch delivery may not remove messages from batch!
-                win.removeMany(true, 0, drop_oob_and_dont_loopback_msgs_filter,
-                               batch_creator, BATCH_ACCUMULATOR);
-            }
-            catch(Throwable t) {
-                log.error("%s: failed removing messages from table for %s: %s", local_addr, sender, t);
-            }
-            if(!batch.isEmpty()) {
-                // batch is guaranteed to NOT contain any OOB messages as the drop_oob_msgs_filter above removed them
-                if(stats)
-                    avg_delivery_batch_size.add(batch.size());
-                deliverBatch(batch); // catches Throwable
+        try {
+            do {
+                try {
+                    batch.reset(); // sets index to 0: important as batch delivery may not remove messages from batch!
+                    win.removeMany(true, 0, drop_oob_and_dont_loopback_msgs_filter,
+                                   batch_creator, BATCH_ACCUMULATOR);
+                }
+                catch(Throwable t) {
+                    log.error("%s: failed removing messages from table for %s: %s", local_addr, sender, t);
+                }
+                if(!batch.isEmpty()) {
+                    // batch is guaranteed to NOT contain any OOB messages as the drop_oob_msgs_filter above removed them
+                    if(stats)
+                        avg_delivery_batch_size.add(batch.size());
+                    deliverBatch(batch); // catches Throwable
+                }
             }
+            while(adders.decrementAndGet() != 0);
+        }
+        finally {
+            BatchPool.release(batch);
         }
-        while(adders.decrementAndGet() != 0);
     }
 
 
-    protected String printMessageList(List<LongTuple<Message>> list) {
+    protected String printMessageList(MessageBatch batch) {
         StringBuilder sb=new StringBuilder();
-        int size=list.size();
-        Message first=size > 0? list.get(0).getVal2() : null, second=size > 1? list.get(size-1).getVal2() : first;
+        Message first=batch.first(), second=batch.last();
         UnicastHeader3 hdr;
         if(first != null) {
             hdr=first.getHeader(id);
@@ -972,8 +988,8 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
     }
 
     protected Table<Message> createTable(long seqno) {
-        return new Table<>(xmit_table_num_rows, xmit_table_msgs_per_row, seqno-1,
-                           xmit_table_resize_factor, xmit_table_max_compaction_time);
+        return new Table<Message>(xmit_table_num_rows, xmit_table_msgs_per_row, seqno-1,
+                                  xmit_table_resize_factor, xmit_table_max_compaction_time).timeService(time_service);
     }
 
     /** Add the ACK to hashtable.sender.sent_msgs */
@@ -1035,7 +1051,8 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
         xmit_reqs_received.add(missing.size());
         Table<Message> win=entry != null? entry.msgs : null;
         if(win != null) {
-            for(long seqno: missing) {
+            for(PrimitiveIterator.OfLong it=missing.iterator(); it.hasNext();) {
+                long    seqno=it.nextLong();
                 Message msg=win.get(seqno);
                 if(msg == null) {
                     if(log.isWarnEnabled() && log_not_found_msgs && !local_addr.equals(sender) && seqno > win.getLow())
@@ -1255,8 +1272,8 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
             // receiver: retransmit missing messages (getNumMissing() is fast)
             if(win != null && win.getNumMissing() > 0 && (missing=win.getMissing(max_xmit_req_size)) != null) {
                 long highest=missing.getLast();
-                Long prev_seqno=xmit_task_map.get(target);
-                if(prev_seqno == null)
+                long prev_seqno=xmit_task_map.get(target, -1);
+                if(prev_seqno < 0)
                     xmit_task_map.put(target, highest); // no retransmission
                 else {
                     missing.removeHigherThan(prev_seqno); // we only retransmit the 'previous batch'
@@ -1369,8 +1386,9 @@ public class UNICAST3 extends Protocol implements AgeOutCache.Handler<Address> {
         int              last_timestamp;  // to prevent out-of-order ACKs from a receiver
 
         public SenderEntry(short send_conn_id) {
-            super(send_conn_id, new Table<>(xmit_table_num_rows, xmit_table_msgs_per_row, 0,
-                                            xmit_table_resize_factor, xmit_table_max_compaction_time));
+            super(send_conn_id, new Table<Message>(xmit_table_num_rows, xmit_table_msgs_per_row, 0,
+                                                   xmit_table_resize_factor, xmit_table_max_compaction_time)
+              .timeService(time_service));
         }
 
         long[]      watermark()                 {return watermark;}
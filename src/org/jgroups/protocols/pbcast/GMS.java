@@ -2,6 +2,7 @@ package org.jgroups.protocols.pbcast;
 
 
 import org.jgroups.*;
+import org.jgroups.annotations.GuardedBy;
 import org.jgroups.annotations.MBean;
 import org.jgroups.annotations.ManagedAttribute;
 import org.jgroups.annotations.ManagedOperation;
@@ -21,6 +22,7 @@ import java.util.*;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -46,6 +48,7 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
     public static final short MERGE_VIEW       = 1 << 2; // if a view is present, is it a MergeView ?
     public static final short DELTA_VIEW       = 1 << 3; // if a view is present, is it a DeltaView ?
     public static final short READ_ADDRS       = 1 << 4; // if digest needs to read its own addresses (rather than that of view)
+    public static final short INDEXED_DIGEST   = 1 << 5; // digest members are indices into the view (if not the same)
 
     /* ------------------------------------------ Properties  ------------------------------------------ */
 
@@ -82,6 +85,11 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
       "it always sends full views. See https://issues.jboss.org/browse/JGRP-1354 for details.")
     protected boolean                   use_delta_views=true;
 
+    @Property(description="If true, the members of a digest sent with a view of different membership (e.g. a " +
+      "MergeView) are written as indices into the view. Members running a version which doesn't support this " +
+      "cannot read such a digest, so this must only be enabled when all members support it")
+    protected boolean                   index_digests;
+
     @Property(description="Max number of old members to keep in history. Default is 50")
     protected int                       num_prev_mbrs=50;
 
@@ -92,6 +100,21 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
       type=AttributeType.TIME)
     protected long                      view_ack_collection_timeout=2000;
 
+    @Property(description="Max number of views for which the coordinator can have outstanding VIEW_ACKs. When 1, " +
+      "the coordinator waits for all VIEW_ACKs of a view before installing the next one. When greater than 1, view " +
+      "installation is pipelined: the next view is created and sent while VIEW_ACKs for previous views are still " +
+      "being collected. Merge views always wait for all outstanding VIEW_ACKs")
+    protected int                       max_pending_views=1;
+
+    @Property(description="Max number of membership requests (JOIN, LEAVE, SUSPECT) handled by a single view. " +
+      "0 means unbounded")
+    protected int                       max_join_batch_size;
+
+    @Property(description="Max time (in ms) the coordinator waits for more JOIN requests before installing a new view, " +
+      "when the previous view was caused by multiple joiners. The actual time is the smaller of this value and the " +
+      "average time it took to collect VIEW_ACKs. 0 disables waiting",type=AttributeType.TIME)
+    protected long                      join_batch_linger;
+
     @Property(description="Use flush for view changes. Default is true")
     protected boolean                   use_flush_if_present=true;
 
@@ -151,6 +174,19 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
     //[JGRP-700] - FLUSH: flushing should span merge
     protected final AckCollector        merge_ack_collector=new AckCollector();
 
+    /** Views sent by the coordinator for which VIEW_ACKs are still outstanding (only if max_pending_views > 1) */
+    @GuardedBy("pending_views")
+    protected final Deque<PendingView>  pending_views=new ArrayDeque<>();
+
+    @ManagedAttribute(description="Time (ms) to collect all VIEW_ACKs for a view",type=AttributeType.SCALAR)
+    protected final AverageMinMax       avg_view_ack_time=new AverageMinMax();
+
+    @ManagedAttribute(description="Max number of views which had outstanding VIEW_ACKs at the same time")
+    protected int                       max_num_pending_views;
+
+    @ManagedAttribute(description="Number of JOIN requests handled by the last view")
+    protected volatile int              last_join_batch_size;
+
     protected boolean                   flushProtocolInStack;
 
     // Has this coord sent its first view since becoming coord ? Used to send a full- or delta- view */
@@ -175,6 +211,8 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
     public GMS     printPhysicalAddress(boolean p)     {print_physical_addrs=p; return this;}
     public boolean useDeltaViews()                     {return use_delta_views;}
     public GMS     useDeltaViews(boolean b)            {use_delta_views=b; return this;}
+    public boolean indexDigests()                      {return index_digests;}
+    public GMS     indexDigests(boolean b)             {index_digests=b; return this;}
     public long    getViewAckCollectionTimeout()       {return view_ack_collection_timeout;}
     public GMS     setViewAckCollectionTimeout(long v) {this.view_ack_collection_timeout=v; return this;}
     public boolean logCollectMessages()                {return log_collect_msgs;}
@@ -183,6 +221,12 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
     public GMS     logViewWarnings(boolean b)          {log_view_warnings=b; return this;}
     public boolean printViewDetails()                  {return print_view_details;}
     public GMS     printViewDetails(boolean p)         {print_view_details=p; return this;}
+    public int     getMaxPendingViews()                {return max_pending_views;}
+    public GMS     setMaxPendingViews(int m)           {max_pending_views=m; return this;}
+    public int     getMaxJoinBatchSize()               {return max_join_batch_size;}
+    public GMS     setMaxJoinBatchSize(int m)          {max_join_batch_size=m; view_handler.maxBatchSize(m); return this;}
+    public long    getJoinBatchLinger()                {return join_batch_linger;}
+    public GMS     setJoinBatchLinger(long l)          {join_batch_linger=l; return this;}
     public ViewId  getViewId()                         {return view != null? view.getViewId() : null;}
     public View    view()                              {return view;}
 
@@ -302,6 +346,8 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
     public void resetStats() {
         super.resetStats();
         num_views=0;
+        avg_view_ack_time.clear();
+        max_num_pending_views=0;
         prev_views.clear();
     }
 
@@ -338,8 +384,11 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
             throw new IllegalArgumentException("view_ack_collection_timeout has to be greater than 0");
         if(merge_timeout <= 0)
             throw new IllegalArgumentException("merge_timeout has to be greater than 0");
+        if(max_pending_views < 1)
+            throw new IllegalArgumentException("max_pending_views has to be greater than 0");
         prev_members=new BoundedList<>(num_prev_mbrs);
         prev_views=new BoundedList<>(num_prev_views);
+        view_handler.maxBatchSize(max_join_batch_size).linger(this::joinBatchLinger);
         TP transport=getTransport();
         if(impl != null)
             impl.init();
@@ -358,6 +407,7 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
     public void stop() {
         if(impl != null) impl.stop();
         leaver.reset();
+        clearPendingViews();
         if(prev_members != null)
             prev_members.clear();
     }
@@ -543,23 +593,40 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
                 new_view=createDeltaView(view, new_view);
         }
 
-        Message view_change_msg=new BytesMessage().putHeader(this.id, new GmsHeader(GmsHeader.VIEW))
-          .setArray(marshal(new_view, digest)).setFlag(Message.TransientFlag.DONT_LOOPBACK);
+        boolean pipeline=max_pending_views > 1 && !(new_view instanceof MergeView);
+        // with pipelining, members need to tell us which view they ack
+        Message view_change_msg=new BytesMessage().putHeader(this.id, new GmsHeader(GmsHeader.VIEW).ackViewId(pipeline))
+          .setArray(marshal(new_view, digest, index_digests)).setFlag(Message.TransientFlag.DONT_LOOPBACK);
         if(new_view instanceof MergeView) // https://issues.jboss.org/browse/JGRP-1484
             view_change_msg.setFlag(Message.Flag.NO_TOTAL_ORDER);
 
-        ack_collector.reset(expected_acks, local_addr) // exclude self, as we'll install the view locally
+        if(!pipeline)
+            waitForPendingViews(0);
+        AckCollector acks=pipeline? new AckCollector() : ack_collector;
+        acks.reset(expected_acks, local_addr) // exclude self, as we'll install the view locally
           .suspect(suspected_mbrs.getMembers()); // exclude cached suspects (https://issues.redhat.com/browse/JGRP-2556)
         long start=System.currentTimeMillis();
+        if(pipeline && acks.size() > 0) {
+            synchronized(pending_views) {
+                pending_views.add(new PendingView(new_view.getViewId(), acks, start));
+                max_num_pending_views=Math.max(max_num_pending_views, pending_views.size());
+            }
+        }
         impl.handleViewChange(full_view, digest); // install the view locally first
         log.trace("%s: mcasting view %s", local_addr, new_view);
         down_prot.down(view_change_msg);
         sendJoinResponses(jr, joiners);
+        if(pipeline) {
+            waitForPendingViews(max_pending_views-1);
+            return;
+        }
         try {
             if(ack_collector.size() > 0) {
                 ack_collector.waitForAllAcks(view_ack_collection_timeout);
+                long time=System.currentTimeMillis()-start;
+                avg_view_ack_time.add(time);
                 log.trace("%s: got all ACKs (%d) for view %s in %d ms",
-                          local_addr, ack_collector.expectedAcks(), new_view.getViewId(), System.currentTimeMillis()-start);
+                          local_addr, ack_collector.expectedAcks(), new_view.getViewId(), time);
             }
         }
         catch(TimeoutException e) {
@@ -572,6 +639,110 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
 
 
 
+    /**
+     * Waits until no more than max views have outstanding VIEW_ACKs, oldest first. A view whose VIEW_ACKs have not
+     * all been received within view_ack_collection_timeout (since it was sent) is removed
+     */
+    protected void waitForPendingViews(int max) {
+        for(;;) {
+            PendingView pv;
+            synchronized(pending_views) {
+                if(pending_views.size() <= max || (pv=pending_views.peekFirst()) == null)
+                    return;
+            }
+            long remaining=view_ack_collection_timeout - (System.currentTimeMillis() - pv.start);
+            try {
+                if(remaining <= 0 || !pv.acks.waitForAllAcks(remaining))
+                    throw new TimeoutException();
+            }
+            catch(TimeoutException e) {
+                if(log_collect_msgs)
+                    log.warn("%s: failed to collect all ACKs for view %s after %d ms, missing %d ACKs from %s",
+                             local_addr, pv.view_id, System.currentTimeMillis() - pv.start,
+                             pv.acks.size(), pv.acks.printMissing());
+            }
+            synchronized(pending_views) {
+                pending_views.remove(pv);
+            }
+        }
+    }
+
+    /**
+     * Applies a VIEW_ACK from sender to the pending views. An ACK for a given view also acks all previous views. An ACK
+     * without a view-id (e.g. sent by a joiner after it received its JOIN_RSP) acks the oldest view for which the
+     * ACK from sender is missing
+     */
+    protected void ackPendingViews(Address sender, ViewId acked_view) {
+        synchronized(pending_views) {
+            if(pending_views.isEmpty())
+                return;
+            for(Iterator<PendingView> it=pending_views.iterator(); it.hasNext();) {
+                PendingView pv=it.next();
+                if(acked_view != null) {
+                    if(pv.view_id.compareToIDs(acked_view) > 0)
+                        break;
+                }
+                else if(!pv.acks.isMissing(sender))
+                    continue;
+                pv.acks.ack(sender);
+                removeIfDone(pv, it);
+                if(acked_view == null)
+                    break;
+            }
+        }
+    }
+
+    /** Applies a suspicion or view change to the collectors of all pending views and removes completed views */
+    protected void ackPendingViews(Consumer<AckCollector> ack) {
+        synchronized(pending_views) {
+            if(pending_views.isEmpty())
+                return;
+            for(Iterator<PendingView> it=pending_views.iterator(); it.hasNext();) {
+                PendingView pv=it.next();
+                ack.accept(pv.acks);
+                removeIfDone(pv, it);
+            }
+        }
+    }
+
+    @GuardedBy("pending_views")
+    protected void removeIfDone(PendingView pv, Iterator<PendingView> it) {
+        if(pv.acks.size() > 0)
+            return;
+        avg_view_ack_time.add(System.currentTimeMillis() - pv.start);
+        log.trace("%s: got all ACKs for view %s in %d ms", local_addr, pv.view_id, System.currentTimeMillis() - pv.start);
+        it.remove();
+    }
+
+    protected void clearPendingViews() {
+        synchronized(pending_views) {
+            pending_views.forEach(pv -> pv.acks.destroy());
+            pending_views.clear();
+        }
+    }
+
+    @ManagedAttribute(description="Number of views for which VIEW_ACKs are still outstanding")
+    public int getNumPendingViews() {
+        synchronized(pending_views) {
+            return pending_views.size();
+        }
+    }
+
+    public int getMaxNumPendingViews() {return max_num_pending_views;}
+
+    /**
+     * Returns the time (ms) for which the view handler should wait for more JOIN requests to be batched with req.
+     * Only done when the previous view was caused by multiple joiners (e.g. on a mass restart), and then for no
+     * longer than it takes on average to collect all VIEW_ACKs
+     */
+    protected long joinBatchLinger(Request req) {
+        if(join_batch_linger <= 0 || last_join_batch_size <= 1 || !(impl instanceof CoordGmsImpl)
+          || (req.type != Request.JOIN && req.type != Request.JOIN_WITH_STATE_TRANSFER))
+            return 0;
+        long avg=(long)avg_view_ack_time.average();
+        return Math.min(join_batch_linger, Math.max(1, avg));
+    }
+
     protected void sendJoinResponses(JoinRsp jr, Collection<Address> joiners) {
         if(jr == null || joiners == null || joiners.isEmpty())
             return;
@@ -666,6 +837,7 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
                 if(was_coord || impl instanceof ClientGmsImpl) {
                     becomeParticipant();
                     merge_ack_collector.reset(null); // we don't need this one anymore
+                    clearPendingViews();
                 }
             }
         }
@@ -679,6 +851,7 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
         List<Address> tmp_mbrs=new_view.getMembers();
         ack_collector.retainAll(tmp_mbrs);
         merge_ack_collector.retainAll(tmp_mbrs);
+        ackPendingViews(c -> c.retainAll(tmp_mbrs));
 
         if(new_view instanceof MergeView) {
             // Everybody except the merge leader cancels the merge, otherwise - if UNICAST3.loopback is true - we'd
@@ -819,6 +992,7 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
                 suspected_mbrs.add(suspects);
                 ack_collector.suspect(suspected_mbrs.getMembers());
                 merge_ack_collector.suspect(suspects);
+                ackPendingViews(c -> c.suspect(suspects));
                 view_handler.add(suspect_reqs);
                 return retval;
 
@@ -983,19 +1157,21 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
                     }
                 }
                 Address coord=msg.getSrc();
+                ViewId acked_view=hdr.ack_view_id? new_view.getViewId() : null;
                 if(!new_view.containsMember(coord)) {
-                    sendViewAck(coord); // we need to send the ack first, otherwise the connection is removed
+                    sendViewAck(coord, acked_view); // we need to send the ack first, otherwise the connection is removed
                     impl.handleViewChange(new_view, tuple.getVal2());
                 }
                 else {
                     impl.handleViewChange(new_view, tuple.getVal2());
-                    sendViewAck(coord); // send VIEW_ACK to sender of view
+                    sendViewAck(coord, acked_view); // send VIEW_ACK to sender of view
                 }
                 break;
 
             case GmsHeader.VIEW_ACK:
                 Address sender=msg.getSrc();
                 ack_collector.ack(sender);
+                ackPendingViews(sender, hdr.view_id);
                 return null; // don't pass further up
 
             case GmsHeader.MERGE_REQ:
@@ -1091,7 +1267,13 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
 
 
     protected void sendViewAck(Address dest) {
-        Message view_ack=new EmptyMessage(dest).setFlag(OOB).putHeader(this.id, new GmsHeader(GmsHeader.VIEW_ACK));
+        sendViewAck(dest, null);
+    }
+
+    /** Sends a VIEW_ACK to dest; view_id is only set if requested by the coordinator (pipelined view installation) */
+    protected void sendViewAck(Address dest, ViewId view_id) {
+        Message view_ack=new EmptyMessage(dest).setFlag(OOB)
+          .putHeader(this.id, new GmsHeader(GmsHeader.VIEW_ACK).viewId(view_id));
         down_prot.down(view_ack);
     }
 
@@ -1118,7 +1300,12 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
         return digest == null || view == null || !Arrays.equals(view.getMembersRaw(),digest.getMembersRaw());
     }
 
-    protected static short determineFlags(final View view, final Digest digest) {
+    /** Whether the digest's members can be written as indices into the view's members */
+    protected static boolean indexDigest(final View view, final Digest digest) {
+        return digest != null && view != null && !(view instanceof DeltaView) && writeAddresses(view, digest);
+    }
+
+    protected static short determineFlags(final View view, final Digest digest, boolean index_digest) {
         short retval=0;
         if(view != null) {
             retval|=VIEW_PRESENT;
@@ -1128,25 +1315,42 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
                 retval|=DELTA_VIEW;
         }
         if(digest != null) retval|=DIGEST_PRESENT;
-        if(writeAddresses(view, digest))  retval|=READ_ADDRS;
+        if(index_digest && indexDigest(view, digest))
+            retval|=INDEXED_DIGEST;
+        else if(writeAddresses(view, digest))
+            retval|=READ_ADDRS;
         return retval;
     }
 
     protected static ByteArray marshal(final View view, final Digest digest) {
+        return marshal(view, digest, false);
+    }
+
+    /**
+     * Marshals a view and a digest
+     * @param index_digest If true, the digest's members are written as indices into the view (if their memberships
+     *                     differ); all receivers need to be able to read {@link #INDEXED_DIGEST}
+     */
+    public static ByteArray marshal(final View view, final Digest digest, boolean index_digest) {
         try {
             int expected_size=Global.SHORT_SIZE;
             if(view != null)
                 expected_size+=view.serializedSize();
             boolean write_addrs=writeAddresses(view, digest);
+            index_digest=index_digest && indexDigest(view, digest);
             if(digest != null)
-                expected_size=(int)digest.serializedSize(write_addrs);
+                expected_size+=(int)(index_digest? digest.serializedSize(view) : digest.serializedSize(write_addrs));
             final ByteArrayDataOutputStream out=new ByteArrayDataOutputStream(expected_size +10);
-            out.writeShort(determineFlags(view, digest));
+            out.writeShort(determineFlags(view, digest, index_digest));
             if(view != null)
                 view.writeTo(out);
 
-            if(digest != null)
-                digest.writeTo(out, write_addrs);
+            if(digest != null) {
+                if(index_digest)
+                    digest.writeTo(out, view);
+                else
+                    digest.writeTo(out, write_addrs);
+            }
 
             return out.getBuffer();
         }
@@ -1236,7 +1440,11 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
         }
 
         if((flags & DIGEST_PRESENT) == DIGEST_PRESENT) {
-            if((flags & READ_ADDRS) == READ_ADDRS) {
+            if((flags & INDEXED_DIGEST) == INDEXED_DIGEST) {
+                digest=new Digest();
+                digest.readFrom(in, tmp_view);
+            }
+            else if((flags & READ_ADDRS) == READ_ADDRS) {
                 digest=new Digest();
                 digest.readFrom(in);
             }
@@ -1269,6 +1477,8 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
             case Request.JOIN_WITH_STATE_TRANSFER:
             case Request.LEAVE:
             case Request.SUSPECT:
+                last_join_batch_size=(int)requests.stream()
+                  .filter(r -> r.type == Request.JOIN || r.type == Request.JOIN_WITH_STATE_TRANSFER).count();
                 impl.handleMembershipChange(requests);
                 break;
             case Request.COORD_LEAVE:
@@ -1285,6 +1495,23 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
 
     /* --------------------------- End of Private Methods ------------------------------- */
 
+    /** A view sent by the coordinator, with the VIEW_ACKs still to be received */
+    protected static class PendingView {
+        protected final ViewId       view_id;
+        protected final AckCollector acks;
+        protected final long         start; // time (ms) the view was sent
+
+        protected PendingView(ViewId view_id, AckCollector acks, long start) {
+            this.view_id=view_id;
+            this.acks=acks;
+            this.start=start;
+        }
+
+        public String toString() {
+            return String.format("%s (missing ACKs from %s)", view_id, acks.printMissing());
+        }
+    }
+
     public static class DefaultMembershipPolicy implements MembershipChangePolicy {
 
         /**
@@ -1361,6 +1588,8 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
         public static final short MERGE_ID_PRESENT = 1 << 2;
         public static final short USE_FLUSH        = 1 << 3;
         public static final short MERGE_REJECTED   = 1 << 4;
+        public static final short VIEW_ID_PRESENT  = 1 << 5;
+        public static final short ACK_VIEW_ID      = 1 << 6;
 
 
         protected byte    type;
@@ -1368,6 +1597,8 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
         protected MergeId merge_id;             // used when type=MERGE_REQ or MERGE_RSP or INSTALL_MERGE_VIEW or CANCEL_MERGE
         protected boolean useFlushIfPresent;    // used when type=JOIN_REQ
         protected boolean merge_rejected=false; // used when type=MERGE_RSP
+        protected ViewId  view_id;              // used when type=VIEW_ACK (only if requested by ack_view_id)
+        protected boolean ack_view_id;          // used when type=VIEW: VIEW_ACKs need to include the view-id
 
 
         public GmsHeader() { // used for Externalization
@@ -1399,6 +1630,10 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
         public GmsHeader setMergeId(MergeId merge_id)             {this.merge_id=merge_id; return this;}
         public boolean   isMergeRejected()                        {return merge_rejected;}
         public GmsHeader setMergeRejected(boolean merge_rejected) {this.merge_rejected=merge_rejected; return this;}
+        public ViewId    viewId()                                 {return view_id;}
+        public GmsHeader viewId(ViewId id)                        {this.view_id=id; return this;}
+        public boolean   ackViewId()                              {return ack_view_id;}
+        public GmsHeader ackViewId(boolean flag)                  {this.ack_view_id=flag; return this;}
 
         public Supplier<? extends Header> create() {return GmsHeader::new;}
 
@@ -1410,6 +1645,8 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
             Util.writeAddress(mbr, out);
             if(merge_id != null)
                 merge_id.writeTo(out);
+            if(view_id != null)
+                view_id.writeTo(out);
         }
 
         @Override
@@ -1421,6 +1658,11 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
                 merge_id=new MergeId();
                 merge_id.readFrom(in);
             }
+            if((flags & VIEW_ID_PRESENT) == VIEW_ID_PRESENT) {
+                view_id=new ViewId();
+                view_id.readFrom(in);
+            }
+            ack_view_id=(flags & ACK_VIEW_ID) == ACK_VIEW_ID;
             merge_rejected=(flags & MERGE_REJECTED) == MERGE_REJECTED;
             useFlushIfPresent=(flags & USE_FLUSH) == USE_FLUSH;
         }
@@ -1432,6 +1674,8 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
               + Util.size(mbr);
             if(merge_id != null)
                 retval+=merge_id.size();
+            if(view_id != null)
+                retval+=view_id.serializedSize();
             return retval;
         }
 
@@ -1440,6 +1684,8 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
             if(merge_id != null)  retval|=MERGE_ID_PRESENT;
             if(useFlushIfPresent) retval|=USE_FLUSH;
             if(merge_rejected)    retval|=MERGE_REJECTED;
+            if(view_id != null)   retval|=VIEW_ID_PRESENT;
+            if(ack_view_id)       retval|=ACK_VIEW_ID;
             return retval;
         }
 
@@ -1462,6 +1708,9 @@ public class GMS extends Protocol implements DiagnosticsHandler.ProbeHandler {
                 case CANCEL_MERGE:
                     sb.append(", merge_id=" + merge_id);
                     break;
+                case VIEW_ACK:
+                    if(view_id != null) sb.append(": view_id=" + view_id);
+                    break;
             }
             return sb.toString();
         }
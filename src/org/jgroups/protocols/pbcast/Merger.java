@@ -301,7 +301,7 @@ public class Merger {
 
     /** Send back a response containing view and digest to sender */
     protected void sendMergeResponse(Address sender, View view, Digest digest, MergeId merge_id) {
-        Message msg=new BytesMessage(sender).setArray(GMS.marshal(view, digest)).setFlag(OOB)
+        Message msg=new BytesMessage(sender).setArray(GMS.marshal(view, digest, gms.index_digests)).setFlag(OOB)
           .putHeader(gms.getId(), new GMS.GmsHeader(GMS.GmsHeader.MERGE_RSP).mergeId(merge_id));
         gms.getDownProtocol().down(msg);
     }
@@ -341,7 +341,7 @@ public class Merger {
         log.debug("%s: installing merge view %s in %s", gms.getAddress(), combined_merge_data.view.getViewId(), coords_copy);
         long start=System.currentTimeMillis();
         for(Address coord: coords_copy) {
-            Message msg=new BytesMessage(coord).setArray(GMS.marshal(view, digest))
+            Message msg=new BytesMessage(coord).setArray(GMS.marshal(view, digest, gms.index_digests))
               .putHeader(gms.getId(), new GMS.GmsHeader(GMS.GmsHeader.INSTALL_MERGE_VIEW).mergeId(merge_id));
             gms.getDownProtocol().down(msg);
         }
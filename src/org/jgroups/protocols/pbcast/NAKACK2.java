@@ -10,7 +10,6 @@ import org.jgroups.stack.Protocol;
 import org.jgroups.util.*;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -22,9 +21,9 @@ import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
-import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 import static org.jgroups.Message.TransientFlag.DONT_LOOPBACK;
 import static org.jgroups.Message.TransientFlag.OOB_DELIVERED;
@@ -161,7 +160,7 @@ public class NAKACK2 extends Protocol implements DiagnosticsHandler.ProbeHandler
         return true;
     };
 
-    protected final Function<Message,Long> SEQNO_GETTER= m -> {
+    protected final ToLongFunction<Message> SEQNO_GETTER= m -> {
         NakAckHeader2 hdr=m != null? m.getHeader(id) : null;
         return hdr == null || hdr.getType() != NakAckHeader2.MSG? -1 : hdr.getSeqno();
     };
@@ -231,11 +230,12 @@ public class NAKACK2 extends Protocol implements DiagnosticsHandler.ProbeHandler
     /** RetransmitTask running every xmit_interval ms */
     protected Future<?>                 xmit_task;
     /** Used by the retransmit task to keep the last retransmitted seqno per sender (https://issues.jboss.org/browse/JGRP-1539) */
-    protected final Map<Address,Long>   xmit_task_map=new ConcurrentHashMap<>();
+    protected final ObjectLongMap<Address> xmit_task_map=new ObjectLongMap<>();
 
     protected volatile boolean          leaving=false;
     protected volatile boolean          running=false;
     protected TimeScheduler             timer=null;
+    protected TimeService               time_service; // for compaction timestamps of the retransmit tables
     protected LastSeqnoResender         last_seqno_resender;
     protected final Lock                rebroadcast_lock=new ReentrantLock();
     protected final Condition           rebroadcast_done=rebroadcast_lock.newCondition();
@@ -482,6 +482,7 @@ public class NAKACK2 extends Protocol implements DiagnosticsHandler.ProbeHandler
 
         TP transport=getTransport();
         sends_can_block=transport instanceof TCP; // UDP and TCP_NIO2 won't block
+        time_service=transport.getTimeService();
         transport.registerProbeHandler(this);
         if(!transport.supportsMulticasting()) {
             if(use_mcast_xmit) {
@@ -581,7 +582,7 @@ public class NAKACK2 extends Protocol implements DiagnosticsHandler.ProbeHandler
                 is_server=true;  // check vids from now on
                 if(suppress_log_non_member != null)
                     suppress_log_non_member.removeExpired(suppress_time_non_member_warnings);
-                xmit_task_map.keySet().retainAll(mbrs);
+                xmit_task_map.retainAll(mbrs);
                 break;
 
             case Event.BECOME_SERVER:
@@ -893,21 +894,27 @@ public class NAKACK2 extends Protocol implements DiagnosticsHandler.ProbeHandler
         int size=mb.size();
         num_messages_received+=size;
         boolean loopback=local_addr.equals(sender), oob=mb.mode() == OOB;
-        boolean added=loopback || buf.add(mb, SEQNO_GETTER, !oob, oob? DUMMY_OOB_MSG : null);
+        boolean added=loopback || buf.addBatch(mb, SEQNO_GETTER, !oob, oob? DUMMY_OOB_MSG : null);
 
         // OOB msg is passed up. When removed, we discard it. Affects ordering: http://jira.jboss.com/jira/browse/JGRP-379
         if(added && oob) {
             Address dest=mb.dest();
-            MessageBatch oob_batch=loopback? new MessageBatch(dest, sender, null, dest == null, OOB, size) : mb;
-            if(loopback) {
-                for(Message m: mb) {
-                    long seq=SEQNO_GETTER.apply(m);
-                    Message msg=buf.get(seq); // we *have* to get the message, because loopback means we didn't add it to win !
-                    if(msg != null && msg.isFlagSet(Message.Flag.OOB) && msg.setFlagIfAbsent(OOB_DELIVERED))
-                        oob_batch.add(msg);
+            MessageBatch oob_batch=loopback? BatchPool.acquire(dest, sender, null, dest == null, OOB, size) : mb;
+            try {
+                if(loopback) {
+                    for(Message m: mb) {
+                        long seq=SEQNO_GETTER.applyAsLong(m);
+                        Message msg=buf.get(seq); // we *have* to get the message, because loopback means we didn't add it to win !
+                        if(msg != null && msg.isFlagSet(Message.Flag.OOB) && msg.setFlagIfAbsent(OOB_DELIVERED))
+                            oob_batch.add(msg);
+                    }
                 }
+                deliverBatch(oob_batch);
+            }
+            finally {
+                if(loopback)
+                    BatchPool.release(oob_batch);
             }
-            deliverBatch(oob_batch);
         }
         removeAndDeliver(buf, sender, loopback, mb.clusterName()); // at most 1 thread will execute this at any given time
         if(oob || loopback)
@@ -924,28 +931,44 @@ public class NAKACK2 extends Protocol implements DiagnosticsHandler.ProbeHandler
         if(adders.getAndIncrement() != 0)
             return;
         boolean remove_msgs=discard_delivered_msgs && !loopback;
-        MessageBatch batch=new MessageBatch(buf.size()).dest(null).sender(sender).clusterName(cluster_name).multicast(true);
+        MessageBatch batch=BatchPool.acquire(null, sender, cluster_name, true, MessageBatch.Mode.REG, buf.size());
         Supplier<MessageBatch> batch_creator=() -> batch;
-        do {
-            try {
-                batch.reset();
-                // Don't include DUMMY and OOB_DELIVERED messages in the removed set
-                buf.removeMany(remove_msgs, 0, no_dummy_and_no_oob_delivered_msgs_and_no_dont_loopback_msgs,
-                               batch_creator, BATCH_ACCUMULATOR);
-            }
-            catch(Throwable t) {
-                log.error("failed removing messages from table for " + sender, t);
+        try {
+            do {
+                try {
+                    batch.reset();
+                    // Don't include DUMMY and OOB_DELIVERED messages in the removed set
+                    buf.removeMany(remove_msgs, 0, no_dummy_and_no_oob_delivered_msgs_and_no_dont_loopback_msgs,
+                                   batch_creator, BATCH_ACCUMULATOR);
+                }
+                catch(Throwable t) {
+                    log.error("failed removing messages from table for " + sender, t);
+                }
+                if(!batch.isEmpty()) {
+                    if(!remove_msgs && !loopback)
+                        retain(batch); // delivered messages stay in the table until they're purged (DECR)
+                    deliverBatch(batch);
+                }
             }
-            if(!batch.isEmpty())
-                deliverBatch(batch);
+            while(adders.decrementAndGet() != 0);
+        }
+        finally {
+            BatchPool.release(batch);
         }
-        while(adders.decrementAndGet() != 0);
         if(rebroadcasting)
             checkForRebroadcasts();
     }
 
 
 
+    /** Increments the refcount of received messages which are kept in the table after delivery */
+    protected static void retain(MessageBatch batch) {
+        for(Message msg: batch)
+            if(msg instanceof Refcountable)
+                ((Refcountable<Message>)msg).incr();
+    }
+
+
     /**
      * Retransmits messsages first_seqno to last_seqno from original_sender from xmit_table to xmit_requester,
      * called when XMIT_REQ is received.
@@ -965,7 +988,8 @@ public class NAKACK2 extends Protocol implements DiagnosticsHandler.ProbeHandler
             return;
         }
 
-        for(long i: missing_msgs) {
+        for(PrimitiveIterator.OfLong it=missing_msgs.iterator(); it.hasNext();) {
+            long    i=it.nextLong();
             Message msg=buf.get(i);
             if(msg == null) {
                 if(log.isWarnEnabled() && log_not_found_msgs && !local_addr.equals(xmit_requester) && i > buf.getLow())
@@ -1245,11 +1269,11 @@ public class NAKACK2 extends Protocol implements DiagnosticsHandler.ProbeHandler
      * This method is not called concurrently
      */
     protected void adjustReceivers(List<Address> members) {
-        Set<Address> keys=xmit_table.keySet();
+        Set<Address> keys=xmit_table.keySet(), mbrs=new HashSet<>(members);
 
         // remove members which left
         for(Address member: keys) {
-            if(!members.contains(member)) {
+            if(!mbrs.contains(member)) {
                 if(Objects.equals(local_addr, member))
                     continue;
                 Table<Message> buf=xmit_table.remove(member);
@@ -1395,8 +1419,9 @@ public class NAKACK2 extends Protocol implements DiagnosticsHandler.ProbeHandler
 
 
     protected Table<Message> createTable(long initial_seqno) {
-        return new Table<>(xmit_table_num_rows, xmit_table_msgs_per_row,
-                                  initial_seqno, xmit_table_resize_factor, xmit_table_max_compaction_time);
+        return new Table<Message>(xmit_table_num_rows, xmit_table_msgs_per_row,
+                                  initial_seqno, xmit_table_resize_factor, xmit_table_max_compaction_time)
+          .timeService(time_service);
     }
 
 
@@ -1526,8 +1551,8 @@ public class NAKACK2 extends Protocol implements DiagnosticsHandler.ProbeHandler
             SeqnoList missing;
             if(buf != null && buf.getNumMissing() > 0 && (missing=buf.getMissing(max_xmit_req_size)) != null) { // getNumMissing() is fast
                 long highest=missing.getLast();
-                Long prev_seqno=xmit_task_map.get(target);
-                if(prev_seqno == null) {
+                long prev_seqno=xmit_task_map.get(target, -1);
+                if(prev_seqno < 0) {
                     xmit_task_map.put(target, highest); // no retransmission
                 }
                 else {
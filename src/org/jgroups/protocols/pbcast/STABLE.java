@@ -392,13 +392,7 @@ public class STABLE extends Protocol {
     }
 
     protected static int getRank(Address member, View v) {
-        if(v == null || member == null)
-            return -1;
-        Address[] members=v.getMembersRaw();
-        for(int i=0; i < members.length; i++)
-            if(member.equals(members[i]))
-                return i;
-        return -1;
+        return v != null? v.indexOf(member) : -1;
     }
 
     protected void startStableTask() {
@@ -15,6 +15,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -32,9 +33,12 @@ public class ViewHandler<R> {
     @GuardedBy("lock")
     protected boolean                     processing;
     protected final Condition             processing_done=lock.newCondition();
+    protected final Condition             requests_added=lock.newCondition(); // signalled when requests were added
     protected final GMS                   gms;
     protected Consumer<Collection<R>>     req_processor;
     protected BiPredicate<R,R>            req_matcher;
+    protected int                         max_batch_size;   // max number of requests passed to req_processor (0: unbounded)
+    protected ToLongFunction<R>           linger;           // time (ms) to wait for more requests, given the first one
     protected final BoundedList<String>   history=new BoundedList<>(20); // maintains a list of the last 20 requests
 
 
@@ -58,6 +62,10 @@ public class ViewHandler<R> {
     public Consumer<Collection<R>> reqProcessor()                          {return req_processor;}
     public ViewHandler<R>          reqMatcher(BiPredicate<R,R> m)          {req_matcher=m; return this;}
     public BiPredicate<R,R>        reqMatcher()                            {return req_matcher;}
+    public int                     maxBatchSize()                          {return max_batch_size;}
+    public ViewHandler<R>          maxBatchSize(int s)                     {max_batch_size=s; return this;}
+    public ToLongFunction<R>       linger()                                {return linger;}
+    public ViewHandler<R>          linger(ToLongFunction<R> l)             {linger=l; return this;}
 
     public ViewHandler<R> add(R req) {
         if(_add(req))
@@ -185,6 +193,7 @@ public class ViewHandler<R> {
                 requests.add(req);
                 history.add(log);
             }
+            requests_added.signalAll();
             return count.decrementAndGet() == 0 && !processing && setProcessing(true);
         }
         finally {
@@ -209,6 +218,7 @@ public class ViewHandler<R> {
                     history.add(new Date() + ": " + req);
                 }
             }
+            requests_added.signalAll();
             return count.decrementAndGet() == 0 && !processing && setProcessing(true);
         }
         finally {
@@ -234,6 +244,7 @@ public class ViewHandler<R> {
                     history.add(new Date() + ": " + req);
                 }
             }
+            requests_added.signalAll();
             return count.decrementAndGet() == 0 && !processing && setProcessing(true);
         }
         finally {
@@ -260,6 +271,32 @@ public class ViewHandler<R> {
         }
     }
 
+    /**
+     * Waits for more requests to be added, so that they can be processed in the same batch. The time to wait is
+     * determined by {@link #linger} for the first request. Returns early when max_batch_size requests are queued
+     */
+    protected void linger(Collection<R> requests) {
+        ToLongFunction<R> l=linger;
+        R first;
+        if(l == null || (first=requests.iterator().next()) == null)
+            return;
+        long timeout=l.applyAsLong(first);
+        if(timeout <= 0)
+            return;
+        long remaining=TimeUnit.MILLISECONDS.toNanos(timeout);
+        lock.lock();
+        try {
+            while(remaining > 0 && (max_batch_size <= 0 || requests.size() < max_batch_size))
+                remaining=requests_added.awaitNanos(remaining);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Removes requests as long as they match - breaks at the first non-matching request or when requests is empty
      * This method must catch all exceptions; or else process() might return without setting processing to true again!
@@ -267,12 +304,15 @@ public class ViewHandler<R> {
     protected void removeAndProcess(Collection<R> requests) {
         try {
             Collection<R> removed=new ArrayList<>();
+            linger(requests);
             Iterator<R> it=requests.iterator();
             R first_req=it.next();
             removed.add(first_req);
             it.remove();
 
             while(it.hasNext()) {
+                if(max_batch_size > 0 && removed.size() >= max_batch_size)
+                    break;
                 R next=it.next();
                 if(req_matcher.test(first_req, next)) {
                     removed.add(next);
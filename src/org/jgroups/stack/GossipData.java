@@ -25,7 +25,7 @@ public class GossipData implements SizeStreamable {
     GossipType      type;
     String          group;         // REGISTER, GET_MBRS and GET_MBRS_RSP
     Address         addr;          // REGISTER
-    Address         sender;        // MESSAGE (original sender of a message (not the GossipRouter!))
+    Address         sender;        // MESSAGE (original sender of a message (not the GossipRouter!)), PEER_* (sending router)
     PhysicalAddress physical_addr; // REGISTER, GET_MBRS, GET_MBRS_RSP
     String          logical_name;  // REGISTER
     List<PingData>  ping_data;     // GET_MBRS_RSP
@@ -85,6 +85,8 @@ public class GossipData implements SizeStreamable {
     public int              getOffset()          {return offset;}
     public int              getLength()          {return length;}
     public PhysicalAddress  getPhysicalAddress() {return physical_addr;}
+    /** Returns true if this is a MESSAGE, or a PEER_MESSAGE forwarded by a federated router (same format) */
+    public boolean          isMessage()          {return type == GossipType.MESSAGE || type == GossipType.PEER_MESSAGE;}
     public GossipData setPingData(List<PingData> mbrs) {
         this.ping_data=mbrs; return this;
     }
@@ -121,7 +123,7 @@ public class GossipData implements SizeStreamable {
         retval+=Util.size(addr);       // addr
         retval+=Util.size(sender);
 
-        if(type != GossipType.MESSAGE) {
+        if(!isMessage()) {
             retval+=Global.BYTE_SIZE;     // presence byte for logical_name
             if(logical_name != null)
                 retval+=logical_name.length() +2;
@@ -147,7 +149,7 @@ public class GossipData implements SizeStreamable {
         Util.writeAddress(addr, out);
         Util.writeAddress(sender, out);
 
-        if(type != GossipType.MESSAGE) {
+        if(!isMessage()) {
             Bits.writeString(logical_name, out);
             out.writeShort(ping_data != null? ping_data.size() : 0);
             if(ping_data != null)
@@ -175,7 +177,7 @@ public class GossipData implements SizeStreamable {
         addr=Util.readAddress(in);
         sender=Util.readAddress(in);
 
-        if(type != GossipType.MESSAGE) {
+        if(!isMessage()) {
             logical_name=Bits.readString(in);
             short len=in.readShort();
             if(len > 0) {
@@ -26,8 +26,10 @@ import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -88,6 +90,20 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
     @ManagedAttribute(description="Use non-blocking IO (true) or blocking IO (false). Cannot be changed at runtime")
     protected boolean              use_nio;
 
+    @ManagedAttribute(description="Number of selector threads handling reads and writes of client connections " +
+      "(only with use_nio). 0 uses a single thread for accepts, reads and writes. Cannot be changed at runtime")
+    protected int                  nio_selectors;
+
+    @ManagedAttribute(description="Max number of bytes pending to be written to a client before the router stops " +
+      "reading from the sending client (only with use_nio). 0 drops messages to slow clients instead",
+      type=AttributeType.BYTES)
+    protected int                  max_pending_write_bytes;
+
+    @ManagedAttribute(description="Forwards received messages without copying them (only with use_nio): every message " +
+      "is read into its own buffer, which is shared (read-only) by all destinations of a multicast, instead of " +
+      "being copied for each destination whose write did not complete")
+    protected boolean              zero_copy;
+
     @ManagedAttribute(description="Handles client disconnects: sends SUSPECT message to all other members of that group")
     protected boolean              emit_suspect_events=true;
 
@@ -97,6 +113,11 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
     @ManagedAttribute(description="The max number of bytes a message can have. If greater, an exception will be " +
       "thrown. 0 disables this", type=AttributeType.BYTES)
     protected int                  max_length;
+
+    @ManagedAttribute(description="Interval (ms) at which the registrations of local members are sent to the other " +
+      "routers of the federation. Remote registrations not refreshed for 3 intervals are removed",type=AttributeType.TIME)
+    protected long                 federation_sync_interval=5000;
+
     protected BaseServer           server;
     protected final AtomicBoolean  running=new AtomicBoolean(false);
     protected Timer                timer;
@@ -108,6 +129,10 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
     // mapping between groups and <member address> - <physical addr / logical name> pairs
     protected final Map<String,ConcurrentMap<Address,Entry>> address_mappings=new ConcurrentHashMap<>();
 
+    // the other routers of a federation: configured via peerRouters() plus the ones which sent us registrations
+    protected final Set<Address>                             routers=ConcurrentHashMap.newKeySet();
+    protected final Set<Address>                             configured_routers=ConcurrentHashMap.newKeySet();
+
     // to cache output streams for serialization (https://issues.redhat.com/browse/JGRP-2576)
     protected final Map<Address,ByteArrayDataOutputStream>   output_streams=new ConcurrentHashMap<>();
 
@@ -155,6 +180,12 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
     public GossipRouter  jmx(boolean flag)                  {jmx=flag; return this;}
     public boolean       useNio()                           {return use_nio;}
     public GossipRouter  useNio(boolean flag)               {use_nio=flag; return this;}
+    public int           nioSelectors()                     {return nio_selectors;}
+    public GossipRouter  nioSelectors(int n)                {nio_selectors=n; return this;}
+    public int           maxPendingWriteBytes()             {return max_pending_write_bytes;}
+    public GossipRouter  maxPendingWriteBytes(int b)        {max_pending_write_bytes=b; return this;}
+    public boolean       zeroCopy()                         {return zero_copy;}
+    public GossipRouter  zeroCopy(boolean b)                {zero_copy=b; return this;}
     public boolean       emitSuspectEvents()                {return emit_suspect_events;}
     public GossipRouter  emitSuspectEvents(boolean flag)    {emit_suspect_events=flag; return this;}
     public DumpMessages  dumpMessages()                     {return dump_msgs;}
@@ -164,6 +195,29 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
     public GossipRouter  maxLength(int len)                 {max_length=len; if(server != null) server.setMaxLength(len);
                                                              return this;}
     public DiagnosticsHandler diagHandler()                 {return diag;}
+    public long          federationSyncInterval()           {return federation_sync_interval;}
+    public GossipRouter  federationSyncInterval(long i)     {federation_sync_interval=i; return this;}
+
+    /**
+     * Sets the other routers of a federation, e.g. "host1[12001],host2[12001]". A router forwards messages to
+     * members registered with another router to that router, and returns the members of all routers in GET_MBRS,
+     * so a client only needs to connect to a single router. All routers of a federation need to be able to connect
+     * to each other, and should be started with an explicit bind address, as it is used to identify them.
+     * The address of this router itself can be included in the list; it is ignored.
+     */
+    public GossipRouter peerRouters(String hosts) throws UnknownHostException {
+        configured_routers.clear();
+        if(hosts != null)
+            configured_routers.addAll(Util.parseCommaDelimitedHosts(hosts, 0));
+        return this;
+    }
+
+    @ManagedAttribute(description="The other routers of the federation")
+    public String peerRouters() {
+        return routers.stream().map(Object::toString).collect(Collectors.joining(", "));
+    }
+
+    public boolean federated() {return !routers.isEmpty();}
 
 
 
@@ -199,11 +253,24 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
             diag.start();
         }
 
-        server=use_nio? new NioServer(thread_factory, socket_factory, bind_addr, port, port, null, 0, recv_buf_size)
-          : new TcpServer(thread_factory, socket_factory, bind_addr, port, port, null, 0, recv_buf_size);
+        if(use_nio) {
+            NioServer srv=new NioServer(thread_factory, socket_factory, bind_addr, port, port, null, 0, recv_buf_size);
+            srv.numSelectors(nio_selectors).maxPendingWriteBytes(max_pending_write_bytes).reuseRecvBuffers(!zero_copy);
+            server=srv;
+        }
+        else
+            server=new TcpServer(thread_factory, socket_factory, bind_addr, port, port, null, 0, recv_buf_size);
         server.receiver(this).setMaxLength(max_length);
         server.start();
         server.addConnectionListener(this);
+        configured_routers.remove(server.localAddress());
+        routers.addAll(configured_routers);
+        if(federation_sync_interval > 0) {
+            timer=new Timer("GossipRouter.federation", true);
+            timer.schedule(new TimerTask() {
+                public void run() {syncFederation();}
+            }, federation_sync_interval, federation_sync_interval);
+        }
         Runtime.getRuntime().addShutdownHook(new Thread(GossipRouter.this::stop));
         return this;
     }
@@ -222,6 +289,10 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
         catch(Exception ex) {
             log.error(Util.getMessage("MBeanDeRegistrationFailed"), ex);
         }
+        if(timer != null) {
+            timer.cancel();
+            timer=null;
+        }
         Util.close(diag, server);
         log.debug("router stopped");
     }
@@ -247,7 +318,10 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
                 Entry val2=entry2.getValue();
                 if(val2 == null)
                     continue;
-                sb.append(String.format("  %s: %s (client_addr: %s, uuid:%s)\n", val2.logical_name, val2.phys_addr, val2.client_addr, logical_addr));
+                if(val2.router != null)
+                    sb.append(String.format("  %s: %s (router: %s, uuid:%s)\n", val2.logical_name, val2.phys_addr, val2.router, logical_addr));
+                else
+                    sb.append(String.format("  %s: %s (client_addr: %s, uuid:%s)\n", val2.logical_name, val2.phys_addr, val2.client_addr, logical_addr));
             }
         }
         return sb.toString();
@@ -277,13 +351,17 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
                 break;
 
             case MESSAGE:
+            case PEER_MESSAGE:
                 // we already read the type, now read group and dest (minimal info required to route the message)
                 // this way, we don't need to copy the buffer
                 try {
                     in=new ByteArrayDataInputStream(buf);
                     String group=Bits.readString(in);
                     Address dest=Util.readAddress(in);
-                    route(group, dest, buf.position(original_pos));
+                    boolean forward=type == GossipType.MESSAGE;
+                    if(!forward) // clients only understand MESSAGE
+                        buf.put(original_pos, (byte)GossipType.MESSAGE.ordinal());
+                    route(group, dest, buf.position(original_pos), forward);
 
                     if(dump_msgs == DumpMessages.ALL) {
                         ByteArrayDataInputStream input=new ByteArrayDataInputStream(buf);
@@ -307,6 +385,11 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
                 in=new ByteArrayDataInputStream(buf);
                 handleUnregister(in);
                 break;
+
+            case PEER_REGISTER:
+            case PEER_UNREGISTER:
+                handlePeerRequest(new ByteArrayDataInputStream(buf), type);
+                break;
         }
     }
 
@@ -320,14 +403,16 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
                 break;
 
             case MESSAGE:
+            case PEER_MESSAGE:
                 try {
                     // inefficient: we should transfer bytes from input stream to output stream, but that is not
                     // available natively
                     if((request=readRequest(in, type)) != null) {
+                        request.type=GossipType.MESSAGE; // clients only understand MESSAGE
                         ByteArrayDataOutputStream out=getOutputStream(request.sender, request.serializedSize());
                         out.position(0);
                         request.writeTo(out);
-                        route(request.group, request.addr, out.buffer(), 0, out.position());
+                        route(request.group, request.addr, out.buffer(), 0, out.position(), type == GossipType.MESSAGE);
                         if(dump_msgs == DumpMessages.ALL)
                             dump(request);
                     }
@@ -345,6 +430,11 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
             case UNREGISTER:
                 handleUnregister(in);
                 break;
+
+            case PEER_REGISTER:
+            case PEER_UNREGISTER:
+                handlePeerRequest(in, type);
+                break;
         }
     }
 
@@ -409,6 +499,9 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
             PhysicalAddress phys_addr=req.getPhysicalAddress();
             String          logical_name=req.getLogicalName();
             addAddressMapping(sender, group, addr, phys_addr, logical_name);
+            if(federated())
+                sendToRouters(new GossipData(GossipType.PEER_REGISTER, group, null)
+                                .addPingData(new PingData(addr, true, logical_name, phys_addr)), true);
             if(log.isDebugEnabled())
                 log.debug("added %s (%s) to group %s", logical_name, phys_addr, group);
             if(dump_msgs == DumpMessages.REGISTRATION || dump_msgs == DumpMessages.ALL)
@@ -422,6 +515,32 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
             removeAddressMapping(req.getGroup(), req.getAddress());
     }
 
+    /** Handles registrations and unregistrations sent by another router of the federation */
+    protected void handlePeerRequest(DataInput in, GossipType type) {
+        GossipData req=readRequest(in, type);
+        if(req == null || req.getSender() == null)
+            return;
+        Address router=req.getSender();
+        if(type == GossipType.PEER_UNREGISTER) {
+            removeRemoteAddressMapping(req.getGroup(), req.getAddress(), router);
+            return;
+        }
+        if(routers.add(router))
+            log.debug("added router %s to the federation", router);
+        if(req.getPingData() == null)
+            return;
+        ConcurrentMap<Address,Entry> m=address_mappings.computeIfAbsent(req.getGroup(), g -> new ConcurrentHashMap<>());
+        for(PingData data: req.getPingData()) {
+            Entry e=m.get(data.getAddress());
+            if(e != null && e.router == null) // a local registration takes precedence over a remote one
+                continue;
+            if(e != null && router.equals(e.router))
+                e.timestamp=System.nanoTime();
+            else
+                m.put(data.getAddress(), new Entry(null, data.getPhysicalAddr(), data.getLogicalName()).router(router));
+        }
+    }
+
     protected void handleGetMembersRequest(Address sender, DataInput in) {
         GossipData req=readRequest(in, GossipType.GET_MBRS);
         if(req == null)
@@ -466,7 +585,11 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
 
     @Override
     public void connectionClosed(Connection conn) {
-        removeFromAddressMappings(conn.peerAddress());
+        Address peer=conn.peerAddress();
+        if(peer != null && routers.contains(peer))
+            removeRouter(peer);
+        else
+            removeFromAddressMappings(peer);
     }
 
     @Override
@@ -514,6 +637,8 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
         if(m == null)
             return;
         Entry e=m.get(addr);
+        if(e != null && e.router != null) // registered with a different router
+            return;
         if(e != null) {
             if(log.isDebugEnabled())
                 log.debug("removed %s (%s) from group %s", e.logical_name, e.phys_addr, group);
@@ -523,6 +648,18 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
         if(m.remove(addr) != null && m.isEmpty())
             address_mappings.remove(group);
         output_streams.remove(addr);
+        if(e != null && federated())
+            sendToRouters(new GossipData(GossipType.PEER_UNREGISTER, group, addr), true);
+    }
+
+    protected void removeRemoteAddressMapping(String group, Address addr, Address router) {
+        Map<Address,Entry> m=address_mappings.get(group);
+        Entry e=m != null? m.get(addr) : null;
+        if(e == null || !router.equals(e.router))
+            return;
+        if(m.remove(addr, e) && m.isEmpty())
+            address_mappings.remove(group);
+        log.debug("removed %s (%s) of router %s from group %s", e.logical_name, e.phys_addr, router, group);
     }
 
 
@@ -536,6 +673,8 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
                 if(client_addr.equals(e.client_addr)) {
                     map.remove(entry2.getKey());
                     output_streams.remove(entry2.getKey());
+                    if(federated())
+                        sendToRouters(new GossipData(GossipType.PEER_UNREGISTER, entry.getKey(), entry2.getKey()), true);
                     log.debug("connection to %s closed", client_addr);
                     if(log.isDebugEnabled())
                         log.debug("removed %s (%s) from group %s", e.logical_name, e.phys_addr, entry.getKey());
@@ -549,6 +688,10 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
                 }
             }
         }
+        sendSuspects(suspects);
+    }
+
+    protected void sendSuspects(Set<Tuple<String,Address>> suspects) {
         if(emit_suspect_events && suspects != null && !suspects.isEmpty()) {
            for(Tuple<String,Address> suspect: suspects) {
                String group=suspect.getVal1();
@@ -562,41 +705,177 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
         }
     }
 
+    /** Removes the members registered with router (e.g. when the connection to it was closed) and suspects them */
+    protected void removeRouter(Address router) {
+        if(!configured_routers.contains(router)) // configured routers are contacted again in the next sync
+            routers.remove(router);
+        sendSuspects(removeRemoteEntries(e -> router.equals(e.router)));
+    }
+
+    protected Set<Tuple<String,Address>> removeRemoteEntries(Predicate<Entry> filter) {
+        Set<Tuple<String,Address>> removed=null;
+        for(Map.Entry<String,ConcurrentMap<Address,Entry>> entry: address_mappings.entrySet()) {
+            ConcurrentMap<Address,Entry> map=entry.getValue();
+            for(Iterator<Map.Entry<Address,Entry>> it=map.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Address,Entry> entry2=it.next();
+                Entry e=entry2.getValue();
+                if(e.router != null && filter.test(e)) {
+                    it.remove();
+                    log.debug("removed %s (%s) of router %s from group %s", e.logical_name, e.phys_addr, e.router, entry.getKey());
+                    if(removed == null) removed=new HashSet<>();
+                    removed.add(new Tuple<>(entry.getKey(), entry2.getKey()));
+                }
+            }
+            if(map.isEmpty())
+                address_mappings.remove(entry.getKey());
+        }
+        return removed;
+    }
+
+    /**
+     * Sends the registrations of all local members to the other routers of the federation (one message per group)
+     * and removes remote registrations which have not been refreshed for 3 sync intervals
+     */
+    protected void syncFederation() {
+        if(!federated())
+            return;
+        for(Map.Entry<String,ConcurrentMap<Address,Entry>> entry: address_mappings.entrySet()) {
+            GossipData data=new GossipData(GossipType.PEER_REGISTER, entry.getKey(), null);
+            for(Map.Entry<Address,Entry> entry2: entry.getValue().entrySet()) {
+                Entry e=entry2.getValue();
+                if(e.router == null)
+                    data.addPingData(new PingData(entry2.getKey(), true, e.logical_name, e.phys_addr));
+            }
+            if(data.getPingData() != null)
+                sendToRouters(data, false);
+        }
+        long expired=System.nanoTime() - TimeUnit.NANOSECONDS.convert(federation_sync_interval * 3, TimeUnit.MILLISECONDS);
+        sendSuspects(removeRemoteEntries(e -> e.timestamp - expired < 0));
+    }
+
+    /**
+     * Sends a request to all other routers. If connected_only is true, routers to which no connection is established
+     * are skipped (they'll get the information with the next sync), so that a request from a client doesn't block on
+     * connecting to a router which is down
+     */
+    protected void sendToRouters(GossipData data, boolean connected_only) {
+        data.setSender(server.localAddress());
+        ByteArrayDataOutputStream out=new ByteArrayDataOutputStream(data.serializedSize());
+        try {
+            data.writeTo(out);
+        }
+        catch(Exception ex) {
+            log.error("failed marshalling gossip data %s: %s; dropping request", data, ex);
+            return;
+        }
+        for(Address router: routers) {
+            if(connected_only && !server.connectionEstablishedTo(router))
+                continue;
+            try {
+                server.send(router, out.buffer(), 0, out.position());
+            }
+            catch(Exception ex) {
+                log.debug("failed sending %s to router %s: %s", data.getType(), router, ex);
+            }
+        }
+    }
+
 
     protected void route(String group, Address dest, byte[] msg, int offset, int length) {
+        route(group, dest, msg, offset, length, true);
+    }
+
+    /**
+     * Routes a message to a member (dest != null) or all members of a group. Members registered with a different
+     * router are sent the message via that router (a PEER_MESSAGE), unless forward is false, which is the case
+     * for messages forwarded by another router.
+     */
+    protected void route(String group, Address dest, byte[] msg, int offset, int length, boolean forward) {
         ConcurrentMap<Address,Entry> map=address_mappings.get(group);
         if(map == null)
             return;
         if(dest != null) { // unicast
             Entry entry=map.get(dest);
-            if(entry != null)
-                sendToMember(entry.client_addr, msg, offset, length);
+            if(entry != null) {
+                if(entry.router == null)
+                    sendToMember(entry.client_addr, msg, offset, length);
+                else if(forward)
+                    sendToMember(entry.router, peerMessage(msg, offset, length), 0, length);
+            }
             else
                 log.warn("dest %s in cluster %s not found", dest, group);
         }
         else {             // multicast - send to all members in group
             Set<Map.Entry<Address,Entry>> dests=map.entrySet();
             sendToAllMembersInGroup(dests, msg, offset, length);
+            Set<Address> remote_routers=forward? routersOf(map) : null;
+            if(remote_routers != null) {
+                byte[] buf=peerMessage(msg, offset, length);
+                for(Address router: remote_routers)
+                    sendToMember(router, buf, 0, length);
+            }
         }
     }
 
     protected void route(String group, Address dest, ByteBuffer buf) {
+        route(group, dest, buf, true);
+    }
+
+    /** Same as {@link #route(String, Address, byte[], int, int, boolean)}, but with a ByteBuffer */
+    protected void route(String group, Address dest, ByteBuffer buf, boolean forward) {
         ConcurrentMap<Address,Entry> map=address_mappings.get(group);
         if(map == null)
             return;
+        if(zero_copy && use_nio) // buf is not reused by the server: share it, a partial write won't copy it
+            buf=buf.asReadOnlyBuffer();
         if(dest != null) { // unicast
             Entry entry=map.get(dest);
-            if(entry != null)
-                sendToMember(entry.client_addr, buf);
+            if(entry != null) {
+                if(entry.router == null)
+                    sendToMember(entry.client_addr, buf);
+                else if(forward)
+                    sendToMember(entry.router, peerMessage(buf));
+            }
             else
                 log.warn("dest %s in cluster %s not found", dest, group);
         }
         else {             // multicast - send to all members in group
             Set<Map.Entry<Address,Entry>> dests=map.entrySet();
+            Set<Address> remote_routers=forward? routersOf(map) : null;
+            ByteBuffer peer_msg=remote_routers != null? peerMessage(buf) : null; // before buf is consumed
             sendToAllMembersInGroup(dests, buf);
+            if(remote_routers != null)
+                for(Address router: remote_routers)
+                    sendToMember(router, peer_msg.duplicate());
         }
     }
 
+    /** Returns the routers with members in the given group, or null if there are none */
+    protected static Set<Address> routersOf(Map<Address,Entry> map) {
+        Set<Address> retval=null;
+        for(Entry e: map.values()) {
+            if(e.router != null) {
+                if(retval == null)
+                    retval=new HashSet<>();
+                retval.add(e.router);
+            }
+        }
+        return retval;
+    }
+
+    /** Copies a MESSAGE and changes its type to PEER_MESSAGE */
+    protected static byte[] peerMessage(byte[] msg, int offset, int length) {
+        byte[] retval=Arrays.copyOfRange(msg, offset, offset+length);
+        retval[0]=(byte)GossipType.PEER_MESSAGE.ordinal();
+        return retval;
+    }
+
+    protected static ByteBuffer peerMessage(ByteBuffer msg) {
+        ByteBuffer retval=ByteBuffer.allocate(msg.remaining()).put(msg.duplicate()); // msg may be read-only
+        retval.put(0, (byte)GossipType.PEER_MESSAGE.ordinal());
+        return retval.flip();
+    }
+
 
 
     protected void sendToAllMembersInGroup(Set<Map.Entry<Address,Entry>> dests, GossipData request) {
@@ -611,7 +890,7 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
 
         for(Map.Entry<Address,Entry> entry: dests) {
             Entry e=entry.getValue();
-            if(e == null /* || e.phys_addr == null */)
+            if(e == null || e.router != null /* || e.phys_addr == null */)
                 continue;
 
             try {
@@ -627,7 +906,7 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
     protected void sendToAllMembersInGroup(Set<Map.Entry<Address,Entry>> dests, byte[] buf, int offset, int len) {
         for(Map.Entry<Address,Entry> entry: dests) {
             Entry e=entry.getValue();
-            if(e == null /* || e.phys_addr == null */)
+            if(e == null || e.router != null /* || e.phys_addr == null */)
                 continue;
 
             try {
@@ -642,7 +921,7 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
     protected void sendToAllMembersInGroup(Set<Map.Entry<Address,Entry>> dests, ByteBuffer buf) {
         for(Map.Entry<Address,Entry> entry: dests) {
             Entry e=entry.getValue();
-            if(e == null /* || e.phys_addr == null */)
+            if(e == null || e.router != null /* || e.phys_addr == null */)
                 continue;
 
             try {
@@ -689,6 +968,8 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
         protected final PhysicalAddress phys_addr;
         protected final String          logical_name;
         protected final Address         client_addr; // address of the client which registered an item
+        protected Address               router;      // the router the member is registered with; null if local
+        protected volatile long         timestamp=System.nanoTime(); // last refresh of a remote entry
 
         public Entry(Address client_addr, PhysicalAddress phys_addr, String logical_name) {
             this.phys_addr=phys_addr;
@@ -696,7 +977,12 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
             this.client_addr=client_addr;
         }
 
-        public String toString() {return String.format("client=%s, name=%s, addr=%s", client_addr, logical_name, phys_addr);}
+        public Entry router(Address r) {this.router=r; return this;}
+
+        public String toString() {
+            return router != null? String.format("router=%s, name=%s, addr=%s", router, logical_name, phys_addr)
+              : String.format("client=%s, name=%s, addr=%s", client_addr, logical_name, phys_addr);
+        }
     }
 
 
@@ -720,10 +1006,11 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
 
     public static void main(String[] args) throws Exception {
         int                    port=12001;
-        int                    backlog=0, recv_buf_size=0, max_length=0;
+        int                    backlog=0, recv_buf_size=0, max_length=0, nio_selectors=0, max_pending_write_bytes=0;
         long                   soLinger=-1;
         long                   soTimeout=-1;
-        long                   expiry_time=60000;
+        long                   expiry_time=60000, federation_sync_interval=5000;
+        String                 peers=null;
         boolean                diag_enabled=true, diag_enable_udp=true, diag_enable_tcp=false;
         InetAddress            diag_mcast_addr=null, diag_bind_addr=null;
         int                    diag_port=7500, diag_port_range=50, diag_ttl=8;
@@ -745,7 +1032,7 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
         long start=System.currentTimeMillis();
         GossipRouter router;
         String bind_addr=null;
-        boolean jmx=false, nio=false, suspects=true;
+        boolean jmx=false, nio=false, zero_copy=false, suspects=true;
         DumpMessages dump_msgs = DumpMessages.NONE;
 
         for(int i=0; i < args.length; i++) {
@@ -786,6 +1073,26 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
                 nio=Boolean.parseBoolean(args[++i]);
                 continue;
             }
+            if("-nio_selectors".equals(arg)) {
+                nio_selectors=Integer.parseInt(args[++i]);
+                continue;
+            }
+            if("-max_pending_write_bytes".equals(arg)) {
+                max_pending_write_bytes=Integer.parseInt(args[++i]);
+                continue;
+            }
+            if("-peers".equals(arg)) {
+                peers=args[++i];
+                continue;
+            }
+            if("-federation_sync_interval".equals(arg)) {
+                federation_sync_interval=Long.parseLong(args[++i]);
+                continue;
+            }
+            if("-zero_copy".equals(arg)) {
+                zero_copy=Boolean.parseBoolean(args[++i]);
+                continue;
+            }
             if("-suspect".equals(arg)) {
                 suspects=Boolean.parseBoolean(args[++i]);
                 continue;
@@ -892,6 +1199,11 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
         router=new GossipRouter(bind_addr, port)
           .jmx(jmx).expiryTime(expiry_time)
           .useNio(nio)
+          .nioSelectors(nio_selectors)
+          .maxPendingWriteBytes(max_pending_write_bytes)
+          .zeroCopy(zero_copy)
+          .peerRouters(peers)
+          .federationSyncInterval(federation_sync_interval)
           .backlog(backlog)
           .recvBufferSize(recv_buf_size)
           .socketReadTimeout(soTimeout)
@@ -998,6 +1310,20 @@ public class GossipRouter extends ReceiverAdapter implements ConnectionListener,
         System.out.println();
         System.out.println("    -nio <true|false>       - Whether or not to use non-blocking connections (NIO)");
         System.out.println();
+        System.out.println("    -nio_selectors <num>    - Number of selector threads reading and writing client connections");
+        System.out.println("                              (NIO only). 0 uses a single thread.");
+        System.out.println();
+        System.out.println("    -max_pending_write_bytes <bytes> - Max bytes pending to a client before senders");
+        System.out.println("                              are blocked (NIO only). 0 drops messages instead.");
+        System.out.println();
+        System.out.println("    -zero_copy <true|false> - Forward messages without copying them (NIO only)");
+        System.out.println();
+        System.out.println("    -peers <hosts>          - The other routers of a federation, e.g. host1[12001],host2[12001].");
+        System.out.println("                              Clients then need to connect to only one of the routers.");
+        System.out.println();
+        System.out.println("    -federation_sync_interval <msecs> - Interval at which registrations are sent to");
+        System.out.println("                              the other routers of the federation");
+        System.out.println();
         System.out.println("    -max_length <bytes>     - The max size (in bytes) of a message");
         System.out.println();
         System.out.println("    -suspect <true|false>   - Whether or not to use send SUSPECT events when a conn is closed");
@@ -11,5 +11,9 @@ public enum GossipType {
     GET_MBRS,
     GET_MBRS_RSP,
     MESSAGE,
-    SUSPECT
+    SUSPECT,
+    // exchanged between federated GossipRouters:
+    PEER_REGISTER,   // registrations of members connected to the sending router
+    PEER_UNREGISTER, // a member was unregistered from the sending router
+    PEER_MESSAGE     // a MESSAGE forwarded by another router, to be delivered to local members only
 }
@@ -1,9 +1,12 @@
 package org.jgroups.stack;
 
+import org.jgroups.Address;
 import org.jgroups.Message;
 import org.jgroups.protocols.TP;
 import org.jgroups.util.MessageBatch;
 
+import java.util.List;
+
 /**
  * Policy which decides how to process a received message or message batch. Example: pass the message or batch to
  * the thread pool (default impl), or pass only one (unicast and mulicast) message per sender to the thread pool at a
@@ -16,12 +19,18 @@ public interface MessageProcessingPolicy {
         message counters etc */
     void init(TP transport);
 
+    /** Called when the transport is started (also after a restart, e.g. on a reconnect) */
+    default void start() {}
+
     /** To reset stats */
     default void reset() {}
 
     /** Called before the transport is stopped */
     default void destroy() {}
 
+    /** Called by the transport when a new view is installed, e.g. to remove state for senders which left */
+    default void viewChange(List<Address> members) {}
+
     /**
      * Process a message that was not received from the transport but from above (e.g. the channel or a protocol), and
      * needs to be looped back up because (1) the destination address is null (every multicast message is looped back)
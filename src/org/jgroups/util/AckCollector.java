@@ -61,6 +61,11 @@ public class AckCollector {
         return missing_acks.size();
     }
 
+    /** Returns true if an ACK from member is still missing */
+    public synchronized boolean isMissing(Address member) {
+        return missing_acks.contains(member);
+    }
+
     public synchronized int expectedAcks() {
         return missing_acks.size();
     }
@@ -0,0 +1,294 @@
+package org.jgroups.util;
+
+import org.jgroups.Address;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Maps addresses to values, e.g. logical to physical addresses. The members of the current view are kept in an array
+ * indexed by their rank in the view, and are found via an index (open addressing), so a lookup is lock-free and
+ * allocates nothing. Addresses which are not members (e.g. members which left, or addresses added by discovery before
+ * they joined) are kept in an overflow map.<p/>
+ * Non-members are marked as <em>removable</em> on a view change, and members are marked as removable when they're
+ * removed. Removable entries are kept until they have expired and are then removed on the next view change, when the
+ * overflow map exceeds its max size, or when {@link #removeMarkedElements(boolean)} is called, so a reaper task
+ * periodically scanning the entries is not needed. If a removable entry is re-added, the mark is removed.<p/>
+ * Reads are lock-free; updates are synchronized.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public class AddressRegistry<V> {
+    protected volatile Members<V>                   members=new Members<>(new Address[0]);
+    protected final ConcurrentMap<Address,Entry<V>> overflow=Util.createConcurrentMap();
+    protected final int                             max_size; // max number of non-members
+    protected final long                            max_age;  // ns
+
+    /**
+     * Creates a new instance
+     * @param max_size The max number of non-members; if exceeded, expired removable entries are removed
+     * @param max_age The time (in ms) after which a removable entry expires
+     */
+    public AddressRegistry(int max_size, long max_age) {
+        this.max_size=max_size;
+        this.max_age=TimeUnit.NANOSECONDS.convert(max_age, TimeUnit.MILLISECONDS);
+    }
+
+    /** Adds or replaces a mapping. Returns true if the address was not present, false otherwise */
+    public boolean add(Address addr, V val) {
+        return add(addr, val, false);
+    }
+
+    /**
+     * Adds a mapping if the address is not present. Returns true if added, false otherwise. If the address is a
+     * member whose entry was marked as removable, the existing mapping is kept, but the mark is removed
+     */
+    public boolean addIfAbsent(Address addr, V val) {
+        return add(addr, val, true);
+    }
+
+    public V get(Address addr) {
+        if(addr == null)
+            return null;
+        Members<V> m=members;
+        int rank=m.rank(addr);
+        V val;
+        if(rank >= 0 && (val=m.values.get(rank)) != null)
+            return val;
+        Entry<V> entry=overflow.get(addr);
+        return entry != null? entry.val : null;
+    }
+
+    public boolean containsKey(Address addr) {
+        return get(addr) != null;
+    }
+
+    /** Marks the entry for addr as removable; it is removed when it has expired */
+    public synchronized void remove(Address addr) {
+        if(addr == null)
+            return;
+        Members<V> m=members;
+        int rank=m.rank(addr);
+        V val=rank >= 0? m.values.get(rank) : null;
+        if(val != null) {
+            overflow.put(addr, new Entry<>(val).setRemovable(true)); // add first, so that readers always find addr
+            m.values.set(rank, null);
+        }
+        else {
+            Entry<V> entry=overflow.get(addr);
+            if(entry != null)
+                entry.setRemovable(true);
+        }
+    }
+
+    /**
+     * Installs a new view: the mappings of new members are moved into the members array and the ones of left members
+     * into the overflow map. All non-members are marked as removable, and expired entries are removed.
+     */
+    public synchronized void viewChange(Collection<Address> mbrs) {
+        if(mbrs == null)
+            return;
+        Members<V> old=members, m=new Members<>(mbrs.toArray(new Address[0]));
+        for(int i=0; i < m.addrs.length; i++) {
+            Address addr=m.addrs[i];
+            int rank=old.rank(addr);
+            V val=rank >= 0? old.values.get(rank) : null;
+            if(val == null) {
+                Entry<V> entry=overflow.get(addr);
+                val=entry != null? entry.val : null;
+            }
+            m.values.set(i, val);
+        }
+        for(int i=0; i < old.addrs.length; i++) {
+            V val=old.values.get(i);
+            if(val != null && m.rank(old.addrs[i]) < 0)
+                overflow.put(old.addrs[i], new Entry<>(val));
+        }
+        members=m;
+        for(Address addr: m.addrs)
+            overflow.remove(addr);
+        for(Entry<V> entry: overflow.values())
+            entry.setRemovable(true);
+        removeMarkedElements(false);
+    }
+
+    /** Removes all entries */
+    public synchronized void clear() {
+        Members<V> m=members;
+        for(int i=0; i < m.addrs.length; i++)
+            m.values.set(i, null);
+        overflow.clear();
+    }
+
+    /**
+     * Removes the entries marked as removable
+     * @param force If true, all removable entries are removed, regardless of expiration
+     */
+    public synchronized void removeMarkedElements(boolean force) {
+        long now=System.nanoTime();
+        overflow.values().removeIf(e -> e.removable && (force || now - e.timestamp >= max_age));
+    }
+
+    /** Returns the values of all entries which are not marked as removable */
+    public Set<V> nonRemovedValues() {
+        Set<V> retval=new HashSet<>();
+        Members<V> m=members;
+        for(int i=0; i < m.addrs.length; i++) {
+            V val=m.values.get(i);
+            if(val != null)
+                retval.add(val);
+        }
+        for(Entry<V> entry: overflow.values())
+            if(!entry.removable)
+                retval.add(entry.val);
+        return retval;
+    }
+
+    /** Returns all addresses which have a mapping */
+    public Set<Address> keySet() {
+        return contents(false).keySet();
+    }
+
+    /** Returns a <em>copy</em> of the contents, optionally without the entries marked as removable */
+    public Map<Address,V> contents(boolean skip_removed_values) {
+        Map<Address,V> retval=new HashMap<>();
+        Members<V> m=members;
+        for(int i=0; i < m.addrs.length; i++) {
+            V val=m.values.get(i);
+            if(val != null)
+                retval.put(m.addrs[i], val);
+        }
+        for(Map.Entry<Address,Entry<V>> e: overflow.entrySet()) {
+            Entry<V> entry=e.getValue();
+            if(!skip_removed_values || !entry.removable)
+                retval.putIfAbsent(e.getKey(), entry.val);
+        }
+        return retval;
+    }
+
+    /** Returns the number of mappings */
+    public int size() {
+        Members<V> m=members;
+        int num=0;
+        for(int i=0; i < m.addrs.length; i++)
+            if(m.values.get(i) != null)
+                num++;
+        return num + overflow.size();
+    }
+
+    /** Returns the number of non-members */
+    public int overflowSize() {return overflow.size();}
+
+    /**
+     * Prints all entries, one per line. Members are listed first (by rank), followed by non-members, which also
+     * show whether they're removable and their age
+     */
+    public String printCache(Function<Address,String> print_addr, Function<V,String> print_val) {
+        StringBuilder sb=new StringBuilder();
+        Members<V> m=members;
+        for(int i=0; i < m.addrs.length; i++) {
+            V val=m.values.get(i);
+            if(val != null)
+                sb.append(print_addr.apply(m.addrs[i])).append(": ").append(print_val.apply(val)).append("\n");
+        }
+        for(Map.Entry<Address,Entry<V>> e: overflow.entrySet())
+            sb.append(print_addr.apply(e.getKey())).append(": ").append(e.getValue().toString(print_val)).append("\n");
+        return sb.toString();
+    }
+
+    public String toString() {
+        return printCache(Objects::toString, Objects::toString);
+    }
+
+    protected synchronized boolean add(Address addr, V val, boolean if_absent) {
+        if(addr == null || val == null)
+            return false;
+        Members<V> m=members;
+        int rank=m.rank(addr);
+        if(rank >= 0) {
+            V prev=m.values.get(rank);
+            if(prev != null) {
+                if(!if_absent)
+                    m.values.set(rank, val);
+                return false;
+            }
+            // a member which is absent, or which was removed (marked as removable in the overflow map)
+            Entry<V> removed=overflow.get(addr);
+            m.values.set(rank, if_absent && removed != null? removed.val : val); // set first: readers always find addr
+            if(removed != null)
+                overflow.remove(addr);
+            return removed == null;
+        }
+        Entry<V> entry=new Entry<>(val);
+        boolean added=if_absent? overflow.putIfAbsent(addr, entry) == null : overflow.put(addr, entry) == null;
+        if(added && overflow.size() > max_size)
+            removeMarkedElements(false);
+        return added;
+    }
+
+    protected static int hash(Address addr) {
+        int h=addr.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+
+    /** An immutable view of the members and their ranks; only the values can change */
+    protected static class Members<V> {
+        protected final Address[]               addrs;  // indexed by rank
+        protected final AtomicReferenceArray<V> values; // indexed by rank
+        protected final int[]                   index;  // rank+1 of the member hashed to a slot, 0 if empty
+
+        protected Members(Address[] addrs) {
+            this.addrs=addrs;
+            this.values=new AtomicReferenceArray<>(addrs.length);
+            this.index=new int[Util.getNextHigherPowerOfTwo(Math.max(addrs.length * 2, 2))];
+            int mask=index.length-1;
+            for(int i=0; i < addrs.length; i++) {
+                int slot=hash(addrs[i]) & mask;
+                while(index[slot] != 0)
+                    slot=(slot+1) & mask;
+                index[slot]=i+1;
+            }
+        }
+
+        /** Returns the rank of addr, or -1 if not a member */
+        protected int rank(Address addr) {
+            int mask=index.length-1;
+            for(int slot=hash(addr) & mask, r; (r=index[slot]) != 0; slot=(slot+1) & mask) {
+                if(addrs[r-1].equals(addr))
+                    return r-1;
+            }
+            return -1;
+        }
+    }
+
+
+    /** A non-member */
+    protected static class Entry<V> {
+        protected final V        val;
+        protected volatile long  timestamp=System.nanoTime();
+        protected volatile boolean removable;
+
+        protected Entry(V val) {
+            this.val=val;
+        }
+
+        protected Entry<V> setRemovable(boolean flag) {
+            if(removable != flag) {
+                removable=flag;
+                timestamp=System.nanoTime();
+            }
+            return this;
+        }
+
+        protected String toString(Function<V,String> print_val) {
+            long age=TimeUnit.MILLISECONDS.convert(System.nanoTime() - timestamp, TimeUnit.NANOSECONDS);
+            return String.format("%s (%s old%s)", print_val.apply(val),
+                                 age < 1000? age + " ms" : TimeUnit.MILLISECONDS.toSeconds(age) + " secs",
+                                 removable? ", removable" : "");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.jgroups.util;
+
+import org.jgroups.Address;
+
+/**
+ * Per-thread stack of reusable {@link MessageBatch}es. Protocols use them to collect messages removed from a batch,
+ * or messages to be delivered, without allocating a new batch (plus lists or tuples) for every batch they process.<p/>
+ * A batch is acquired with {@link #acquire(Address,Address,AsciiString,boolean,MessageBatch.Mode,int)} and must be
+ * released with {@link #release(MessageBatch)} (in a finally clause) before the calling method returns. Batches are
+ * released in reverse order of acquisition: passing a batch up the stack may make the same thread acquire another
+ * batch further up, so every thread has a stack of {@link #MAX_DEPTH} batches. Deeper nesting allocates new batches,
+ * which are not pooled.<p/>
+ * A pooled batch must not be referenced after it has been released.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public final class BatchPool {
+    /** The max number of batches acquired (and not yet released) by the same thread */
+    public static final int                      MAX_DEPTH=8;
+    /** Batches whose capacity grew beyond this are not pooled, so that a large batch doesn't hog memory */
+    public static final int                      MAX_CAPACITY=2048;
+    protected static final int                   INITIAL_CAPACITY=16;
+    protected static final ThreadLocal<BatchPool> POOL=ThreadLocal.withInitial(BatchPool::new);
+
+    protected final MessageBatch[] batches=new MessageBatch[MAX_DEPTH];
+    protected int                  depth; // the number of acquired batches
+
+    private BatchPool() {
+    }
+
+    /**
+     * Returns an empty batch from the pool of the current thread
+     * @param capacity The expected number of messages; the batch is resized if its capacity is smaller
+     * @return The batch; must be released with {@link #release(MessageBatch)}
+     */
+    public static MessageBatch acquire(Address dest, Address sender, AsciiString cluster_name, boolean multicast,
+                                       MessageBatch.Mode mode, int capacity) {
+        BatchPool pool=POOL.get();
+        MessageBatch batch;
+        if(pool.depth < MAX_DEPTH) {
+            if((batch=pool.batches[pool.depth]) == null)
+                batch=pool.batches[pool.depth]=new MessageBatch(Math.max(INITIAL_CAPACITY, capacity));
+            else if(batch.capacity() < capacity)
+                batch.resize(capacity);
+            pool.depth++;
+        }
+        else
+            batch=new MessageBatch(Math.max(INITIAL_CAPACITY, capacity));
+        return batch.dest(dest).sender(sender).clusterName(cluster_name).multicast(multicast).mode(mode);
+    }
+
+    /**
+     * Clears a batch acquired with {@link #acquire(Address,Address,AsciiString,boolean,MessageBatch.Mode,int)}
+     * and returns it to the pool. Batches which were not pooled are ignored
+     */
+    public static void release(MessageBatch batch) {
+        if(batch == null)
+            return;
+        BatchPool pool=POOL.get();
+        int idx=pool.depth-1;
+        if(idx < 0 || pool.batches[idx] != batch)
+            return;
+        batch.clear().dest(null).sender(null).clusterName(null);
+        if(batch.capacity() > MAX_CAPACITY)
+            pool.batches[idx]=null;
+        pool.depth=idx;
+    }
+
+    /** Returns the number of batches acquired by the current thread and not yet released */
+    public static int depth() {
+        return POOL.get().depth;
+    }
+}
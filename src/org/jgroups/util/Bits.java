@@ -77,6 +77,36 @@ public final class Bits {
         return (short)((a << 8) | (b & 0xff));
     }
 
+    /**
+     * Writes a short as an unsigned variable-length value: 7 bits per byte, with the high bit set when more bytes
+     * follow. Values below 128 take 1 byte, values below 16384 take 2 bytes and all others 3 bytes
+     */
+    public static void writeShortCompressed(short s, DataOutput out) throws IOException {
+        int num=s & 0xffff;
+        while((num & ~0x7f) != 0) {
+            out.write((num & 0x7f) | 0x80);
+            num>>>=7;
+        }
+        out.write(num);
+    }
+
+    public static short readShortCompressed(DataInput in) throws IOException {
+        int retval=0;
+        for(int shift=0; shift < Short.SIZE + 7; shift+=7) {
+            int b=in.readUnsignedByte();
+            retval|=(b & 0x7f) << shift;
+            if((b & 0x80) == 0)
+                return (short)retval;
+        }
+        throw new IOException("malformed compressed short");
+    }
+
+    /** Returns the number of bytes needed to write s with {@link #writeShortCompressed(short, DataOutput)} */
+    public static int compressedSize(short s) {
+        int num=s & 0xffff;
+        return num < 1 << 7? 1 : num < 1 << 14? 2 : 3;
+    }
+
     // --------------------- int ------------------------ //
 
     public static void writeInt(int num, byte[] buf, int offset) {
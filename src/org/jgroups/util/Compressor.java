@@ -0,0 +1,31 @@
+package org.jgroups.util;
+
+/**
+ * Compresses and uncompresses byte arrays, e.g. in {@link org.jgroups.protocols.COMPRESS}. Implementations don't need
+ * to be thread-safe; callers keep a pool of instances.<p/>
+ * A dictionary (e.g. trained from typical messages) can be set; the same dictionary has to be set in all instances
+ * that uncompress data compressed with it.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public interface Compressor {
+
+    /** Sets a dictionary (preset data) which improves compression of small, similar messages */
+    Compressor dictionary(byte[] dict);
+
+    /**
+     * Compresses buf[offset .. offset+length-1] into out, starting at out_offset
+     * @return The number of bytes written to out, or -1 if the compressed data doesn't fit into out
+     */
+    int compress(byte[] buf, int offset, int length, byte[] out, int out_offset) throws Exception;
+
+    /**
+     * Uncompresses buf[offset .. offset+length-1] into out, starting at out_offset
+     * @param original_length The length of the uncompressed data
+     * @return The number of bytes written to out
+     */
+    int uncompress(byte[] buf, int offset, int length, byte[] out, int out_offset, int original_length) throws Exception;
+
+    /** Releases resources, e.g. native memory */
+    default void close() {}
+}
@@ -0,0 +1,62 @@
+package org.jgroups.util;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link Compressor} based on {@link Deflater} and {@link Inflater}
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public class DeflateCompressor implements Compressor {
+    protected final Deflater deflater;
+    protected final Inflater inflater=new Inflater();
+    protected byte[]         dictionary;
+
+    public DeflateCompressor() {
+        this(Deflater.BEST_COMPRESSION);
+    }
+
+    public DeflateCompressor(int level) {
+        deflater=new Deflater(level);
+    }
+
+    public DeflateCompressor dictionary(byte[] dict) {
+        this.dictionary=dict;
+        return this;
+    }
+
+    public int compress(byte[] buf, int offset, int length, byte[] out, int out_offset) {
+        deflater.reset();
+        if(dictionary != null)
+            deflater.setDictionary(dictionary);
+        deflater.setInput(buf, offset, length);
+        deflater.finish();
+        int size=deflater.deflate(out, out_offset, out.length - out_offset);
+        return deflater.finished()? size : -1;
+    }
+
+    public int uncompress(byte[] buf, int offset, int length, byte[] out, int out_offset, int original_length)
+      throws DataFormatException {
+        inflater.reset();
+        inflater.setInput(buf, offset, length);
+        int size=inflater.inflate(out, out_offset, original_length);
+        if(size == 0 && inflater.needsDictionary()) {
+            if(dictionary == null)
+                throw new DataFormatException("data was compressed with a dictionary, but no dictionary is set");
+            inflater.setDictionary(dictionary);
+            size=inflater.inflate(out, out_offset, original_length);
+        }
+        return size;
+    }
+
+    public void close() {
+        deflater.end();
+        inflater.end();
+    }
+
+    public String toString() {
+        return String.format("deflate%s", dictionary != null? " (dictionary: " + dictionary.length + " bytes)" : "");
+    }
+}
@@ -3,6 +3,7 @@ package org.jgroups.util;
 import org.jgroups.Address;
 import org.jgroups.Constructable;
 import org.jgroups.Global;
+import org.jgroups.View;
 import org.jgroups.annotations.Immutable;
 
 import java.io.DataInput;
@@ -158,11 +159,41 @@ public class Digest implements SizeStreamable, Iterable<Digest.Entry>, Construct
             Bits.writeLongSequence(seqnos[i * 2], seqnos[i * 2 +1], out);
     }
 
+    /**
+     * Writes the digest, referring to members by their index in ref_view rather than by address. Members not in
+     * ref_view are written in full. Used when the digest is shipped together with a view whose membership is not
+     * identical, e.g. a MergeView. An index is written as a compressed int of index+1; 0 means that the address follows
+     */
+    public void writeTo(DataOutput out, View ref_view) throws IOException {
+        out.writeShort(members.length);
+        for(Address mbr: members) {
+            int index=ref_view.indexOf(mbr);
+            Bits.writeIntCompressed(index+1, out);
+            if(index < 0)
+                Util.writeAddress(mbr, out);
+        }
+        for(int i=0; i < capacity(); i++)
+            Bits.writeLongSequence(seqnos[i * 2], seqnos[i * 2 +1], out);
+    }
+
     @Override
     public void readFrom(DataInput in) throws IOException, ClassNotFoundException {
         readFrom(in, true);
     }
 
+    /** Reads a digest written with {@link #writeTo(DataOutput, View)} */
+    public void readFrom(DataInput in, View ref_view) throws IOException, ClassNotFoundException {
+        Address[] ref_mbrs=ref_view.getMembersRaw();
+        members=new Address[in.readShort()];
+        for(int i=0; i < members.length; i++) {
+            int index=Bits.readIntCompressed(in) - 1;
+            members[i]=index >= 0? ref_mbrs[index] : Util.readAddress(in);
+        }
+        seqnos=new long[members.length * 2];
+        for(int i=0; i < members.length; i++)
+            Bits.readLongSequence(in, seqnos, i*2);
+    }
+
     public void readFrom(DataInput in, boolean read_addrs) throws IOException, ClassNotFoundException {
         if(read_addrs) {
             members=Util.readAddresses(in);
@@ -188,6 +219,18 @@ public class Digest implements SizeStreamable, Iterable<Digest.Entry>, Construct
     }
 
 
+    public long serializedSize(View ref_view) {
+        long retval=Global.SHORT_SIZE;
+        for(int i=0; i < members.length; i++) {
+            int index=ref_view.indexOf(members[i]);
+            retval+=Bits.size(index+1) + Bits.size(seqnos[i*2], seqnos[i*2+1]);
+            if(index < 0)
+                retval+=Util.size(members[i]);
+        }
+        return retval;
+    }
+
+
     public String toString() {
         return toString(members, true);
     }
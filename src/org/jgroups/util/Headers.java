@@ -155,13 +155,19 @@ public final class Headers {
     }
 
     public static int marshalledSize(final Header[] hdrs) {
+        return marshalledSize(hdrs, false);
+    }
+
+    /** The marshalled size of the headers; if compact is true, protocol IDs and magic numbers are compressed */
+    public static int marshalledSize(final Header[] hdrs, boolean compact) {
         int retval=0;
         if(hdrs == null)
             return retval;
         for(Header hdr: hdrs) {
             if(hdr == null)
                 break;
-            retval+=Global.SHORT_SIZE *2;    // for protocol ID and magic number
+            retval+=compact? Bits.compressedSize(hdr.getProtId()) + Bits.compressedSize(hdr.getMagicId())
+              : Global.SHORT_SIZE *2;    // for protocol ID and magic number
             retval+=hdr.serializedSize();
         }
         return retval;
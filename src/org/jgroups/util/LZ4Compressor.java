@@ -0,0 +1,203 @@
+package org.jgroups.util;
+
+import java.util.Arrays;
+
+/**
+ * Pure-Java {@link Compressor} producing the LZ4 block format. It trades compression ratio for speed: compression
+ * uses a single hash probe per position and no entropy coding, which makes it much faster than deflate for
+ * small and medium-sized messages.<p/>
+ * If a dictionary is set, matches can refer to the (last 64KB of the) dictionary, as if it preceded the data.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public class LZ4Compressor implements Compressor {
+    protected static final int MIN_MATCH=4, ML_BITS=4, RUN_MASK=(1 << (8 - ML_BITS)) - 1, ML_MASK=(1 << ML_BITS) - 1;
+    protected static final int LAST_LITERALS=5, MF_LIMIT=12, MAX_DISTANCE=(1 << 16) - 1;
+    protected static final int HASH_LOG=12, HASH_SIZE=1 << HASH_LOG;
+
+    protected final int[] table=new int[HASH_SIZE]; // hash of 4 bytes -> position
+    protected byte[]      dictionary;
+    protected int[]       dict_table;               // the table after hashing the dictionary
+    protected byte[]      window=new byte[0];       // dictionary + data, only used with a dictionary
+
+    public LZ4Compressor dictionary(byte[] dict) {
+        if(dict != null && dict.length > MAX_DISTANCE)
+            dict=Arrays.copyOfRange(dict, dict.length - MAX_DISTANCE, dict.length);
+        this.dictionary=dict;
+        if(dict == null) {
+            dict_table=null;
+            return this;
+        }
+        dict_table=new int[HASH_SIZE];
+        Arrays.fill(dict_table, -1);
+        for(int i=0; i + MIN_MATCH <= dict.length; i++)
+            dict_table[hash(readInt(dict, i))]=i;
+        return this;
+    }
+
+    /** The max size of the compressed data for an input of the given length */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    public int compress(byte[] buf, int offset, int length, byte[] out, int out_offset) {
+        byte[] src=buf;
+        int start=offset, low=offset;
+        if(dictionary != null) {
+            int dict_len=dictionary.length;
+            if(window.length < dict_len + length)
+                window=new byte[dict_len + length];
+            System.arraycopy(dictionary, 0, window, 0, dict_len);
+            System.arraycopy(buf, offset, window, dict_len, length);
+            src=window;
+            start=dict_len;
+            low=0;
+            System.arraycopy(dict_table, 0, table, 0, HASH_SIZE);
+        }
+        else
+            Arrays.fill(table, -1);
+
+        final int end=start + length, mf_limit=end - MF_LIMIT, match_limit=end - LAST_LITERALS, out_end=out.length;
+        int anchor=start, pos=start, op=out_offset;
+
+        if(length >= MF_LIMIT + 1) {
+            while(pos < mf_limit) {
+                int seq=readInt(src, pos), h=hash(seq), ref=table[h];
+                table[h]=pos;
+                if(ref < low || pos - ref > MAX_DISTANCE || readInt(src, ref) != seq) {
+                    pos++;
+                    continue;
+                }
+                // extend the match backwards and forwards
+                while(pos > anchor && ref > low && src[pos-1] == src[ref-1]) {
+                    pos--; ref--;
+                }
+                int match_len=MIN_MATCH;
+                while(pos + match_len < match_limit && src[pos + match_len] == src[ref + match_len])
+                    match_len++;
+                if((op=writeSequence(src, anchor, pos - anchor, pos - ref, match_len, out, op, out_end)) < 0)
+                    return -1;
+                pos+=match_len;
+                anchor=pos;
+                if(pos < mf_limit)
+                    table[hash(readInt(src, pos-2))]=pos-2;
+            }
+        }
+        if((op=writeSequence(src, anchor, end - anchor, 0, 0, out, op, out_end)) < 0)
+            return -1;
+        return op - out_offset;
+    }
+
+    public int uncompress(byte[] buf, int offset, int length, byte[] out, int out_offset, int original_length) {
+        final int end=offset + length, out_end=out_offset + original_length;
+        int pos=offset, op=out_offset;
+        while(pos < end) {
+            int token=buf[pos++] & 0xff;
+            int literals=token >>> ML_BITS;
+            if(literals == RUN_MASK) {
+                int b;
+                do {
+                    b=buf[pos++] & 0xff;
+                    literals+=b;
+                }
+                while(b == 255);
+            }
+            if(op + literals > out_end || pos + literals > end)
+                throw new IllegalArgumentException("malformed input: literals exceed the input or output buffer");
+            System.arraycopy(buf, pos, out, op, literals);
+            pos+=literals;
+            op+=literals;
+            if(pos >= end) // the last sequence has only literals
+                break;
+
+            int distance=(buf[pos] & 0xff) | (buf[pos+1] & 0xff) << 8;
+            pos+=2;
+            int match_len=token & ML_MASK;
+            if(match_len == ML_MASK) {
+                int b;
+                do {
+                    b=buf[pos++] & 0xff;
+                    match_len+=b;
+                }
+                while(b == 255);
+            }
+            match_len+=MIN_MATCH;
+            if(distance == 0 || op + match_len > out_end)
+                throw new IllegalArgumentException("malformed input: invalid match");
+            int ref=op - distance;
+            if(ref < out_offset) { // the match starts in the dictionary
+                int dict_pos=dictionary != null? dictionary.length - (out_offset - ref) : -1;
+                if(dict_pos < 0)
+                    throw new IllegalArgumentException("malformed input: match refers to data before the output");
+                int from_dict=Math.min(match_len, dictionary.length - dict_pos);
+                System.arraycopy(dictionary, dict_pos, out, op, from_dict);
+                op+=from_dict;
+                match_len-=from_dict;
+                ref=out_offset;
+            }
+            if(op - ref >= match_len) {
+                System.arraycopy(out, ref, out, op, match_len);
+                op+=match_len;
+            }
+            else { // overlapping copy
+                for(int i=0; i < match_len; i++)
+                    out[op++]=out[ref++];
+            }
+        }
+        if(op != out_end)
+            throw new IllegalArgumentException(String.format("malformed input: uncompressed %d bytes, expected %d",
+                                                             op - out_offset, original_length));
+        return original_length;
+    }
+
+    public String toString() {
+        return String.format("lz4%s", dictionary != null? " (dictionary: " + dictionary.length + " bytes)" : "");
+    }
+
+    /** Writes a sequence of literals and a match (if match_len > 0). Returns the new position, or -1 on overflow */
+    protected static int writeSequence(byte[] src, int literal_start, int literals, int distance, int match_len,
+                                       byte[] out, int op, int out_end) {
+        if(op + 1 + literals + literals / 255 + 1 + (match_len > 0? 2 + match_len / 255 + 1 : 0) > out_end)
+            return -1;
+        int token_pos=op++;
+        int token;
+        if(literals >= RUN_MASK) {
+            token=RUN_MASK << ML_BITS;
+            op=writeLength(literals - RUN_MASK, out, op);
+        }
+        else
+            token=literals << ML_BITS;
+        System.arraycopy(src, literal_start, out, op, literals);
+        op+=literals;
+        if(match_len > 0) {
+            out[op++]=(byte)distance;
+            out[op++]=(byte)(distance >>> 8);
+            int len=match_len - MIN_MATCH;
+            if(len >= ML_MASK) {
+                token|=ML_MASK;
+                op=writeLength(len - ML_MASK, out, op);
+            }
+            else
+                token|=len;
+        }
+        out[token_pos]=(byte)token;
+        return op;
+    }
+
+    protected static int writeLength(int len, byte[] out, int op) {
+        while(len >= 255) {
+            out[op++]=(byte)255;
+            len-=255;
+        }
+        out[op++]=(byte)len;
+        return op;
+    }
+
+    protected static int readInt(byte[] buf, int pos) {
+        return (buf[pos] & 0xff) | (buf[pos+1] & 0xff) << 8 | (buf[pos+2] & 0xff) << 16 | (buf[pos+3] & 0xff) << 24;
+    }
+
+    protected static int hash(int seq) {
+        return (seq * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
@@ -0,0 +1,154 @@
+package org.jgroups.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A hashmap with object keys and primitive long values, e.g. for per-member seqnos. Keys and values are stored in
+ * two arrays (open addressing with linear probing), so - contrary to a {@code Map<K,Long>} - adding or changing a
+ * mapping allocates neither a {@link Long} nor a map entry.<p/>
+ * Keys have to be non-null. This class is synchronized.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public class ObjectLongMap<K> {
+    protected Object[] keys;
+    protected long[]   values;
+    protected int      size;
+
+    public ObjectLongMap() {
+        this(8);
+    }
+
+    /**
+     * Creates an instance
+     * @param capacity The expected number of keys; the map is resized when more keys are added
+     */
+    public ObjectLongMap(int capacity) {
+        int len=Util.getNextHigherPowerOfTwo(Math.max(Util.nonNegativeValue(capacity) * 2, 2));
+        keys=new Object[len];
+        values=new long[len];
+    }
+
+    public synchronized int     size()              {return size;}
+    public synchronized boolean isEmpty()           {return size == 0;}
+    public synchronized int     getCapacity()       {return keys.length;}
+    public synchronized boolean containsKey(K key)  {return indexOf(key) >= 0;}
+
+    /** Returns the value associated with key, or default_value if key is not found */
+    public synchronized long get(K key, long default_value) {
+        int index=indexOf(key);
+        return index >= 0? values[index] : default_value;
+    }
+
+    /** Adds a new mapping, or changes the value of an existing mapping */
+    public synchronized ObjectLongMap<K> put(K key, long value) {
+        int index=slot(Objects.requireNonNull(key));
+        values[index]=value;
+        if(keys[index] == null) {
+            keys[index]=key;
+            if(++size * 2 > keys.length) // load factor of 0.5
+                resize(keys.length * 2);
+        }
+        return this;
+    }
+
+    /** Removes key; returns true if key was found, false otherwise */
+    public synchronized boolean remove(K key) {
+        int index=indexOf(key);
+        if(index < 0)
+            return false;
+        removeAt(index);
+        return true;
+    }
+
+    /** Removes all keys which are not in the given collection */
+    public synchronized ObjectLongMap<K> retainAll(Collection<? extends K> c) {
+        for(int i=0; i < keys.length;) {
+            Object key=keys[i];
+            if(key != null && !c.contains(key))
+                removeAt(i); // a key may have been moved to index i: check it again
+            else
+                i++;
+        }
+        return this;
+    }
+
+    public synchronized ObjectLongMap<K> clear() {
+        Arrays.fill(keys, null);
+        size=0;
+        return this;
+    }
+
+    public synchronized void forEach(ObjLongConsumer<K> c) {
+        for(int i=0; i < keys.length; i++) {
+            if(keys[i] != null)
+                c.accept((K)keys[i], values[i]);
+        }
+    }
+
+    public synchronized String toString() {
+        StringJoiner sj=new StringJoiner(", ", "{", "}");
+        for(int i=0; i < keys.length; i++) {
+            if(keys[i] != null)
+                sj.add(keys[i] + "=" + values[i]);
+        }
+        return sj.toString();
+    }
+
+    /** Returns the index of key, or -1 if not found */
+    protected int indexOf(Object key) {
+        if(key == null)
+            return -1;
+        int index=slot(key);
+        return keys[index] != null? index : -1;
+    }
+
+    /** Returns the index of key, or the index of the empty slot at which key would be added */
+    protected int slot(Object key) {
+        int mask=keys.length-1;
+        int index=hash(key) & mask;
+        for(Object k; (k=keys[index]) != null && !k.equals(key);)
+            index=(index+1) & mask;
+        return index;
+    }
+
+    /** Removes the key at index, and moves subsequent keys of the same probe sequence back into the freed slot */
+    protected void removeAt(int index) {
+        int mask=keys.length-1;
+        keys[index]=null;
+        size--;
+        for(int i=(index+1) & mask; keys[i] != null; i=(i+1) & mask) {
+            int home=hash(keys[i]) & mask;
+            // the key at i can be moved to the free slot if its home slot is not between the free slot and i
+            if(((i - home) & mask) >= ((i - index) & mask)) {
+                keys[index]=keys[i];
+                values[index]=values[i];
+                keys[i]=null;
+                index=i;
+            }
+        }
+    }
+
+    protected void resize(int new_capacity) {
+        Object[] old_keys=keys;
+        long[]   old_values=values;
+        keys=new Object[new_capacity];
+        values=new long[new_capacity];
+        for(int i=0; i < old_keys.length; i++) {
+            if(old_keys[i] != null) {
+                int index=slot(old_keys[i]);
+                keys[index]=old_keys[i];
+                values[index]=old_values[i];
+            }
+        }
+    }
+
+    protected static int hash(Object key) {
+        int h=key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -6,8 +6,8 @@ import org.jgroups.Global;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.function.Supplier;
 
 /**
@@ -153,7 +153,8 @@ public class SeqnoList extends FixedSizeBitSet implements SizeStreamable, Iterab
         return sb.toString();
     }
 
-    public Iterator<Long> iterator() {
+    /** Returns an iterator over the seqnos. Use {@link PrimitiveIterator.OfLong#nextLong()} to avoid boxing */
+    public PrimitiveIterator.OfLong iterator() {
         return new SeqnoListIterator();
     }
 
@@ -162,14 +163,14 @@ public class SeqnoList extends FixedSizeBitSet implements SizeStreamable, Iterab
     protected long seqno(int index) {return offset + index;}
 
 
-    protected class SeqnoListIterator implements Iterator<Long> {
+    protected class SeqnoListIterator implements PrimitiveIterator.OfLong {
         protected int         index;
 
         public boolean hasNext() {
             return index < size && nextSetBit(index) != -1;
         }
 
-        public Long next() {
+        public long nextLong() {
             int next_index=nextSetBit(index);
             if(next_index == -1 || next_index >= size)
                 throw new NoSuchElementException("index: " + next_index);
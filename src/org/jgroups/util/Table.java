@@ -11,6 +11,7 @@ import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -61,6 +62,9 @@ public class Table<T> implements Iterable<T> {
      * last compaction is more than max_compaction_time nanoseconds ago, a compaction will take place */
     protected long                 last_compaction_timestamp=0;
 
+    /** If set, used instead of {@link System#nanoTime()} for compaction timestamps */
+    protected TimeService          time_service;
+
     protected final Lock           lock=new ReentrantLock();
 
     protected final AtomicInteger  adders=new AtomicInteger(0);
@@ -147,6 +151,7 @@ public class Table<T> implements Iterable<T> {
         this.max_compaction_time=TimeUnit.NANOSECONDS.convert(max_compaction_time, TimeUnit.MILLISECONDS);
         return this;
     }
+    public Table<T> timeService(TimeService ts) {this.time_service=ts; return this;}
     public int  getNumRows()             {return matrix.length;}
     public void resetStats()             {num_compactions=num_moves=num_resizes=num_purges=0;}
 
@@ -300,6 +305,19 @@ public class Table<T> implements Iterable<T> {
      * @return True if at least 1 element was added successfully, false otherwise.
      */
     public boolean add(MessageBatch batch, Function<T,Long> seqno_getter, boolean remove_from_batch, T const_value) {
+        Objects.requireNonNull(seqno_getter);
+        return addBatch(batch, seqno_getter::apply, remove_from_batch, const_value);
+    }
+
+    public boolean addBatch(MessageBatch batch, ToLongFunction<T> seqno_getter) {
+        return addBatch(batch, seqno_getter, false, null);
+    }
+
+    /**
+     * Same as {@link #add(MessageBatch,Function,boolean,Object)}, but the seqno is returned as a primitive long, so
+     * adding a batch doesn't create a Long per message
+     */
+    public boolean addBatch(MessageBatch batch, ToLongFunction<T> seqno_getter, boolean remove_from_batch, T const_value) {
         if(batch == null || batch.isEmpty())
             return false;
         Objects.requireNonNull(seqno_getter);
@@ -313,7 +331,7 @@ public class Table<T> implements Iterable<T> {
 
             for(Iterator<?> it=batch.iterator(); it.hasNext();) {
                 T msg=(T)it.next();
-                long seqno=seqno_getter.apply(msg);
+                long seqno=seqno_getter.applyAsLong(msg);
                 if(seqno < 0)
                     continue;
                 T element=const_value != null? const_value : msg;
@@ -498,7 +516,7 @@ public class Table<T> implements Iterable<T> {
             if(max_compaction_time <= 0) // see if compaction should be triggered
                 return;
 
-            long current_time=System.nanoTime();
+            long current_time=time_service != null? time_service.timestamp() : System.nanoTime();
             if(last_compaction_timestamp > 0) {
                 if(current_time - last_compaction_timestamp >= max_compaction_time) {
                     _compact();
@@ -616,11 +634,11 @@ public class Table<T> implements Iterable<T> {
         return seqno;
     }
 
-    protected static <T> long findHighestSeqno(MessageBatch batch, Function<T,Long> seqno_getter) {
+    protected static <T> long findHighestSeqno(MessageBatch batch, ToLongFunction<T> seqno_getter) {
         long seqno=-1;
         for(Iterator<?> it=batch.iterator(); it.hasNext();) {
             T msg=(T)it.next();
-            long val=seqno_getter.apply(msg);
+            long val=seqno_getter.applyAsLong(msg);
             if(val < 0)
                 continue;
             if(val - seqno > 0)
@@ -146,8 +146,11 @@ public class ThreadPool implements Lifecycle {
     @Override
     public void init() throws Exception {
         if(enabled) {
-            if(tp.useVirtualThreads())
-                thread_pool=Util.createFiberThreadPool(); // Executors.newVirtualThreadExecutor();
+            if(tp.useVirtualThreads()) {
+                // one virtual thread per task: min_threads, max_threads and keep_alive_time don't apply
+                tp.getLog().debug("thread pool: virtual threads (max_threads=%d is ignored)", max_threads);
+                thread_pool=Util.createFiberThreadPool(); // Executors.newVirtualThreadPerTaskExecutor();
+            }
             else {
                 tp.getLog().debug("thread pool min/max/keep-alive (ms): %d/%d/%d", min_threads, max_threads, keep_alive_time);
                 thread_pool=createThreadPool(min_threads, max_threads, keep_alive_time,
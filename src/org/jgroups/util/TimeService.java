@@ -6,17 +6,21 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Provides a coarse grained time service. Registers a timer task which calls and caches {@link System#nanoTime()}
- * and returns the cached value. This is way faster than calling {@link System#nanoTime()} many times, e.g.
- * for each received message. The granularity (interval) can be chosen by the user.<p/>
- * Note that use of values returned by {@link #timestamp()} needs to obey the same rules as for {@link System#nanoTime()}
+ * Provides a coarse grained time service. Registers a timer task which calls and caches {@link System#nanoTime()},
+ * and returns the cached value. This is way faster than calling
+ * {@link System#nanoTime()} many times, e.g. for each received message. The granularity (interval) can be chosen by
+ * the user, down to microseconds (if the timer supports this).<p/>
+ * Note that use of values returned by {@link #timestamp()} needs to obey the same rules as for {@link System#nanoTime()}.
+ * The cached values lag behind the real time by up to one interval, so they should only be used where this is
+ * acceptable, e.g. for timeouts and expiry checks which are much larger than the interval.
  * @author Bela Ban
  * @since  3.5
  */
 public class TimeService  implements Runnable {
     protected TimeScheduler  timer;
     protected Future<?>      task;
-    protected long           interval=500;                // ms
+    protected long           interval=500;                // in unit
+    protected TimeUnit       unit=TimeUnit.MILLISECONDS;
     protected volatile long  timestamp=System.nanoTime(); // ns
     protected final Lock     lock=new ReentrantLock();
 
@@ -26,8 +30,13 @@ public class TimeService  implements Runnable {
     }
 
     public TimeService(final TimeScheduler timer, long interval) {
+        this(timer, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public TimeService(final TimeScheduler timer, long interval, TimeUnit unit) {
         this.timer=timer;
         this.interval=interval;
+        this.unit=unit;
         if(timer == null)
             throw new IllegalArgumentException("timer must not be null");
     }
@@ -38,13 +47,21 @@ public class TimeService  implements Runnable {
      */
     public long timestamp() {return timestamp;}
 
+    public TimeUnit unit() {return unit;}
+
+    /** Returns the interval in ms (0 if the interval is less than 1 ms) */
     public long interval() {
-        return interval;
+        return unit.toMillis(interval);
     }
 
     public TimeService interval(long interval) {
-        if(interval != this.interval)
-            this.interval=interval;
+        return interval(interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** Sets the interval; takes effect the next time the service is started */
+    public TimeService interval(long interval, TimeUnit unit) {
+        this.interval=interval;
+        this.unit=unit;
         return this;
     }
 
@@ -62,7 +79,7 @@ public class TimeService  implements Runnable {
         lock.lock();
         try {
             if(task == null || task.isDone())
-                task=timer.scheduleWithFixedDelay(this, interval, interval, TimeUnit.MILLISECONDS, false);
+                task=timer.scheduleWithFixedDelay(this, interval, interval, unit, false);
             return this;
         }
         finally {
@@ -91,7 +108,7 @@ public class TimeService  implements Runnable {
     }
 
     public String toString() {
-        return getClass().getSimpleName() + " (interval=" + interval + "ms)";
+        return getClass().getSimpleName() + " (interval=" + Util.printTime(interval, unit) + ")";
     }
 
 }
@@ -0,0 +1,318 @@
+package org.jgroups.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of {@link TimeScheduler} based on a hierarchical timing wheel. Tasks are added to the bucket (slot) of
+ * a wheel covering their execution time, which is O(1); tasks too far in the future are added to an overflow wheel
+ * with coarser buckets, and moved to a finer wheel when their bucket expires. Only buckets (not tasks) are ordered by
+ * expiration time (in a {@link DelayQueue}), and all tasks of an expired bucket are handled in one go.<p/>
+ * Cancelling a task is O(1): the task is marked as cancelled and discarded when its bucket expires (or when
+ * {@link #removeCancelledTasks()} is called). Tasks are executed no earlier than their execution time, and no later
+ * than one tick after it.<p/>
+ * Thread pool management, task types and blocking/non-blocking task handling are the same as in
+ * {@link TimeScheduler3}.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public class TimingWheelScheduler extends TimeScheduler3 {
+    /** Buckets with tasks, ordered by expiration time */
+    protected final DelayQueue<Bucket> buckets=new DelayQueue<>();
+    protected final ReadWriteLock      lock=new ReentrantReadWriteLock();
+    protected final AtomicInteger      num_tasks=new AtomicInteger();
+    protected final long               start=System.nanoTime(); // the origin of the (ms) time used by the wheels
+    protected final Wheel              wheel;
+
+    public TimingWheelScheduler() {
+        this(1, 512);
+    }
+
+    /**
+     * Creates a scheduler with its own thread pool
+     * @param tick The time (ms) covered by a bucket of the finest wheel
+     * @param wheel_size The number of buckets of a wheel
+     */
+    public TimingWheelScheduler(long tick, int wheel_size) {
+        super();
+        wheel=new Wheel(checkTick(tick), checkWheelSize(wheel_size), now());
+        start();
+    }
+
+    public TimingWheelScheduler(ThreadPool thread_pool, ThreadFactory factory, long tick, int wheel_size, boolean start) {
+        super(thread_pool, factory, false);
+        wheel=new Wheel(checkTick(tick), checkWheelSize(wheel_size), now());
+        if(start)
+            start();
+    }
+
+    public long getTick()      {return wheel.tick;}
+    public int  getWheelSize() {return wheel.buckets.length;}
+    public int  size()         {return num_tasks.get();}
+
+    public String dumpTimerTasks() {
+        StringBuilder sb=new StringBuilder();
+        forEachBucket(b -> b.forEach(task -> {
+            sb.append(task);
+            if(task.isCancelled())
+                sb.append(" (cancelled)");
+            sb.append("\n");
+        }));
+        return sb.toString();
+    }
+
+    public void removeCancelledTasks() {
+        forEachBucket(b -> num_tasks.addAndGet(-b.removeDone()));
+    }
+
+    public synchronized void start() {
+        if(wheel != null) // null when called by the superclass' constructor
+            super.start();
+    }
+
+    public synchronized void stop() {
+        super.stop();
+        List<Task> list=new ArrayList<>();
+        Lock l=lock.writeLock();
+        l.lock();
+        try {
+            Bucket b;
+            while((b=buckets.poll()) != null)
+                b.flush(list::add);
+            forEachBucket(b2 -> b2.flush(list::add));
+            num_tasks.set(0);
+        }
+        finally {
+            l.unlock();
+        }
+        list.forEach(t -> t.cancel(true));
+    }
+
+    public void run() {
+        List<Task> expired=new ArrayList<>();
+        while(Thread.currentThread() == runner) {
+            try {
+                Bucket bucket=buckets.take();
+                Lock l=lock.writeLock();
+                l.lock();
+                try {
+                    // handle all expired buckets: tasks are either re-added to a finer wheel, or executed
+                    do {
+                        wheel.advanceClock(bucket.expiration());
+                        bucket.flush(task -> {
+                            num_tasks.decrementAndGet();
+                            if(!task.isDone() && !addTask(task))
+                                expired.add(task);
+                        });
+                    }
+                    while((bucket=buckets.poll()) != null);
+                }
+                finally {
+                    l.unlock();
+                }
+                for(Task task: expired) {
+                    try {
+                        if(!task.isDone())
+                            submitToPool(task);
+                    }
+                    catch(Throwable t) {
+                        log.error(Util.getMessage("FailedSubmittingTaskToThreadPool"), t);
+                    }
+                }
+            }
+            catch(InterruptedException interrupted) {
+                // flag is cleared and we check if the loop should be terminated at the top of the loop
+            }
+            catch(Throwable t) {
+                log.error(Util.getMessage("FailedSubmittingTaskToThreadPool"), t);
+            }
+            finally {
+                expired.clear();
+            }
+        }
+    }
+
+    protected Task add(Task task) {
+        boolean added;
+        Lock l=lock.readLock();
+        l.lock();
+        try {
+            added=addTask(task);
+        }
+        finally {
+            l.unlock();
+        }
+        if(!added) // the execution time has already elapsed
+            submitToPool(task);
+        return task;
+    }
+
+    /** Adds a task to a wheel. Returns false if the execution time has elapsed, and the task needs to be executed */
+    protected boolean addTask(Task task) {
+        if(!wheel.add(task, expirationOf(task)))
+            return false;
+        num_tasks.incrementAndGet();
+        return true;
+    }
+
+    /** Returns the time (ms since start) at which a task needs to be executed */
+    protected long expirationOf(Task task) {
+        long exec_time=task.creation_time + task.delay - start;
+        return (exec_time + 999_999) / 1_000_000; // round up, so that a task doesn't run early
+    }
+
+    protected long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    protected void forEachBucket(Consumer<Bucket> c) {
+        Lock l=lock.readLock();
+        l.lock();
+        try {
+            for(Wheel w=wheel; w != null; w=w.overflow)
+                for(Bucket b: w.buckets)
+                    c.accept(b);
+        }
+        finally {
+            l.unlock();
+        }
+    }
+
+    protected static long checkTick(long tick) {
+        if(tick < 1)
+            throw new IllegalArgumentException(String.format("tick (%d) must be >= 1", tick));
+        return tick;
+    }
+
+    protected static int checkWheelSize(int size) {
+        if(size < 2)
+            throw new IllegalArgumentException(String.format("wheel size (%d) must be >= 2", size));
+        return size;
+    }
+
+
+    /** A wheel of buckets. Each bucket covers tick ms, and the wheel covers tick * wheel size ms */
+    protected class Wheel {
+        protected final long     tick, interval;
+        protected final Bucket[] buckets;
+        protected final boolean  finest;     // the first (finest) wheel
+        protected long           current;    // the current time (ms), a multiple of tick
+        protected Wheel          overflow;   // created on demand
+
+        protected Wheel(long tick, int size, long current) {
+            this(tick, size, current, true);
+        }
+
+        protected Wheel(long tick, int size, long current, boolean finest) {
+            this.tick=tick;
+            this.interval=tick * size;
+            this.finest=finest;
+            this.current=current - current % tick;
+            buckets=new Bucket[size];
+            for(int i=0; i < buckets.length; i++)
+                buckets[i]=new Bucket();
+        }
+
+        /** Adds a task, called with the read lock (or write lock) held */
+        protected boolean add(Task task, long expiration) {
+            // the finest wheel executes a task once its time has come; coarser wheels move it to a finer wheel
+            if(finest? expiration < current : expiration < current + tick)
+                return false;
+            if(expiration < current + interval) {
+                long id=expiration / tick;
+                Bucket bucket=buckets[(int)(id % buckets.length)];
+                bucket.add(task);
+                // the finest bucket expires at its end, so that tasks don't run early; coarser buckets expire at their
+                // start, so that tasks are moved to the finer wheel in time
+                if(bucket.setExpiration(finest? (id + 1) * tick : id * tick))
+                    TimingWheelScheduler.this.buckets.offer(bucket);
+                return true;
+            }
+            return overflow().add(task, expiration);
+        }
+
+        /** Called with the write lock held */
+        protected void advanceClock(long time) {
+            if(time >= current + tick) {
+                current=time - time % tick;
+                if(overflow != null)
+                    overflow.advanceClock(current);
+            }
+        }
+
+        protected Wheel overflow() {
+            Wheel tmp=overflow;
+            if(tmp == null) {
+                synchronized(this) {
+                    if((tmp=overflow) == null)
+                        overflow=tmp=new Wheel(interval, buckets.length, current, false);
+                }
+            }
+            return tmp;
+        }
+    }
+
+
+    /** A list of tasks with the same (bucketed) execution time */
+    protected class Bucket implements Delayed {
+        protected final List<Task> tasks=new ArrayList<>();
+        protected long             expiration=-1; // ms since start; -1 when empty
+
+        protected synchronized void add(Task task) {
+            tasks.add(task);
+        }
+
+        /** Sets the expiration time; returns true if it changed, and the bucket needs to be queued */
+        protected synchronized boolean setExpiration(long exp) {
+            if(exp == expiration)
+                return false;
+            expiration=exp;
+            return true;
+        }
+
+        protected synchronized long expiration() {return expiration;}
+
+        /** Removes all tasks and passes them to the consumer */
+        protected void flush(Consumer<Task> c) {
+            List<Task> list;
+            synchronized(this) {
+                if(tasks.isEmpty()) {
+                    expiration=-1;
+                    return;
+                }
+                list=new ArrayList<>(tasks);
+                tasks.clear();
+                expiration=-1;
+            }
+            list.forEach(c);
+        }
+
+        protected synchronized int removeDone() {
+            int size=tasks.size();
+            tasks.removeIf(Task::isDone);
+            return size - tasks.size();
+        }
+
+        protected synchronized void forEach(Consumer<Task> c) {
+            tasks.forEach(c);
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiration() - now(), TimeUnit.MILLISECONDS);
+        }
+
+        public int compareTo(Delayed o) {
+            return Long.compare(expiration(), ((Bucket)o).expiration());
+        }
+
+        public String toString() {
+            return String.format("%d tasks, expiration=%d", tasks.size(), expiration);
+        }
+    }
+}
@@ -237,10 +237,15 @@ public class Util {
     protected static MethodHandle getNewVirtualThreadFactoryHandle() {
         MethodType type=MethodType.methodType(ExecutorService.class);
         try {
-            return LOOKUP.findStatic(Executors.class, "newVirtualThreadExecutor", type);
+            return LOOKUP.findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", type); // Java 21
         }
         catch(Exception e) {
-            return null;
+            try {
+                return LOOKUP.findStatic(Executors.class, "newVirtualThreadExecutor", type); // early Loom builds
+            }
+            catch(Exception ex) {
+                return null;
+            }
         }
     }
 
@@ -1397,6 +1402,12 @@ public class Util {
         msg.writeTo(dos);
     }
 
+    /** Writes a message; dest and src are written as ranks if encoder is non-null and the addresses can be encoded */
+    public static void writeMessage(Message msg, DataOutput dos, boolean multicast, FrameAddressEncoder encoder) throws IOException {
+        if(encoder == null || !encoder.writeMessage(msg, dos, multicast))
+            writeMessage(msg, dos, multicast);
+    }
+
     public static Message readMessage(DataInput in, MessageFactory mf) throws IOException, ClassNotFoundException {
         short type=in.readShort();
         Message msg=mf.create(type);
@@ -1417,7 +1428,13 @@ public class Util {
      */
     public static void writeMessageList(Address dest, Address src, byte[] cluster_name,
                                         List<Message> msgs, DataOutput dos, boolean multicast, short transport_id) throws IOException {
-        writeMessageListHeader(dest, src, cluster_name, msgs != null ? msgs.size() : 0, dos, multicast);
+        writeMessageList(dest, src, cluster_name, msgs, dos, multicast, transport_id, null);
+    }
+
+    public static void writeMessageList(Address dest, Address src, byte[] cluster_name, List<Message> msgs,
+                                        DataOutput dos, boolean multicast, short transport_id,
+                                        FrameAddressEncoder encoder) throws IOException {
+        writeMessageListHeader(dest, src, cluster_name, msgs != null ? msgs.size() : 0, dos, multicast, encoder);
 
         if(msgs != null)
             for(Message msg: msgs) {
@@ -1429,7 +1446,13 @@ public class Util {
     public static void writeMessageList(Address dest, Address src, byte[] cluster_name,
                                         Message[] msgs, int offset, int length, DataOutput dos, boolean multicast,
                                         short transport_id) throws IOException {
-        writeMessageListHeader(dest, src, cluster_name, length, dos, multicast);
+        writeMessageList(dest, src, cluster_name, msgs, offset, length, dos, multicast, transport_id, null);
+    }
+
+    public static void writeMessageList(Address dest, Address src, byte[] cluster_name,
+                                        Message[] msgs, int offset, int length, DataOutput dos, boolean multicast,
+                                        short transport_id, FrameAddressEncoder encoder) throws IOException {
+        writeMessageListHeader(dest, src, cluster_name, length, dos, multicast, encoder);
 
         if(msgs != null)
             for(int i=0; i < length; i++) {
@@ -1459,6 +1482,13 @@ public class Util {
         dos.writeInt(numMsgs);
     }
 
+    /** Writes the header of a message list; dest and src are written as ranks if encoder is non-null and can encode them */
+    public static void writeMessageListHeader(Address dest, Address src, byte[] cluster_name, int numMsgs, DataOutput dos,
+                                              boolean multicast, FrameAddressEncoder encoder) throws IOException {
+        if(encoder == null || !encoder.writeMessageListHeader(dest, src, cluster_name, numMsgs, dos, multicast))
+            writeMessageListHeader(dest, src, cluster_name, numMsgs, dos, multicast);
+    }
+
 
     public static List<Message> readMessageList(DataInput in, short transport_id, MessageFactory mf)
       throws IOException, ClassNotFoundException {
@@ -1499,9 +1529,15 @@ public class Util {
      */
     public static MessageBatch[] readMessageBatch(DataInput in, boolean multicast, MessageFactory factory)
       throws IOException, ClassNotFoundException {
-        MessageBatch[] batches=new MessageBatch[2]; // [0]: reg, [1]: OOB
         Address dest=Util.readAddress(in);
         Address src=Util.readAddress(in);
+        return readMessageBatch(in, dest, src, multicast, factory);
+    }
+
+    /** Reads a message batch whose dest and src addresses have already been read */
+    public static MessageBatch[] readMessageBatch(DataInput in, Address dest, Address src, boolean multicast,
+                                                  MessageFactory factory) throws IOException, ClassNotFoundException {
+        MessageBatch[] batches=new MessageBatch[2]; // [0]: reg, [1]: OOB
         short length=in.readShort();
         byte[] cluster_name=length >= 0? new byte[length] : null;
         if(cluster_name != null)
@@ -2906,13 +2942,7 @@ public class Util {
     public static int getRank(View view,Address addr) {
         if(view == null || addr == null)
             return 0;
-        List<Address> members=view.getMembers();
-        for(int i=0; i < members.size(); i++) {
-            Address mbr=members.get(i);
-            if(mbr.equals(addr))
-                return i + 1;
-        }
-        return 0;
+        return view.indexOf(addr) + 1;
     }
 
     public static int getRank(Collection<Address> members,Address addr) {
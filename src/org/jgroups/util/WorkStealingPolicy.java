@@ -0,0 +1,319 @@
+package org.jgroups.util;
+
+import org.jgroups.Address;
+import org.jgroups.Message;
+import org.jgroups.annotations.ManagedAttribute;
+import org.jgroups.annotations.ManagedOperation;
+import org.jgroups.annotations.Property;
+import org.jgroups.protocols.TP;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link org.jgroups.stack.MessageProcessingPolicy} which delivers <em>regular</em> messages and message batches on a
+ * fixed set of worker threads, rather than the thread pool. Every sender has a lock-free queue, and senders are hashed
+ * to a home worker, so messages from the same sender are delivered in order and on the same thread (affinity). A
+ * sender queue with messages is placed into the (lock-free) inbox of its home worker; an idle worker steals whole
+ * sender queues from the inboxes of busy workers. A sender queue is never in more than one inbox, so at most one
+ * worker delivers messages from a given sender at any time.<p/>
+ * This avoids the handoffs to the thread pool and the creation and destruction of threads of
+ * {@link MaxOneThreadPerSender}. OOB messages and batches are still passed to the thread pool.
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+public class WorkStealingPolicy extends SubmitToThreadPool {
+    protected final MessageTable mcasts=new MessageTable(false), ucasts=new MessageTable(false);
+    protected final MessageTable loopback_mcasts=new MessageTable(true), loopback_ucasts=new MessageTable(true);
+    protected Worker[]           workers;
+    protected final LongAdder    num_steals=new LongAdder();
+
+    @Property(description="Number of worker threads delivering regular messages. 0 uses the number of cores")
+    protected int                num_workers;
+
+    @ManagedAttribute(description="Number of sender queues stolen by idle workers")
+    public long getNumSteals() {return num_steals.sum();}
+
+    @ManagedAttribute(description="Number of worker threads")
+    public int getNumWorkers() {return workers != null? workers.length : num_workers;}
+
+    public int                numWorkers()      {return num_workers;}
+    public WorkStealingPolicy numWorkers(int n) {this.num_workers=n; return this;}
+
+    @ManagedOperation(description="Dumps the workers and the unicast and multicast tables")
+    public String dump() {
+        StringBuilder sb=new StringBuilder();
+        if(workers != null)
+            for(Worker w: workers)
+                sb.append(w).append("\n");
+        return sb.append(String.format("mcasts:\n%s\nucasts:\n%s", mcasts, ucasts)).toString();
+    }
+
+    public void reset() {
+        num_steals.reset();
+        if(workers != null)
+            for(Worker w: workers)
+                w.reset();
+    }
+
+    public void init(TP transport) {
+        super.init(transport);
+        start();
+    }
+
+    /** Starts the workers; called on {@link #init(TP)}, and on a restart of the transport after {@link #destroy()} */
+    public synchronized void start() {
+        if(workers != null || tp == null)
+            return;
+        int num=num_workers > 0? num_workers : Runtime.getRuntime().availableProcessors();
+        Worker[] tmp=new Worker[num];
+        for(int i=0; i < tmp.length; i++)
+            tmp[i]=new Worker(i);
+        workers=tmp;
+        for(Worker w: tmp) {
+            w.thread=tp.getThreadFactory().newThread(w, "worker-" + w.index);
+            w.thread.start();
+        }
+    }
+
+    public synchronized void destroy() {
+        Worker[] tmp=workers;
+        workers=null;
+        if(tmp != null)
+            for(Worker w: tmp)
+                w.stop();
+        mcasts.clear();
+        ucasts.clear();
+        loopback_mcasts.clear();
+        loopback_ucasts.clear();
+    }
+
+    public boolean loopback(Message msg, boolean oob) {
+        if(oob)
+            return super.loopback(msg, oob);
+        MessageTable table=msg.getDest() == null? loopback_mcasts : loopback_ucasts;
+        return table.get(msg.getSrc(), msg.getDest() == null).add(msg);
+    }
+
+    public boolean process(Message msg, boolean oob) {
+        if(oob)
+            return super.process(msg, oob);
+        MessageTable table=msg.getDest() == null? mcasts : ucasts;
+        return table.get(msg.getSrc(), msg.getDest() == null).add(msg);
+    }
+
+    public boolean process(MessageBatch batch, boolean oob) {
+        if(oob)
+            return super.process(batch, oob);
+        MessageTable table=batch.dest() == null? mcasts : ucasts;
+        return table.get(batch.sender(), batch.dest() == null).add(batch);
+    }
+
+    public void viewChange(List<Address> members) {
+        mcasts.viewChange(members);
+        ucasts.viewChange(members);
+    }
+
+    /** Adds a sender queue to the inbox of its home worker and wakes up the home worker, or an idle worker */
+    protected boolean schedule(Entry entry) {
+        Worker[] tmp=workers;
+        if(tmp == null) {
+            entry.scheduled.set(false);
+            return false;
+        }
+        Worker home=tmp[entry.home % tmp.length];
+        home.inbox.add(entry);
+        if(home.idle)
+            home.wakeup();
+        else {
+            for(Worker w: tmp) {
+                if(w.idle) { // an idle worker will steal entry
+                    w.wakeup();
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+
+    protected class MessageTable {
+        protected final ConcurrentMap<Address,Entry> map=new ConcurrentHashMap<>();
+        // entries of senders which left; reused if a sender sends more messages, to preserve FIFO order
+        protected final ConcurrentMap<Address,Entry> left=new ConcurrentHashMap<>();
+        protected final boolean                      loopback;
+
+        protected MessageTable(boolean loopback) {
+            this.loopback=loopback;
+        }
+
+        protected Entry get(final Address sender, boolean multicast) {
+            Entry entry=map.get(sender);
+            if(entry != null)
+                return entry;
+            return map.computeIfAbsent(sender, s -> {
+                Entry e=left.remove(s); // may still be scheduled: a new entry would break FIFO order
+                return e != null? e : new Entry(s, multicast, loopback);
+            });
+        }
+
+        protected void clear() {
+            map.clear();
+            left.clear();
+        }
+
+        protected void viewChange(List<Address> mbrs) {
+            // drop the entries of senders which left in a previous view and have no more messages
+            left.values().removeIf(Entry::idle);
+            // move the entries of senders that are not in the new view to left
+            for(Iterator<Map.Entry<Address,Entry>> it=map.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Address,Entry> e=it.next();
+                if(!mbrs.contains(e.getKey())) {
+                    left.put(e.getKey(), e.getValue());
+                    it.remove();
+                }
+            }
+        }
+
+        public String toString() {
+            return map.entrySet().stream().collect(StringBuilder::new, (sb,e) -> sb.append(e).append("\n"), (a,b) -> {}).toString();
+        }
+    }
+
+
+    /** The queue of a single sender. Elements are messages or message batches */
+    protected class Entry {
+        protected final Queue<Object>  queue=new ConcurrentLinkedQueue<>();
+        // true while the entry is in an inbox or being processed by a worker
+        protected final AtomicBoolean  scheduled=new AtomicBoolean();
+        protected final MessageBatch   batch;  // only accessed by the worker processing this entry
+        protected final boolean        loopback;
+        protected final int            home;
+        protected final BatchHandler   handler;
+
+        protected Entry(Address sender, boolean mcast, boolean loopback) {
+            this.loopback=loopback;
+            this.home=sender != null? sender.hashCode() & Integer.MAX_VALUE : 0;
+            batch=new MessageBatch(16).sender(sender).dest(mcast? null : tp.getAddress())
+              .clusterName(tp.getClusterNameAscii()).multicast(mcast);
+            handler=new BatchHandler(batch) {
+                @Override protected void passBatchUp() {
+                    tp.passBatchUp(batch, !loopback, !loopback);
+                }
+            };
+        }
+
+        protected boolean idle() {
+            return !scheduled.get() && queue.isEmpty();
+        }
+
+        protected boolean add(Object msg) {
+            queue.add(msg);
+            return !scheduled.compareAndSet(false, true) || schedule(this);
+        }
+
+        /**
+         * Delivers the queued messages as a single batch. Called by the worker which removed this entry from an inbox
+         * @return True if the entry has more messages and needs to be scheduled again, false otherwise
+         */
+        protected boolean deliver() {
+            batch.clear();
+            Object obj;
+            while((obj=queue.poll()) != null) {
+                if(obj instanceof Message)
+                    batch.add((Message)obj, true);
+                else
+                    batch.add((MessageBatch)obj, true);
+            }
+            try {
+                if(!batch.isEmpty())
+                    handler.run();
+            }
+            catch(Throwable t) {
+                log.error("failed processing batch", t);
+            }
+            if(!queue.isEmpty())
+                return true;
+            scheduled.set(false);
+            // a message added after the queue was found empty, but before scheduled was cleared, was not scheduled
+            return !queue.isEmpty() && scheduled.compareAndSet(false, true);
+        }
+
+        public String toString() {
+            return String.format("queued=%d scheduled=%b", queue.size(), scheduled.get());
+        }
+    }
+
+
+    protected class Worker implements Runnable {
+        protected final int          index;
+        protected final Queue<Entry> inbox=new ConcurrentLinkedQueue<>();
+        protected volatile boolean   idle, running=true;
+        protected Thread             thread;
+        protected final LongAdder    num_batches=new LongAdder();
+
+        protected Worker(int index) {
+            this.index=index;
+        }
+
+        protected void wakeup() {
+            Thread t=thread;
+            if(t != null)
+                LockSupport.unpark(t);
+        }
+
+        protected void stop() {
+            running=false;
+            wakeup();
+        }
+
+        protected void reset() {num_batches.reset();}
+
+        public void run() {
+            while(running) {
+                Entry entry=inbox.poll();
+                if(entry == null && (entry=steal()) == null) {
+                    idle=true;
+                    // re-check after setting idle, or else we could miss the wakeup of a concurrent schedule()
+                    if((entry=inbox.poll()) == null && (entry=steal()) == null) {
+                        LockSupport.park(this);
+                        idle=false;
+                        continue;
+                    }
+                    idle=false;
+                }
+                num_batches.increment();
+                if(entry.deliver())
+                    inbox.add(entry); // re-add at the tail: other senders in the inbox get their turn first
+            }
+        }
+
+        /** Removes a sender queue from the inbox of another worker */
+        protected Entry steal() {
+            Worker[] tmp=workers;
+            if(tmp == null)
+                return null;
+            for(int i=1; i < tmp.length; i++) {
+                Entry entry=tmp[(index + i) % tmp.length].inbox.poll();
+                if(entry != null) {
+                    num_steals.increment();
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        public String toString() {
+            return String.format("worker-%d: inbox=%d batches=%d%s", index, inbox.size(), num_batches.sum(),
+                                 idle? " (idle)" : "");
+        }
+    }
+}
@@ -4,11 +4,17 @@ import org.jgroups.BytesMessage;
 import org.jgroups.Global;
 import org.jgroups.JChannel;
 import org.jgroups.Message;
+import org.jgroups.ObjectMessage;
 import org.jgroups.util.MyReceiver;
 import org.jgroups.util.Util;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
 /**
  * @author Bela Ban
  * @since  5.0
@@ -37,8 +43,135 @@ public class COMPRESS_Test {
 
 
 
+    public void testLZ4() throws Exception {
+        a=create("A", new COMPRESS().setCodec("lz4").setMinSize(50)).connect(COMPRESS_Test.class.getSimpleName());
+        b=create("B", new COMPRESS().setCodec("lz4").setMinSize(50)).connect(COMPRESS_Test.class.getSimpleName());
+        sendAndCheck();
+        a.send(new BytesMessage(b.getAddress(), new byte[1000]));
+        Util.waitUntil(10000, 100, () -> r2.size() == 2);
+        assert r2.list().get(1).getLength() == 1000;
+        COMPRESS c=a.getProtocolStack().findProtocol(COMPRESS.class);
+        assert c.getNumCompressions() > 0;
+    }
+
+    public void testDictionary() throws Exception {
+        File f=File.createTempFile("dict", ".bin");
+        try {
+            Files.write(f.toPath(), Util.generateArray(1000));
+            for(String codec: Arrays.asList("deflate", "lz4")) {
+                a=create("A", new COMPRESS().setCodec(codec).setDictionary(f.getPath()).setMinSize(50))
+                  .connect(COMPRESS_Test.class.getSimpleName());
+                b=create("B", new COMPRESS().setCodec(codec).setDictionary(f.getPath()).setMinSize(50))
+                  .connect(COMPRESS_Test.class.getSimpleName());
+                sendAndCheck();
+                destroy();
+                r2.reset();
+            }
+        }
+        finally {
+            f.delete();
+        }
+    }
+
+    public void testFrameCompression() throws Exception {
+        for(String codec: Arrays.asList("deflate", "lz4")) {
+            a=create("A", new COMPRESS().compressFrames(true).setCodec(codec).setMinSize(50))
+              .connect(COMPRESS_Test.class.getSimpleName());
+            b=create("B", new COMPRESS().compressFrames(true).setCodec(codec).setMinSize(50))
+              .connect(COMPRESS_Test.class.getSimpleName());
+            assert a.getProtocolStack().getTransport().isFrameCompression();
+            sendAndCheck();
+            COMPRESS c=a.getProtocolStack().findProtocol(COMPRESS.class);
+            assert c.getNumCompressions() == 0 : "messages should not be compressed individually";
+            for(int i=0; i < 100; i++)
+                a.send(new BytesMessage(null, new byte[200]));
+            Util.waitUntil(10000, 100, () -> r2.size() == 101);
+            assert r2.list().stream().skip(1).allMatch(m -> m.getLength() == 200);
+            FrameCompressor fc=b.getProtocolStack().getTransport().getFrameCompressor();
+            assert fc.getNumUncompressions() > 0;
+            destroy();
+            r2.reset();
+        }
+    }
+
+    public void testAdaptive() throws Exception {
+        a=create("A", new COMPRESS().setAdaptive(true).setSampleInterval(10).setMinSize(50))
+          .connect(COMPRESS_Test.class.getSimpleName());
+        b=create("B", new COMPRESS().setAdaptive(true).setSampleInterval(10).setMinSize(50))
+          .connect(COMPRESS_Test.class.getSimpleName());
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, a,b);
+        b.setReceiver(r2);
+        COMPRESS c=a.getProtocolStack().findProtocol(COMPRESS.class);
+        Random rand=new Random();
+        byte[][] payloads=new byte[100][];
+        for(int i=0; i < payloads.length; i++) {
+            rand.nextBytes(payloads[i]=new byte[1000]); // incompressible
+            a.send(new BytesMessage(b.getAddress(), payloads[i]));
+        }
+        Util.waitUntil(10000, 100, () -> r2.size() == payloads.length);
+        for(int i=0; i < payloads.length; i++)
+            assert Arrays.equals(payloads[i], r2.list().get(i).getArray());
+        assert c.getNumCompressions() == 0;
+        assert c.getNumSkipped() >= 80 : String.format("skipped: %d", c.getNumSkipped());
+
+        // the payloads become compressible: compression resumes after re-sampling
+        r2.reset();
+        for(int i=0; i < 100; i++)
+            a.send(new BytesMessage(b.getAddress(), new byte[1000]));
+        Util.waitUntil(10000, 100, () -> r2.size() == 100);
+        assert r2.list().stream().allMatch(m -> m.getLength() == 1000);
+        assert c.getNumCompressions() >= 50 : String.format("compressions: %d", c.getNumCompressions());
+    }
+
+    public void testSignature() {
+        Message m1=new BytesMessage(null, new byte[10]).putHeader((short)1, new TpHeader("x"))
+          .putHeader((short)2, new TpHeader("y"));
+        Message m2=new BytesMessage(null, new byte[10]).putHeader((short)2, new TpHeader("y"))
+          .putHeader((short)1, new TpHeader("x"));
+        Message m3=new BytesMessage(null, new byte[10]).putHeader((short)1, new TpHeader("x"))
+          .putHeader((short)3, new TpHeader("y"));
+        assert COMPRESS.signature(m1) == COMPRESS.signature(m2);
+        assert COMPRESS.signature(m1) != COMPRESS.signature(m3);
+        assert COMPRESS.signature(m1) != COMPRESS.signature(new ObjectMessage(null, "hello")
+                                                               .putHeader((short)1, new TpHeader("x"))
+                                                               .putHeader((short)2, new TpHeader("y")));
+    }
+
+    public void testSignatureTable() {
+        COMPRESS.SignatureTable table=new COMPRESS.SignatureTable();
+        // signatures with the same low bits collide in the table
+        int[] sigs=new int[1000];
+        for(int i=0; i < sigs.length; i++)
+            sigs[i]=i % 2 == 0? i : i << 16;
+        COMPRESS.CompressionStats[] stats=new COMPRESS.CompressionStats[sigs.length];
+        for(int i=0; i < sigs.length; i++)
+            stats[i]=table.get(sigs[i]);
+        for(int i=0; i < sigs.length; i++)
+            assert table.get(sigs[i]) == stats[i] && stats[i].signature == sigs[i];
+        int[] count={0};
+        table.forEach(st -> count[0]++);
+        assert count[0] == sigs.length;
+        table.clear();
+        assert table.get(sigs[0]) != stats[0];
+    }
+
+    protected void sendAndCheck() throws Exception {
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, a,b);
+        a.setReceiver(r1); b.setReceiver(r2);
+        byte[] array=Util.generateArray(100);
+        a.send(new BytesMessage(b.getAddress(), array));
+        Util.waitUntil(10000, 500, () -> r2.size() > 0);
+        Message msg=r2.list().get(0);
+        assert msg.hasPayload() && msg.getLength() == array.length;
+        Util.verifyArray(msg.getArray());
+    }
+
     protected static JChannel create(String name) throws Exception {
-        return new JChannel(Util.getTestStack(new COMPRESS().setMinSize(50))).name(name);
+        return create(name, new COMPRESS().setMinSize(50));
+    }
+
+    protected static JChannel create(String name, COMPRESS compress) throws Exception {
+        return new JChannel(Util.getTestStack(compress)).name(name);
     }
 
 }
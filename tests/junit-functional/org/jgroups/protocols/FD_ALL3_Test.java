@@ -0,0 +1,74 @@
+package org.jgroups.protocols;
+
+import org.jgroups.Global;
+import org.jgroups.JChannel;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.ProtocolStack;
+import org.jgroups.util.Util;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests {@link FD_ALL3} with num_monitors > 0: every member only monitors its predecessors in the view
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@Test(groups=Global.FUNCTIONAL,singleThreaded=true)
+public class FD_ALL3_Test {
+    protected JChannel[]          channels;
+    protected static final int    NUM=5, NUM_MONITORS=2;
+    protected static final String CLUSTER=FD_ALL3_Test.class.getSimpleName();
+
+    @BeforeMethod protected void setup() throws Exception {
+        channels=new JChannel[NUM];
+        for(int i=0; i < channels.length; i++) {
+            channels[i]=create(String.valueOf((char)('A' + i)));
+            channels[i].connect(CLUSTER);
+        }
+        Util.waitUntilAllChannelsHaveSameView(10000, 200, channels);
+    }
+
+    @AfterMethod protected void destroy() {Util.closeReverse(channels);}
+
+    public void testMonitoredMembers() throws Exception {
+        Util.sleep(1000); // a few heartbeats
+        for(JChannel ch: channels) {
+            FD_ALL3 fd=ch.getProtocolStack().findProtocol(FD_ALL3.class);
+            assert fd.getTimestamps().size() == NUM_MONITORS
+              : String.format("%s: expected %d monitored members, but got %s", ch.getAddress(), NUM_MONITORS,
+                              fd.getTimestamps().keySet());
+            assert fd.monitors.size() == NUM_MONITORS;
+            assert !fd.has_suspected_mbrs;
+        }
+    }
+
+    public void testCrashedMemberIsExcluded() throws Exception {
+        JChannel c=channels[2];
+        ProtocolStack stack=c.getProtocolStack();
+        DISCARD discard=new DISCARD().discardAll(true);
+        stack.insertProtocol(discard, ProtocolStack.Position.ABOVE, SHARED_LOOPBACK.class);
+
+        JChannel[] remaining=Stream.of(channels).filter(ch -> ch != c).toArray(JChannel[]::new);
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, remaining);
+        System.out.printf("views:\n%s\n", Stream.of(remaining).map(ch -> ch.getAddress() + ": " + ch.getView())
+          .collect(Collectors.joining("\n")));
+        assert Arrays.stream(remaining).noneMatch(ch -> ch.getView().containsMember(c.getAddress()));
+    }
+
+    protected static JChannel create(String name) throws Exception {
+        return new JChannel(new SHARED_LOOPBACK(),
+                            new SHARED_LOOPBACK_PING(),
+                            new FD_ALL3().setNumMonitors(NUM_MONITORS).setTimeout(1500).setInterval(300),
+                            new NAKACK2(),
+                            new UNICAST3(),
+                            new STABLE(),
+                            new GMS().setJoinTimeout(1000)).name(name);
+    }
+}
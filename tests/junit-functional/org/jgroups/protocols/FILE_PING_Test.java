@@ -7,6 +7,7 @@ import org.jgroups.View;
 import org.jgroups.protocols.pbcast.GMS;
 import org.jgroups.protocols.pbcast.NAKACK2;
 import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.util.Responses;
 import org.jgroups.util.UUID;
 import org.jgroups.util.Util;
 import org.testng.annotations.*;
@@ -86,6 +87,33 @@ public class FILE_PING_Test {
 
     }
 
+    public void testWriteOnlyOnChange() {
+        FILE_PING ping=a.getProtocolStack().findProtocol(FILE_PING.class);
+        assert ping.writeOnlyOnChange();
+        int writes=ping.getWrites();
+        ping.writeAll(null);
+        ping.writeAll(null);
+        assert ping.getWrites() == writes : String.format("expected %d writes, but got %d", writes, ping.getWrites());
+        assert ping.getSkippedWrites() >= 2;
+
+        ping.writeInfo(); // forced write
+        assert ping.getWrites() == writes+1;
+    }
+
+    public void testReadCache() {
+        FILE_PING ping=d.getProtocolStack().findProtocol(FILE_PING.class);
+        ping.readCacheTtl(10_000);
+        Responses rsps=new Responses(false);
+        ping.readAllCached(null, GROUP, rsps);
+        int reads=ping.getReads();
+        assert !rsps.isEmpty() && ping.getReadCacheHits() == 0;
+
+        Responses rsps2=new Responses(false);
+        ping.readAllCached(null, GROUP, rsps2);
+        assert ping.getReads() == reads && ping.getReadCacheHits() == 1;
+        assert rsps2.size() == rsps.size() : String.format("rsps: %s, rsps2: %s", rsps, rsps2);
+    }
+
     protected static void injectView(JChannel ... channels) {
         Address coord=channels[0].getAddress();
         long current_view_id=((GMS)channels[0].getProtocolStack().findProtocol(GMS.class)).view().getViewId().getId();
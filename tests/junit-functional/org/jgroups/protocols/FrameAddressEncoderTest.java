@@ -0,0 +1,204 @@
+package org.jgroups.protocols;
+
+import org.jgroups.*;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.Protocol;
+import org.jgroups.util.*;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Tests {@link FrameAddressEncoder} and {@link TP} with compact_addresses=true
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@Test(groups=Global.FUNCTIONAL,singleThreaded=true)
+public class FrameAddressEncoderTest {
+    protected JChannel a, b, c, d;
+    protected static final String CLUSTER=FrameAddressEncoderTest.class.getSimpleName();
+    protected static final long   GRACE=500;
+
+    @AfterMethod protected void destroy() {Util.close(d, c, b, a);}
+
+    public void testEncodeAndDecode() throws Exception {
+        Address x=Util.createRandomAddress("X"), y=Util.createRandomAddress("Y"), z=Util.createRandomAddress("Z");
+        View view=View.create(x, 5, x, y);
+        FrameAddressEncoder sender=new FrameAddressEncoder(2, 0), receiver=new FrameAddressEncoder(2, 0);
+        sender.viewChange(view);
+
+        Message msg=new BytesMessage(y, "hello".getBytes()).setSrc(x);
+        ByteArray frame=marshal(msg, false, null), encoded=marshal(msg, false, sender);
+        assert encoded.getLength() < frame.getLength() && sender.getNumEncoded() == 1;
+        assert (encoded.getArray()[Global.SHORT_SIZE] & TP.COMPACT_ADDRS) == TP.COMPACT_ADDRS;
+
+        ByteArrayDataInputStream in=new ByteArrayDataInputStream(encoded.getArray(), encoded.getOffset() + TP.MSG_OVERHEAD,
+                                                                 encoded.getLength() - TP.MSG_OVERHEAD);
+        assert receiver.decode(in) == null : "receiver has not yet installed the view";
+        assert receiver.getNumDropped() == 1;
+
+        receiver.viewChange(view);
+        in=new ByteArrayDataInputStream(encoded.getArray(), encoded.getOffset() + TP.MSG_OVERHEAD,
+                                        encoded.getLength() - TP.MSG_OVERHEAD);
+        Address[] addrs=receiver.decode(in);
+        assert addrs != null && addrs[0].equals(y) && addrs[1].equals(x);
+        Message copy=Util.readMessage(in, new DefaultMessageFactory()).setDest(addrs[0]).setSrc(addrs[1]);
+        assert copy.getDest().equals(y) && copy.getSrc().equals(x);
+        assert "hello".equals(new String(copy.getArray(), copy.getOffset(), copy.getLength()));
+
+        // a destination which is not a member is sent in full
+        frame=marshal(new BytesMessage(z, "hello".getBytes()).setSrc(x), false, sender);
+        assert (frame.getArray()[Global.SHORT_SIZE] & TP.COMPACT_ADDRS) == 0 && sender.getNumEncoded() == 1;
+    }
+
+    public void testEncodeAndDecodeList() throws Exception {
+        Address x=Util.createRandomAddress("X"), y=Util.createRandomAddress("Y");
+        View view=View.create(x, 5, x, y);
+        FrameAddressEncoder sender=new FrameAddressEncoder(2, 0), receiver=new FrameAddressEncoder(2, 0);
+        sender.viewChange(view);
+        receiver.viewChange(view);
+        List<Message> list=new ArrayList<>();
+        for(int i=1; i <= 5; i++)
+            list.add(new ObjectMessage(y, i).setSrc(x));
+        ByteArrayDataOutputStream out=new ByteArrayDataOutputStream(128);
+        Util.writeMessageList(y, x, "cluster".getBytes(), list, out, false, (short)1, sender);
+        ByteArray encoded=out.getBuffer();
+        byte flags=encoded.getArray()[Global.SHORT_SIZE];
+        assert (flags & (TP.COMPACT_ADDRS | TP.LIST | TP.MULTICAST)) == (TP.COMPACT_ADDRS | TP.LIST);
+
+        ByteArrayDataInputStream in=new ByteArrayDataInputStream(encoded.getArray(), encoded.getOffset() + TP.MSG_OVERHEAD,
+                                                                 encoded.getLength() - TP.MSG_OVERHEAD);
+        Address[] addrs=receiver.decode(in);
+        assert addrs != null && addrs[0].equals(y) && addrs[1].equals(x);
+        MessageBatch[] batches=Util.readMessageBatch(in, addrs[0], addrs[1], false, new DefaultMessageFactory());
+        MessageBatch batch=batches[0];
+        assert batch.size() == 5 && batch.sender().equals(x) && batch.dest().equals(y);
+        int expected=1;
+        for(Message m: batch)
+            assert m.getSrc().equals(x) && (Integer)m.getObject() == expected++;
+    }
+
+    /** Multicasts are also received by members with a different view (e.g. other partitions) and are never encoded */
+    public void testMulticastsNotEncoded() throws Exception {
+        Address x=Util.createRandomAddress("X"), y=Util.createRandomAddress("Y");
+        FrameAddressEncoder encoder=new FrameAddressEncoder(2, 0);
+        encoder.viewChange(View.create(x, 1, x, y));
+        ByteArray frame=marshal(new BytesMessage(null, "hello".getBytes()).setSrc(x), true, encoder);
+        assert (frame.getArray()[Global.SHORT_SIZE] & TP.COMPACT_ADDRS) == 0;
+
+        List<Message> list=Arrays.asList(new ObjectMessage(null, 1).setSrc(x), new ObjectMessage(null, 2).setSrc(x));
+        ByteArrayDataOutputStream out=new ByteArrayDataOutputStream(128);
+        Util.writeMessageList(null, x, "cluster".getBytes(), list, out, true, (short)1, encoder);
+        assert (out.getBuffer().getArray()[Global.SHORT_SIZE] & TP.COMPACT_ADDRS) == 0;
+        assert encoder.getNumEncoded() == 0;
+    }
+
+    /** Ranks are not limited to Short.MAX_VALUE */
+    public void testLargeView() throws Exception {
+        Address[] mbrs=new Address[Short.MAX_VALUE + 10];
+        for(int i=0; i < mbrs.length; i++)
+            mbrs[i]=Util.createRandomAddress(String.valueOf(i));
+        View view=View.create(mbrs[0], 1, mbrs);
+        FrameAddressEncoder sender=new FrameAddressEncoder(2, 0), receiver=new FrameAddressEncoder(2, 0);
+        sender.viewChange(view);
+        receiver.viewChange(view);
+        Address dest=mbrs[mbrs.length-1], src=mbrs[Short.MAX_VALUE + 1];
+        ByteArray encoded=marshal(new BytesMessage(dest, "hello".getBytes()).setSrc(src), false, sender);
+        assert (encoded.getArray()[Global.SHORT_SIZE] & TP.COMPACT_ADDRS) == TP.COMPACT_ADDRS;
+        ByteArrayDataInputStream in=new ByteArrayDataInputStream(encoded.getArray(), encoded.getOffset() + TP.MSG_OVERHEAD,
+                                                                 encoded.getLength() - TP.MSG_OVERHEAD);
+        Address[] addrs=receiver.decode(in);
+        assert addrs != null && addrs[0].equals(dest) && addrs[1].equals(src);
+    }
+
+    public void testGrace() throws Exception {
+        Address x=Util.createRandomAddress("X"), y=Util.createRandomAddress("Y");
+        FrameAddressEncoder encoder=new FrameAddressEncoder(2, 60_000);
+        encoder.viewChange(View.create(x, 1, x, y));
+        ByteArray frame=marshal(new BytesMessage(y, "hello".getBytes()).setSrc(x), false, encoder);
+        assert (frame.getArray()[Global.SHORT_SIZE] & TP.COMPACT_ADDRS) == 0 && encoder.getNumEncoded() == 0;
+    }
+
+    public void testCluster() throws Exception {
+        a=create("A");
+        b=create("B");
+        c=create("C");
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, a, b, c);
+        // full addresses are used during the grace period after a view change (measured with the coarse time service)
+        Util.sleep(GRACE + a.getProtocolStack().getTransport().getTimeServiceInterval());
+        MyReceiver<Message> rb=new MyReceiver<Message>().rawMsgs(true), rc=new MyReceiver<Message>().rawMsgs(true);
+        b.setReceiver(rb);
+        c.setReceiver(rc);
+        for(int i=1; i <= 100; i++) {
+            a.send(new ObjectMessage(null, i));
+            a.send(new ObjectMessage(b.getAddress(), i));
+        }
+        Util.waitUntil(10000, 100, () -> rb.size() == 200 && rc.size() == 100);
+        assert rb.list().stream().allMatch(m -> a.getAddress().equals(m.getSrc()));
+        assert rc.list().stream().allMatch(m -> a.getAddress().equals(m.getSrc()) && m.getDest() == null);
+        List<Integer> ucasts=new ArrayList<>();
+        rb.list().stream().filter(m -> b.getAddress().equals(m.getDest())).forEach(m -> ucasts.add(m.getObject()));
+        assert ucasts.size() == 100;
+        for(int i=0; i < ucasts.size(); i++)
+            assert ucasts.get(i) == i+1;
+        assert a.getProtocolStack().getTransport().getNumCompactFramesSent() > 0;
+    }
+
+    /** Partitions must be able to merge with compact addresses: MERGE3's INFO multicasts must reach other partitions */
+    public void testMerge() throws Exception {
+        a=createWithMerge("A");
+        b=createWithMerge("B");
+        c=createWithMerge("C");
+        d=createWithMerge("D");
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, a, b, c, d);
+        View v1=View.create(a.getAddress(), 10, a.getAddress(), b.getAddress()),
+          v2=View.create(c.getAddress(), 10, c.getAddress(), d.getAddress());
+        injectView(v1, a, b);
+        injectView(v2, c, d);
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, a, b);
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, c, d);
+        // the partitions are merged after the grace period, when compact addresses are used
+        Util.waitUntilAllChannelsHaveSameView(20000, 500, a, b, c, d);
+        for(JChannel ch: Arrays.asList(a, b, c, d))
+            assert ch.getView().size() == 4 : ch.getName() + ": " + ch.getView();
+        a.send(new ObjectMessage(b.getAddress(), "hello"));
+        Util.waitUntilTrue(5000, 100, () -> a.getProtocolStack().getTransport().getNumCompactFramesSent() > 0);
+        assert a.getProtocolStack().getTransport().getNumCompactFramesSent() > 0;
+    }
+
+    protected static ByteArray marshal(Message msg, boolean multicast, FrameAddressEncoder encoder) throws Exception {
+        ByteArrayDataOutputStream out=new ByteArrayDataOutputStream(64);
+        Util.writeMessage(msg, out, multicast, encoder);
+        return out.getBuffer();
+    }
+
+    protected static JChannel create(String name) throws Exception {
+        JChannel ch=new JChannel(Util.getTestStack()).name(name);
+        ch.getProtocolStack().getTransport().setCompactAddressesGrace(GRACE).compactAddresses(true);
+        return ch.connect(CLUSTER);
+    }
+
+    protected static JChannel createWithMerge(String name) throws Exception {
+        Protocol[] prots={
+          new SHARED_LOOPBACK(),
+          new SHARED_LOOPBACK_PING(),
+          new MERGE3().setMinInterval(500).setMaxInterval(1000).setCheckInterval(2000),
+          new NAKACK2().useMcastXmit(false).logDiscardMessages(false).logNotFoundMessages(false),
+          new UNICAST3(),
+          new STABLE(),
+          new GMS().printLocalAddress(false).setJoinTimeout(1000).setMergeTimeout(3000).logViewWarnings(false)
+        };
+        ((TP)prots[0]).setCompactAddressesGrace(GRACE).compactAddresses(true);
+        return new JChannel(prots).name(name).connect(CLUSTER);
+    }
+
+    protected static void injectView(View view, JChannel... channels) {
+        Stream.of(channels).forEach(ch -> ((GMS)ch.getProtocolStack().findProtocol(GMS.class)).installView(view));
+    }
+}
@@ -0,0 +1,91 @@
+package org.jgroups.protocols;
+
+import org.jgroups.Address;
+import org.jgroups.Global;
+import org.jgroups.JChannel;
+import org.jgroups.PhysicalAddress;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.IpAddress;
+import org.jgroups.util.Responses;
+import org.jgroups.util.Util;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link JDBC_PING} against an in-memory H2 database
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@Test(groups=Global.FUNCTIONAL,singleThreaded=true)
+public class JDBC_PING_Test {
+    protected JChannel            a, b;
+    protected static final String GROUP=JDBC_PING_Test.class.getSimpleName();
+    protected static final String URL="jdbc:h2:mem:" + GROUP + ";DB_CLOSE_DELAY=-1";
+
+    @BeforeMethod protected void setup() throws Exception {
+        a=create("A").connect(GROUP);
+        b=create("B").connect(GROUP);
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, a, b);
+    }
+
+    @AfterMethod protected void destroy() {
+        JDBC_PING ping=a.getProtocolStack().findProtocol(JDBC_PING.class);
+        ping.removeAll(GROUP);
+        Util.close(b, a);
+    }
+
+    public void testDiscovery() {
+        JDBC_PING ping=b.getProtocolStack().findProtocol(JDBC_PING.class);
+        Responses rsps=new Responses(false);
+        ping.readAll(null, GROUP, rsps);
+        assert rsps.containsResponseFrom(a.getAddress()) && rsps.containsResponseFrom(b.getAddress()) : rsps;
+    }
+
+    public void testBatchedWrites() throws Exception {
+        JDBC_PING ping=a.getProtocolStack().findProtocol(JDBC_PING.class);
+        assert ping.batchWrites();
+        _testWrites(ping);
+    }
+
+    public void testUnbatchedWrites() throws Exception {
+        JDBC_PING ping=a.getProtocolStack().findProtocol(JDBC_PING.class);
+        ping.batchWrites(false);
+        _testWrites(ping);
+    }
+
+    /** Writes 3 rows twice (the second write replaces the rows) and checks that writes are counted per row */
+    protected static void _testWrites(JDBC_PING ping) throws Exception {
+        List<PingData> list=new ArrayList<>();
+        for(int i=1; i <= 3; i++) {
+            Address addr=Util.createRandomAddress("X" + i);
+            PhysicalAddress phys=new IpAddress(Util.getLoopback(), 5000 + i);
+            list.add(new PingData(addr, true, "X" + i, phys));
+        }
+        int writes=ping.getWrites();
+        ping.write(list, GROUP);
+        assert ping.getWrites() == writes + list.size() : String.format("writes: %d, expected %d", ping.getWrites(), writes + list.size());
+        ping.write(list, GROUP);
+        assert ping.getWrites() == writes + list.size() * 2;
+
+        Responses rsps=new Responses(false);
+        ping.readAll(null, GROUP, rsps);
+        for(PingData data: list) {
+            PingData rsp=rsps.findResponseFrom(data.getAddress());
+            assert rsp != null && rsp.getPhysicalAddr().equals(data.getPhysicalAddr()) : rsps;
+        }
+        assert rsps.size() == list.size() + 2 : rsps; // plus A and B
+    }
+
+    protected static JChannel create(String name) throws Exception {
+        JDBC_PING ping=new JDBC_PING().setValue("connection_url", URL).setValue("connection_driver", "org.h2.Driver")
+          .setValue("connection_username", "sa").setValue("connection_password", "");
+        return new JChannel(new SHARED_LOOPBACK(), ping, new NAKACK2(), new UNICAST3(), new STABLE(),
+                            new GMS().setJoinTimeout(1000)).name(name);
+    }
+}
@@ -0,0 +1,157 @@
+package org.jgroups.protocols;
+
+import org.jgroups.Address;
+import org.jgroups.Global;
+import org.jgroups.JChannel;
+import org.jgroups.Receiver;
+import org.jgroups.util.Util;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests {@link STREAM}
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@Test(groups=Global.FUNCTIONAL,singleThreaded=true)
+public class STREAM_Test {
+    protected JChannel       a, b, c;
+    protected StreamReceiver rb, rc;
+    protected static final int BUFFER_SIZE=64 * 1024;
+
+    @BeforeMethod
+    protected void setup() throws Exception {
+        a=create("A");
+        b=create("B");
+        c=create("C");
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, a,b,c);
+        b.setReceiver(rb=new StreamReceiver());
+        c.setReceiver(rc=new StreamReceiver());
+    }
+
+    @AfterMethod
+    protected void destroy() {Util.close(c, b, a);}
+
+    public void testUnicastStream() throws Exception {
+        int num=1_000_000; // 4MB, much larger than the receiver's buffer
+        try(DataOutputStream out=new DataOutputStream(new BufferedOutputStream(a.openStream(b.getAddress())))) {
+            for(int i=1; i <= num; i++)
+                out.writeInt(i);
+        }
+        Util.waitUntil(10000, 100, () -> rb.results.containsKey(a.getAddress()));
+        assert rb.results.get(a.getAddress()) == num : String.format("result: %s", rb.results);
+        assert rc.results.isEmpty();
+        STREAM s=b.getProtocolStack().findProtocol(STREAM.class);
+        assert s.getNumStreamsReceived() == 1 && s.getNumBytesReceived() == num * Global.INT_SIZE;
+        Util.waitUntil(5000, 100, () -> s.getNumOpenStreams() == 0);
+    }
+
+    public void testMulticastStream() throws Exception {
+        int num=100_000;
+        try(DataOutputStream out=new DataOutputStream(a.openStream(null))) {
+            for(int i=1; i <= num; i++)
+                out.writeInt(i);
+        }
+        Util.waitUntil(10000, 100, () -> rb.results.size() == 1 && rc.results.size() == 1);
+        assert rb.results.get(a.getAddress()) == num && rc.results.get(a.getAddress()) == num;
+        STREAM s=a.getProtocolStack().findProtocol(STREAM.class);
+        assert s.getNumStreamsReceived() == 0; // no loopback of our own stream
+    }
+
+    public void testEmptyStream() throws Exception {
+        a.openStream(b.getAddress()).close();
+        Util.waitUntil(10000, 100, () -> rb.results.containsKey(a.getAddress()));
+        assert rb.results.get(a.getAddress()) == 0;
+    }
+
+    public void testConcurrentStreams() throws Exception {
+        int num=50_000;
+        Thread[] senders=new Thread[2];
+        JChannel[] channels={a, c};
+        for(int i=0; i < senders.length; i++) {
+            JChannel ch=channels[i];
+            senders[i]=new Thread(() -> {
+                try(DataOutputStream out=new DataOutputStream(ch.openStream(b.getAddress()))) {
+                    for(int j=1; j <= num; j++)
+                        out.writeInt(j);
+                }
+                catch(Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            senders[i].start();
+        }
+        for(Thread t: senders)
+            t.join();
+        Util.waitUntil(10000, 100, () -> rb.results.size() == 2);
+        assert rb.results.values().stream().allMatch(n -> n == num) : String.format("results: %s", rb.results);
+    }
+
+    public void testSenderLeaves() throws Exception {
+        CountDownLatch latch=new CountDownLatch(1);
+        rb.latch=latch;
+        DataOutputStream out=new DataOutputStream(a.openStream(b.getAddress()));
+        for(int i=1; i <= 250; i++)
+            out.writeInt(i);
+        out.flush();
+        Util.waitUntil(10000, 100, () -> latch.getCount() == 0);
+        Address sender=a.getAddress();
+        Util.close(a);
+        Util.waitUntil(10000, 100, () -> rb.errors.containsKey(sender));
+        assert rb.errors.get(sender) instanceof EOFException;
+    }
+
+    public void testNoStreamProtocol() throws Exception {
+        try(JChannel x=new JChannel(Util.getTestStack()).name("X").connect(STREAM_Test.class.getSimpleName())) {
+            x.openStream(null);
+            assert false : "openStream() should have failed without STREAM";
+        }
+        catch(IllegalStateException expected) {
+            System.out.printf("received exception as expected: %s\n", expected);
+        }
+    }
+
+    protected static JChannel create(String name) throws Exception {
+        return new JChannel(Util.getTestStack(new STREAM().setBufferSize(BUFFER_SIZE).setChunkSize(8000)))
+          .name(name).connect(STREAM_Test.class.getSimpleName());
+    }
+
+    /** Reads ints from a stream and verifies they're in order; records the number of ints read per sender */
+    protected static class StreamReceiver implements Receiver {
+        protected final Map<Address,Integer>   results=new ConcurrentHashMap<>();
+        protected final Map<Address,Exception> errors=new ConcurrentHashMap<>();
+        protected volatile CountDownLatch      latch;
+
+        public void receive(Address sender, InputStream input) throws Exception {
+            if(latch != null)
+                latch.countDown();
+            DataInputStream in=new DataInputStream(input);
+            int expected=1;
+            try {
+                for(;;) {
+                    int n;
+                    try {
+                        n=in.readInt();
+                    }
+                    catch(EOFException eof) {
+                        if(input.read() == -1) // regular end of the stream
+                            break;
+                        throw eof;
+                    }
+                    assert n == expected : String.format("expected %d, but got %d", expected, n);
+                    expected++;
+                }
+                results.put(sender, expected - 1);
+            }
+            catch(Exception ex) {
+                errors.put(sender, ex);
+            }
+        }
+    }
+}
@@ -37,6 +37,9 @@ public class SYM_ENCRYPT_Test extends EncryptTest {
     public void dummy() {}
 
 
+    /** Allows subclasses to configure SYM_ENCRYPT before the channel is created */
+    protected SYM_ENCRYPT configure(SYM_ENCRYPT encr) {return encr;}
+
     @Override protected JChannel create(String name, Consumer<List<Protocol>> c) throws Exception {
         // Verify that the SecureRandom instance can be customized
         SecureRandom secureRandom = SecureRandom.getInstance("SHA1PRNG");
@@ -54,7 +57,7 @@ public class SYM_ENCRYPT_Test extends EncryptTest {
           new SHARED_LOOPBACK(),
           new SHARED_LOOPBACK_PING(),
           // omit MERGE3 from the stack -- nodes are leaving gracefully
-          encr,
+          configure(encr),
           new NAKACK2().useMcastXmit(false),
           new UNICAST3(),
           new STABLE(),
@@ -0,0 +1,68 @@
+package org.jgroups.protocols;
+
+import org.jgroups.Address;
+import org.jgroups.BytesMessage;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.util.ByteArrayDataOutputStream;
+import org.jgroups.util.MyReceiver;
+import org.jgroups.util.Util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Exercise SYM_ENCRYPT_Test with encryption of entire frames in the transport.
+ */
+public class SYM_ENCRYPT_TestFrames extends SYM_ENCRYPT_Test {
+
+    @Override protected SYM_ENCRYPT configure(SYM_ENCRYPT encr) {
+        return encr.encryptFrames(true);
+    }
+
+    public void testFrameEncryption() throws Exception {
+        for(JChannel ch: Arrays.asList(a, b, c))
+            assert ch.getProtocolStack().getTransport().isFrameEncryption();
+        for(int i=1; i <= 500; i++)
+            a.send(null, i);
+        Util.waitUntil(10000, 200, () -> Stream.of(ra,rb,rc).allMatch(r -> r.size() == 500),
+                       () -> Stream.of(ra,rb,rc).map(r -> String.valueOf(r.size())).collect(Collectors.joining(", ")));
+        for(MyReceiver<Message> r: Arrays.asList(ra, rb, rc)) {
+            List<Integer> list=r.list().stream().map(m -> (Integer)m.getObject()).collect(Collectors.toList());
+            assert list.equals(IntStream.rangeClosed(1, 500).boxed().collect(Collectors.toList()));
+        }
+    }
+
+    public void testCorruptedFrameIsDropped() throws Exception {
+        TP transport=a.getProtocolStack().getTransport();
+        Address sender=b.getAddress(); // SHARED_LOOPBACK passes the logical address of the sender
+        ByteArrayDataOutputStream out=new ByteArrayDataOutputStream(64);
+        Message msg=new BytesMessage(null, "hello").setSrc(b.getAddress()).putHeader(transport.getId(), new TpHeader(cluster_name));
+        Util.writeMessage(msg, out, true);
+
+        byte[] encrypted=transport.getFrameCipher().encrypt(out.buffer(), 0, out.position()).getArray();
+        encrypted[encrypted.length-1]^=1; // flip a bit in the tag
+        transport.receive(sender, encrypted, 0, encrypted.length);
+        Util.sleep(500);
+        assert ra.size() == 0 : String.format("received %d messages", ra.size());
+
+        encrypted=transport.getFrameCipher().encrypt(out.buffer(), 0, out.position()).getArray();
+        transport.receive(sender, encrypted, 0, encrypted.length);
+        Util.waitUntil(5000, 100, () -> ra.size() == 1);
+        assert "hello".equals(ra.list().get(0).getObject());
+
+        transport.receive(sender, out.buffer(), 0, out.position()); // unencrypted frames are dropped
+        Util.sleep(500);
+        assert ra.size() == 1 : String.format("received %d messages", ra.size());
+    }
+
+    /**
+     * For some obscure TestNG reasons, this method is needed. Remove it and all tests are executed in separate threads,
+     * which makes the testsuite fail!!!
+     */
+    public void dummy2() {}
+
+}
@@ -0,0 +1,52 @@
+package org.jgroups.protocols;
+
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.stack.Protocol;
+import org.jgroups.util.MyReceiver;
+import org.jgroups.util.Util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Exercise SYM_ENCRYPT_Test with an AEAD (GCM) cipher and parallel decryption of message batches.
+ */
+public class SYM_ENCRYPT_TestGcm extends SYM_ENCRYPT_Test {
+
+    @Override protected String symAlgorithm() { return "AES/GCM/NoPadding"; }
+    @Override protected int symIvLength() { return 12; }
+
+    @Override protected JChannel create(String name, Consumer<List<Protocol>> c) throws Exception {
+        JChannel ch=super.create(name, c);
+        SYM_ENCRYPT encr=ch.getProtocolStack().findProtocol(SYM_ENCRYPT.class);
+        encr.parallelDecryptThreshold(2);
+        return ch;
+    }
+
+    public void testManyMessages() throws Exception {
+        for(int i=1; i <= 500; i++)
+            a.send(null, i);
+        Util.waitUntil(10000, 200, () -> Stream.of(ra,rb,rc).allMatch(r -> r.size() == 500),
+                       () -> Stream.of(ra,rb,rc).map(r -> String.valueOf(r.size())).collect(Collectors.joining(", ")));
+        for(MyReceiver<Message> r: Arrays.asList(ra, rb, rc)) {
+            List<Integer> list=r.list().stream().map(m -> (Integer)m.getObject()).collect(Collectors.toList());
+            assert list.equals(IntStream.rangeClosed(1, 500).boxed().collect(Collectors.toList()));
+        }
+        long parallel=Stream.of(b,c).map(ch -> (SYM_ENCRYPT)ch.getProtocolStack().findProtocol(SYM_ENCRYPT.class))
+          .mapToLong(Encrypt::numParallelBatches).sum();
+        System.out.printf("batches decrypted in parallel: %d\n", parallel);
+        assert parallel > 0 : "no batch was decrypted in parallel";
+    }
+
+    /**
+     * For some obscure TestNG reasons, this method is needed. Remove it and all tests are executed in separate threads,
+     * which makes the testsuite fail!!!
+     */
+    public void dummy2() {}
+
+}
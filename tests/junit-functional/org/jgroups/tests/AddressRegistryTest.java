@@ -0,0 +1,153 @@
+package org.jgroups.tests;
+
+import org.jgroups.Address;
+import org.jgroups.Global;
+import org.jgroups.JChannel;
+import org.jgroups.PhysicalAddress;
+import org.jgroups.blocks.LazyRemovalCache;
+import org.jgroups.protocols.TP;
+import org.jgroups.stack.IpAddress;
+import org.jgroups.util.AddressRegistry;
+import org.jgroups.util.Util;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests {@link AddressRegistry}
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@Test(groups=Global.FUNCTIONAL)
+public class AddressRegistryTest {
+    protected static final Address A=Util.createRandomAddress("A"), B=Util.createRandomAddress("B"),
+      C=Util.createRandomAddress("C"), D=Util.createRandomAddress("D");
+
+    public void testAddAndGet() {
+        AddressRegistry<String> reg=new AddressRegistry<>(10, 60_000);
+        assert reg.add(A, "a") && reg.add(B, "b");
+        assert !reg.add(A, "a2");
+        assert !reg.addIfAbsent(B, "b2");
+        assert reg.get(A).equals("a2") && reg.get(B).equals("b") && reg.get(C) == null && reg.get(null) == null;
+        assert reg.size() == 2 && reg.overflowSize() == 2;
+
+        reg.viewChange(Arrays.asList(A, B, C));
+        assert reg.overflowSize() == 0 && reg.size() == 2;
+        assert reg.get(A).equals("a2") && reg.get(B).equals("b") && reg.get(C) == null;
+        assert reg.addIfAbsent(C, "c") && !reg.addIfAbsent(C, "c2");
+        assert !reg.add(C, "c3") && reg.get(C).equals("c3");
+        assert reg.overflowSize() == 0 && reg.size() == 3;
+        assert reg.nonRemovedValues().equals(Set.of("a2", "b", "c3"));
+    }
+
+    public void testRemove() {
+        AddressRegistry<String> reg=new AddressRegistry<>(10, 60_000);
+        reg.viewChange(Arrays.asList(A, B));
+        reg.add(A, "a");
+        reg.add(B, "b");
+        reg.add(C, "c");
+        reg.remove(A);
+        reg.remove(C);
+        // removed entries are only marked as removable
+        assert reg.get(A).equals("a") && reg.get(C).equals("c") && reg.size() == 3;
+        assert reg.nonRemovedValues().equals(Set.of("b"));
+        assert reg.contents(true).keySet().equals(Set.of(B));
+        assert reg.contents(false).keySet().equals(Set.of(A, B, C));
+
+        // re-adding a removed member removes the mark
+        assert !reg.add(A, "a2");
+        assert reg.nonRemovedValues().equals(Set.of("a2", "b")) && reg.overflowSize() == 1;
+
+        reg.removeMarkedElements(false); // not yet expired
+        assert reg.get(C).equals("c");
+        reg.removeMarkedElements(true);
+        assert reg.get(C) == null && reg.size() == 2;
+    }
+
+    public void testAddIfAbsentRevivesRemovedMember() {
+        AddressRegistry<String> reg=new AddressRegistry<>(10, 0);
+        reg.viewChange(Arrays.asList(A, B));
+        reg.add(A, "a");
+        reg.add(B, "b");
+        reg.remove(A);
+        assert reg.nonRemovedValues().equals(Set.of("b"));
+        assert !reg.addIfAbsent(A, "a2"); // A is present: the mapping is kept, but is not removable anymore
+        assert reg.get(A).equals("a") && reg.overflowSize() == 0;
+        assert reg.nonRemovedValues().equals(Set.of("a", "b"));
+        reg.removeMarkedElements(true);
+        assert reg.get(A).equals("a") && reg.size() == 2;
+    }
+
+    public void testViewChange() {
+        AddressRegistry<String> reg=new AddressRegistry<>(10, 60_000);
+        reg.viewChange(Arrays.asList(A, B, C));
+        reg.add(A, "a");
+        reg.add(B, "b");
+        reg.add(C, "c");
+        reg.add(D, "d"); // not yet a member: not removable
+        assert reg.nonRemovedValues().size() == 4;
+
+        reg.viewChange(Arrays.asList(A, C));
+        assert reg.get(B).equals("b") && reg.get(D).equals("d");
+        assert reg.nonRemovedValues().equals(Set.of("a", "c"));
+        assert reg.overflowSize() == 2;
+
+        reg.viewChange(Arrays.asList(A, B, C, D)); // B and D (re-)join
+        assert reg.overflowSize() == 0;
+        assert reg.nonRemovedValues().equals(Set.of("a", "b", "c", "d"));
+        Map<Address,String> contents=reg.contents(true);
+        assert contents.size() == 4 && contents.get(D).equals("d");
+    }
+
+    public void testExpiryOnViewChange() {
+        AddressRegistry<String> reg=new AddressRegistry<>(10, 0);
+        reg.viewChange(Arrays.asList(A, B));
+        reg.add(A, "a");
+        reg.add(B, "b");
+        reg.viewChange(List.of(A));
+        assert reg.get(B) == null && reg.size() == 1;
+    }
+
+    public void testMaxSize() {
+        AddressRegistry<String> reg=new AddressRegistry<>(5, 0);
+        List<Address> addrs=IntStream.range(0, 5).mapToObj(i -> Util.createRandomAddress("X" + i))
+          .collect(Collectors.toList());
+        addrs.forEach(a -> reg.add(a, a.toString()));
+        addrs.forEach(reg::remove);
+        assert reg.overflowSize() == 5; // max size not yet exceeded
+        reg.add(A, "a");
+        assert reg.overflowSize() == 1 && reg.get(A).equals("a");
+    }
+
+    /** TP.getLogicalAddressCache() returns a (deprecated) copy of the AddressRegistry as a LazyRemovalCache */
+    public void testLogicalAddressCache() throws Exception {
+        try(JChannel ch=new JChannel(Util.getTestStack()).name("A").connect(AddressRegistryTest.class.getSimpleName())) {
+            TP tp=ch.getProtocolStack().getTransport();
+            tp.getAddressRegistry().add(B, new IpAddress(Util.getLoopback(), 5000));
+            tp.getAddressRegistry().remove(B);
+            LazyRemovalCache<Address,PhysicalAddress> cache=tp.getLogicalAddressCache();
+            assert cache.get(ch.getAddress()).equals(tp.getAddressRegistry().get(ch.getAddress()));
+            assert cache.get(B) != null && !cache.nonRemovedValues().contains(cache.get(B));
+            assert cache.contents().keySet().equals(tp.getAddressRegistry().keySet());
+        }
+    }
+
+    public void testLargeView() {
+        AddressRegistry<Integer> reg=new AddressRegistry<>(10, 60_000);
+        List<Address> mbrs=IntStream.range(0, 1000).mapToObj(i -> Util.createRandomAddress(String.valueOf(i)))
+          .collect(Collectors.toList());
+        reg.viewChange(mbrs);
+        for(int i=0; i < mbrs.size(); i++)
+            reg.add(mbrs.get(i), i);
+        for(int i=0; i < mbrs.size(); i++)
+            assert reg.get(mbrs.get(i)) == i;
+        assert reg.size() == 1000 && reg.overflowSize() == 0;
+        reg.clear();
+        assert reg.size() == 0 && reg.get(mbrs.get(0)) == null;
+    }
+}
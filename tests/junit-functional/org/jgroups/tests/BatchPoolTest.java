@@ -0,0 +1,82 @@
+package org.jgroups.tests;
+
+import org.jgroups.Address;
+import org.jgroups.EmptyMessage;
+import org.jgroups.Global;
+import org.jgroups.util.BatchPool;
+import org.jgroups.util.MessageBatch;
+import org.jgroups.util.Util;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.jgroups.util.MessageBatch.Mode.REG;
+
+/**
+ * Tests {@link BatchPool}
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@Test(groups=Global.FUNCTIONAL,singleThreaded=true)
+public class BatchPoolTest {
+    protected static final Address A=Util.createRandomAddress("A"), B=Util.createRandomAddress("B");
+
+    public void testReuse() {
+        MessageBatch batch=BatchPool.acquire(A, B, null, false, REG, 10);
+        assert batch.isEmpty() && batch.capacity() >= 10;
+        assert A.equals(batch.dest()) && B.equals(batch.sender());
+        batch.add(new EmptyMessage(A)).add(new EmptyMessage(A));
+        assert BatchPool.depth() == 1;
+        BatchPool.release(batch);
+        assert BatchPool.depth() == 0;
+        assert batch.isEmpty() && batch.dest() == null && batch.sender() == null;
+
+        MessageBatch batch2=BatchPool.acquire(null, A, null, true, REG, 5);
+        assert batch2 == batch && batch2.isEmpty() && batch2.multicast();
+        BatchPool.release(batch2);
+    }
+
+    public void testNesting() {
+        List<MessageBatch> list=new ArrayList<>();
+        for(int i=0; i < BatchPool.MAX_DEPTH + 2; i++) {
+            MessageBatch b=BatchPool.acquire(A, B, null, false, REG, 1);
+            assert !list.contains(b);
+            list.add(b);
+        }
+        assert BatchPool.depth() == BatchPool.MAX_DEPTH;
+        for(int i=list.size()-1; i >= 0; i--)
+            BatchPool.release(list.get(i));
+        assert BatchPool.depth() == 0;
+
+        // the pooled batches are handed out again, in the same order
+        for(int i=0; i < BatchPool.MAX_DEPTH; i++) {
+            MessageBatch b=BatchPool.acquire(A, B, null, false, REG, 1);
+            assert b == list.get(i);
+        }
+        for(int i=BatchPool.MAX_DEPTH-1; i >= 0; i--)
+            BatchPool.release(list.get(i));
+        assert BatchPool.depth() == 0;
+    }
+
+    public void testReleaseOfLargeBatch() {
+        MessageBatch batch=BatchPool.acquire(A, B, null, false, REG, BatchPool.MAX_CAPACITY + 1);
+        BatchPool.release(batch);
+        MessageBatch batch2=BatchPool.acquire(A, B, null, false, REG, 1);
+        assert batch2 != batch && batch2.capacity() <= BatchPool.MAX_CAPACITY;
+        BatchPool.release(batch2);
+    }
+
+    public void testPerThread() throws InterruptedException {
+        MessageBatch batch=BatchPool.acquire(A, B, null, false, REG, 1);
+        MessageBatch[] other={null};
+        Thread t=new Thread(() -> {
+            other[0]=BatchPool.acquire(A, B, null, false, REG, 1);
+            BatchPool.release(other[0]);
+        });
+        t.start();
+        t.join();
+        assert other[0] != null && other[0] != batch;
+        BatchPool.release(batch);
+    }
+}
@@ -274,6 +274,21 @@ public class BitsTest {
         }
     }
 
+    public void testShortCompressed() throws Exception {
+        short[] shorts={0, 1, 127, 128, 200, 16383, 16384, -100, -1, Short.MIN_VALUE, Short.MAX_VALUE};
+        for(short s: shorts) {
+            ByteArrayOutputStream output=new ByteArrayOutputStream();
+            DataOutputStream out=new DataOutputStream(output);
+            Bits.writeShortCompressed(s, out);
+            out.flush();
+            byte[] buf=output.toByteArray();
+            assert buf.length == Bits.compressedSize(s);
+            short ss=Bits.readShortCompressed(new DataInputStream(new ByteArrayInputStream(buf)));
+            assert s == ss;
+        }
+        assert Bits.compressedSize((short)5) == 1;
+    }
+
     public void testInt() {
         int[] ints={0,-100,200, Integer.MIN_VALUE, Integer.MAX_VALUE};
         for(int i: ints) {
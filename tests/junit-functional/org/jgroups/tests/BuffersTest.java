@@ -525,6 +525,23 @@ public class BuffersTest {
         }
     }
 
+    /** Read-only buffers are shared between connections, e.g. by the GossipRouter, and must not be copied */
+    public void testCopyWithReadOnlyBuffers() throws Exception {
+        ByteBuffer shared=ByteBuffer.wrap("hello world".getBytes()).asReadOnlyBuffer(),
+          len=ByteBuffer.allocate(Global.INT_SIZE).putInt(0, shared.remaining());
+        Buffers bufs=new Buffers(len, shared.duplicate());
+        MockSocketChannel ch=new MockSocketChannel().bytesToWrite(6).recorder(ByteBuffer.allocate(100));
+        boolean success=bufs.write(ch);
+        assert !success;
+        bufs.copy();
+        assert bufs.get(bufs.position()).isReadOnly() : "read-only buffer should not have been copied";
+        assert bufs.nextToCopy() == bufs.limit();
+
+        ch.bytesToWrite(100);
+        success=bufs.write(ch);
+        assert success;
+        assert shared.position() == 0 && shared.remaining() == 11; // duplicates don't change the shared buffer
+    }
 
     public void testIteration() {
         Buffers buf=new Buffers(6).add(ByteBuffer.wrap("hello world".getBytes()), ByteBuffer.allocate(1024),
@@ -0,0 +1,101 @@
+package org.jgroups.tests;
+
+import org.jgroups.Global;
+import org.jgroups.util.Compressor;
+import org.jgroups.util.DeflateCompressor;
+import org.jgroups.util.LZ4Compressor;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Tests {@link Compressor} implementations
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@Test(groups=Global.FUNCTIONAL,dataProvider="createCompressor")
+public class CompressorTest {
+    protected static final byte[] DICT=("{\"type\":\"update\",\"cluster\":\"demo\",\"key\":\"\",\"value\":\"\"," +
+      "\"version\":0,\"timestamp\":0}").getBytes(StandardCharsets.UTF_8);
+
+    @DataProvider
+    static Object[][] createCompressor() {
+        return new Object[][]{
+          {(Supplier<Compressor>)DeflateCompressor::new},
+          {(Supplier<Compressor>)LZ4Compressor::new}
+        };
+    }
+
+    public void testRoundTrip(Supplier<Compressor> s) throws Exception {
+        Compressor c=s.get(), u=s.get();
+        Random r=new Random(322);
+        for(int size: new int[]{0, 1, 5, 12, 13, 100, 1000, 65536, 200_000}) {
+            byte[] text=createText(size, r);
+            check(c, u, text, true);
+            byte[] random=new byte[size];
+            r.nextBytes(random);
+            check(c, u, random, false);
+        }
+    }
+
+    public void testOffsets(Supplier<Compressor> s) throws Exception {
+        Compressor c=s.get(), u=s.get();
+        byte[] text=createText(5000, new Random(1));
+        byte[] out=new byte[10 + text.length * 2];
+        int len=c.compress(text, 100, 4000, out, 10);
+        assert len > 0 && len < 4000;
+        byte[] result=new byte[4010];
+        u.uncompress(out, 10, len, result, 10, 4000);
+        assert Arrays.equals(Arrays.copyOfRange(text, 100, 4100), Arrays.copyOfRange(result, 10, 4010));
+    }
+
+    public void testOutputTooSmall(Supplier<Compressor> s) throws Exception {
+        Compressor c=s.get();
+        byte[] random=new byte[1000];
+        new Random(2).nextBytes(random);
+        int len=c.compress(random, 0, random.length, new byte[100], 0);
+        assert len == -1 : "compressed size should not fit: " + len;
+    }
+
+    public void testDictionary(Supplier<Compressor> s) throws Exception {
+        Compressor c=s.get().dictionary(DICT), u=s.get().dictionary(DICT), no_dict=s.get();
+        byte[] msg=("{\"type\":\"update\",\"cluster\":\"demo\",\"key\":\"k1\",\"value\":\"v1\",\"version\":3," +
+          "\"timestamp\":1000}").getBytes(StandardCharsets.UTF_8);
+        byte[] out=new byte[msg.length * 2];
+        int len_without=no_dict.compress(msg, 0, msg.length, out, 0);
+        int len=c.compress(msg, 0, msg.length, out, 0);
+        assert len > 0 && (len_without < 0 || len < len_without)
+          : String.format("dictionary: %d bytes, no dictionary: %d bytes", len, len_without);
+        byte[] result=new byte[msg.length];
+        u.uncompress(out, 0, len, result, 0, msg.length);
+        assert Arrays.equals(msg, result);
+
+        // the dictionary must not affect the compression of subsequent data
+        byte[] text=createText(10_000, new Random(3));
+        check(c, u, text, true);
+    }
+
+    protected static void check(Compressor c, Compressor u, byte[] data, boolean compressible) throws Exception {
+        byte[] out=new byte[data.length + data.length / 255 + 64];
+        int len=c.compress(data, 0, data.length, out, 0);
+        assert len >= 0;
+        if(compressible && data.length >= 1000)
+            assert len < data.length * 3 / 4 : String.format("%s: compressed %d bytes to %d bytes", c, data.length, len);
+        byte[] result=new byte[data.length];
+        int size=u.uncompress(out, 0, len, result, 0, data.length);
+        assert size == data.length;
+        assert Arrays.equals(data, result);
+    }
+
+    protected static byte[] createText(int size, Random r) {
+        String[] words={"view", "member", "cluster", "message", "digest", "seqno", "header", "address", "merge"};
+        StringBuilder sb=new StringBuilder(size + 16);
+        while(sb.length() < size)
+            sb.append(words[r.nextInt(words.length)]).append(r.nextInt(10)).append(' ');
+        return Arrays.copyOf(sb.toString().getBytes(StandardCharsets.US_ASCII), size);
+    }
+}
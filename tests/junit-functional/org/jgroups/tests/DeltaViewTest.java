@@ -57,6 +57,45 @@ public class DeltaViewTest {
         System.out.printf("\nJ: %s\nK: %s\nL: %s\n", j.getView(), k.getView(), l.getView());
     }
 
+    /**
+     * Members join concurrently while the coordinator pipelines view installation. K delays its VIEW_ACKs, so the
+     * coordinator has to send new views while VIEW_ACKs for previous views are still outstanding
+     */
+    public void testDeltaViewsWithPipelining() throws Exception {
+        m=create("M");
+        n=create("N");
+        GMS gms=j.getProtocolStack().findProtocol(GMS.class);
+        gms.setMaxPendingViews(3).setMaxJoinBatchSize(1);
+        connect(CLUSTER, j, k);
+        DelayViewAcks delay=new DelayViewAcks(300);
+        k.getProtocolStack().insertProtocol(delay, ProtocolStack.Position.BELOW, GMS.class);
+        List<Thread> joiners=new ArrayList<>();
+        for(JChannel ch: Arrays.asList(l,m,n)) {
+            Thread t=new Thread(() -> {
+                try {
+                    ch.connect(CLUSTER);
+                }
+                catch(Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            joiners.add(t);
+            t.start();
+        }
+        for(Thread t: joiners)
+            t.join(20000);
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, j,k,l,m,n);
+        Util.waitUntil(5000, 100, () -> gms.getNumPendingViews() == 0);
+        int max_pending=gms.getMaxNumPendingViews();
+        assert max_pending > 1 : "views were not pipelined: " + max_pending;
+        assert max_pending <= 3 : "max_pending_views is 3, but max pending views was " + max_pending;
+        assert delay.num_acks_with_view_id > 0 : "the coordinator should have requested VIEW_ACKs with view-ids";
+
+        gms.up(new Event(Event.SUSPECT, Collections.singletonList(n.getAddress())));
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, j,k,l,m);
+        assert j.getView().size() == 4;
+    }
+
     /**
      * Tests https://issues.redhat.com/browse/JGRP-2421:
      * <pre>
@@ -117,6 +156,30 @@ public class DeltaViewTest {
     }
 
 
+    /** Delays VIEW_ACKs sent by this member */
+    protected static class DelayViewAcks extends Protocol {
+        protected final long delay;
+        protected volatile int num_acks_with_view_id;
+
+        protected DelayViewAcks(long delay) {
+            this.delay=delay;
+        }
+
+        public Object down(Message msg) {
+            GMS.GmsHeader hdr=msg.getHeader(GMS_ID);
+            if(hdr != null && hdr.getType() == GMS.GmsHeader.VIEW_ACK) {
+                if(hdr.viewId() != null)
+                    num_acks_with_view_id++;
+                new Thread(() -> {
+                    Util.sleep(delay);
+                    down_prot.down(msg);
+                }).start();
+                return null;
+            }
+            return down_prot.down(msg);
+        }
+    }
+
     // up first view: queue
     // down JOIN-RSP: queue
     // up second view: queue
@@ -0,0 +1,56 @@
+package org.jgroups.tests;
+
+import org.jgroups.Global;
+import org.jgroups.JChannel;
+import org.jgroups.protocols.*;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.util.Util;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Tests {@link Discovery#coordSendsSnapshot(boolean)}: only the coordinator replies to discovery requests, sending
+ * the information about all members in a single message
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@Test(groups=Global.FUNCTIONAL,singleThreaded=true)
+public class DiscoverySnapshotTest {
+    protected JChannel[] channels;
+
+    @AfterMethod protected void destroy() {Util.closeReverse(channels);}
+
+    public void testJoinWithSnapshot() throws Exception {
+        channels=new JChannel[5];
+        for(int i=0; i < channels.length; i++) {
+            channels[i]=create(String.valueOf((char)('A' + i)));
+            channels[i].connect(DiscoverySnapshotTest.class.getSimpleName());
+        }
+        Util.waitUntilAllChannelsHaveSameView(10000, 200, channels);
+        PING coord=channels[0].getProtocolStack().findProtocol(PING.class);
+        assert coord.numSnapshotsSent() >= channels.length-1
+          : String.format("expected at least %d snapshots, but got %d", channels.length-1, coord.numSnapshotsSent());
+        assert coord.numSnapshotsCreated() <= coord.numSnapshotsSent();
+        for(int i=1; i < channels.length; i++) {
+            PING ping=channels[i].getProtocolStack().findProtocol(PING.class);
+            assert ping.numSnapshotsSent() == 0 : String.format("%s sent %d snapshots", channels[i].getAddress(),
+                                                                 ping.numSnapshotsSent());
+        }
+        assert Stream.of(channels).allMatch(ch -> ch.getView().getCoord().equals(channels[0].getAddress()));
+        System.out.printf("views:\n%s\n", Arrays.toString(Stream.of(channels).map(JChannel::getView).toArray()));
+    }
+
+    protected static JChannel create(String name) throws Exception {
+        return new JChannel(new SHARED_LOOPBACK(),
+                            new PING().coordSendsSnapshot(true),
+                            new NAKACK2(),
+                            new UNICAST3(),
+                            new STABLE(),
+                            new GMS().setJoinTimeout(1000)).name(name);
+    }
+}
@@ -3,11 +3,14 @@ package org.jgroups.tests;
 
 
 import org.jgroups.*;
+import org.jgroups.blocks.RequestCorrelator;
 import org.jgroups.protocols.*;
 import org.jgroups.protocols.pbcast.GMS;
 import org.jgroups.protocols.pbcast.NAKACK2;
 import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.Protocol;
 import org.jgroups.stack.ProtocolStack;
+import org.jgroups.util.MessageBatch;
 import org.jgroups.util.MyReceiver;
 import org.jgroups.util.SizeStreamable;
 import org.jgroups.util.Streamable;
@@ -16,15 +19,9 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
-import java.io.DataInput;
-import java.io.DataOutput;
-import java.io.IOException;
-import java.io.Serializable;
+import java.io.*;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -258,6 +255,86 @@ public class FragTest {
 
 
 
+    /** Tests reassembly of large messages into a CompositeMessage referencing the fragments (no copying) */
+    public void testScatter(Class<? extends Fragmentation> frag_clazz) throws Exception {
+        if(frag_clazz.equals(FRAG.class)) // FRAG doesn't support scatter_threshold
+            return;
+        setup(frag_clazz);
+        for(JChannel ch: Arrays.asList(a,b))
+            ((Fragmentation)ch.getProtocolStack().findProtocol(Fragmentation.class)).setScatterThreshold(FRAG_SIZE);
+        Message m1=new BytesMessage(null, array), m2=new BytesMessage(b.getAddress(), array);
+        a.send(m1);
+        a.send(m2);
+        Util.waitUntil(10000, 500, () -> r1.size() == 1 && r2.size() == 2);
+        assertForAllMessages(m -> m instanceof CompositeMessage && m.getLength() == array.length);
+        assertForAllMessages(m -> {
+            try(InputStream in=((CompositeMessage)m).getInputStream()) {
+                byte[] tmp=new byte[array.length];
+                new DataInputStream(in).readFully(tmp);
+                return in.read() == -1 && Util.verifyArray(tmp);
+            }
+            catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        assertForAllMessages(m -> a.getAddress().equals(m.getSrc()));
+        Fragmentation frag=b.getProtocolStack().findProtocol(Fragmentation.class);
+        assert frag.getNumberOfScatteredMessages() == 2;
+
+        // messages with headers of protocols above FRAG (or e.g. of a RequestCorrelator) are reassembled into a
+        // BytesMessage, as the receivers of the headers may call getArray()
+        r1.reset(); r2.reset();
+        short corr_id=1999;
+        m1=new BytesMessage(null, array).putHeader(corr_id, new RequestCorrelator.Header(RequestCorrelator.Header.REQ, 1, corr_id));
+        m2=new BytesMessage(b.getAddress(), array).putHeader(corr_id, new RequestCorrelator.Header(RequestCorrelator.Header.REQ, 2, corr_id));
+        a.send(m1);
+        a.send(m2);
+        Util.waitUntil(10000, 500, () -> r1.size() == 1 && r2.size() == 2);
+        assertForAllMessages(m -> m instanceof BytesMessage && m.getLength() == array.length && m.getHeader(corr_id) != null
+          && a.getAddress().equals(m.getSrc()));
+        assert frag.getNumberOfScatteredMessages() == 2;
+
+        // messages which need to be serialized are deserialized from the fragments
+        r1.reset(); r2.reset();
+        MySizeData obj=new MySizeData(322649, array);
+        send(new ObjectMessage(null, obj), new ObjectMessage(b.getAddress(), obj));
+        assertForAllMessages(m -> {
+            MySizeData data=m.getObject();
+            return data.equals(obj) && Util.verifyArray(data.array());
+        });
+    }
+
+
+
+    /** The first fragment (the only one with the headers of the protocols above) is received last */
+    public void testScatterOutOfOrder(Class<? extends Fragmentation> frag_clazz) throws Exception {
+        if(frag_clazz.equals(FRAG.class)) // FRAG doesn't support scatter_threshold
+            return;
+        setup(frag_clazz);
+        for(JChannel ch: Arrays.asList(a,b))
+            ((Fragmentation)ch.getProtocolStack().findProtocol(Fragmentation.class)).setScatterThreshold(FRAG_SIZE);
+        Fragmentation frag=b.getProtocolStack().findProtocol(Fragmentation.class);
+        ReverseFragments reverse=new ReverseFragments(frag.getId());
+        b.getProtocolStack().insertProtocol(reverse, ProtocolStack.Position.BELOW, frag.getClass());
+
+        short corr_id=1999;
+        Message m1=new BytesMessage(b.getAddress(), array).setFlag(Message.Flag.OOB),
+          m2=new BytesMessage(b.getAddress(), array).setFlag(Message.Flag.OOB)
+            .putHeader(corr_id, new RequestCorrelator.Header(RequestCorrelator.Header.REQ, 1, corr_id));
+        for(Message msg: Arrays.asList(m1, m2)) {
+            a.send(msg);
+            Util.waitUntil(10000, 100, () -> reverse.size() > 1);
+            Util.sleep(500); // wait for the remaining fragments
+            reverse.release();
+        }
+        Util.waitUntil(10000, 500, () -> r2.size() == 2);
+        Message scattered=r2.list().get(0), full=r2.list().get(1);
+        assert scattered instanceof CompositeMessage && scattered.getLength() == array.length;
+        assert full instanceof BytesMessage && full.getHeader(corr_id) != null && a.getAddress().equals(full.getSrc());
+        assert Util.verifyArray(full.getArray()) && full.getLength() == array.length;
+        assert frag.getNumberOfScatteredMessages() == 1;
+    }
+
     protected static JChannel createChannel(String name, Class<? extends Fragmentation> clazz,
                                             boolean use_encr) throws Exception {
         Fragmentation frag_prot=clazz.getDeclaredConstructor().newInstance();
@@ -307,6 +384,51 @@ public class FragTest {
 
 
 
+    /** Queues the fragments of a message and passes them up in reverse order when released */
+    protected static class ReverseFragments extends Protocol {
+        protected final short         frag_id;
+        protected final List<Message> frags=new ArrayList<>();
+
+        protected ReverseFragments(short frag_id) {
+            this.frag_id=frag_id;
+        }
+
+        protected synchronized int size() {return frags.size();}
+
+        public Object up(Message msg) {
+            if(msg.getHeader(frag_id) == null)
+                return up_prot.up(msg);
+            synchronized(this) {
+                frags.add(msg);
+            }
+            return null;
+        }
+
+        public void up(MessageBatch batch) {
+            for(Iterator<Message> it=batch.iterator(); it.hasNext();) {
+                Message msg=it.next();
+                if(msg.getHeader(frag_id) != null) {
+                    synchronized(this) {
+                        frags.add(msg);
+                    }
+                    it.remove();
+                }
+            }
+            if(!batch.isEmpty())
+                up_prot.up(batch);
+        }
+
+        protected void release() {
+            List<Message> tmp;
+            synchronized(this) {
+                tmp=new ArrayList<>(frags);
+                frags.clear();
+            }
+            Collections.reverse(tmp);
+            tmp.forEach(up_prot::up);
+        }
+    }
+
     protected static class Payload implements Serializable {
         private static final long serialVersionUID=-1989899280425578506L;
         protected int    seqno;
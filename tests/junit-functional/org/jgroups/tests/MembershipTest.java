@@ -106,6 +106,18 @@ public class MembershipTest {
         assert m1.size() == 3;
     }
 
+    public void testRemoveAndRetainAll() {
+        m1.add(a1, a2, a3, a4, a5); // a3 == a2
+        m1.remove(Arrays.asList(a1, a4));
+        assert !m1.contains(a1) && !m1.contains(a4);
+        assert m1.size() == 2 && m1.contains(a2) && m1.contains(a5);
+        m1.add(a1);
+        m1.retainAll(Collections.singletonList(a1));
+        assert m1.size() == 1 && m1.contains(a1) && !m1.contains(a2);
+        m1.clear();
+        assert !m1.contains(a1) && m1.isEmpty();
+    }
+
 
     public void testGetMembers() {
         testAdd();
@@ -130,6 +130,46 @@ public class MergeTest4 {
     }
 
 
+    /** Same as {@link #testSplitInTheMiddle2()}, but with MERGE3 in scalable mode */
+    public void testSplitInTheMiddleScalable() throws Exception {
+        for(JChannel ch: Arrays.asList(a,b,c,d))
+            ((MERGE3)ch.getProtocolStack().findProtocol(MERGE3.class)).setScalable(true).setParticipantInfoRatio(2);
+        View v1=View.create(a.getAddress(), 10, a.getAddress(), b.getAddress());
+        View v2=View.create(c.getAddress(), 10, c.getAddress(), d.getAddress());
+        injectView(v1, a,b);
+        injectView(v2, c,d);
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, a, b);
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, c, d);
+        for(JChannel ch: Arrays.asList(b,d)) {
+            MERGE3 merge=ch.getProtocolStack().findProtocol(MERGE3.class);
+            assert !merge.isViewConsistencyCheckerRunning() : "only coordinators check for inconsistent views";
+        }
+        Util.waitUntilAllChannelsHaveSameView(30000, 1000, a, b, c, d);
+        for(JChannel ch: Arrays.asList(a,b,c,d)) {
+            View view=ch.getView();
+            System.out.printf("%s: %s\n", ch.getName(), view);
+            assert view.size() == 4 : "view should have 4 members: " + view;
+        }
+    }
+
+    /** In scalable mode, a coordinator which becomes a participant needs to stop checking for inconsistent views */
+    public void testCoordBecomesParticipantScalable() throws Exception {
+        for(JChannel ch: Arrays.asList(a,b,c,d))
+            ((MERGE3)ch.getProtocolStack().findProtocol(MERGE3.class)).setScalable(true);
+        MERGE3 merge_a=a.getProtocolStack().findProtocol(MERGE3.class),
+          merge_c=c.getProtocolStack().findProtocol(MERGE3.class);
+        injectView(View.create(c.getAddress(), 10, c.getAddress(), d.getAddress()), c,d);
+        assert merge_c.isViewConsistencyCheckerRunning() : "C is coordinator";
+
+        injectView(View.create(a.getAddress(), 11, getMembers(a,b,c,d)), a,b,c,d);
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, a, b, c, d);
+        assert merge_a.isViewConsistencyCheckerRunning();
+        for(JChannel ch: Arrays.asList(b,c,d)) {
+            MERGE3 merge=ch.getProtocolStack().findProtocol(MERGE3.class);
+            assert !merge.isViewConsistencyCheckerRunning() : ch.getName() + " is a participant";
+        }
+    }
+
     public void testMergeWithAsymetricViewsCoordIsolated() throws Exception {
         // Isolate the coord
         Address coord = a.getView().getCreator();
@@ -469,6 +469,15 @@ public class MessageTest extends MessageTestBase {
         _testSize(msg);
     }
 
+    /**
+     * Header ids and magic ids are written as 2 bytes by default, and as variable-length values with
+     * {@link Message.TransientFlag#COMPACT_HEADERS}: tests ids of 1, 2 and 3 bytes
+     */
+    public void testHeadersRoundTrip() throws Exception {
+        byte[] buf=_testHeadersRoundTrip(false), compact_buf=_testHeadersRoundTrip(true);
+        assert compact_buf.length < buf.length;
+    }
+
     public void testMakeReply() {
         Address dest=Util.createRandomAddress("A"), src=Util.createRandomAddress("B");
         Message msg=new BytesMessage(dest, "Bela".getBytes()).setSrc(src);
@@ -490,6 +499,29 @@ public class MessageTest extends MessageTestBase {
     }
 
 
+    protected static byte[] _testHeadersRoundTrip(boolean compact) throws Exception {
+        short[] ids={1, 200, 20000, Short.MAX_VALUE};
+        Message msg=new BytesMessage(UUID.randomUUID(), "bela".getBytes()).setSrc(UUID.randomUUID());
+        if(compact)
+            msg.setFlag(Message.TransientFlag.COMPACT_HEADERS);
+        for(short id: ids)
+            msg.putHeader(id, new TpHeader("cluster-" + id));
+        msg.putHeader(NAKACK_ID, NakAckHeader2.createMessageHeader(322649));
+        byte[] buf=Util.streamableToByteBuffer(msg);
+        assert buf.length == msg.size();
+        Message copy=Util.streamableFromByteBuffer(BytesMessage::new, buf);
+        assert copy.getNumHeaders() == ids.length + 1;
+        for(short id: ids) {
+            TpHeader hdr=copy.getHeader(id);
+            assert hdr != null && new String(hdr.getClusterName()).equals("cluster-" + id);
+        }
+        NakAckHeader2 nak_hdr=copy.getHeader(NAKACK_ID);
+        assert nak_hdr.getSeqno() == 322649;
+        assert Objects.equals(copy.getDest(), msg.getDest()) && Objects.equals(copy.getSrc(), msg.getSrc());
+        assert "bela".equals(new String(copy.getArray(), copy.getOffset(), copy.getLength()));
+        return buf;
+    }
+
     protected static void _testSize(Message msg) throws Exception {
         long size=msg.size();
         byte[] serialized_form=Util.streamableToByteBuffer(msg);
@@ -50,6 +50,27 @@ public class NioServerTest {
     @AfterMethod protected void destroy() {Util.close(client, srv);}
 
     public void testTransfer() throws Exception {
+        transfer();
+    }
+
+    /** Same as above, but the server's connections are handled by separate selector threads, with backpressure */
+    public void testTransferWithSelectorThreads() throws Exception {
+        Util.close(client, srv);
+        srv=new NioServer(Util.getLoopback(), 0);
+        srv.numSelectors(2).maxPendingWriteBytes(MSG_SIZE * 10).reuseRecvBuffers(false);
+        srv.sendBufferSize(send_buf_size).receiveBufferSize(recv_buf_size);
+        srv.start();
+        client=new NioClient(null, 0, Util.getLoopback(), ((IpAddress)srv.localAddress()).getPort());
+        client.sendBufferSize(send_buf_size).receiveBufferSize(recv_buf_size);
+        client.maxSendBuffers(1000);
+        client.start();
+        for(Sender sender: senders)
+            sender.client(client);
+        transfer();
+        assert srv.numSelectorLoopSelects() > 0;
+    }
+
+    protected void transfer() throws Exception {
         MyReceiver receiver=new MyReceiver();
         srv.receiver(receiver);
 
@@ -74,7 +95,7 @@ public class NioServerTest {
     protected static class Sender extends Thread {
         protected final AtomicInteger  cnt;
         protected final CountDownLatch latch;
-        protected final NioClient      client;
+        protected NioClient            client;
 
         public Sender(AtomicInteger cnt, CountDownLatch latch, NioClient client) {
             this.cnt=cnt;
@@ -82,6 +103,8 @@ public class NioServerTest {
             this.client=client;
         }
 
+        public Sender client(NioClient c) {this.client=c; return this;}
+
         public void run() {
             int num_sends=0;
             try {
@@ -0,0 +1,98 @@
+package org.jgroups.tests;
+
+import org.jgroups.Global;
+import org.jgroups.util.ObjectLongMap;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests {@link ObjectLongMap}
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@Test(groups=Global.FUNCTIONAL)
+public class ObjectLongMapTest {
+
+    public void testPutAndGet() {
+        ObjectLongMap<String> map=new ObjectLongMap<>();
+        assert map.isEmpty() && map.get("A", -1) == -1;
+        map.put("A", 1).put("B", 2).put("A", 10);
+        assert map.size() == 2;
+        assert map.get("A", -1) == 10 && map.get("B", -1) == 2 && map.get("C", -1) == -1;
+        assert map.containsKey("A") && !map.containsKey("C");
+    }
+
+    public void testResize() {
+        ObjectLongMap<Integer> map=new ObjectLongMap<>(2);
+        int old_capacity=map.getCapacity();
+        for(int i=0; i < 1000; i++)
+            map.put(i, i * 2L);
+        assert map.size() == 1000 && map.getCapacity() > old_capacity;
+        for(int i=0; i < 1000; i++)
+            assert map.get(i, -1) == i * 2L;
+    }
+
+    public void testRemove() {
+        ObjectLongMap<Integer> map=new ObjectLongMap<>();
+        for(int i=0; i < 100; i++)
+            map.put(i, i);
+        for(int i=0; i < 100; i+=2)
+            assert map.remove(i);
+        assert !map.remove(0);
+        assert map.size() == 50;
+        for(int i=0; i < 100; i++)
+            assert map.get(i, -1) == (i % 2 == 0? -1 : i);
+    }
+
+    /** Keys with the same hash code are in the same probe sequence; removing one must not make the others unreachable */
+    public void testRemoveWithCollisions() {
+        ObjectLongMap<Key> map=new ObjectLongMap<>(4);
+        List<Key> keys=IntStream.range(0, 6).mapToObj(i -> new Key(i, i < 3? 1 : 2)).collect(Collectors.toList());
+        keys.forEach(k -> map.put(k, k.id));
+        assert map.remove(keys.get(0));
+        assert map.remove(keys.get(3));
+        for(Key k: keys)
+            assert map.get(k, -1) == (k.id == 0 || k.id == 3? -1 : k.id);
+        assert map.size() == 4;
+    }
+
+    public void testRetainAll() {
+        ObjectLongMap<Integer> map=new ObjectLongMap<>();
+        for(int i=0; i < 100; i++)
+            map.put(i, i);
+        Set<Integer> retain=new HashSet<>(Arrays.asList(5, 50, 99, 200));
+        map.retainAll(retain);
+        assert map.size() == 3;
+        Map<Integer,Long> copy=new HashMap<>();
+        map.forEach(copy::put);
+        assert copy.equals(Map.of(5, 5L, 50, 50L, 99, 99L)) : "map: " + map;
+    }
+
+    public void testClear() {
+        ObjectLongMap<String> map=new ObjectLongMap<String>().put("A", 1).put("B", 2);
+        map.clear();
+        assert map.isEmpty() && map.get("A", -1) == -1;
+        map.put("A", 3);
+        assert map.size() == 1 && map.get("A", -1) == 3;
+    }
+
+    protected static class Key {
+        protected final int id, hash;
+
+        protected Key(int id, int hash) {
+            this.id=id;
+            this.hash=hash;
+        }
+
+        public int hashCode() {return hash;}
+
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key)obj).id == id;
+        }
+
+        public String toString() {return String.valueOf(id);}
+    }
+}
@@ -0,0 +1,158 @@
+package org.jgroups.tests;
+
+import org.jgroups.*;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.util.Table;
+import org.jgroups.util.Util;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Tests {@link PooledMessageFactory} and {@link PooledBytesMessage}
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@Test(groups=Global.FUNCTIONAL,singleThreaded=true)
+public class PooledMessageFactoryTest {
+    protected JChannel             a, b;
+    protected static final String  CLUSTER=PooledMessageFactoryTest.class.getSimpleName();
+    protected static final int     NUM=500;
+
+    @AfterMethod protected void destroy() {Util.close(b, a);}
+
+    public void testReuse() {
+        PooledMessageFactory f=new PooledMessageFactory(16, false);
+        PooledBytesMessage msg=f.create(Message.BYTES_MSG);
+        assert msg.getRefcount() == 1 && f.getNumCreated() == 1;
+        msg.setDest(Util.createRandomAddress("A")).setFlag(Message.Flag.OOB).putHeader((short)1500, new STABLE.StableHeader());
+        msg.setArray("hello".getBytes());
+        msg.decr();
+        assert msg.getRefcount() == 0 && f.getPoolSize() == 1 && f.getNumReleased() == 1;
+
+        PooledBytesMessage msg2=f.create(Message.BYTES_MSG);
+        assert msg2 == msg && f.getNumReused() == 1 && f.getPoolSize() == 0;
+        assert msg2.getRefcount() == 1;
+        assert msg2.getDest() == null && msg2.getFlags() == 0 && msg2.getNumHeaders() == 0 && !msg2.hasPayload();
+    }
+
+    public void testRetain() {
+        PooledMessageFactory f=new PooledMessageFactory(16, false);
+        PooledBytesMessage msg=f.create(Message.BYTES_MSG);
+        msg.incr().decr();
+        assert f.getPoolSize() == 0;
+        msg.decr();
+        assert f.getPoolSize() == 1;
+        msg.decr(); // released twice: must not be added to the pool again
+        assert f.getPoolSize() == 1 && msg.getRefcount() == 0;
+    }
+
+    public void testOtherTypes() {
+        PooledMessageFactory f=new PooledMessageFactory(16, false);
+        assert f.create(Message.EMPTY_MSG) instanceof EmptyMessage;
+        assert f.create(Message.OBJ_MSG) instanceof ObjectMessage;
+        assert f.getNumCreated() == 0;
+        Message copy=((PooledBytesMessage)f.create(Message.BYTES_MSG)).copy(true, true);
+        assert !(copy instanceof PooledBytesMessage) : "copies must not be pooled";
+    }
+
+    public void testLeakDetection() {
+        PooledMessageFactory f=new PooledMessageFactory(16, true);
+        PooledBytesMessage msg=f.create(Message.BYTES_MSG);
+        assert f.getNumInUse() == 1;
+        msg.decr();
+        assert f.getNumInUse() == 0;
+        msg=null;
+        retainAndDrop(f); // the message is never released
+        assert f.getNumInUse() == 1;
+        for(int i=0; i < 20 && f.getNumLeaks() == 0; i++) {
+            System.gc();
+            Util.sleep(100);
+            f.checkLeaks();
+        }
+        assert f.getNumLeaks() == 1 && f.getNumInUse() == 0 : f;
+    }
+
+    /** Messages which were never retained (e.g. duplicates or fragments consumed by protocols) are not leaks */
+    public void testConsumedMessagesAreNoLeaks() {
+        PooledMessageFactory f=new PooledMessageFactory(16, true);
+        f.create(Message.BYTES_MSG); // dropped without being released, e.g. by NAKACK2
+        assert f.getNumInUse() == 1;
+        for(int i=0; i < 20 && f.getNumConsumed() == 0; i++) {
+            System.gc();
+            Util.sleep(100);
+            f.checkLeaks();
+        }
+        assert f.getNumConsumed() == 1 && f.getNumLeaks() == 0 && f.getNumInUse() == 0 : f;
+    }
+
+    /** Messages are released after delivery, and reused for subsequent messages */
+    public void testCluster() throws Exception {
+        a=create("A");
+        b=create("B");
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, a, b);
+        List<String> list=new CopyOnWriteArrayList<>();
+        b.setReceiver(new Receiver() {
+            public void receive(Message msg) {
+                list.add(new String(msg.getArray(), msg.getOffset(), msg.getLength()));
+            }
+        });
+        for(int i=1; i <= NUM; i++)
+            a.send(new BytesMessage(b.getAddress(), ("m" + i).getBytes()));
+        Util.waitUntil(10000, 100, () -> list.size() == NUM);
+        for(int i=0; i < list.size(); i++)
+            assert list.get(i).equals("m" + (i+1));
+        PooledMessageFactory f=(PooledMessageFactory)b.getProtocolStack().getTransport().getMessageFactory();
+        System.out.println("f = " + f);
+        assert f.getNumReleased() >= NUM && f.getNumReused() > 0;
+    }
+
+    /** With discard_delivered_msgs=false, delivered multicasts are retained by NAKACK2 (until they are stable) */
+    public void testRetainedByNAKACK2() throws Exception {
+        a=create("A");
+        b=create("B");
+        for(JChannel ch: List.of(a, b))
+            ch.getProtocolStack().findProtocol(NAKACK2.class).setValue("discard_delivered_msgs", false);
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, a, b);
+        List<String> list=new CopyOnWriteArrayList<>();
+        b.setReceiver(new Receiver() {
+            public void receive(Message msg) {
+                list.add(new String(msg.getArray(), msg.getOffset(), msg.getLength()));
+            }
+        });
+        for(int i=1; i <= 10; i++)
+            a.send(new BytesMessage(null, ("m" + i).getBytes()));
+        Util.waitUntil(10000, 100, () -> list.size() == 10);
+        for(int i=1; i <= 10; i++) // would reuse the messages in the table if they had been released
+            a.send(new BytesMessage(b.getAddress(), ("u" + i).getBytes()));
+        Util.waitUntil(10000, 100, () -> list.size() == 20);
+
+        Table<Message> win=((NAKACK2)b.getProtocolStack().findProtocol(NAKACK2.class)).getWindow(a.getAddress());
+        List<Message> retained=LongStream.rangeClosed(win.getLow(), win.getHighestDelivered()).mapToObj(win::get)
+          .filter(m -> m instanceof PooledBytesMessage).collect(Collectors.toList());
+        int num_app_msgs=0;
+        for(Message msg: retained) {
+            assert ((PooledBytesMessage)msg).getRefcount() > 0;
+            String s=new String(msg.getArray(), msg.getOffset(), msg.getLength());
+            assert !s.startsWith("u") : String.format("message %s was reused: %s", msg, s);
+            if(list.contains(s))
+                num_app_msgs++;
+        }
+        assert num_app_msgs == 10 : String.format("expected 10 retained messages, but got %d", num_app_msgs);
+    }
+
+    protected static void retainAndDrop(PooledMessageFactory f) {
+        f.<PooledBytesMessage>create(Message.BYTES_MSG).incr();
+    }
+
+    protected static JChannel create(String name) throws Exception {
+        JChannel ch=new JChannel(Util.getTestStack()).name(name);
+        ch.getProtocolStack().getTransport().setMessageFactory(new PooledMessageFactory(64, false));
+        return ch.connect(CLUSTER);
+    }
+}
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
 
 /**
  * @author Bela Ban
@@ -184,6 +185,14 @@ public class SeqnoListTest {
         _testIteration(new SeqnoList(8).add(3).add(5, 5).add(7), Arrays.asList(3L,5L,7L));
     }
 
+    public static void testPrimitiveIteration() {
+        SeqnoList list=new SeqnoList(20, 100).add(100).add(105,107).add(119);
+        List<Long> seqnos=new ArrayList<>();
+        for(PrimitiveIterator.OfLong it=list.iterator(); it.hasNext();)
+            seqnos.add(it.nextLong());
+        assert seqnos.equals(Arrays.asList(100L,105L,106L,107L,119L)) : "seqnos: " + seqnos;
+    }
+
 
     public void testSerialization() throws Exception {
         SeqnoList list=new SeqnoList(1000).add(1, 10, 50)
@@ -139,6 +139,63 @@ public class SizeTest {
         _testSize(digest);
     }
 
+    public void testDigestWithRefView() throws Exception {
+        Address a=Util.createRandomAddress("A"), b=Util.createRandomAddress("B"),
+          c=Util.createRandomAddress("C"), d=Util.createRandomAddress("D");
+        View view=View.create(a, 1, a, b, c);
+        MutableDigest digest=new MutableDigest(new Address[]{c, a, d});
+        digest.set(c, 10, 12).set(a, 200, 205).set(d, 3, 3);
+
+        ByteArrayDataOutputStream out=new ByteArrayDataOutputStream(64);
+        digest.writeTo(out, view);
+        assert out.position() == digest.serializedSize(view);
+        assert digest.serializedSize(view) < digest.serializedSize(true);
+
+        Digest copy=new Digest();
+        copy.readFrom(new ByteArrayDataInputStream(out.buffer(), 0, out.position()), view);
+        System.out.println("copy = " + copy);
+        assert copy.equals(digest);
+        assert copy.getMembersRaw()[0] == c && copy.getMembersRaw()[2].equals(d);
+        assert Arrays.equals(copy.get(a), new long[]{200, 205});
+    }
+
+    /** Indices beyond Short.MAX_VALUE must not be read as negative numbers */
+    public void testDigestWithLargeRefView() throws Exception {
+        Address[] mbrs=new Address[40_000];
+        for(int i=0; i < mbrs.length; i++)
+            mbrs[i]=Util.createRandomAddress();
+        View view=View.create(mbrs[0], 1, mbrs);
+        Address last=mbrs[mbrs.length-1], other=Util.createRandomAddress("X");
+        MutableDigest digest=new MutableDigest(new Address[]{last, mbrs[0], other});
+        digest.set(last, 10, 12).set(mbrs[0], 1, 1).set(other, 5, 7);
+
+        ByteArrayDataOutputStream out=new ByteArrayDataOutputStream(64);
+        digest.writeTo(out, view);
+        assert out.position() == digest.serializedSize(view);
+        Digest copy=new Digest();
+        copy.readFrom(new ByteArrayDataInputStream(out.buffer(), 0, out.position()), view);
+        assert copy.equals(digest);
+        assert copy.getMembersRaw()[0] == last && copy.getMembersRaw()[2].equals(other);
+    }
+
+    /** Indexed digests are only written when enabled, as older members cannot read them */
+    public void testViewAndIndexedDigest() throws Exception {
+        Address a=Util.createRandomAddress("A"), b=Util.createRandomAddress("B"), c=Util.createRandomAddress("C");
+        View v1=View.create(a, 1, a, b), v2=View.create(c, 1, c);
+        MergeView view=new MergeView(a, 2, Arrays.asList(a, b, c), Arrays.asList(v1, v2));
+        MutableDigest digest=new MutableDigest(new Address[]{c, a, b});
+        digest.set(c, 1, 2).set(a, 10, 10).set(b, 5, 6);
+
+        for(boolean index: new boolean[]{false, true}) {
+            ByteArray buf=GMS.marshal(view, digest, index);
+            short flags=Bits.readShort(buf.getArray(), buf.getOffset());
+            assert ((flags & GMS.INDEXED_DIGEST) == GMS.INDEXED_DIGEST) == index;
+            assert ((flags & GMS.READ_ADDRS) == GMS.READ_ADDRS) == !index;
+            Tuple<View,Digest> tuple=GMS._readViewAndDigest(buf.getArray(), buf.getOffset(), buf.getLength());
+            assert tuple.getVal1().equals(view) && tuple.getVal2().equals(digest);
+        }
+    }
+
     public static void testNakackHeader() throws Exception {
         _testSize(NakAckHeader2.createMessageHeader(322649));
         _testSize(NakAckHeader2.createXmitRequestHeader(Util.createRandomAddress()));
@@ -567,6 +624,11 @@ public class SizeTest {
         _testSize(hdr);
     }
 
+    public void testStreamHeader() throws Exception {
+        _testSize(new STREAM.StreamHeader((byte)1, 1));
+        _testSize(new STREAM.StreamHeader((byte)2, 322649L << 20));
+    }
+
     public void testCompressHeader() throws Exception {
         COMPRESS.CompressHeader hdr=new COMPRESS.CompressHeader(2002);
         _testSize(hdr);
@@ -19,6 +19,7 @@ import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
 
@@ -76,6 +77,22 @@ public class TableTest {
         assert buf.size() == 2;
     }
 
+    public void testAddMessageBatchWithPrimitiveSeqnos() {
+        Table<Message> buf=new Table<>(3, 10, 0);
+        MessageBatch mb=createMessageBatch(1, 2, 3, 4, 5);
+        ToLongFunction<Message> getter=m -> {
+            NakAckHeader2 hdr=m.getHeader(NAKACK2_ID);
+            return hdr == null? -1 : hdr.getSeqno();
+        };
+        assert buf.addBatch(mb, getter);
+        assert buf.size() == 5 && mb.size() == 5;
+        mb=createMessageBatch(4, 5, 6, 7);
+        assert buf.addBatch(mb, getter, false, null);
+        assert buf.size() == 7;
+        assert mb.size() == 2 : "4 and 5 were already present and should have been removed: " + mb;
+        assert mb.stream().map(m -> getter.applyAsLong(m)).allMatch(s -> s == 6 || s == 7);
+    }
+
 
     public void testAddListWithConstValue() {
         Table<Integer> buf=new Table<>(3, 10, 0);
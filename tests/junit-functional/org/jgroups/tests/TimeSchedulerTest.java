@@ -32,7 +32,11 @@ public class TimeSchedulerTest {
     static double    PERCENTAGE_OFF=0.3; // how much can expected xmit_timeout and real timeout differ to still be okay ?
 
     @BeforeMethod protected void init() {
-        timer=new TimeScheduler3();
+        timer=createTimer();
+    }
+
+    protected TimeScheduler createTimer() {
+        return new TimeScheduler3();
     }
     
     @AfterMethod protected void destroy() {
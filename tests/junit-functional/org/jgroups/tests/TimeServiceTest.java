@@ -1,6 +1,9 @@
 package org.jgroups.tests;
 
 import org.jgroups.Global;
+import org.jgroups.JChannel;
+import org.jgroups.protocols.TP;
+import org.jgroups.stack.Protocol;
 import org.jgroups.util.TimeScheduler;
 import org.jgroups.util.TimeScheduler3;
 import org.jgroups.util.TimeService;
@@ -62,6 +65,30 @@ public class TimeServiceTest {
         assert time_service.interval() == 1000;
     }
 
+    public void testMicrosecondInterval() {
+        time_service.stop().interval(500, TimeUnit.MICROSECONDS).start();
+        assert time_service.interval() == 0;
+        Set<Long> set=new HashSet<>();
+        for(int i=0; i < 20; i++) {
+            set.add(time_service.timestamp());
+            Util.sleep(5);
+        }
+        assert set.size() >= 15 : String.format("expected at least 15 distinct timestamps, but got %d", set.size());
+    }
+
+    /** The transport's time service can be configured with a sub-ms interval */
+    public void testTransportInterval() throws Exception {
+        Protocol[] prots=Util.getTestStack();
+        ((TP)prots[0]).setTimeServiceInterval(500, TimeUnit.MICROSECONDS);
+        try(JChannel ch=new JChannel(prots).name("A")) {
+            TP tp=ch.getProtocolStack().getTransport();
+            ch.connect(TimeServiceTest.class.getSimpleName());
+            TimeService ts=tp.getTimeService();
+            assert ts.running() : ts;
+            assert ts.unit() == TimeUnit.MICROSECONDS && ts.interval() == 0 : ts;
+        }
+    }
+
     public void testStartStop() {
         assert time_service.running();
         time_service.stop();
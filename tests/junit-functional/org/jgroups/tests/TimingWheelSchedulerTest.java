@@ -0,0 +1,58 @@
+package org.jgroups.tests;
+
+import org.jgroups.Global;
+import org.jgroups.util.TimeScheduler;
+import org.jgroups.util.TimingWheelScheduler;
+import org.jgroups.util.Util;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the tests of {@link TimeSchedulerTest} against {@link TimingWheelScheduler}
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@Test(groups=Global.TIME_SENSITIVE,singleThreaded=true)
+public class TimingWheelSchedulerTest extends TimeSchedulerTest {
+
+    @Override protected TimeScheduler createTimer() {
+        return new TimingWheelScheduler(1, 8); // small wheels, so that tasks move between wheels
+    }
+
+    /** Tasks must never run before their execution time, also when scheduled in overflow wheels */
+    public void testNotEarly() throws Exception {
+        int[] delays={1, 5, 7, 8, 9, 63, 64, 65, 300, 513, 1000};
+        List<Long> diffs=new ArrayList<>(), scheduled=new ArrayList<>();
+        AtomicInteger count=new AtomicInteger();
+        for(int delay: delays) {
+            long start=System.nanoTime();
+            timer.schedule(() -> {
+                synchronized(diffs) {
+                    diffs.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    scheduled.add((long)delay);
+                }
+                count.incrementAndGet();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        Util.waitUntil(5000, 50, () -> count.get() == delays.length);
+        for(int i=0; i < diffs.size(); i++)
+            assert diffs.get(i) >= scheduled.get(i) : String.format("task with delay %d ran after %d ms", scheduled.get(i), diffs.get(i));
+        assert timer.size() == 0;
+    }
+
+    public void testCancelledTasksAreRemoved() {
+        List<Future<?>> futures=new ArrayList<>();
+        for(int i=0; i < 1000; i++)
+            futures.add(timer.schedule(() -> {}, 5000 + i, TimeUnit.MILLISECONDS));
+        assert timer.size() == 1000;
+        for(int i=0; i < futures.size(); i+=2)
+            futures.get(i).cancel(true);
+        timer.removeCancelledTasks();
+        assert timer.size() == 500 : String.format("expected 500 tasks, but got %d", timer.size());
+    }
+}
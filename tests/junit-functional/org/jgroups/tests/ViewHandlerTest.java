@@ -177,6 +177,35 @@ public class ViewHandlerTest {
             assert list.get(i) == i+1;
     }
 
+    public void testMaxBatchSize() {
+        List<Collection<Integer>> batches=new ArrayList<>();
+        req_handler=batches::add;
+        req_matcher=(a,b) -> true;
+        view_handler.maxBatchSize(3);
+        view_handler.add(1,2,3,4,5,6,7,8);
+        System.out.printf("batches: %s\n", batches);
+        assert batches.size() == 3;
+        assert batches.get(0).equals(Arrays.asList(1,2,3));
+        assert batches.get(1).equals(Arrays.asList(4,5,6));
+        assert batches.get(2).equals(Arrays.asList(7,8));
+    }
+
+    public void testLinger() throws Exception {
+        List<Collection<Integer>> batches=new ArrayList<>();
+        CountDownLatch started=new CountDownLatch(1);
+        req_handler=batches::add;
+        req_matcher=(a,b) -> true;
+        view_handler.linger(r -> {started.countDown(); return 1000;}).maxBatchSize(5);
+        Thread t=new Thread(() -> view_handler.add(1));
+        t.start();
+        started.await();
+        view_handler.add(2,3,4,5); // processed by the lingering thread, which returns once max_batch_size is reached
+        t.join(10000);
+        System.out.printf("batches: %s\n", batches);
+        assert batches.size() == 1;
+        assert batches.get(0).equals(Arrays.asList(1,2,3,4,5));
+    }
+
     public void testAddNoMatches() {
         List<Integer> list=new ArrayList<>();
         req_handler=list::addAll;
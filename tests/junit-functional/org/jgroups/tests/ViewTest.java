@@ -274,6 +274,28 @@ public class ViewTest {
         Assert.assertEquals(members, mbrs);
     }
 
+    public void testIndexOfLargeView() {
+        List<Address> mbrs=new ArrayList<>();
+        for(int i=0; i < 100; i++)
+            mbrs.add(Util.createRandomAddress(String.valueOf(i)));
+        View v=View.create(mbrs.get(0), 1, mbrs);
+        for(int i=0; i < mbrs.size(); i++) {
+            assert v.indexOf(mbrs.get(i)) == i;
+            assert v.containsMember(mbrs.get(i));
+        }
+        assert v.indexOf(Util.createRandomAddress("X")) == -1;
+        assert !v.containsMember(Util.createRandomAddress("Y"));
+        assert Util.getRank(v, mbrs.get(99)) == 100;
+
+        List<Address> tmp=new ArrayList<>(mbrs.subList(10, 100));
+        Address z=Util.createRandomAddress("Z");
+        tmp.add(z);
+        View v2=View.create(tmp.get(0), 2, tmp);
+        Address[][] diff=View.diff(v, v2);
+        assert diff[0].length == 1 && diff[0][0].equals(z);
+        assert diff[1].length == 10;
+    }
+
     protected static String printDiff(Address[][] diff) {
         StringBuilder sb=new StringBuilder();
         Address[] joined=diff[0], left=diff[1];
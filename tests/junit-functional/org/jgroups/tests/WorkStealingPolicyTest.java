@@ -0,0 +1,113 @@
+package org.jgroups.tests;
+
+import org.jgroups.*;
+import org.jgroups.protocols.TP;
+import org.jgroups.stack.Protocol;
+import org.jgroups.util.MyReceiver;
+import org.jgroups.util.Util;
+import org.jgroups.util.WorkStealingPolicy;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests {@link WorkStealingPolicy}
+ * @author Bela Ban
+ * @since  5.2.3
+ */
+@Test(groups=Global.FUNCTIONAL,singleThreaded=true)
+public class WorkStealingPolicyTest {
+    protected JChannel                       a, b, c;
+    protected MyReceiver<Message>            ra, rb, rc;
+    protected static final String            CLUSTER=WorkStealingPolicyTest.class.getSimpleName();
+    protected static final int               NUM=500;
+
+    @BeforeMethod protected void setup() throws Exception {
+        a=create("A");
+        b=create("B");
+        c=create("C");
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, a, b, c);
+        a.setReceiver(ra=new MyReceiver<Message>().rawMsgs(true));
+        b.setReceiver(rb=new MyReceiver<Message>().rawMsgs(true));
+        c.setReceiver(rc=new MyReceiver<Message>().rawMsgs(true));
+    }
+
+    @AfterMethod protected void destroy() {Util.close(c, b, a);}
+
+    public void testPolicy() {
+        for(JChannel ch: List.of(a, b, c))
+            assert ch.getProtocolStack().getTransport().getMessageProcessingPolicy() instanceof WorkStealingPolicy;
+    }
+
+    /** Every sender sends multicasts and unicasts, which must be received in sender order (including loopbacks) */
+    public void testOrdering() throws Exception {
+        Thread[] senders=Stream.of(a, b, c).map(ch -> new Thread(() -> send(ch))).toArray(Thread[]::new);
+        for(Thread t: senders)
+            t.start();
+        for(Thread t: senders)
+            t.join();
+        // every member receives NUM multicasts from each member and NUM unicasts from its predecessor
+        Util.waitUntil(10000, 100, () -> Stream.of(ra, rb, rc).allMatch(r -> r.size() == NUM * 4),
+                       () -> Stream.of(ra, rb, rc).map(r -> String.valueOf(r.size())).collect(Collectors.joining(", ")));
+        for(MyReceiver<Message> r: List.of(ra, rb, rc)) {
+            for(JChannel sender: List.of(a, b, c)) {
+                for(boolean mcast: new boolean[]{true, false}) {
+                    List<Integer> list=r.list().stream()
+                      .filter(m -> m.getSrc().equals(sender.getAddress()) && (m.getDest() == null) == mcast)
+                      .map(m -> (Integer)m.getObject()).collect(Collectors.toList());
+                    for(int i=0; i < list.size(); i++)
+                        assert list.get(i) == i+1 : String.format("expected %d but got %d: %s", i+1, list.get(i), list);
+                }
+            }
+        }
+    }
+
+    public void testChangePolicy() throws Exception {
+        TP tp=a.getProtocolStack().getTransport();
+        tp.setMessageProcessingPolicy("max");
+        b.send(null, "hello");
+        Util.waitUntil(10000, 100, () -> ra.size() == 1 && rb.size() == 1 && rc.size() == 1);
+    }
+
+    /** The workers are stopped when the transport is stopped, and need to be restarted on a reconnect */
+    public void testReconnect() throws Exception {
+        b.disconnect();
+        Util.waitUntilAllChannelsHaveSameView(10000, 100, a, c);
+        b.connect(CLUSTER);
+        Util.waitUntilAllChannelsHaveSameView(10000, 100, a, b, c);
+        WorkStealingPolicy policy=(WorkStealingPolicy)b.getProtocolStack().getTransport().getMessageProcessingPolicy();
+        assert policy.getNumWorkers() > 0;
+        Stream.of(ra, rb, rc).forEach(MyReceiver::reset);
+        for(int i=1; i <= 10; i++) {
+            a.send(null, i); // regular messages
+            b.send(null, i);
+        }
+        Util.waitUntil(10000, 100, () -> Stream.of(ra, rb, rc).allMatch(r -> r.size() == 20),
+                       () -> Stream.of(ra, rb, rc).map(r -> String.valueOf(r.size())).collect(Collectors.joining(", ")));
+    }
+
+    protected void send(JChannel ch) {
+        List<JChannel> list=List.of(a, b, c);
+        int index=list.indexOf(ch);
+        Address next=list.get((index+1) % list.size()).getAddress();
+        try {
+            for(int i=1; i <= NUM; i++) {
+                ch.send(new ObjectMessage(null, i));
+                ch.send(new ObjectMessage(next, i));
+            }
+        }
+        catch(Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected static JChannel create(String name) throws Exception {
+        Protocol[] prots=Util.getTestStack();
+        prots[0].setValue("message_processing_policy", "steal");
+        return new JChannel(prots).name(name).connect(CLUSTER);
+    }
+}
@@ -8,6 +8,7 @@ import org.jgroups.protocols.pbcast.NAKACK2;
 import org.jgroups.protocols.pbcast.STABLE;
 import org.jgroups.stack.GossipRouter;
 import org.jgroups.stack.Protocol;
+import org.jgroups.util.MyReceiver;
 import org.jgroups.util.ResourceManager;
 import org.jgroups.util.Util;
 import org.testng.annotations.AfterMethod;
@@ -15,6 +16,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.net.InetAddress;
+import java.util.List;
 import java.util.stream.Stream;
 
 /**
@@ -22,7 +24,7 @@ import java.util.stream.Stream;
  */
 @Test(groups={Global.STACK_INDEPENDENT,Global.GOSSIP_ROUTER,Global.EAP_EXCLUDED},singleThreaded=true)
 public class GossipRouterTest {
-    protected GossipRouter        router;
+    protected GossipRouter        router, router2;
     protected JChannel            a, b;
     protected int                 gossip_router_port;
     protected String              gossip_router_hosts;
@@ -41,6 +43,8 @@ public class GossipRouterTest {
     protected void tearDown() throws Exception {
         Util.close(b,a);
         router.stop();
+        if(router2 != null)
+            router2.stop();
     }
 
     /**
@@ -60,9 +64,60 @@ public class GossipRouterTest {
         Util.waitUntil(20000, 1000, () -> Stream.of(a, b).allMatch(c -> c.getView().size() == 2));
     }
 
+    /** Router with multiple selector threads and zero-copy forwarding: multicasts and unicasts must be delivered */
+    public void testNioWithSelectorThreads() throws Exception {
+        router=new GossipRouter(bind_addr_str, gossip_router_port).useNio(true)
+          .nioSelectors(2).zeroCopy(true).maxPendingWriteBytes(100_000);
+        router.start();
+        a=createTunnelChannel("A").connect("demo");
+        b=createTunnelChannel("B").connect("demo");
+        Util.waitUntil(10000, 500, () -> Stream.of(a, b).allMatch(c -> c.getView().size() == 2));
+        MyReceiver<Integer> ra=new MyReceiver<>(), rb=new MyReceiver<>();
+        a.setReceiver(ra);
+        b.setReceiver(rb);
+        for(int i=1; i <= 50; i++)
+            a.send(null, i);
+        for(int i=1; i <= 50; i++)
+            b.send(a.getAddress(), i);
+        Util.waitUntil(10000, 200, () -> ra.size() == 100 && rb.size() == 50,
+                       () -> String.format("A: %d msgs, B: %d msgs", ra.size(), rb.size()));
+    }
+
+    /** A and B connect to different routers of a federation and must still form a cluster and exchange messages */
+    public void testFederation() throws Exception {
+        List<Integer> ports=ResourceManager.getNextTcpPorts(bind_addr, 2);
+        int port1=ports.get(0), port2=ports.get(1);
+        String peers=String.format("%s[%d],%s[%d]", bind_addr.getHostAddress(), port1, bind_addr.getHostAddress(), port2);
+        router=new GossipRouter(bind_addr, port1).useNio(false).peerRouters(peers).federationSyncInterval(1000);
+        router2=new GossipRouter(bind_addr, port2).useNio(true).peerRouters(peers).federationSyncInterval(1000);
+        router.start();
+        router2.start();
+        a=createTunnelChannel("A", bind_addr.getHostAddress() + "[" + port1 + "]").connect("demo");
+        b=createTunnelChannel("B", bind_addr.getHostAddress() + "[" + port2 + "]").connect("demo");
+        Util.waitUntil(20000, 500, () -> Stream.of(a, b).allMatch(c -> c.getView().size() == 2));
+        MyReceiver<Integer> ra=new MyReceiver<>(), rb=new MyReceiver<>();
+        a.setReceiver(ra);
+        b.setReceiver(rb);
+        for(int i=1; i <= 10; i++)
+            a.send(null, i);
+        for(int i=1; i <= 10; i++)
+            b.send(a.getAddress(), i);
+        Util.waitUntil(10000, 200, () -> ra.size() == 20 && rb.size() == 10,
+                       () -> String.format("A: %d msgs, B: %d msgs", ra.size(), rb.size()));
+
+        // B leaves: router2 must unregister it at router
+        b.close();
+        Util.waitUntil(10000, 200, () -> !router.dumpAddressMappings().contains("B:"),
+                       () -> router.dumpAddressMappings());
+    }
+
     protected JChannel createTunnelChannel(String name) throws Exception {
+        return createTunnelChannel(name, gossip_router_hosts);
+    }
+
+    protected JChannel createTunnelChannel(String name, String router_hosts) throws Exception {
         Protocol[] protocols={
-          new TUNNEL().setReconnectInterval(1000).setGossipRouterHosts(gossip_router_hosts).setBindAddress(bind_addr),
+          new TUNNEL().setReconnectInterval(1000).setGossipRouterHosts(router_hosts).setBindAddress(bind_addr),
           new PING(),
           new MERGE3().setMinInterval(1000).setMaxInterval(3000),
           new NAKACK2().useMcastXmit(false),